@@ -16,9 +16,8 @@
 */
 package de.inetsoftware.classparser;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -32,12 +31,12 @@ public class Attributes {
 
     private final ConstantPool    constantPool;
 
-    Attributes( @Nonnull DataInputStream input, @Nonnull ConstantPool constantPool ) throws IOException {
+    Attributes( @Nonnull ClassInputStream input, @Nonnull ConstantPool constantPool ) throws IOException {
         this.constantPool = constantPool;
         this.attributes = readAttributs( input );
     }
 
-    private AttributeInfo[] readAttributs( @Nonnull DataInputStream input ) throws IOException {
+    private AttributeInfo[] readAttributs( @Nonnull ClassInputStream input ) throws IOException {
         AttributeInfo[] attrs = new AttributeInfo[input.readUnsignedShort()];
         for( int i = 0; i < attrs.length; i++ ) {
             attrs[i] = new AttributeInfo( input, constantPool );
@@ -55,16 +54,26 @@ AttributeInfo get( String name ) {
         return null;
     }
 
+    /**
+     * A single attribute. The data are not copied and decoded. It hold only the position in the bytes of the class
+     * file. The caller decode it on the first access.
+     */
     static class AttributeInfo {
 
         private final String name;
 
-        private final byte[] info;
+        private final byte[] buf;
+
+        private final int    offset;
+
+        private final int    length;
 
-        AttributeInfo( @Nonnull DataInputStream input, @Nonnull ConstantPool constantPool ) throws IOException {
+        AttributeInfo( @Nonnull ClassInputStream input, @Nonnull ConstantPool constantPool ) throws IOException {
             this.name = (String)constantPool.get( input.readUnsignedShort() );
-            this.info = new byte[input.readInt()];
-            input.readFully( this.info );
+            this.length = input.readInt();
+            this.buf = input.getBuffer();
+            this.offset = input.getPosition();
+            input.skipFully( length );
         }
 
         String getName() {
@@ -72,11 +81,11 @@ String getName() {
         }
 
         byte[] getData() {
-            return info;
+            return Arrays.copyOfRange( buf, offset, offset + length );
         }
 
-        DataInputStream getDataInputStream(){
-            return new DataInputStream( new ByteArrayInputStream( info ) );
+        ClassInputStream getDataInputStream(){
+            return new ClassInputStream( buf, offset, length );
         }
     }
 
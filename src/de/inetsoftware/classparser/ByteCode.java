@@ -0,0 +1,347 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.classparser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The decoded Java byte code of a method. The byte code is decoded once in a single pass. Every instruction has an
+ * index with the code position, the line number, the operation code and the decoded operands. The operands are:
+ * <ul>
+ * <li>the signed value for bipush and sipush
+ * <li>the index in the constant pool for ldc, field, method, invoke and class instructions
+ * <li>the variable slot for load, store and ret, also with a wide prefix
+ * <li>the variable slot and the signed constant for iinc
+ * <li>the signed jump offset for if, goto and jsr
+ * <li>the default offset, the low and the high value followed by the jump offsets for tableswitch
+ * <li>the default offset and the count of pairs followed by key and jump offset pairs for lookupswitch
+ * <li>the type code for newarray
+ * <li>the index in the constant pool and the count of dimensions for multianewarray
+ * </ul>
+ * The wide prefix is an own instruction without operands. The padding of switches and the constant values of
+ * invokeinterface and invokedynamic are skipped.
+ * 
+ * http://docs.oracle.com/javase/specs/jvms/se8/html/jvms-6.html
+ * 
+ * @author Volker Berlin
+ */
+public class ByteCode {
+
+    private final ConstantPool constantPool;
+
+    private final int          size;
+
+    private final int[]        positions;
+
+    private final int[]        lineNumbers;
+
+    private final int[]        opCodes;
+
+    private final int[]        operandStarts;
+
+    private final int[]        operands;
+
+    /**
+     * Decode the byte code of a method.
+     * 
+     * @param code
+     *            the code attribute for the line numbers
+     * @param buf
+     *            the bytes of the class file
+     * @param offset
+     *            the start of the byte code
+     * @param length
+     *            the length of the byte code
+     * @param constantPool
+     *            the ConstantPool of the class
+     * @throws IOException
+     *             if the byte code is truncated
+     */
+    ByteCode( @Nonnull Code code, @Nonnull byte[] buf, int offset, int length, @Nonnull ConstantPool constantPool ) throws IOException {
+        this.constantPool = constantPool;
+        int[] positions = new int[length + 1];
+        int[] opCodes = new int[length];
+        int[] operandStarts = new int[length + 1];
+        int[] operands = new int[length];
+        int count = 0;
+        int operandCount = 0;
+        int end = offset + length;
+        boolean wide = false;
+        int pos = offset;
+        DECODE: while( pos < end ) {
+            positions[count] = pos - offset;
+            operandStarts[count] = operandCount;
+            int op = buf[pos++] & 0xFF;
+            opCodes[count++] = op;
+            switch( op ) {
+                case 16: // bipush
+                    checkLength( pos + 1, end );
+                    operands[operandCount++] = buf[pos++];
+                    break;
+                case 17: // sipush
+                case 153: // ifeq
+                case 154: // ifne
+                case 155: // iflt
+                case 156: // ifge
+                case 157: // ifgt
+                case 158: // ifle
+                case 159: // if_icmpeq
+                case 160: // if_icmpne
+                case 161: // if_icmplt
+                case 162: // if_icmpge
+                case 163: // if_icmpgt
+                case 164: // if_icmple
+                case 165: // if_acmpeq
+                case 166: // if_acmpne
+                case 167: // goto
+                case 168: // jsr
+                case 198: // ifnull
+                case 199: // ifnonnull
+                    checkLength( pos + 2, end );
+                    operands[operandCount++] = (short)readUnsignedShort( buf, pos );
+                    pos += 2;
+                    break;
+                case 18: // ldc
+                    checkLength( pos + 1, end );
+                    operands[operandCount++] = buf[pos++] & 0xFF;
+                    break;
+                case 19: // ldc_w
+                case 20: // ldc2_w
+                case 178: // getstatic
+                case 179: // putstatic
+                case 180: // getfield
+                case 181: // putfield
+                case 182: // invokevirtual
+                case 183: // invokespecial
+                case 184: // invokestatic
+                case 187: // new
+                case 189: // anewarray
+                case 192: // checkcast
+                case 193: // instanceof
+                    checkLength( pos + 2, end );
+                    operands[operandCount++] = readUnsignedShort( buf, pos );
+                    pos += 2;
+                    break;
+                case 185: // invokeinterface, with count and 0
+                case 186: // invokedynamic, with 0 and 0
+                    checkLength( pos + 4, end );
+                    operands[operandCount++] = readUnsignedShort( buf, pos );
+                    pos += 4;
+                    break;
+                case 21: // iload
+                case 22: // lload
+                case 23: // fload
+                case 24: // dload
+                case 25: // aload
+                case 54: // istore
+                case 55: // lstore
+                case 56: // fstore
+                case 57: // dstore
+                case 58: // astore
+                case 169: // ret
+                    if( wide ) {
+                        checkLength( pos + 2, end );
+                        operands[operandCount++] = readUnsignedShort( buf, pos );
+                        pos += 2;
+                    } else {
+                        checkLength( pos + 1, end );
+                        operands[operandCount++] = buf[pos++] & 0xFF;
+                    }
+                    break;
+                case 132: // iinc
+                    if( wide ) {
+                        checkLength( pos + 4, end );
+                        operands[operandCount++] = readUnsignedShort( buf, pos );
+                        operands[operandCount++] = (short)readUnsignedShort( buf, pos + 2 );
+                        pos += 4;
+                    } else {
+                        checkLength( pos + 2, end );
+                        operands[operandCount++] = buf[pos++] & 0xFF;
+                        operands[operandCount++] = buf[pos++];
+                    }
+                    break;
+                case 170: // tableswitch
+                case 171: // lookupswitch
+                    pos += (4 - (pos - offset) % 4) % 4; // padding
+                    checkLength( pos + (op == 170 ? 12 : 8), end );
+                    int defaultOffset = readInt( buf, pos );
+                    int low = readInt( buf, pos + 4 );
+                    pos += 8;
+                    int jumps = op == 170 ? readInt( buf, pos ) - low + 1 : 2 * low;
+                    if( op == 170 ) {
+                        pos += 4;
+                    }
+                    if( jumps < 0 ) {
+                        throw new IOException( "Invalid switch size at code position " + positions[count - 1] );
+                    }
+                    checkLength( pos + 4L * jumps, end );
+                    operands[operandCount++] = defaultOffset;
+                    operands[operandCount++] = low;
+                    if( op == 170 ) {
+                        operands[operandCount++] = low + jumps - 1;
+                    }
+                    for( int i = 0; i < jumps; i++ ) {
+                        operands[operandCount++] = readInt( buf, pos );
+                        pos += 4;
+                    }
+                    break;
+                case 188: // newarray
+                    checkLength( pos + 1, end );
+                    operands[operandCount++] = buf[pos++];
+                    break;
+                case 196: // wide
+                    wide = true;
+                    continue DECODE;
+                case 197: // multianewarray
+                    checkLength( pos + 3, end );
+                    operands[operandCount++] = readUnsignedShort( buf, pos );
+                    operands[operandCount++] = buf[pos + 2] & 0xFF;
+                    pos += 3;
+                    break;
+                case 200: // goto_w
+                case 201: // jsr_w
+                    checkLength( pos + 4, end );
+                    operands[operandCount++] = readInt( buf, pos );
+                    pos += 4;
+                    break;
+                default:
+                    if( op > 201 ) {
+                        // unknown operation, the length of the instruction is unknown and we can't decode the rest
+                        break DECODE;
+                    }
+                    // operation without operands
+            }
+            wide = false;
+        }
+        positions[count] = pos - offset;
+        operandStarts[count] = operandCount;
+
+        this.size = count;
+        this.positions = Arrays.copyOf( positions, count + 1 );
+        this.opCodes = Arrays.copyOf( opCodes, count );
+        this.operandStarts = Arrays.copyOf( operandStarts, count + 1 );
+        this.operands = Arrays.copyOf( operands, operandCount );
+        this.lineNumbers = new int[count + 1];
+        for( int i = 0; i <= count; i++ ) {
+            lineNumbers[i] = code.getLineNumber( this.positions[i] );
+        }
+    }
+
+    /**
+     * Check that the instruction is not truncated.
+     * 
+     * @param needed
+     *            the needed end position
+     * @param end
+     *            the end of the byte code
+     * @throws IOException
+     *             if truncated
+     */
+    private static void checkLength( long needed, int end ) throws IOException {
+        if( needed > end ) {
+            throw new IOException( "Unexpected end of byte code" );
+        }
+    }
+
+    private static int readUnsignedShort( byte[] buf, int pos ) {
+        return ((buf[pos] & 0xFF) << 8) | (buf[pos + 1] & 0xFF);
+    }
+
+    private static int readInt( byte[] buf, int pos ) {
+        return ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+    }
+
+    /**
+     * Get the count of instructions.
+     * 
+     * @return the count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the code position of an instruction.
+     * 
+     * @param idx
+     *            the index of the instruction. The index size() returns the position after the last instruction.
+     * @return the code position
+     */
+    public int getCodePosition( int idx ) {
+        return positions[idx];
+    }
+
+    /**
+     * Get the line number of an instruction.
+     * 
+     * @param idx
+     *            the index of the instruction. The index size() returns the line number after the last instruction.
+     * @return the line number in the source code or -1 if not available
+     */
+    public int getLineNumber( int idx ) {
+        return lineNumbers[idx];
+    }
+
+    /**
+     * Get the operation code of an instruction.
+     * 
+     * @param idx
+     *            the index of the instruction
+     * @return the operation code
+     */
+    public int getOpCode( int idx ) {
+        return opCodes[idx];
+    }
+
+    /**
+     * Get the count of decoded operands of an instruction.
+     * 
+     * @param idx
+     *            the index of the instruction
+     * @return the count
+     */
+    public int getOperandCount( int idx ) {
+        return operandStarts[idx + 1] - operandStarts[idx];
+    }
+
+    /**
+     * Get a decoded operand of an instruction.
+     * 
+     * @param idx
+     *            the index of the instruction
+     * @param n
+     *            the index of the operand
+     * @return the value
+     */
+    public int getOperand( int idx, int n ) {
+        return operands[operandStarts[idx] + n];
+    }
+
+    /**
+     * Get the constant pool entry of an instruction with an index in the constant pool as first operand.
+     * 
+     * @param idx
+     *            the index of the instruction
+     * @return the constant
+     */
+    public Object getConstant( int idx ) {
+        return constantPool.get( operands[operandStarts[idx]] );
+    }
+}
@@ -74,7 +74,20 @@ public class ClassFile {
      *             if this input stream reaches the end before reading the class file.
      */
     public ClassFile( InputStream stream ) throws IOException {
-        DataInputStream input = new DataInputStream( stream );
+        this( ClassInputStream.readAll( stream ) );
+    }
+
+    /**
+     * Create a model of the class from the bytes of a class file. The bytes are not copied and must not be modified
+     * later. Multiple instances can share the same bytes.
+     *
+     * @param bytes
+     *            the bytes of the class file
+     * @throws IOException
+     *             if the bytes are not a valid class file.
+     */
+    public ClassFile( byte[] bytes ) throws IOException {
+        ClassInputStream input = new ClassInputStream( bytes, 0, bytes.length );
         int magic = input.readInt();
         if( magic != 0xCAFEBABE ) {
             throw new IOException( "Invalid class magic: " + Integer.toHexString( magic ) );
@@ -94,8 +107,6 @@ public ClassFile( InputStream stream ) throws IOException {
         methods = readMethods( input );
         attributes = new Attributes( input, constantPool );
 
-        stream.close();
-
         AttributeInfo info = attributes.get( "Signature" );
         if( info != null ) {
             int idx = info.getDataInputStream().readShort();
@@ -328,7 +339,7 @@ public boolean isEnum() {
         return (accessFlags & 0x4000) > 0;
     }
 
-    private FieldInfo[] readFields( DataInputStream input ) throws IOException {
+    private FieldInfo[] readFields( ClassInputStream input ) throws IOException {
         FieldInfo[] fields = new FieldInfo[input.readUnsignedShort()];
         for( int i = 0; i < fields.length; i++ ) {
             fields[i] = new FieldInfo( input, constantPool );
@@ -336,7 +347,7 @@ private FieldInfo[] readFields( DataInputStream input ) throws IOException {
         return fields;
     }
 
-    private MethodInfo[] readMethods( DataInputStream input ) throws IOException {
+    private MethodInfo[] readMethods( ClassInputStream input ) throws IOException {
         MethodInfo[] methods = new MethodInfo[input.readUnsignedShort()];
         for( int i = 0; i < methods.length; i++ ) {
             methods[i] = new MethodInfo( input, constantPool, this );
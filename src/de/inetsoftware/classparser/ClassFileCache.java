@@ -0,0 +1,379 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.classparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A process wide cache for class files that can be shared between multiple compilations and threads. A ClassFile is
+ * modified by a compilation with replacements and partial classes. Therefore the cache holds the bytes of the class
+ * files and every call create a new ClassFile over the shared bytes. The parsing of the attributes is lazy and does
+ * not copy the bytes.
+ * 
+ * The entries are keyed by the source URL and are valid as long as the last modified time and the size of the file or
+ * archive does not change. Equal class files from different sources share the same bytes by its content hash. The
+ * least recently used entries are evicted if the size of all bytes exceeds the limit.
+ * 
+ * Optional the bytes of file and archive sources can be stored in a directory. Then a separate JVM can reuse it
+ * without searching and inflating the archives again.
+ * 
+ * @author Volker Berlin
+ */
+public class ClassFileCache {
+
+    private static final ClassFileCache        SHARED   = new ClassFileCache( 64 * 1024 * 1024 );
+
+    private final long                         maxSize;
+
+    private long                               size;
+
+    private final LinkedHashMap<String, Entry> sources  = new LinkedHashMap<>( 256, 0.75F, true );
+
+    private final HashMap<String, Content>     contents = new HashMap<>();
+
+    /**
+     * Create a new cache.
+     * 
+     * @param maxSize
+     *            the maximum count of bytes of all cached class files
+     */
+    public ClassFileCache( long maxSize ) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the process wide shared cache.
+     * 
+     * @return the cache
+     */
+    @Nonnull
+    public static ClassFileCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Get a new ClassFile for the given source from the cache or load it.
+     * 
+     * @param url
+     *            the URL of the *.class file
+     * @param directory
+     *            optional directory for a persistent cache between JVM instances
+     * @return the ClassFile
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nonnull
+    public ClassFile get( @Nonnull URL url, @Nullable File directory ) throws IOException {
+        return new ClassFile( getBytes( url, null, directory ) );
+    }
+
+    /**
+     * Get a new ClassFile for the given source from the cache or load it from an already opened stream. This is useful
+     * if the entries of an archive are read sequentially.
+     * 
+     * @param url
+     *            the URL of the *.class file, used as key
+     * @param stream
+     *            the stream of the class file, is only read if the source is not in the cache. Will be closed if read.
+     * @param directory
+     *            optional directory for a persistent cache between JVM instances
+     * @return the ClassFile
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nonnull
+    public ClassFile get( @Nonnull URL url, @Nonnull InputStream stream, @Nullable File directory ) throws IOException {
+        return new ClassFile( getBytes( url, stream, directory ) );
+    }
+
+    /**
+     * Get the bytes of a class file from the cache or load it.
+     * 
+     * @param url
+     *            the URL of the *.class file
+     * @param stream
+     *            optional opened stream of the class file
+     * @param directory
+     *            optional directory for a persistent cache between JVM instances
+     * @return the bytes, must not be modified
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nonnull
+    private byte[] getBytes( @Nonnull URL url, @Nullable InputStream stream, @Nullable File directory ) throws IOException {
+        String source = url.toExternalForm();
+        File file = getSourceFile( url );
+        String stamp;
+        if( file != null ) {
+            stamp = file.lastModified() + "-" + file.length();
+        } else if( "jrt".equals( url.getProtocol() ) ) {
+            // the runtime image can't change while the JVM is running
+            stamp = "jrt";
+        } else {
+            // unknown source, we can't detect changes
+            return ClassInputStream.readAll( stream != null ? stream : openStream( url ) );
+        }
+
+        synchronized( this ) {
+            Entry entry = sources.get( source );
+            if( entry != null && entry.stamp.equals( stamp ) ) {
+                return entry.content.bytes;
+            }
+        }
+
+        File diskFile = file != null && directory != null ? new File( directory, hash( source + '\n' + stamp ) + ".class" ) : null;
+        byte[] bytes = null;
+        if( diskFile != null && diskFile.isFile() ) {
+            bytes = ClassInputStream.readAll( new FileInputStream( diskFile ) );
+            if( !isClassFile( bytes ) ) {
+                bytes = null;
+            }
+        }
+        if( bytes == null ) {
+            bytes = ClassInputStream.readAll( stream != null ? stream : openStream( url ) );
+            if( diskFile != null && isClassFile( bytes ) ) {
+                try {
+                    write( diskFile, bytes );
+                } catch( IOException ex ) {
+                    // the directory is only an optimization, a read only or full directory should not break the compile
+                }
+            }
+        }
+        return put( source, stamp, bytes );
+    }
+
+    /**
+     * Add the bytes of a source to the cache and evict the least recently used entries if the cache is too large.
+     * 
+     * @param source
+     *            the source URL
+     * @param stamp
+     *            the modification stamp of the source
+     * @param bytes
+     *            the bytes of the class file
+     * @return the bytes from the cache, can be the bytes of an equal class file from another source
+     */
+    @Nonnull
+    private synchronized byte[] put( @Nonnull String source, @Nonnull String stamp, @Nonnull byte[] bytes ) {
+        String hash = hash( bytes );
+        Content content = contents.get( hash );
+        if( content == null ) {
+            content = new Content( hash, bytes );
+            contents.put( hash, content );
+            size += bytes.length;
+        }
+        content.refs++;
+        Entry old = sources.put( source, new Entry( stamp, content ) );
+        if( old != null ) {
+            release( old.content );
+        }
+        for( Iterator<Entry> it = sources.values().iterator(); size > maxSize && it.hasNext(); ) {
+            Entry eldest = it.next();
+            it.remove();
+            release( eldest.content );
+        }
+        return content.bytes;
+    }
+
+    /**
+     * Release a reference to the content and remove it if there are no more references.
+     * 
+     * @param content
+     *            the content
+     */
+    private void release( @Nonnull Content content ) {
+        if( --content.refs == 0 ) {
+            contents.remove( content.hash );
+            size -= content.bytes.length;
+        }
+    }
+
+    /**
+     * Clear the cache. Files in a cache directory are not deleted.
+     */
+    public synchronized void clear() {
+        sources.clear();
+        contents.clear();
+        size = 0;
+    }
+
+    /**
+     * Get the local file or archive of the source URL.
+     * 
+     * @param url
+     *            the URL of the *.class file
+     * @return the file or null if it not a local file
+     */
+    @Nullable
+    private static File getSourceFile( @Nonnull URL url ) {
+        try {
+            switch( url.getProtocol() ) {
+                case "file":
+                    return new File( url.toURI() );
+                case "jar":
+                    String path = url.getPath();
+                    int idx = path.indexOf( "!/" );
+                    if( idx > 0 ) {
+                        URL archive = new URL( path.substring( 0, idx ) );
+                        if( "file".equals( archive.getProtocol() ) ) {
+                            return new File( archive.toURI() );
+                        }
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        } catch( IOException | URISyntaxException | IllegalArgumentException ex ) {
+            return null;
+        }
+    }
+
+    /**
+     * Open the stream of a class file. A cached JarURLConnection holds the archive open until the JVM exits, also if
+     * the ClassLoader that has found the resource is closed. Without caches the archive is closed with the stream.
+     * 
+     * @param url
+     *            the URL of the *.class file
+     * @return the stream
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nonnull
+    private static InputStream openStream( @Nonnull URL url ) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setUseCaches( false );
+        return connection.getInputStream();
+    }
+
+    /**
+     * Write the bytes to the cache directory. Concurrent writers of other JVMs see ever the complete file.
+     * 
+     * @param diskFile
+     *            the target file
+     * @param bytes
+     *            the bytes of the class file
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    private static void write( @Nonnull File diskFile, @Nonnull byte[] bytes ) throws IOException {
+        Path dir = diskFile.getParentFile().toPath();
+        Files.createDirectories( dir );
+        Path temp = Files.createTempFile( dir, "class", ".tmp" );
+        try {
+            Files.write( temp, bytes );
+            Files.move( temp, diskFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( temp );
+        }
+    }
+
+    /**
+     * Check the magic of a class file.
+     * 
+     * @param bytes
+     *            the bytes
+     * @return true, if it can be a class file
+     */
+    private static boolean isClassFile( @Nonnull byte[] bytes ) {
+        return bytes.length > 4 && (bytes[0] & 0xFF) == 0xCA && (bytes[1] & 0xFF) == 0xFE && (bytes[2] & 0xFF) == 0xBA && (bytes[3] & 0xFF) == 0xBE;
+    }
+
+    /**
+     * Calculate the hex string of the SHA-1 hash of a string. Can be used for file names in the cache directory.
+     * 
+     * @param str
+     *            the string
+     * @return the hash
+     */
+    @Nonnull
+    public static String hash( @Nonnull String str ) {
+        return hash( str.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Calculate the hex string of the SHA-1 hash of bytes.
+     * 
+     * @param bytes
+     *            the bytes
+     * @return the hash
+     */
+    @Nonnull
+    private static String hash( @Nonnull byte[] bytes ) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance( "SHA-1" ).digest( bytes );
+        } catch( NoSuchAlgorithmException ex ) {
+            // every Java platform must support SHA-1
+            throw new IllegalStateException( ex );
+        }
+        StringBuilder builder = new StringBuilder( 2 * digest.length );
+        for( byte b : digest ) {
+            builder.append( Character.forDigit( (b >> 4) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A cached source.
+     */
+    private static class Entry {
+
+        private final String  stamp;
+
+        private final Content content;
+
+        private Entry( String stamp, Content content ) {
+            this.stamp = stamp;
+            this.content = content;
+        }
+    }
+
+    /**
+     * The shared bytes of equal class files.
+     */
+    private static class Content {
+
+        private final String hash;
+
+        private final byte[] bytes;
+
+        private int          refs;
+
+        private Content( String hash, byte[] bytes ) {
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.classparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Extends the DataInputStream with the position in the bytes of the class file. This make it possible to hold only
+ * a slice of the bytes for a later decoding instead of a copy.
+ * 
+ * @author Volker Berlin
+ */
+class ClassInputStream extends DataInputStream {
+
+    private final byte[] buf;
+
+    /**
+     * Create a stream over a slice of the class file bytes.
+     * 
+     * @param buf
+     *            the bytes of the class file
+     * @param offset
+     *            the offset of the slice
+     * @param length
+     *            the length of the slice
+     */
+    ClassInputStream( @Nonnull byte[] buf, int offset, int length ) {
+        super( new PositionArrayInputStream( buf, offset, length ) );
+        this.buf = buf;
+    }
+
+    /**
+     * Read the complete stream and close it.
+     * 
+     * @param stream
+     *            the stream of a class file
+     * @return the bytes
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Nonnull
+    static byte[] readAll( @Nonnull InputStream stream ) throws IOException {
+        try {
+            byte[] bytes = new byte[Math.max( 1024, stream.available() )];
+            int size = 0;
+            int count;
+            while( (count = stream.read( bytes, size, bytes.length - size )) >= 0 ) {
+                size += count;
+                if( size == bytes.length ) {
+                    bytes = Arrays.copyOf( bytes, 2 * size );
+                }
+            }
+            return size == bytes.length ? bytes : Arrays.copyOf( bytes, size );
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Get the bytes of the class file.
+     * 
+     * @return the bytes
+     */
+    @Nonnull
+    byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Get the current read position in the bytes of the class file.
+     * 
+     * @return the position
+     */
+    int getPosition() {
+        return ((PositionArrayInputStream)in).getPosition();
+    }
+
+    /**
+     * Skip a count of bytes that should be exists.
+     * 
+     * @param count
+     *            the count of bytes
+     * @throws IOException
+     *             if the stream has not enough bytes
+     */
+    void skipFully( int count ) throws IOException {
+        if( skip( count ) != count ) {
+            throw new IOException( "Unexpected end of class file" );
+        }
+    }
+
+    private static class PositionArrayInputStream extends ByteArrayInputStream {
+
+        PositionArrayInputStream( byte[] buf, int offset, int length ) {
+            super( buf, offset, length );
+        }
+
+        int getPosition() {
+            return pos;
+        }
+    }
+}
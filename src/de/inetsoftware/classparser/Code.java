@@ -40,6 +40,10 @@ public class Code {
 
     private final byte[]            codeData;
 
+    private final int               codeOffset;
+
+    private final int               codeLength;
+
     private final TryCatchFinally[] exceptionTable;
 
     private final Attributes        attributes;
@@ -48,6 +52,10 @@ public class Code {
 
     private LocalVariableTable      localVariableTable;
 
+    private int[]                   lineNumbers;
+
+    private ByteCode                byteCode;
+
     /**
      * The code of a method attribute. http://docs.oracle.com/javase/specs/jvms/se7/html/jvms-4.html#jvms-4.7.3
      * http://docs.oracle.com/javase/specs/jvms/se5.0/html/ClassFile.doc.html#1546
@@ -59,12 +67,15 @@ public class Code {
      * @throws IOException
      *             if an I/O error occurs
      */
-    Code( DataInputStream input, @Nonnull ConstantPool constantPool ) throws IOException {
+    Code( ClassInputStream input, @Nonnull ConstantPool constantPool ) throws IOException {
         this.constantPool = constantPool;
         maxStack = input.readUnsignedShort(); //max_stack
         maxLocals = input.readUnsignedShort(); //max_locals;
-        codeData = new byte[input.readInt()];
-        input.readFully( codeData );
+        codeLength = input.readInt();
+        // hold only the position of the byte code in the class file
+        codeData = input.getBuffer();
+        codeOffset = input.getPosition();
+        input.skipFully( codeLength );
 
         exceptionTable = readExceptionTable( input, constantPool );
         attributes = new Attributes( input, constantPool );
@@ -187,6 +198,35 @@ public LocalVariableTable getLocalVariableTable() throws IOException {
         return localVariableTable;
     }
 
+    /**
+     * Get the line number of a code position. The line numbers of all code positions are calculated on the first call.
+     * 
+     * @param codePosition
+     *            the code position in the Java byte code
+     * @return the line number in the source code or -1 if not available
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    public int getLineNumber( int codePosition ) throws IOException {
+        int[] lines = lineNumbers;
+        if( lines == null ) {
+            lines = new int[codeLength + 1];
+            LineNumberTable table = getLineNumberTable();
+            int size = table == null ? 0 : table.size();
+            int lineNumber = -1;
+            int i = 0;
+            for( int pos = 0; pos < lines.length; pos++ ) {
+                // the table is not ever sorted, an entry is only used if all entries before it start not after the position
+                while( i < size && table.getStartOffset( i ) <= pos ) {
+                    lineNumber = table.getLineNumber( i++ );
+                }
+                lines[pos] = lineNumber;
+            }
+            lineNumbers = lines;
+        }
+        return codePosition < 0 ? -1 : lines[Math.min( codePosition, codeLength )];
+    }
+
     public int getFirstLineNr() throws IOException {
         LineNumberTable table = getLineNumberTable();
         if( table == null ) {
@@ -202,7 +242,23 @@ public int getFirstLineNr() throws IOException {
      * @return the stream
      */
     public CodeInputStream getByteCode() {
-        return new CodeInputStream( codeData, 0, codeData.length, this );
+        return new CodeInputStream( codeData, codeOffset, codeLength, this );
+    }
+
+    /**
+     * Get the decoded Java byte code of this method. The byte code is decoded only once.
+     * 
+     * @return the decoded byte code
+     * @throws IOException
+     *             if the byte code is truncated
+     */
+    @Nonnull
+    public ByteCode getDecodedByteCode() throws IOException {
+        ByteCode decoded = byteCode;
+        if( decoded == null ) {
+            byteCode = decoded = new ByteCode( this, codeData, codeOffset, codeLength, constantPool );
+        }
+        return decoded;
     }
 
     /**
@@ -211,6 +267,6 @@ public CodeInputStream getByteCode() {
      * @return the size.
      */
     public int getCodeSize() {
-        return codeData.length;
+        return codeLength;
     }
 }
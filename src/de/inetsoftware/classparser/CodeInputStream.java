@@ -65,33 +65,25 @@ public int getCodePosition() {
      * @return the line number
      */
     public int getLineNumber() {
-        int lineNumber = -1;
         try {
-            LineNumberTable lineNumberTable = code.getLineNumberTable();
-            if( lineNumberTable != null ) {
-                int codePos = getCodePosition();
-                for( int i = 0; i < lineNumberTable.size(); i++ ) {
-                    int offset = lineNumberTable.getStartOffset( i );
-                    if( offset > codePos ) {
-                        break;
-                    }
-                    lineNumber = lineNumberTable.getLineNumber( i );
-                }
-            }
+            return code.getLineNumber( getCodePosition() );
         } catch( IOException e ) {
             // ignore, line naumber are only needed for debug information
+            return -1;
         }
-        return lineNumber;
     }
 
     private static class ByteCodeArrayInputStream extends ByteArrayInputStream {
 
+        private final int offset;
+
         ByteCodeArrayInputStream( byte[] buf, int offset, int length ) {
             super( buf, offset, length );
+            this.offset = offset;
         }
 
         int getCodePosition() {
-            return pos;
+            return pos - offset;
         }
     }
 
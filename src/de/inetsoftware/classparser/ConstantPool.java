@@ -16,8 +16,8 @@
 */
 package de.inetsoftware.classparser;
 
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * @author Volker Berlin
@@ -25,6 +25,17 @@
 public class ConstantPool {
 
     private final Object[] constantPool;
+
+    /**
+     * The bytes of the class file for the lazy decoding of UTF-8 entries.
+     */
+    private final byte[]   buf;
+
+    /**
+     * The positions of UTF-8 entries in the bytes of the class file, 0 if not an UTF-8 entry. The value is only used if
+     * the entry in the pool is not decoded.
+     */
+    private final int[]    utf8Positions;
     public static final int CONSTANT_Utf8 = 1;
     public static final int CONSTANT_Integer = 3;
     public static final int CONSTANT_Float = 4;
@@ -49,14 +60,18 @@ public class ConstantPool {
      * @throws IOException
      *             if any IO error occur
      */
-    ConstantPool( DataInputStream input ) throws IOException {
+    ConstantPool( ClassInputStream input ) throws IOException {
         int count = input.readUnsignedShort();
         Object[] pool = constantPool = new Object[count];
+        buf = input.getBuffer();
+        utf8Positions = new int[count];
         for( int i = 1; i < count; i++ ) {
             byte type = input.readByte();
             switch( type ) {
                 case CONSTANT_Utf8:
-                    pool[i] = input.readUTF();
+                    // the string is decoded on the first access
+                    utf8Positions[i] = input.getPosition();
+                    input.skipFully( input.readUnsignedShort() );
                     break;
                 case CONSTANT_Integer:
                     pool[i] = Integer.valueOf( input.readInt() );
@@ -102,13 +117,19 @@ public class ConstantPool {
                     int[] data = (int[])pool[i];
                     switch( data[0] ) {
                         case CONSTANT_Class:
-                            pool[i] = new ConstantClass( (String)pool[data[1]] );
+                            pool[i] = new ConstantClass( (String)get( data[1] ) );
                             break;
                         case CONSTANT_String:
                         case CONSTANT_MethodType:
                         case CONSTANT_Module:
                         case CONSTANT_Package:
-                            pool[i] = pool[data[1]];
+                            if( pool[data[1]] == null ) {
+                                // share the position of the not decoded UTF-8 entry
+                                pool[i] = null;
+                                utf8Positions[i] = utf8Positions[data[1]];
+                            } else {
+                                pool[i] = pool[data[1]];
+                            }
                             break;
                         case CONSTANT_Fieldref:
                             if( pool[data[1]] instanceof int[] || pool[data[2]] instanceof int[] ) {
@@ -132,7 +153,7 @@ public class ConstantPool {
                             }
                             break;
                         case CONSTANT_NameAndType:
-                            pool[i] = new ConstantNameAndType( (String)pool[data[1]], (String)pool[data[2]] );
+                            pool[i] = new ConstantNameAndType( (String)get( data[1] ), (String)get( data[2] ) );
                             break;
                         case CONSTANT_MethodHandle:
                             pool[i] = pool[data[2]];
@@ -160,7 +181,19 @@ public class ConstantPool {
      * @return the object
      */
     public Object get( int index ) {
-        return constantPool[index];
+        Object value = constantPool[index];
+        if( value == null ) {
+            int position = utf8Positions[index];
+            if( position > 0 ) {
+                try {
+                    value = new ClassInputStream( buf, position, buf.length - position ).readUTF();
+                } catch( IOException ex ) {
+                    throw new UncheckedIOException( ex );
+                }
+                constantPool[index] = value;
+            }
+        }
+        return value;
     }
 
     /**
@@ -173,6 +206,7 @@ public Object get( int index ) {
      */
     void set( int index, Object value ) {
         constantPool[index] = value;
+        utf8Positions[index] = 0;
     }
 
     /**
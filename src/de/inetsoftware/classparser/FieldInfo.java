@@ -16,7 +16,6 @@
 */
 package de.inetsoftware.classparser;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
@@ -43,7 +42,7 @@ public class FieldInfo {
      * @param constantPool
      * @throws IOException
      */
-    FieldInfo(DataInputStream input, ConstantPool constantPool) throws IOException {
+    FieldInfo(ClassInputStream input, ConstantPool constantPool) throws IOException {
         this.accessFlags = input.readUnsignedShort();
         this.name = (String)constantPool.get( input.readUnsignedShort() );
         this.description = (String)constantPool.get( input.readUnsignedShort() );
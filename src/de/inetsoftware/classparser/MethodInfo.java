@@ -16,7 +16,6 @@
 */
 package de.inetsoftware.classparser;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
@@ -62,7 +61,7 @@ public class MethodInfo implements Member {
      * @throws IOException
      *             if an I/O error occurs
      */
-    MethodInfo( DataInputStream input, ConstantPool constantPool, ClassFile classFile ) throws IOException {
+    MethodInfo( ClassInputStream input, ConstantPool constantPool, ClassFile classFile ) throws IOException {
         this.accessFlags = input.readUnsignedShort();
         this.name = (String)constantPool.get( input.readUnsignedShort() );
         this.description = (String)constantPool.get( input.readUnsignedShort() );
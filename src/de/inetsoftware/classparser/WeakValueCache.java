@@ -16,11 +16,12 @@
 */
 package de.inetsoftware.classparser;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A simple cache for weak values.
+ * A simple thread safe cache for weak values. Entries of collected values are removed on the next access.
  *
  * @param <K>
  *            the key type
@@ -30,7 +31,9 @@
  */
 public class WeakValueCache<K, V> {
 
-    private final HashMap<K, WeakReference<V>> map = new HashMap<>();
+    private final ConcurrentHashMap<K, ValueReference<K, V>> map   = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<V>                          queue = new ReferenceQueue<>();
 
     /**
      * Put a value
@@ -41,7 +44,8 @@
      *            the value
      */
     public void put( K key, V value ) {
-        map.put( key, new WeakReference<V>( value ) );
+        expunge();
+        map.put( key, new ValueReference<>( key, value, queue ) );
     }
 
     /**
@@ -52,7 +56,37 @@ public void put( K key, V value ) {
      * @return the value or null
      */
     public V get( K key ) {
+        expunge();
         WeakReference<V> valueRef = map.get( key );
         return valueRef == null ? null : valueRef.get();
     }
+
+    /**
+     * Remove the entries of collected values.
+     */
+    @SuppressWarnings( "unchecked" )
+    private void expunge() {
+        ValueReference<K, V> ref;
+        while( (ref = (ValueReference<K, V>)queue.poll()) != null ) {
+            map.remove( ref.key, ref );
+        }
+    }
+
+    /**
+     * A weak reference to a value that knows its key.
+     * 
+     * @param <K>
+     *            the key type
+     * @param <V>
+     *            the value type
+     */
+    private static class ValueReference<K, V> extends WeakReference<V> {
+
+        private final K key;
+
+        private ValueReference( K key, V value, ReferenceQueue<V> queue ) {
+            super( value, queue );
+            this.key = key;
+        }
+    }
 }
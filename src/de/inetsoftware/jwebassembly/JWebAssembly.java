@@ -68,6 +68,51 @@ public class JWebAssembly {
      */
     public static final String SOURCE_MAP_BASE = "SourceMapBase";
 
+    /**
+     * Property to write the source map as index map with a section for every function. The sections does not depend on the position of the function in the module.
+     */
+    public static final String SOURCE_MAP_INDEX = "SourceMapIndex";
+
+    /**
+     * Property to write the DWARF debug sections .debug_info, .debug_line, .debug_abbrev and .debug_str to the binary output if true. This is an alternative to the source map for debuggers with DWARF support.
+     */
+    public static final String DWARF = "Dwarf";
+
+    /**
+     * Property to write the DWARF debug sections to a separate file "*.debug.wasm" if true. The module contains only a reference to this file.
+     */
+    public static final String DWARF_SIDECAR = "DwarfSidecar";
+
+    /**
+     * Property with the path of a text file with the signature names of the functions that are used at startup, one per line. If set then all other functions are moved into a secondary module "*.split.wasm" that is loaded on the first call of one of its functions. The static initializers and all functions that can be called from it stay in the primary module. The loader uses <code>wasmImports.Split.exports</code> or <code>wasmImports.exports</code> as the exports of the primary instance. Under Node the loader reads the file synchronously. In a browser the host must provide the secondary module before the first call, either compiled in <code>wasmImports.Split.module</code> (for example with <code>WebAssembly.compileStreaming( fetch( "*.split.wasm" ) )</code>) or already instantiated in <code>wasmImports.Split.instance</code> with the import object <code>Object.assign( { primary: instance.exports }, wasmImports )</code>.
+     */
+    public static final String SPLIT_PROFILE = "SplitProfile";
+
+    /**
+     * Property to write the constant strings into a passive data segment. The strings are copied into the linear memory with memory.init on the first use of a string constant and then the segment is dropped. This reduce the instantiation time and the memory of rarely used strings. Ignored with threads because all instances share the memory.
+     */
+    public static final String PASSIVE_STRINGS = "PassiveStrings";
+
+    /**
+     * Property with the minimum initial count of 64 KiB pages of the linear memory. The memory is never smaller than the static data and the heap base.
+     */
+    public static final String MEMORY_INITIAL_PAGES = "MemoryInitialPages";
+
+    /**
+     * Property with the maximum count of 64 KiB pages of the linear memory. Without this property the memory has no maximum, with threads the default is 2 GiB.
+     */
+    public static final String MEMORY_MAXIMUM_PAGES = "MemoryMaximumPages";
+
+    /**
+     * Property with the byte offset in the linear memory on which a heap can start. The static data of the compiler are placed below this offset and the initial memory covers it. Without it the heap starts after the static data. If any of the memory properties is set then the module exports the offset as immutable global "__heap_base".
+     */
+    public static final String MEMORY_HEAP_BASE = "MemoryHeapBase";
+
+    /**
+     * Property to read the written binary module again and validate the structure and the types of all instructions if true. A compiler bug is then reported with the function and the offset instead of a failing instantiation in the browser.
+     */
+    public static final String VALIDATE = "Validate";
+
     /**
      * The name of the annotation for import functions.
      */
@@ -103,11 +148,56 @@ public class JWebAssembly {
      */
     public static final String WASM_USE_EH = "wasm.use_eh";
 
+    /**
+     * If the threads feature of WASM should be use. If true the linear memory is imported as shared memory "env.memory" and synchronized blocks are lowered to a futex lock with atomic instructions.
+     */
+    public static final String WASM_USE_THREADS = "wasm.use_threads";
+
+    /**
+     * If the tail call feature of WASM should be use. If true a call in a tail position is written as return_call or return_call_indirect.
+     */
+    public static final String WASM_USE_TAIL_CALLS = "wasm.use_tail_calls";
+
+    /**
+     * If typed function references should be use for virtual calls. Only valid with {@link #WASM_USE_GC}. If true every class has a GC struct as vtable with typed function references and virtual calls are written as call_ref.
+     */
+    public static final String WASM_USE_CALL_REF = "wasm.use_call_ref";
+
+    /**
+     * Compiler property to enable the optimizations on a control flow graph in SSA form. If true the stores to locals that are never read are removed.
+     */
+    public static final String SSA_OPTIMIZER = "SsaOptimizer";
+
+    /**
+     * Compiler property to enable the optimizations over the complete binary module. If true identical functions and types are folded, unused functions, imports, globals and types are removed and the often used functions and types get the smaller indices. Ignored with DebugNames and Dwarf because the source map and the debug sections refer to the code offsets.
+     */
+    public static final String MODULE_OPTIMIZER = "ModuleOptimizer";
+
+    /**
+     * Compiler property to write pre-compressed copies of the binary module for the transfer. If true the files *.wasm.gz and *.wasm.br are written next to the wasm file and the sizes are logged. It enables also the ModuleOptimizer which orders the functions by the similarity of its code for a better compression.
+     */
+    public static final String COMPRESSED_OUTPUT = "CompressedOutput";
+
+    /**
+     * Compiler property to select the engine for the reconstruction of the structured control flow. If true the blocks are calculated from the dominator tree of the basic blocks in linear time. Methods that are not supported by it, for example with exception handlers, use ever the classic engine.
+     */
+    public static final String STACKIFIER = "Stackifier";
+
     /**
      * Compiler property to ignore all referenced native methods without declared replacement in a library and replace them with a stub that throws an exception at runtime.
      */
     public static final String IGNORE_NATIVE = "IgnoreNative";
 
+    /**
+     * Compiler property with a directory for a persistent cache of the class files and the symbol index of the libraries. Separate build processes can share the directory.
+     */
+    public static final String CLASS_FILE_CACHE = "ClassFileCache";
+
+    /**
+     * Compiler property to reduce the memory of the text format. If true the finished functions are written to a temporary file instead of holding the complete module in memory.
+     */
+    public static final String TEXT_STREAMING = "TextStreaming";
+
     /**
      * The logger instance
      */
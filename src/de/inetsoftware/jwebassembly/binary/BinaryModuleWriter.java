@@ -15,31 +15,42 @@
  */
 package de.inetsoftware.jwebassembly.binary;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import de.inetsoftware.jwebassembly.JWebAssembly;
 import de.inetsoftware.jwebassembly.WasmException;
 import de.inetsoftware.jwebassembly.module.FunctionName;
 import de.inetsoftware.jwebassembly.module.ModuleWriter;
 import de.inetsoftware.jwebassembly.module.TypeManager.BlockType;
 import de.inetsoftware.jwebassembly.module.TypeManager.StructType;
 import de.inetsoftware.jwebassembly.module.TypeManager.StructTypeKind;
+import de.inetsoftware.jwebassembly.module.TypeManager.VTableType;
 import de.inetsoftware.jwebassembly.module.ValueTypeConvertion;
 import de.inetsoftware.jwebassembly.module.WasmOptions;
 import de.inetsoftware.jwebassembly.module.WasmTarget;
 import de.inetsoftware.jwebassembly.sourcemap.SourceMapWriter;
-import de.inetsoftware.jwebassembly.sourcemap.SourceMapping;
 import de.inetsoftware.jwebassembly.wasm.AnyType;
 import de.inetsoftware.jwebassembly.wasm.ArrayOperator;
 import de.inetsoftware.jwebassembly.wasm.ArrayType;
@@ -47,6 +58,7 @@
 import de.inetsoftware.jwebassembly.wasm.MemoryOperator;
 import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
 import de.inetsoftware.jwebassembly.wasm.NumericOperator;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
 import de.inetsoftware.jwebassembly.wasm.StructOperator;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 import de.inetsoftware.jwebassembly.wasm.VariableOperator;
@@ -69,6 +81,16 @@ public class BinaryModuleWriter extends ModuleWriter implements InstructionOpcod
 
     private final boolean               createSourceMap;
 
+    private final DwarfWriter           dwarf;
+
+    private final Set<String>           startupFunctions;
+
+    private Map<String, Function>       secondaryFunctions  = new LinkedHashMap<>();
+
+    private boolean[]                   secondaryImports;
+
+    private int                         secondaryTableOffset;
+
     private WasmOutputStream            codeStream          = new WasmOutputStream( options );
 
     private List<TypeEntry>             functionTypes       = new ArrayList<>();
@@ -116,6 +138,19 @@ public BinaryModuleWriter( WasmTarget target, WasmOptions options ) throws IOExc
         this.target = target;
         // for now we build the source map together with debug names
         createSourceMap = options.debugNames();
+        dwarf = options.dwarf() ? new DwarfWriter( options ) : null;
+        File profile = options.getSplitProfile();
+        if( profile != null ) {
+            startupFunctions = new HashSet<>();
+            for( String line : Files.readAllLines( profile.toPath(), StandardCharsets.UTF_8 ) ) {
+                line = line.trim();
+                if( !line.isEmpty() && !line.startsWith( "#" ) ) {
+                    startupFunctions.add( line );
+                }
+            }
+        } else {
+            startupFunctions = null;
+        }
     }
 
     /**
@@ -123,12 +158,16 @@ public BinaryModuleWriter( WasmTarget target, WasmOptions options ) throws IOExc
      */
     @Override
     public void close() throws IOException {
-        wasm = new WasmOutputStream( options, target.getWasmOutput() );
+        addHeapBase();
+        prepareSplit();
+
+        OutputStream output = target.getWasmOutput();
+        wasm = createModuleStream( output );
         wasm.write( WASM_BINARY_MAGIC );
         wasm.writeInt32( WASM_BINARY_VERSION );
 
         writeSection( SectionType.Type, functionTypes );
-        writeSection( SectionType.Import, imports.values() );
+        writeImportSection();
         writeSection( SectionType.Function, functions.values() );
         writeTableSection();
         writeMemorySection();
@@ -137,13 +176,36 @@ public void close() throws IOException {
         writeSection( SectionType.Export, exports );
         writeStartSection();
         writeElementSection();
+        writeDataCountSection();
         writeCodeSection();
         writeDataSection();
         writeDebugNames();
         writeSourceMappingUrl();
+        writeDwarf();
         writeProducersSection();
 
-        wasm.close();
+        finishModule( wasm, output, false );
+        output.close();
+
+        writeSecondaryModule();
+    }
+
+    /**
+     * Add the exported immutable global "__heap_base" if the module has a linear memory and any memory property is set.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void addHeapBase() throws IOException {
+        if( !exportHeapBase() ) {
+            return;
+        }
+        Global heapBase = new Global();
+        heapBase.id = globals.size();
+        heapBase.type = ValueType.i32;
+        heapBase.value = getHeapBase();
+        globals.put( HEAP_BASE, heapBase );
+        exports.add( new ExportEntry( HEAP_BASE, ExternalKind.Global, heapBase.id ) );
     }
 
     /**
@@ -157,6 +219,22 @@ public void close() throws IOException {
      *             if any I/O error occur
      */
     private void writeSection( SectionType type, Collection<? extends SectionEntry> entries ) throws IOException {
+        writeSection( wasm, type, entries );
+    }
+
+    /**
+     * Write a section with list format to the given module.
+     * 
+     * @param module
+     *            the target module
+     * @param type
+     *            the type of the section
+     * @param entries
+     *            the entries of the section
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeSection( WasmOutputStream module, SectionType type, Collection<? extends SectionEntry> entries ) throws IOException {
         int count = entries.size();
         if( count > 0 ) {
             WasmOutputStream stream = new WasmOutputStream( options );
@@ -164,8 +242,45 @@ private void writeSection( SectionType type, Collection<? extends SectionEntry>
             for( SectionEntry entry : entries ) {
                 entry.writeSectionEntry( stream );
             }
-            wasm.writeSection( type, stream );
+            module.writeSection( type, stream );
+        }
+    }
+
+    /**
+     * Write the import section. With the threads feature the shared memory is imported additional to the functions.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeImportSection() throws IOException {
+        if( !options.useThreads() ) {
+            writeSection( SectionType.Import, imports.values() );
+            return;
         }
+        WasmOutputStream stream = new WasmOutputStream( options );
+        stream.writeVaruint32( imports.size() + 1 );
+        for( ImportFunction entry : imports.values() ) {
+            entry.writeSectionEntry( stream );
+        }
+        writeSharedMemoryImport( stream );
+        wasm.writeSection( SectionType.Import, stream );
+    }
+
+    /**
+     * Write the import entry of the shared memory for the threads feature.
+     * 
+     * @param stream
+     *            the import section
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeSharedMemoryImport( WasmOutputStream stream ) throws IOException {
+        stream.writeString( "env" );
+        stream.writeString( "memory" );
+        stream.writeVaruint32( ExternalKind.Memory.ordinal() );
+        stream.writeVaruint32( 3 ); // flags; 1-maximum is available, 2-shared
+        stream.writeVaruint32( getInitialMemoryPages() ); // initial length
+        stream.writeVaruint32( getMaximumMemoryPages() ); // maximum length
     }
 
     /**
@@ -175,46 +290,76 @@ private void writeSection( SectionType type, Collection<? extends SectionEntry>
      *             if any I/O error occur
      */
     private void writeTableSection() throws IOException {
-        int stringCount = options.strings.size();
-        int typeCount = options.types.size();
-        if( !callIndirect && stringCount == 0 ) {
+        int count = getTableCount();
+        if( count == 0 ) {
             return;
         }
 
         WasmOutputStream stream = new WasmOutputStream( options );
-        int count = 1;
-        if( stringCount > 0 ) {
-            count++;
-        }
-        if( typeCount > 0 ) {
-            count++;
-        }
         stream.writeVaruint32( count ); // count of tables
 
-        // indirect function table 
-        int elemCount = callIndirect ? imports.size() + functions.size() : 0;
-        stream.writeRefValueType( ValueType.funcref ); // the type of elements
+        // indirect function table, the slots of a secondary module follow the functions
+        int elemCount = (callIndirect ? imports.size() + functions.size() : 0) + secondaryFunctions.size();
+        stream.writeRefValueType( getTableType( 0 ) ); // the type of elements
         stream.writeVaruint32( 0 ); // flags; 1-maximum is available, 0-no maximum value available
         stream.writeVaruint32( elemCount ); // initial length
         //stream.writeVaruint32( elemCount ); // maximum length
 
         // string constants table
         if( count >= 2 ) {
-            stream.writeRefValueType( stringType != null ? stringType : ValueType.externref ); // the type of elements
+            stream.writeRefValueType( getTableType( 1 ) ); // the type of elements
             stream.writeVaruint32( 0 ); // flags; 1-maximum is available, 0-no maximum value available
-            stream.writeVaruint32( stringCount ); // initial length
+            stream.writeVaruint32( options.strings.size() ); // initial length
         }
 
         // table with classes
         if( count >= 3 ) {
-            stream.writeRefValueType( classType != null ? classType : ValueType.externref ); // the type of elements
+            stream.writeRefValueType( getTableType( 2 ) ); // the type of elements
             stream.writeVaruint32( 0 ); // flags; 1-maximum is available, 0-no maximum value available
-            stream.writeVaruint32( typeCount ); // initial length
+            stream.writeVaruint32( options.types.size() ); // initial length
         }
 
         wasm.writeSection( SectionType.Table, stream );
     }
 
+    /**
+     * Get the count of tables.
+     * 
+     * @return the count, 0 if there is no table
+     */
+    private int getTableCount() {
+        if( !callIndirect && options.strings.size() == 0 && secondaryFunctions.isEmpty() ) {
+            return 0;
+        }
+        int count = 1;
+        if( options.strings.size() > 0 ) {
+            count++;
+        }
+        if( options.types.size() > 0 ) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the type of the elements of a table.
+     * 
+     * @param idx
+     *            the index of the table
+     * @return the type
+     */
+    @Nonnull
+    private AnyType getTableType( int idx ) {
+        switch( idx ) {
+            case 0:
+                return ValueType.funcref;
+            case 1:
+                return stringType != null ? stringType : ValueType.externref;
+            default:
+                return classType != null ? classType : ValueType.externref;
+        }
+    }
+
     /**
      * Write the memory section.
      * 
@@ -222,16 +367,18 @@ private void writeTableSection() throws IOException {
      *             if any I/O error occur
      */
     private void writeMemorySection() throws IOException {
-        int dataSize = dataStream.size();
-        if( dataSize > 0 ) {
+        int pages = getInitialMemoryPages();
+        if( pages > 0 && !options.useThreads() ) { // with threads the memory is imported
             WasmOutputStream stream = new WasmOutputStream( options );
-            int pages = (dataSize + 0xFFFF) / 0x10000; // a page is defined with a size of 64KiB
+            int maximum = getMaximumMemoryPages();
             int count = 1;
             stream.writeVaruint32( count );
             for( int i = 0; i < count; i++ ) {
-                stream.writeVaruint32( 0 ); // flags; 1-maximum is available, 0-no maximum value available
+                stream.writeVaruint32( maximum >= 0 ? 1 : 0 ); // flags; 1-maximum is available, 0-no maximum value available
                 stream.writeVaruint32( pages ); // initial length
-                //stream.writeVaruint32( pages ); // maximum length
+                if( maximum >= 0 ) {
+                    stream.writeVaruint32( maximum ); // maximum length
+                }
             }
             wasm.writeSection( SectionType.Memory, stream );
         }
@@ -318,7 +465,9 @@ private void writeCodeSection() throws IOException {
             try {
                 Function func = entry.getValue();
                 func.addCodeOffset( start + stream.size() );
+                func.codeStart = stream.size();
                 func.functionsStream.writeTo( stream );
+                func.codeSize = stream.size() - func.codeStart;
             } catch( RuntimeException ex ) {
                 throw WasmException.create( entry.getKey(), ex );
             }
@@ -331,12 +480,14 @@ private void writeCodeSection() throws IOException {
             for( Function func : functions.values() ) {
                 if( func.sourceMappings != null ) {
                     func.addCodeOffset( offset );
-                    for( SourceMapping mapping : func.sourceMappings ) {
-                        sourceMap.addMapping( mapping );
-                    }
+                    sourceMap.addMappings( func.sourceMappings );
                 }
             }
-            sourceMap.generate( target.getSourceMapOutput() );
+            if( options.sourceMapIndex() ) {
+                sourceMap.generateIndexMap( target.getSourceMapOutput() );
+            } else {
+                sourceMap.generate( target.getSourceMapOutput() );
+            }
         }
     }
 
@@ -347,24 +498,59 @@ private void writeCodeSection() throws IOException {
      *             if any I/O error occur
      */
     private void writeDataSection() throws IOException {
-        int size = dataStream.size();
-        if( size == 0 ) {
+        int count = getDataSegmentCount();
+        if( count == 0 ) {
             return;
         }
 
         WasmOutputStream stream = new WasmOutputStream( options );
-        stream.writeVaruint32( 1 ); // count, we use one large segment
+        stream.writeVaruint32( count ); // count, one large active segment and optional the passive strings
+        byte[] data = dataStream.toByteArray();
+
+        int passiveSize = getPassiveSegmentSize();
+        if( passiveSize > 0 ) {
+            // the passive segment must be the first, the code of the strings use the index 0
+            stream.writeVaruint32( 1 ); // flags; 1-passive
+            stream.writeVaruint32( passiveSize );
+            stream.write( data, getPassiveSegmentOffset(), passiveSize );
+        }
 
-        // one data segment
-        stream.writeVaruint32( 0 ); // index (0 in the MVP)
-        stream.writeConst( 0, ValueType.i32 ); // the offset on which the data start
-        stream.writeOpCode( END ); // end of offset instruction
-        stream.writeVaruint32( size );
-        dataStream.writeTo( stream );
+        int size = getDataSegmentSize();
+        if( size > 0 ) {
+            stream.writeVaruint32( 0 ); // index (0 in the MVP)
+            stream.writeConst( 0, ValueType.i32 ); // the offset on which the data start
+            stream.writeOpCode( END ); // end of offset instruction
+            stream.writeVaruint32( size );
+            stream.write( data, 0, size );
+        }
 
         wasm.writeSection( SectionType.Data, stream );
     }
 
+    /**
+     * Write the data count section. It is required if the code use memory.init or data.drop.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeDataCountSection() throws IOException {
+        if( getPassiveSegmentSize() == 0 ) {
+            return;
+        }
+        WasmOutputStream stream = new WasmOutputStream( options );
+        stream.writeVaruint32( getDataSegmentCount() );
+        wasm.writeSection( SectionType.DataCount, stream );
+    }
+
+    /**
+     * Get the count of data segments.
+     * 
+     * @return the count
+     */
+    private int getDataSegmentCount() {
+        return (getPassiveSegmentSize() > 0 ? 1 : 0) + (getDataSegmentSize() > 0 ? 1 : 0);
+    }
+
     /**
      * Write optional the debug names into the custom "name" section.
      * 
@@ -462,6 +648,490 @@ private void writeSourceMappingUrl() throws IOException {
         wasm.writeSection( SectionType.Custom, stream );
     }
 
+    /**
+     * Move all functions that are not used at startup into a secondary module. In the primary module the functions
+     * are replaced with a stub that load the secondary module on the first call and forward the call over the function
+     * table. The secondary module import the called functions, the tables, the memory, the globals and the tag of the
+     * primary module. The function indices in the code of the moved functions are renumbered later.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void prepareSplit() throws IOException {
+        FunctionName loaderName = options.getSplitLoader();
+        if( startupFunctions == null || loaderName == null ) {
+            return;
+        }
+        Set<Function> staticCode = listStaticCode();
+        for( Entry<String, Function> entry : functions.entrySet() ) {
+            String name = entry.getKey();
+            if( startupFunctions.contains( name ) || staticCode.contains( entry.getValue() ) ) {
+                continue; // the static code runs always at startup
+            }
+            if( entry.getValue().dataAccess ) {
+                continue; // the secondary module has no data segments
+            }
+            secondaryFunctions.put( name, entry.getValue() );
+        }
+        if( secondaryFunctions.isEmpty() || target.getSplitOutput() == null ) {
+            secondaryFunctions.clear();
+            return;
+        }
+
+        Global loaded = new Global();
+        loaded.id = globals.size();
+        loaded.type = ValueType.i32;
+        loaded.mutability = true;
+        globals.put( ".split.loaded", loaded );
+
+        int loaderId = getFunction( loaderName ).id;
+        secondaryTableOffset = callIndirect ? imports.size() + functions.size() : 0;
+        secondaryImports = new boolean[imports.size() + functions.size()];
+        int slot = secondaryTableOffset;
+        for( Function func : secondaryFunctions.values() ) {
+            byte[] bytes = func.functionsStream.toByteArray();
+            for( int i = 0; i < func.callCount; i++ ) {
+                secondaryImports[readVaruint32( bytes, func.codeHeaderSize + func.callPositions[i] )] = true;
+            }
+            func.secondaryStream = func.functionsStream;
+            func.functionsStream = createSplitStub( func, loaderId, loaded.id, slot++ );
+            func.sourceMappings = null;
+            func.paramNames = null;
+            func.localTypes = null;
+        }
+
+        for( Function func : functions.values() ) {
+            if( secondaryImports[func.id] && func.secondaryStream == null ) {
+                exports.add( new ExportEntry( ".f" + func.id, ExternalKind.Function, func.id ) );
+            }
+        }
+        int tableCount = getTableCount();
+        for( int i = 0; i < tableCount; i++ ) {
+            exports.add( new ExportEntry( ".t" + i, ExternalKind.Table, i ) );
+        }
+        if( getInitialMemoryPages() > 0 && !options.useThreads() ) {
+            exports.add( new ExportEntry( ".memory", ExternalKind.Memory, 0 ) );
+        }
+        for( Global global : globals.values() ) {
+            exports.add( new ExportEntry( ".g" + global.id, ExternalKind.Global, global.id ) );
+        }
+        if( exceptionSignatureIndex >= 0 ) {
+            exports.add( new ExportEntry( ".tag", ExternalKind.Tag, 0 ) );
+        }
+    }
+
+    /**
+     * List all functions that can be called from the start function and the static initializers. This code runs while
+     * the primary module is instantiated. Its exports are not available at this time and the secondary module can not
+     * be loaded.
+     * 
+     * @return the functions
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private Set<Function> listStaticCode() throws IOException {
+        // the engine compares the type of an indirect call by its structure and not by its index
+        String[] typeKeys = new String[functionTypes.size()];
+        for( int i = 0; i < typeKeys.length; i++ ) {
+            WasmOutputStream stream = new WasmOutputStream( options );
+            functionTypes.get( i ).writeSectionEntry( stream );
+            typeKeys[i] = new String( stream.toByteArray(), StandardCharsets.ISO_8859_1 );
+        }
+
+        Function[] byId = new Function[imports.size() + functions.size()];
+        Set<Function> staticCode = new HashSet<>();
+        ArrayDeque<Function> queue = new ArrayDeque<>();
+        for( Entry<String, Function> entry : functions.entrySet() ) {
+            String name = entry.getKey();
+            Function func = entry.getValue();
+            byId[func.id] = func;
+            if( name.contains( ".<clinit>(" ) || (startFunction != null && name.equals( startFunction.signatureName )) ) {
+                staticCode.add( func );
+                queue.add( func );
+            }
+        }
+        while( !queue.isEmpty() ) {
+            Function func = queue.poll();
+            if( func.functionsStream == null ) {
+                continue;
+            }
+            byte[] bytes = func.functionsStream.toByteArray();
+            for( int i = 0; i < func.callCount; i++ ) {
+                Function callee = byId[readVaruint32( bytes, func.codeHeaderSize + func.callPositions[i] )];
+                if( callee != null && staticCode.add( callee ) ) {
+                    queue.add( callee );
+                }
+            }
+            if( func.indirectCallTypes != null ) {
+                // every function with the same type is a possible target
+                Set<String> calledTypes = new HashSet<>();
+                for( int typeId : func.indirectCallTypes ) {
+                    calledTypes.add( typeId < 0 ? null : typeKeys[typeId] );
+                }
+                boolean anyType = calledTypes.contains( null );
+                for( Function callee : functions.values() ) {
+                    if( (anyType || calledTypes.contains( typeKeys[callee.typeId] )) && staticCode.add( callee ) ) {
+                        queue.add( callee );
+                    }
+                }
+            }
+        }
+        return staticCode;
+    }
+
+    /**
+     * Create the code of a stub for a function that was moved to the secondary module.
+     * 
+     * @param func
+     *            the moved function
+     * @param loaderId
+     *            the function index of the loader
+     * @param loadedId
+     *            the global index of the flag if the secondary module is loaded
+     * @param slot
+     *            the slot of the moved function in the function table
+     * @return the code with the size
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private WasmOutputStream createSplitStub( Function func, int loaderId, int loadedId, int slot ) throws IOException {
+        WasmOutputStream code = new WasmOutputStream( options );
+        code.writeVaruint32( 0 ); // count of locals
+        code.writeOpCode( GLOBAL_GET );
+        code.writeVaruint32( loadedId );
+        code.writeOpCode( I32_EQZ );
+        code.writeOpCode( IF );
+        code.writeValueType( ValueType.empty );
+        code.writeOpCode( CALL );
+        code.writeVaruint32( loaderId );
+        code.writeConst( 1, ValueType.i32 );
+        code.writeOpCode( GLOBAL_SET );
+        code.writeVaruint32( loadedId );
+        code.writeOpCode( END );
+        int paramCount = ((FunctionTypeEntry)functionTypes.get( func.typeId )).params.size();
+        for( int i = 0; i < paramCount; i++ ) {
+            code.writeOpCode( LOCAL_GET );
+            code.writeVaruint32( i );
+        }
+        code.writeConst( slot, ValueType.i32 );
+        code.writeOpCode( options.useTailCalls() ? RETURN_CALL_INDIRECT : CALL_INDIRECT );
+        code.writeVaruint32( func.typeId );
+        code.writeVaruint32( 0 ); // table 0
+        code.writeOpCode( END );
+
+        WasmOutputStream stream = new WasmOutputStream( options );
+        stream.writeVaruint32( code.size() );
+        code.writeTo( stream );
+        return stream;
+    }
+
+    /**
+     * Write the secondary module with the functions that are not used at startup.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeSecondaryModule() throws IOException {
+        if( secondaryFunctions.isEmpty() ) {
+            return;
+        }
+        OutputStream output = target.getSplitOutput();
+        WasmOutputStream module = createModuleStream( output );
+        module.write( WASM_BINARY_MAGIC );
+        module.writeInt32( WASM_BINARY_VERSION );
+
+        writeSection( module, SectionType.Type, functionTypes );
+
+        // the function index space of the secondary module: the needed functions and then the moved functions
+        int[] newIds = new int[secondaryImports.length];
+        List<String> names = new ArrayList<>();
+        WasmOutputStream stream = new WasmOutputStream( options );
+        int id = 0;
+        for( Entry<String, ImportFunction> entry : imports.entrySet() ) {
+            ImportFunction func = entry.getValue();
+            if( secondaryImports[func.id] ) {
+                func.writeSectionEntry( stream );
+                newIds[func.id] = id++;
+                names.add( entry.getKey() );
+            }
+        }
+        for( Entry<String, Function> entry : functions.entrySet() ) {
+            Function func = entry.getValue();
+            if( secondaryImports[func.id] && func.secondaryStream == null ) {
+                stream.writeString( "primary" );
+                stream.writeString( ".f" + func.id );
+                stream.writeVaruint32( ExternalKind.Function.ordinal() );
+                stream.writeVaruint32( func.typeId );
+                newIds[func.id] = id++;
+                names.add( entry.getKey() );
+            }
+        }
+        int importCount = id;
+        for( Entry<String, Function> entry : secondaryFunctions.entrySet() ) {
+            newIds[entry.getValue().id] = id++;
+            names.add( entry.getKey() );
+        }
+        int tableCount = getTableCount();
+        for( int i = 0; i < tableCount; i++ ) {
+            stream.writeString( "primary" );
+            stream.writeString( ".t" + i );
+            stream.writeVaruint32( ExternalKind.Table.ordinal() );
+            stream.writeRefValueType( getTableType( i ) );
+            stream.writeVaruint32( 0 ); // flags; 1-maximum is available, 0-no maximum value available
+            stream.writeVaruint32( 0 ); // minimum length
+            importCount++;
+        }
+        if( options.useThreads() ) {
+            writeSharedMemoryImport( stream );
+            importCount++;
+        } else if( getInitialMemoryPages() > 0 ) {
+            stream.writeString( "primary" );
+            stream.writeString( ".memory" );
+            stream.writeVaruint32( ExternalKind.Memory.ordinal() );
+            stream.writeVaruint32( 0 ); // flags; 1-maximum is available, 0-no maximum value available
+            stream.writeVaruint32( 0 ); // minimum length
+            importCount++;
+        }
+        for( Global global : globals.values() ) {
+            stream.writeString( "primary" );
+            stream.writeString( ".g" + global.id );
+            stream.writeVaruint32( ExternalKind.Global.ordinal() );
+            global.writeGlobalType( stream );
+            importCount++;
+        }
+        if( exceptionSignatureIndex >= 0 ) {
+            stream.writeString( "primary" );
+            stream.writeString( ".tag" );
+            stream.writeVaruint32( ExternalKind.Tag.ordinal() );
+            stream.writeVaruint32( 0 ); // tag type: exception = 0
+            stream.writeVaruint32( exceptionSignatureIndex );
+            importCount++;
+        }
+        WasmOutputStream section = new WasmOutputStream( options );
+        section.writeVaruint32( importCount );
+        stream.writeTo( section );
+        module.writeSection( SectionType.Import, section );
+
+        writeSection( module, SectionType.Function, secondaryFunctions.values() );
+
+        // fill the slots of the function table
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( 1 ); // count of element segments to follow
+        section.writeVaruint32( 0 ); // the table index
+        section.writeConst( secondaryTableOffset, ValueType.i32 ); // the offset on which the elements start
+        section.writeOpCode( END ); // end of offset instruction
+        section.writeVaruint32( secondaryFunctions.size() );
+        for( Function func : secondaryFunctions.values() ) {
+            section.writeVaruint32( newIds[func.id] );
+        }
+        module.writeSection( SectionType.Element, section );
+
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( secondaryFunctions.size() );
+        for( Function func : secondaryFunctions.values() ) {
+            writeSecondaryCode( section, func, newIds );
+        }
+        module.writeSection( SectionType.Code, section );
+
+        if( options.debugNames() ) {
+            stream = new WasmOutputStream( options );
+            stream.writeString( "name" ); // Custom Section name "name", content is part of the section length
+            stream.write( 1 ); // 1 - Function name
+            section = new WasmOutputStream( options );
+            section.writeVaruint32( names.size() );
+            for( int i = 0; i < names.size(); i++ ) {
+                String functionName = names.get( i );
+                section.writeVaruint32( i ); // function index
+                section.writeString( functionName.substring( 0, functionName.indexOf( '(' ) ) );
+            }
+            stream.writeVaruint32( section.size() );
+            section.writeTo( stream );
+            module.writeSection( SectionType.Custom, stream );
+        }
+        finishModule( module, output, true );
+    }
+
+    /**
+     * Create the stream for a module. If the module should be optimized or validated then it is written into memory.
+     * 
+     * @param output
+     *            the target of the module
+     * @return the stream
+     */
+    private WasmOutputStream createModuleStream( OutputStream output ) {
+        return isBuffered() ? new WasmOutputStream( options ) : new WasmOutputStream( options, output );
+    }
+
+    /**
+     * If the module must be written into memory before it can be written to the target.
+     * 
+     * @return true, if the module is buffered
+     */
+    private boolean isBuffered() {
+        return options.moduleOptimizer() || options.validate() || options.compressedOutput();
+    }
+
+    /**
+     * Optimize, validate and compress a module that was written into memory and write it to the target.
+     * 
+     * @param module
+     *            the stream of the module
+     * @param output
+     *            the target of the module
+     * @param split
+     *            true, for the secondary module of a split module
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void finishModule( WasmOutputStream module, OutputStream output, boolean split ) throws IOException {
+        if( isBuffered() ) {
+            String name = split ? "secondary module" : "module";
+            byte[] bytes = module.toByteArray();
+            if( options.moduleOptimizer() ) {
+                bytes = ModuleOptimizer.optimize( options, bytes );
+            }
+            if( options.validate() ) {
+                WasmValidator.validate( bytes, name );
+            }
+            output.write( bytes );
+            if( options.compressedOutput() ) {
+                writeCompressed( bytes, split, name );
+            }
+        }
+        module.flush();
+    }
+
+    /**
+     * Write the pre-compressed copies of a module with gzip and Brotli and log the sizes.
+     * 
+     * @param bytes
+     *            the bytes of the module
+     * @param split
+     *            true, for the secondary module of a split module
+     * @param name
+     *            the name of the module for the log
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeCompressed( byte[] bytes, boolean split, String name ) throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try( OutputStream stream = new GZIPOutputStream( gzip ) {
+            {
+                def.setLevel( Deflater.BEST_COMPRESSION );
+            }
+        } ) {
+            stream.write( bytes );
+        }
+        ByteArrayOutputStream brotli = new ByteArrayOutputStream();
+        try( OutputStream stream = new BrotliOutputStream( brotli ) ) {
+            stream.write( bytes );
+        }
+        writeCompressed( gzip, target.getCompressedOutput( split, "gz" ) );
+        writeCompressed( brotli, target.getCompressedOutput( split, "br" ) );
+        JWebAssembly.LOGGER.info( "Size of the " + name + ": " + bytes.length + " bytes, gzip: " + gzip.size() + " bytes, brotli: " + brotli.size() + " bytes" );
+    }
+
+    /**
+     * Write compressed data to the target if the target is a file.
+     * 
+     * @param data
+     *            the compressed data
+     * @param output
+     *            the target or null
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static void writeCompressed( ByteArrayOutputStream data, @Nullable OutputStream output ) throws IOException {
+        if( output != null ) {
+            data.writeTo( output );
+            output.close();
+        }
+    }
+
+    /**
+     * Write the code of a moved function with the function indices of the secondary module.
+     * 
+     * @param stream
+     *            the code section
+     * @param func
+     *            the moved function
+     * @param newIds
+     *            the mapping of the function indices
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeSecondaryCode( WasmOutputStream stream, Function func, int[] newIds ) throws IOException {
+        byte[] bytes = func.secondaryStream.toByteArray();
+        int pos = 0;
+        while( (bytes[pos++] & 0x80) != 0 ) {
+            // skip the size of the body, it is changed
+        }
+        WasmOutputStream body = new WasmOutputStream( options );
+        for( int i = 0; i < func.callCount; i++ ) {
+            int callPos = func.codeHeaderSize + func.callPositions[i];
+            body.write( bytes, pos, callPos - pos );
+            body.writeVaruint32( newIds[readVaruint32( bytes, callPos )] );
+            pos = callPos;
+            while( (bytes[pos++] & 0x80) != 0 ) {
+                // skip the old function index
+            }
+        }
+        body.write( bytes, pos, bytes.length - pos );
+        stream.writeVaruint32( body.size() );
+        body.writeTo( stream );
+    }
+
+    /**
+     * Read an unsigned LEB128 value.
+     * 
+     * @param bytes
+     *            the bytes
+     * @param pos
+     *            the start position
+     * @return the value
+     */
+    private static int readVaruint32( byte[] bytes, int pos ) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = bytes[pos++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while( (b & 0x80) != 0 );
+        return value;
+    }
+
+    /**
+     * Write the DWARF debug sections into the module or into a separate debug file.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeDwarf() throws IOException {
+        if( dwarf == null ) {
+            return;
+        }
+        for( Entry<String, Function> entry : functions.entrySet() ) {
+            dwarf.addFunction( entry.getKey(), entry.getValue() );
+        }
+        OutputStream output = options.dwarfSidecar() ? target.getDebugOutput() : null;
+        if( output == null ) {
+            dwarf.writeSections( wasm, options );
+            return;
+        }
+        WasmOutputStream debugWasm = new WasmOutputStream( options, output );
+        debugWasm.write( WASM_BINARY_MAGIC );
+        debugWasm.writeInt32( WASM_BINARY_VERSION );
+        dwarf.writeSections( debugWasm, options );
+        debugWasm.flush();
+
+        WasmOutputStream stream = new WasmOutputStream( options );
+        stream.writeString( "external_debug_info" ); // Custom Section name "external_debug_info", content is part of the section length
+        stream.writeString( target.getDebugURL() );
+        wasm.writeSection( SectionType.Custom, stream );
+    }
+
     /**
      * Write producer information to wasm
      * 
@@ -507,6 +1177,10 @@ protected int writeStructType( StructType type ) throws IOException {
             return -9; // Should never use
         }
 
+        if( dwarf != null ) {
+            dwarf.addStructType( type );
+        }
+
         if( !options.useGC() ) {
             return ValueType.externref.getCode();
         }
@@ -526,6 +1200,29 @@ protected int writeStructType( StructType type ) throws IOException {
         return typeId;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int writeVTableType( StructType type ) throws IOException {
+        List<FunctionName> vtable = type.getVTableRefFunctions();
+        int typeId = functionTypes.size();
+        functionTypes.add( new VTableTypeEntry( vtable, ( funcName ) -> getFunction( funcName ).typeId ) );
+
+        VTableType vtableType = type.getVTableType();
+        FunctionName name = vtableType.getGlobalName();
+        VTableGlobal var = new VTableGlobal();
+        var.id = globals.size();
+        var.type = vtableType;
+        var.rttChain = getRttChain( vtableType );
+        var.functionIds = new int[vtable.size()];
+        for( int i = 0; i < var.functionIds.length; i++ ) {
+            var.functionIds[i] = getFunction( vtable.get( i ) ).id;
+        }
+        globals.put( name.fullName, var );
+        return typeId;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -609,6 +1306,11 @@ protected void writeMethodParamStart( FunctionName name, FunctionType funcType )
         if( function.paramNames != null ) {
             function.paramNames.clear();
         }
+        if( dwarf != null ) {
+            function.localTypes = new ArrayList<>();
+            function.localNames = new ArrayList<>();
+            function.paramCount = 0;
+        }
     }
 
     /**
@@ -619,6 +1321,7 @@ protected void writeMethodParam( String kind, AnyType valueType, @Nullable Strin
         switch( kind ) {
             case "param":
                 functionType.params.add( valueType );
+                function.paramCount++;
                 break;
             case "result":
                 functionType.results.add( valueType );
@@ -627,6 +1330,10 @@ protected void writeMethodParam( String kind, AnyType valueType, @Nullable Strin
                 locals.add( valueType );
                 break;
         }
+        if( dwarf != null ) {
+            function.localTypes.add( valueType );
+            function.localNames.add( name );
+        }
         if( options.debugNames() && name != null ) {
             if( function.paramNames == null ) {
                 function.paramNames = new ArrayList<>();
@@ -653,7 +1360,7 @@ protected void writeMethodParamFinish(FunctionName name) throws IOException {
      */
     @Override
     protected void writeMethodStart( FunctionName name, String sourceFile ) throws IOException {
-        if( createSourceMap ) {
+        if( createSourceMap || dwarf != null ) {
             int idx = name.className.lastIndexOf( '/' );
             this.javaSourceFile = name.className.substring( 0, idx + 1 ) + sourceFile;
         }
@@ -665,7 +1372,7 @@ protected void writeMethodStart( FunctionName name, String sourceFile ) throws I
      */
     @Override
     protected void markSourceLine( int javaSourceLine ) {
-        if( createSourceMap ) {
+        if( createSourceMap || dwarf != null ) {
             function.markCodePosition( codeStream.size(), javaSourceLine, javaSourceFile );
         }
     }
@@ -700,6 +1407,8 @@ protected void writeMethodFinish() throws IOException {
         localsStream.writeTo( functionsStream );
         localsTypeStream.writeTo( functionsStream );
         function.addCodeOffset( functionsStream.size() );
+        function.codeHeaderSize = functionsStream.size();
+        function.sourceFile = function.sourceMappings != null ? javaSourceFile : null;
         codeStream.writeTo( functionsStream );
         functionsStream.write( END );
     }
@@ -1245,9 +1954,12 @@ protected void writeCast( ValueTypeConvertion cast ) throws IOException {
      * {@inheritDoc}
      */
     @Override
-    protected void writeFunctionCall( FunctionName name, String comments ) throws IOException {
+    protected void writeFunctionCall( FunctionName name, String comments, boolean tailCall ) throws IOException {
         Function func = getFunction( name );
-        codeStream.writeOpCode( CALL );
+        codeStream.writeOpCode( tailCall ? RETURN_CALL : CALL );
+        if( startupFunctions != null ) {
+            function.addCallPosition( codeStream.size() );
+        }
         codeStream.writeVaruint32( func.id );
     }
 
@@ -1255,15 +1967,29 @@ protected void writeFunctionCall( FunctionName name, String comments ) throws IO
      * {@inheritDoc}
      */
     @Override
-    protected void writeVirtualFunctionCall( FunctionName name, AnyType type ) throws IOException {
+    protected void writeVirtualFunctionCall( FunctionName name, AnyType type, boolean tailCall ) throws IOException {
         callIndirect = true;
 
         Function func = getFunction( name );
-        codeStream.writeOpCode( CALL_INDIRECT );
+        if( startupFunctions != null ) {
+            function.addIndirectCall( func.typeId );
+        }
+        codeStream.writeOpCode( tailCall ? RETURN_CALL_INDIRECT : CALL_INDIRECT );
         codeStream.writeVaruint32( func.typeId );
         codeStream.writeVaruint32( 0 ); // table 0
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeFunctionRefCall( FunctionName name, boolean tailCall ) throws IOException {
+        if( startupFunctions != null ) {
+            function.addIndirectCall( -1 ); // the slot of the vtable can have another type as the function
+        }
+        codeStream.writeOpCode( tailCall ? RETURN_CALL_REF : CALL_REF );
+    }
+
     /**
      * Get the function object for the name. If not exists then it will be created.
      * 
@@ -1421,6 +2147,23 @@ protected void writeArrayOperator( @Nonnull ArrayOperator op, ArrayType type ) t
         codeStream.writeValueType( type.getNativeArrayType() );
     }
 
+    /**
+     * Write the runtime type of a struct. The first type is written with rtt.canon, all following with rtt.sub.
+     * 
+     * @param stream
+     *            the target
+     * @param rttChain
+     *            the types from the root type to the type self
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    static void writeRtt( WasmOutputStream stream, List<AnyType> rttChain ) throws IOException {
+        for( int i = 0; i < rttChain.size(); i++ ) {
+            stream.writeOpCode( i == 0 ? RTT_CANON : RTT_SUB );
+            stream.writeValueType( rttChain.get( i ) );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1430,13 +2173,18 @@ protected void writeStructOperator( StructOperator op, AnyType type, NamedStorag
         switch(op) {
             case NEW:
             case NEW_DEFAULT:
-                codeStream.writeOpCode( RTT_CANON );
-                codeStream.writeValueType( type );
+                writeRtt( codeStream, getRttChain( type ) );
                 opCode = STRUCT_NEW_DEFAULT;
                 break;
             case GET:
                 opCode = STRUCT_GET;
                 break;
+            case GET_S:
+                opCode = STRUCT_GET_S;
+                break;
+            case GET_U:
+                opCode = STRUCT_GET_U;
+                break;
             case SET:
                 opCode = STRUCT_SET;
                 break;
@@ -1445,8 +2193,8 @@ protected void writeStructOperator( StructOperator op, AnyType type, NamedStorag
                 type = options.useGC() ? type : ValueType.externref;
                 break;
             case RTT_CANON:
-                opCode = RTT_CANON;
-                break;
+                writeRtt( codeStream, getRttChain( type ) );
+                return;
             case NEW_WITH_RTT:
                 opCode = STRUCT_NEW;
                 break;
@@ -1494,6 +2242,88 @@ protected void writeMemoryOperator( MemoryOperator memOp, ValueType valueType, i
                         break;
                 }
                 break;
+            case atomic_load:
+                switch( valueType ) {
+                    case i32:
+                        op = I32_ATOMIC_LOAD;
+                        break;
+                    case i64:
+                        op = I64_ATOMIC_LOAD;
+                        break;
+                }
+                break;
+            case atomic_store:
+                switch( valueType ) {
+                    case i32:
+                        op = I32_ATOMIC_STORE;
+                        break;
+                    case i64:
+                        op = I64_ATOMIC_STORE;
+                        break;
+                }
+                break;
+            case atomic_rmw_add:
+                switch( valueType ) {
+                    case i32:
+                        op = I32_ATOMIC_RMW_ADD;
+                        break;
+                    case i64:
+                        op = I64_ATOMIC_RMW_ADD;
+                        break;
+                }
+                break;
+            case atomic_rmw_xchg:
+                switch( valueType ) {
+                    case i32:
+                        op = I32_ATOMIC_RMW_XCHG;
+                        break;
+                    case i64:
+                        op = I64_ATOMIC_RMW_XCHG;
+                        break;
+                }
+                break;
+            case atomic_rmw_cmpxchg:
+                switch( valueType ) {
+                    case i32:
+                        op = I32_ATOMIC_RMW_CMPXCHG;
+                        break;
+                    case i64:
+                        op = I64_ATOMIC_RMW_CMPXCHG;
+                        break;
+                }
+                break;
+            case atomic_wait:
+                switch( valueType ) {
+                    case i32:
+                        op = MEMORY_ATOMIC_WAIT32;
+                        break;
+                    case i64:
+                        op = MEMORY_ATOMIC_WAIT64;
+                        break;
+                }
+                break;
+            case atomic_notify:
+                op = MEMORY_ATOMIC_NOTIFY;
+                break;
+            case size:
+                codeStream.writeOpCode( MEMORY_SIZE );
+                codeStream.write( 0 ); // index of the memory
+                return;
+            case grow:
+                codeStream.writeOpCode( MEMORY_GROW );
+                codeStream.write( 0 ); // index of the memory
+                return;
+            case init:
+                function.dataAccess = true;
+                codeStream.writeOpCode( MEMORY_INIT );
+                codeStream.writeVaruint32( offset ); // index of the data segment
+                codeStream.write( 0 ); // index of the memory
+                return;
+            case data_drop:
+                function.dataAccess = true;
+                codeStream.writeOpCode( DATA_DROP );
+                codeStream.writeVaruint32( offset ); // index of the data segment
+                return;
         }
         if( op == 0 ) {
             throw new Error( valueType + "." + memOp );
@@ -1502,4 +2332,35 @@ protected void writeMemoryOperator( MemoryOperator memOp, ValueType valueType, i
         codeStream.write( alignment ); // 0: 8 Bit; 1: 16 Bit; 2: 32 Bit of the resulting offset
         codeStream.writeVaruint32( offset );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeSimdOperator( SimdOperator op, int offset, int alignment, int lane, byte[] immediate ) throws IOException {
+        codeStream.write( SIMD_PREFIX );
+        codeStream.writeVaruint32( op.getCode() );
+        switch( op.getKind() ) {
+            case LOAD:
+            case STORE:
+                codeStream.writeVaruint32( alignment );
+                codeStream.writeVaruint32( offset );
+                break;
+            case LOAD_LANE:
+            case STORE_LANE:
+                codeStream.writeVaruint32( alignment );
+                codeStream.writeVaruint32( offset );
+                codeStream.write( lane );
+                break;
+            case EXTRACT_LANE:
+            case REPLACE_LANE:
+                codeStream.write( lane );
+                break;
+            case CONST:
+            case SHUFFLE:
+                codeStream.write( immediate, 0, 16 );
+                break;
+            default:
+        }
+    }
 }
@@ -0,0 +1,762 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A compact encoder for the Brotli format (RFC 7932). The data are buffered and compressed on closing of the stream.
+ * The back references are searched with hash chains over a window of 4 MB. Every meta-block use a single prefix code for
+ * the literals, the insert and copy lengths and the distances. The static dictionary and the context modeling of
+ * Brotli are not used. A meta-block that is not smaller as its data is written uncompressed.
+ * 
+ * @author Volker Berlin
+ */
+class BrotliOutputStream extends FilterOutputStream {
+
+    private static final int     WINDOW_BITS       = 22;
+
+    private static final int     MAX_DISTANCE      = (1 << WINDOW_BITS) - 16;
+
+    private static final int     MAX_META_BLOCK    = 1 << 24;
+
+    private static final int     MIN_MATCH         = 4;
+
+    private static final int     MAX_MATCH         = 1 << 16;
+
+    private static final int     MAX_CHAIN         = 64;
+
+    /** A match with this length is long enough to stop the search */
+    private static final int     NICE_MATCH        = 258;
+
+    private static final int     HASH_BITS         = 15;
+
+    private static final int[]   INSERT_BASE       = { 0, 1, 2, 3, 4, 5, 6, 8, 10, 14, 18, 26, 34, 50, 66, 98, 130, 194, 322, 578, 1090, 2114, 6210, 22594 };
+
+    private static final int[]   INSERT_EXTRA      = { 0, 0, 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 7, 8, 9, 10, 12, 14, 24 };
+
+    private static final int[]   COPY_BASE         = { 2, 3, 4, 5, 6, 7, 8, 9, 10, 12, 14, 18, 22, 30, 38, 54, 70, 102, 134, 198, 326, 582, 1094, 2118 };
+
+    private static final int[]   COPY_EXTRA        = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 7, 8, 9, 10, 24 };
+
+    /** The cell of the insert and copy length codes with an explicit distance for the ranges of the insert and copy code */
+    private static final int[][] COMMAND_CELLS     = { { 2, 3, 6 }, { 4, 5, 8 }, { 7, 9, 10 } };
+
+    /** The order in which the code lengths of the code length code are stored */
+    private static final int[]   CODE_LENGTH_ORDER = { 1, 2, 3, 4, 0, 5, 17, 6, 16, 7, 8, 9, 10, 11, 12, 13, 14, 15 };
+
+    /** The fixed prefix code for the code lengths of the code length code, bits */
+    private static final int[]   CODE_LENGTH_BITS  = { 0, 7, 3, 2, 1, 15 };
+
+    /** The fixed prefix code for the code lengths of the code length code, lengths */
+    private static final int[]   CODE_LENGTH_SIZES = { 2, 4, 3, 2, 2, 4 };
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private boolean              closed;
+
+    private byte[]               data;
+
+    private int[]                head;
+
+    private int[]                chain;
+
+    private int                  matchLength;
+
+    private int                  matchDistance;
+
+    private long                 bits;
+
+    private int                  bitCount;
+
+    /** the target of the bits, the stream or the buffer of the current meta-block */
+    private OutputStream         sink;
+
+    /**
+     * Create a compressing stream.
+     * 
+     * @param output
+     *            the target for the compressed data
+     */
+    BrotliOutputStream( @Nonnull OutputStream output ) {
+        super( output );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( int b ) throws IOException {
+        buffer.write( b );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+        buffer.write( b, off, len );
+    }
+
+    /**
+     * Compress the buffered data and close the target.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if( closed ) {
+            return;
+        }
+        closed = true;
+        data = buffer.toByteArray();
+        head = new int[1 << HASH_BITS];
+        Arrays.fill( head, -1 );
+        chain = new int[data.length];
+        sink = out;
+
+        writeBits( 1, 1 ); // WBITS
+        writeBits( 3, WINDOW_BITS - 17 );
+        if( data.length == 0 ) {
+            writeBits( 1, 1 ); // ISLAST
+            writeBits( 1, 1 ); // ISLASTEMPTY
+        }
+        for( int start = 0; start < data.length; start += MAX_META_BLOCK ) {
+            writeMetaBlock( start, Math.min( data.length, start + MAX_META_BLOCK ) );
+        }
+        if( bitCount > 0 ) {
+            out.write( (int)bits );
+        }
+        data = null;
+        head = null;
+        chain = null;
+        out.close();
+    }
+
+    /**
+     * Write a meta-block. If the compressed meta-block is not smaller as the data, for example with random data, then an
+     * uncompressed meta-block is written.
+     * 
+     * @param start
+     *            the start of the data
+     * @param end
+     *            the end of the data
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void writeMetaBlock( int start, int end ) throws IOException {
+        long startBits = bits;
+        int startBitCount = bitCount;
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        sink = block;
+        try {
+            writeCompressedMetaBlock( start, end );
+        } finally {
+            sink = out;
+        }
+        long compressedSize = 8L * block.size() + bitCount - startBitCount;
+        // header, padding to the next byte, data and the empty last meta-block
+        long uncompressedSize = 4 + nibbles( end - start ) * 4 + 7 + 8L * (end - start) + (end == data.length ? 2 : 0);
+        if( compressedSize < uncompressedSize ) {
+            block.writeTo( out );
+        } else {
+            bits = startBits;
+            bitCount = startBitCount;
+            writeUncompressedMetaBlock( start, end );
+        }
+    }
+
+    /**
+     * Write an uncompressed meta-block. It can not be the last meta-block. If it is the end of the data then an empty
+     * last meta-block follows.
+     * 
+     * @param start
+     *            the start of the data
+     * @param end
+     *            the end of the data
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void writeUncompressedMetaBlock( int start, int end ) throws IOException {
+        writeBits( 1, 0 ); // ISLAST
+        writeLength( end - start );
+        writeBits( 1, 1 ); // ISUNCOMPRESSED
+        if( bitCount > 0 ) {
+            writeBits( 8 - bitCount, 0 ); // the data starts on a byte boundary
+        }
+        out.write( data, start, end - start );
+        if( end == data.length ) {
+            writeBits( 1, 1 ); // ISLAST
+            writeBits( 1, 1 ); // ISLASTEMPTY
+        }
+    }
+
+    /**
+     * Write the length of a meta-block with MNIBBLES and MLEN - 1.
+     * 
+     * @param length
+     *            the count of bytes in the meta-block
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void writeLength( int length ) throws IOException {
+        int nibbles = nibbles( length );
+        writeBits( 2, nibbles - 4 ); // MNIBBLES
+        writeBits( nibbles * 4, length - 1 ); // MLEN - 1
+    }
+
+    /**
+     * The count of nibbles for the length of a meta-block.
+     * 
+     * @param length
+     *            the count of bytes in the meta-block
+     * @return 4, 5 or 6
+     */
+    private static int nibbles( int length ) {
+        return length - 1 < 1 << 16 ? 4 : length - 1 < 1 << 20 ? 5 : 6;
+    }
+
+    /**
+     * Write a compressed meta-block.
+     * 
+     * @param start
+     *            the start of the data
+     * @param end
+     *            the end of the data
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void writeCompressedMetaBlock( int start, int end ) throws IOException {
+        // split the data into commands of literals and a back reference
+        int[] commands = new int[16];
+        int count = 0;
+        int literals = start;
+        int pos = start;
+        while( pos < end ) {
+            findMatch( pos, end );
+            if( matchLength < MIN_MATCH ) {
+                insertHash( pos++ );
+                continue;
+            }
+            int length = matchLength;
+            int distance = matchDistance;
+            insertHash( pos );
+            if( length < NICE_MATCH && pos + 1 < end ) {
+                findMatch( pos + 1, end );
+                if( matchLength > length ) {
+                    pos++; // lazy matching, the next position has a longer match
+                    continue;
+                }
+            }
+            if( count + 3 > commands.length ) {
+                commands = Arrays.copyOf( commands, commands.length * 2 );
+            }
+            commands[count++] = pos - literals;
+            commands[count++] = length;
+            commands[count++] = distance;
+            for( int i = 1; i < length; i++ ) {
+                insertHash( pos + i );
+            }
+            pos += length;
+            literals = pos;
+        }
+        if( literals < end ) {
+            if( count + 3 > commands.length ) {
+                commands = Arrays.copyOf( commands, count + 3 );
+            }
+            commands[count++] = end - literals;
+            commands[count++] = 0;
+            commands[count++] = 0;
+        }
+
+        // the histograms of the three alphabets
+        int[] literalHistogram = new int[256];
+        int[] commandHistogram = new int[704];
+        int[] distanceHistogram = new int[64];
+        pos = start;
+        for( int i = 0; i < count; i += 3 ) {
+            int insert = commands[i];
+            int copy = commands[i + 1];
+            commandHistogram[commandCode( insert, copy )]++;
+            for( int k = 0; k < insert; k++ ) {
+                literalHistogram[data[pos++] & 0xFF]++;
+            }
+            if( copy > 0 ) {
+                distanceHistogram[distanceCode( commands[i + 2] )]++;
+                pos += copy;
+            }
+        }
+
+        // meta-block header
+        int length = end - start;
+        boolean last = end == data.length;
+        writeBits( 1, last ? 1 : 0 ); // ISLAST
+        if( last ) {
+            writeBits( 1, 0 ); // ISLASTEMPTY
+        }
+        writeLength( length );
+        if( !last ) {
+            writeBits( 1, 0 ); // ISUNCOMPRESSED
+        }
+        writeBits( 1, 0 ); // NBLTYPESL = 1
+        writeBits( 1, 0 ); // NBLTYPESI = 1
+        writeBits( 1, 0 ); // NBLTYPESD = 1
+        writeBits( 2, 0 ); // NPOSTFIX
+        writeBits( 4, 0 ); // NDIRECT
+        writeBits( 2, 0 ); // context mode LSB6
+        writeBits( 1, 0 ); // NTREESL = 1
+        writeBits( 1, 0 ); // NTREESD = 1
+
+        int[] literalLengths = new int[256];
+        int[] literalCodes = new int[256];
+        writePrefixCode( literalHistogram, 8, literalLengths, literalCodes );
+        int[] commandLengths = new int[704];
+        int[] commandCodes = new int[704];
+        writePrefixCode( commandHistogram, 10, commandLengths, commandCodes );
+        int[] distanceLengths = new int[64];
+        int[] distanceCodes = new int[64];
+        writePrefixCode( distanceHistogram, 6, distanceLengths, distanceCodes );
+
+        // meta-block data
+        pos = start;
+        for( int i = 0; i < count; i += 3 ) {
+            int insert = commands[i];
+            int copy = commands[i + 1];
+            int code = commandCode( insert, copy );
+            writeBits( commandLengths[code], commandCodes[code] );
+            int insertCode = insertCode( insert );
+            writeBits( INSERT_EXTRA[insertCode], insert - INSERT_BASE[insertCode] );
+            if( copy > 0 ) {
+                int copyCode = copyCode( copy );
+                writeBits( COPY_EXTRA[copyCode], copy - COPY_BASE[copyCode] );
+            }
+            for( int k = 0; k < insert; k++ ) {
+                int b = data[pos++] & 0xFF;
+                writeBits( literalLengths[b], literalCodes[b] );
+            }
+            if( copy > 0 ) {
+                int distance = commands[i + 2];
+                code = distanceCode( distance );
+                writeBits( distanceLengths[code], distanceCodes[code] );
+                int extraBits = (code - 16) / 2 + 1;
+                writeBits( extraBits, distance + 3 - ((2 + (code & 1)) << extraBits) );
+                pos += copy;
+            }
+        }
+    }
+
+    /**
+     * Add a position to the hash chains.
+     * 
+     * @param pos
+     *            the position in the data
+     */
+    private void insertHash( int pos ) {
+        if( pos + MIN_MATCH <= data.length ) {
+            int hash = hash( pos );
+            chain[pos] = head[hash];
+            head[hash] = pos;
+        }
+    }
+
+    /**
+     * Hash of the next 4 bytes.
+     * 
+     * @param pos
+     *            the position in the data
+     * @return the hash value
+     */
+    private int hash( int pos ) {
+        int value = (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | data[pos + 3] << 24;
+        return (value * 0x1E35A7BD) >>> (32 - HASH_BITS);
+    }
+
+    /**
+     * Search the longest previous match of the data on the position. The result is saved in matchLength and
+     * matchDistance.
+     * 
+     * @param pos
+     *            the position in the data
+     * @param end
+     *            the end of the current meta-block
+     */
+    private void findMatch( int pos, int end ) {
+        matchLength = 0;
+        matchDistance = 0;
+        int maxLength = Math.min( end - pos, MAX_MATCH );
+        if( maxLength < MIN_MATCH ) {
+            return;
+        }
+        int candidate = head[hash( pos )];
+        for( int i = 0; i < MAX_CHAIN && candidate >= 0 && pos - candidate <= MAX_DISTANCE; i++ ) {
+            if( data[candidate + matchLength] == data[pos + matchLength] ) {
+                int length = 0;
+                while( length < maxLength && data[candidate + length] == data[pos + length] ) {
+                    length++;
+                }
+                if( length > matchLength ) {
+                    matchLength = length;
+                    matchDistance = pos - candidate;
+                    if( length == maxLength || length >= NICE_MATCH ) {
+                        return;
+                    }
+                }
+            }
+            candidate = chain[candidate];
+        }
+    }
+
+    /**
+     * Get the symbol of the insert and copy length alphabet with an explicit distance. A command without copy length
+     * use the copy length 4 because the decoder stops after the literals at the end of the meta-block.
+     * 
+     * @param insert
+     *            the count of literals
+     * @param copy
+     *            the length of the back reference or 0
+     * @return the symbol
+     */
+    private static int commandCode( int insert, int copy ) {
+        int insertCode = insertCode( insert );
+        int copyCode = copyCode( copy == 0 ? 4 : copy );
+        return COMMAND_CELLS[insertCode >> 3][copyCode >> 3] * 64 + ((insertCode & 7) << 3) + (copyCode & 7);
+    }
+
+    /**
+     * Get the insert length code.
+     * 
+     * @param length
+     *            the count of literals
+     * @return the code
+     */
+    private static int insertCode( int length ) {
+        int code = INSERT_BASE.length - 1;
+        while( INSERT_BASE[code] > length ) {
+            code--;
+        }
+        return code;
+    }
+
+    /**
+     * Get the copy length code.
+     * 
+     * @param length
+     *            the length of the back reference
+     * @return the code
+     */
+    private static int copyCode( int length ) {
+        int code = COPY_BASE.length - 1;
+        while( COPY_BASE[code] > length ) {
+            code--;
+        }
+        return code;
+    }
+
+    /**
+     * Get the distance symbol without a postfix and direct distance codes. The symbols 0 to 15 of the last distances
+     * are not used.
+     * 
+     * @param distance
+     *            the distance of the back reference
+     * @return the symbol
+     */
+    private static int distanceCode( int distance ) {
+        int value = distance + 3;
+        int extraBits = 30 - Integer.numberOfLeadingZeros( value );
+        return 16 + 2 * (extraBits - 1) + ((value >> extraBits) & 1);
+    }
+
+    /**
+     * Calculate a prefix code and write its description. Up to 4 used symbols are written as simple prefix code, else
+     * the code lengths are written run length encoded with a code length code.
+     * 
+     * @param histogram
+     *            the count of every symbol
+     * @param alphabetBits
+     *            the bits for a symbol of the alphabet in a simple prefix code
+     * @param lengths
+     *            the target for the code lengths
+     * @param codes
+     *            the target for the bit reversed codes
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void writePrefixCode( int[] histogram, int alphabetBits, int[] lengths, int[] codes ) throws IOException {
+        int[] symbols = new int[4];
+        int used = 0;
+        for( int i = 0; i < histogram.length; i++ ) {
+            if( histogram[i] > 0 ) {
+                if( used < 4 ) {
+                    symbols[used] = i;
+                }
+                used++;
+            }
+        }
+        if( used <= 1 ) {
+            // a single symbol is coded with zero bits
+            writeBits( 2, 1 ); // HSKIP, simple prefix code
+            writeBits( 2, 0 ); // NSYM - 1
+            writeBits( alphabetBits, symbols[0] );
+            return;
+        }
+        createLengths( histogram, 15, lengths );
+        createCodes( lengths, codes );
+        if( used <= 4 ) {
+            int[] sorted = Arrays.copyOf( symbols, used );
+            for( int i = 1; i < used; i++ ) {
+                for( int k = i; k > 0 && lengths[sorted[k]] < lengths[sorted[k - 1]]; k-- ) {
+                    int temp = sorted[k];
+                    sorted[k] = sorted[k - 1];
+                    sorted[k - 1] = temp;
+                }
+            }
+            writeBits( 2, 1 ); // HSKIP, simple prefix code
+            writeBits( 2, used - 1 ); // NSYM - 1
+            for( int symbol : sorted ) {
+                writeBits( alphabetBits, symbol );
+            }
+            if( used == 4 ) {
+                writeBits( 1, lengths[sorted[0]] == 1 ? 1 : 0 ); // tree-select
+            }
+            return;
+        }
+
+        // run length encoding of the code lengths, the trailing zeros are not stored
+        int size = lengths.length;
+        while( lengths[size - 1] == 0 ) {
+            size--;
+        }
+        int[] tokens = new int[size];
+        int[] extras = new int[size];
+        int count = 0;
+        int previous = 8; // the initial repeated code length
+        for( int i = 0; i < size; ) {
+            int value = lengths[i];
+            int repeat = 1;
+            while( i + repeat < size && lengths[i + repeat] == value ) {
+                repeat++;
+            }
+            i += repeat;
+            int repeatCode;
+            int repeatBits;
+            if( value == 0 ) {
+                if( repeat == 11 ) {
+                    tokens[count++] = 0;
+                    repeat--;
+                }
+                repeatCode = 17;
+                repeatBits = 3;
+            } else {
+                if( previous != value ) {
+                    tokens[count++] = value;
+                    repeat--;
+                }
+                if( repeat == 7 ) {
+                    tokens[count++] = value;
+                    repeat--;
+                }
+                previous = value;
+                repeatCode = 16;
+                repeatBits = 2;
+            }
+            if( repeat < 3 ) {
+                for( ; repeat > 0; repeat-- ) {
+                    tokens[count++] = value;
+                }
+                continue;
+            }
+            // consecutive repeat codes are combined by the decoder, the most significant part is written first
+            int first = count;
+            repeat -= 3;
+            while( true ) {
+                tokens[count] = repeatCode;
+                extras[count++] = repeat & ((1 << repeatBits) - 1);
+                repeat >>= repeatBits;
+                if( repeat == 0 ) {
+                    break;
+                }
+                repeat--;
+            }
+            for( int a = first, b = count - 1; a < b; a++, b-- ) {
+                int temp = extras[a];
+                extras[a] = extras[b];
+                extras[b] = temp;
+            }
+        }
+
+        int[] codeLengthHistogram = new int[18];
+        for( int i = 0; i < count; i++ ) {
+            codeLengthHistogram[tokens[i]]++;
+        }
+        int[] codeLengthLengths = new int[18];
+        int[] codeLengthCodes = new int[18];
+        createLengths( codeLengthHistogram, 5, codeLengthLengths );
+        createCodes( codeLengthLengths, codeLengthCodes );
+        int codeLengthCount = 0;
+        for( int length : codeLengthLengths ) {
+            if( length > 0 ) {
+                codeLengthCount++;
+            }
+        }
+
+        // the decoder reads the code lengths until the code is complete, a single code must be followed by zeros
+        int stored = CODE_LENGTH_ORDER.length;
+        if( codeLengthCount > 1 ) {
+            while( codeLengthLengths[CODE_LENGTH_ORDER[stored - 1]] == 0 ) {
+                stored--;
+            }
+        }
+        int skip = 0;
+        if( codeLengthLengths[CODE_LENGTH_ORDER[0]] == 0 && codeLengthLengths[CODE_LENGTH_ORDER[1]] == 0 ) {
+            skip = codeLengthLengths[CODE_LENGTH_ORDER[2]] == 0 ? 3 : 2;
+        }
+        writeBits( 2, skip ); // HSKIP
+        for( int i = skip; i < stored; i++ ) {
+            int length = codeLengthLengths[CODE_LENGTH_ORDER[i]];
+            writeBits( CODE_LENGTH_SIZES[length], CODE_LENGTH_BITS[length] );
+        }
+        if( codeLengthCount == 1 ) {
+            // a single code length symbol is coded with zero bits
+            Arrays.fill( codeLengthLengths, 0 );
+        }
+        for( int i = 0; i < count; i++ ) {
+            int token = tokens[i];
+            writeBits( codeLengthLengths[token], codeLengthCodes[token] );
+            if( token == 16 ) {
+                writeBits( 2, extras[i] );
+            } else if( token == 17 ) {
+                writeBits( 3, extras[i] );
+            }
+        }
+    }
+
+    /**
+     * Calculate the code lengths of a Huffman code with a limit. If the limit is exceeded then the calculation is
+     * repeated with a larger minimum count for every used symbol.
+     * 
+     * @param histogram
+     *            the count of every symbol
+     * @param limit
+     *            the maximum code length
+     * @param lengths
+     *            the target for the code lengths, 0 for unused symbols
+     */
+    private static void createLengths( int[] histogram, int limit, int[] lengths ) {
+        int used = 0;
+        Integer[] symbols = new Integer[histogram.length];
+        for( int i = 0; i < histogram.length; i++ ) {
+            if( histogram[i] > 0 ) {
+                symbols[used++] = i;
+            }
+        }
+        Arrays.fill( lengths, 0 );
+        if( used == 1 ) {
+            lengths[symbols[0]] = 1;
+            return;
+        }
+        for( long minCount = 1;; minCount *= 2 ) {
+            long min = minCount;
+            Arrays.sort( symbols, 0, used, ( a, b ) -> {
+                int compare = Long.compare( Math.max( histogram[a], min ), Math.max( histogram[b], min ) );
+                return compare != 0 ? compare : a - b;
+            } );
+
+            // two queues, the sorted leafs and the created nodes which are also sorted
+            long[] weights = new long[2 * used - 1];
+            int[] parents = new int[2 * used - 1];
+            for( int i = 0; i < used; i++ ) {
+                weights[i] = Math.max( histogram[symbols[i]], min );
+            }
+            int leaf = 0;
+            int node = used;
+            for( int next = used; next < weights.length; next++ ) {
+                for( int k = 0; k < 2; k++ ) {
+                    int child = leaf < used && (node >= next || weights[leaf] <= weights[node]) ? leaf++ : node++;
+                    weights[next] += weights[child];
+                    parents[child] = next;
+                }
+            }
+            int[] depths = new int[weights.length];
+            int maxDepth = 0;
+            for( int i = weights.length - 2; i >= 0; i-- ) {
+                depths[i] = depths[parents[i]] + 1;
+                maxDepth = Math.max( maxDepth, depths[i] );
+            }
+            if( maxDepth <= limit ) {
+                for( int i = 0; i < used; i++ ) {
+                    lengths[symbols[i]] = depths[i];
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Calculate the canonical codes of the code lengths. The codes are bit reversed because the bits are written with
+     * the least significant bit first.
+     * 
+     * @param lengths
+     *            the code lengths
+     * @param codes
+     *            the target for the codes
+     */
+    private static void createCodes( int[] lengths, int[] codes ) {
+        int[] counts = new int[16];
+        for( int length : lengths ) {
+            counts[length]++;
+        }
+        counts[0] = 0;
+        int[] nextCodes = new int[16];
+        int code = 0;
+        for( int i = 1; i < 16; i++ ) {
+            code = (code + counts[i - 1]) << 1;
+            nextCodes[i] = code;
+        }
+        for( int i = 0; i < lengths.length; i++ ) {
+            int length = lengths[i];
+            if( length > 0 ) {
+                codes[i] = Integer.reverse( nextCodes[length]++ ) >>> (32 - length);
+            }
+        }
+    }
+
+    /**
+     * Write bits with the least significant bit first.
+     * 
+     * @param count
+     *            the count of bits, not more than 24
+     * @param value
+     *            the value
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void writeBits( int count, long value ) throws IOException {
+        bits |= value << bitCount;
+        bitCount += count;
+        while( bitCount >= 8 ) {
+            sink.write( (int)bits );
+            bits >>>= 8;
+            bitCount -= 8;
+        }
+    }
+}
@@ -0,0 +1,710 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import de.inetsoftware.jwebassembly.module.TypeManager.StructType;
+import de.inetsoftware.jwebassembly.module.WasmOptions;
+import de.inetsoftware.jwebassembly.sourcemap.SourceMappingBuffer;
+import de.inetsoftware.jwebassembly.wasm.AnyType;
+import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * Generates the DWARF debug sections .debug_abbrev, .debug_info, .debug_line and .debug_str in version 4. There is one
+ * compile unit for the module with a subprogram for every function. The parameters and local variables are located
+ * with the WebAssembly extension DW_OP_WASM_location. The addresses are offsets in the payload of the code section.
+ *
+ * https://yurydelendik.github.io/webassembly-dwarf/
+ *
+ * @author Volker Berlin
+ */
+class DwarfWriter {
+
+    private static final int DW_TAG_formal_parameter = 0x05;
+
+    private static final int DW_TAG_member           = 0x0d;
+
+    private static final int DW_TAG_reference_type   = 0x10;
+
+    private static final int DW_TAG_compile_unit     = 0x11;
+
+    private static final int DW_TAG_structure_type   = 0x13;
+
+    private static final int DW_TAG_base_type        = 0x24;
+
+    private static final int DW_TAG_subprogram       = 0x2e;
+
+    private static final int DW_TAG_variable         = 0x34;
+
+    private static final int DW_AT_location          = 0x02;
+
+    private static final int DW_AT_name              = 0x03;
+
+    private static final int DW_AT_byte_size         = 0x0b;
+
+    private static final int DW_AT_stmt_list         = 0x10;
+
+    private static final int DW_AT_low_pc            = 0x11;
+
+    private static final int DW_AT_high_pc           = 0x12;
+
+    private static final int DW_AT_language          = 0x13;
+
+    private static final int DW_AT_comp_dir          = 0x1b;
+
+    private static final int DW_AT_producer          = 0x25;
+
+    private static final int DW_AT_decl_file         = 0x3a;
+
+    private static final int DW_AT_encoding          = 0x3e;
+
+    private static final int DW_AT_type              = 0x49;
+
+    private static final int DW_AT_linkage_name      = 0x6e;
+
+    private static final int DW_FORM_addr            = 0x01;
+
+    private static final int DW_FORM_data2           = 0x05;
+
+    private static final int DW_FORM_data4           = 0x06;
+
+    private static final int DW_FORM_data1           = 0x0b;
+
+    private static final int DW_FORM_strp            = 0x0e;
+
+    private static final int DW_FORM_udata           = 0x0f;
+
+    private static final int DW_FORM_ref4            = 0x13;
+
+    private static final int DW_FORM_sec_offset      = 0x17;
+
+    private static final int DW_FORM_exprloc         = 0x18;
+
+    private static final int DW_LANG_Java            = 0x0b;
+
+    private static final int DW_ATE_address          = 0x01;
+
+    private static final int DW_ATE_boolean          = 0x02;
+
+    private static final int DW_ATE_float            = 0x04;
+
+    private static final int DW_ATE_signed           = 0x05;
+
+    private static final int DW_ATE_unsigned         = 0x08;
+
+    private static final int DW_OP_WASM_location     = 0xed;
+
+    // the abbreviation codes
+    private static final int ABBREV_COMPILE_UNIT     = 1;
+
+    private static final int ABBREV_BASE_TYPE        = 2;
+
+    private static final int ABBREV_STRUCTURE        = 3;
+
+    private static final int ABBREV_MEMBER           = 4;
+
+    private static final int ABBREV_REFERENCE        = 5;
+
+    private static final int ABBREV_SUBPROGRAM       = 6;
+
+    private static final int ABBREV_PARAMETER        = 7;
+
+    private static final int ABBREV_VARIABLE         = 8;
+
+    // the configuration of the line program
+    private static final int LINE_BASE               = -5;
+
+    private static final int LINE_RANGE              = 14;
+
+    private static final int OPCODE_BASE             = 13;
+
+    private final String                            compDir;
+
+    private final List<DebugFunction>               functions   = new ArrayList<>();
+
+    private final List<StructType>                  structTypes = new ArrayList<>();
+
+    private final LinkedHashMap<String, Integer>    files       = new LinkedHashMap<>();
+
+    private final HashMap<String, Integer>          strings     = new HashMap<>();
+
+    private final Buffer                            str         = new Buffer();
+
+    private final HashMap<AnyType, Integer>         typeOffsets = new HashMap<>();
+
+    private final ArrayList<Object>                 typePatches = new ArrayList<>();
+
+    /**
+     * Create a new instance.
+     *
+     * @param options
+     *            compiler properties
+     */
+    DwarfWriter( @Nonnull WasmOptions options ) {
+        String base = options.getSourceMapBase();
+        compDir = base.isEmpty() ? null : base;
+    }
+
+    /**
+     * Add a function with its code position.
+     *
+     * @param name
+     *            the signature name of the function
+     * @param func
+     *            the function after writing the code section
+     */
+    void addFunction( @Nonnull String name, @Nonnull Function func ) {
+        DebugFunction debug = new DebugFunction();
+        int idx = name.indexOf( '(' );
+        debug.name = idx > 0 ? name.substring( 0, idx ) : name;
+        debug.linkageName = name;
+        debug.func = func;
+        if( func.sourceFile != null ) {
+            debug.file = files.computeIfAbsent( func.sourceFile, key -> files.size() + 1 );
+        }
+        functions.add( debug );
+    }
+
+    /**
+     * Add a struct type with its fields.
+     *
+     * @param type
+     *            the type
+     */
+    void addStructType( @Nonnull StructType type ) {
+        structTypes.add( type );
+    }
+
+    /**
+     * Write the debug sections as custom sections.
+     *
+     * @param wasm
+     *            the target
+     * @param options
+     *            compiler properties
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    void writeSections( @Nonnull WasmOutputStream wasm, @Nonnull WasmOptions options ) throws IOException {
+        Buffer line = createLineProgram();
+        Buffer info = createInfo();
+        writeCustomSection( wasm, options, ".debug_abbrev", createAbbrev() );
+        writeCustomSection( wasm, options, ".debug_info", info );
+        writeCustomSection( wasm, options, ".debug_line", line );
+        writeCustomSection( wasm, options, ".debug_str", str );
+    }
+
+    /**
+     * Write a single custom section.
+     *
+     * @param wasm
+     *            the target
+     * @param options
+     *            compiler properties
+     * @param name
+     *            the name of the custom section
+     * @param data
+     *            the content
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static void writeCustomSection( WasmOutputStream wasm, WasmOptions options, String name, Buffer data ) throws IOException {
+        WasmOutputStream stream = new WasmOutputStream( options );
+        stream.writeString( name ); // Custom Section name, content is part of the section length
+        stream.write( data.bytes, 0, data.size );
+        wasm.writeSection( SectionType.Custom, stream );
+    }
+
+    /**
+     * Create the abbreviation table.
+     *
+     * @return the content of .debug_abbrev
+     */
+    private static Buffer createAbbrev() {
+        Buffer abbrev = new Buffer();
+        abbrev( abbrev, ABBREV_COMPILE_UNIT, DW_TAG_compile_unit, true, //
+                        DW_AT_producer, DW_FORM_strp, DW_AT_language, DW_FORM_data2, DW_AT_comp_dir, DW_FORM_strp, //
+                        DW_AT_stmt_list, DW_FORM_sec_offset, DW_AT_low_pc, DW_FORM_addr, DW_AT_high_pc, DW_FORM_data4 );
+        abbrev( abbrev, ABBREV_BASE_TYPE, DW_TAG_base_type, false, //
+                        DW_AT_name, DW_FORM_strp, DW_AT_encoding, DW_FORM_data1, DW_AT_byte_size, DW_FORM_data1 );
+        abbrev( abbrev, ABBREV_STRUCTURE, DW_TAG_structure_type, true, //
+                        DW_AT_name, DW_FORM_strp );
+        abbrev( abbrev, ABBREV_MEMBER, DW_TAG_member, false, //
+                        DW_AT_name, DW_FORM_strp, DW_AT_type, DW_FORM_ref4 );
+        abbrev( abbrev, ABBREV_REFERENCE, DW_TAG_reference_type, false, //
+                        DW_AT_type, DW_FORM_ref4 );
+        abbrev( abbrev, ABBREV_SUBPROGRAM, DW_TAG_subprogram, true, //
+                        DW_AT_low_pc, DW_FORM_addr, DW_AT_high_pc, DW_FORM_data4, DW_AT_name, DW_FORM_strp, //
+                        DW_AT_linkage_name, DW_FORM_strp, DW_AT_decl_file, DW_FORM_udata );
+        abbrev( abbrev, ABBREV_PARAMETER, DW_TAG_formal_parameter, false, //
+                        DW_AT_name, DW_FORM_strp, DW_AT_type, DW_FORM_ref4, DW_AT_location, DW_FORM_exprloc );
+        abbrev( abbrev, ABBREV_VARIABLE, DW_TAG_variable, false, //
+                        DW_AT_name, DW_FORM_strp, DW_AT_type, DW_FORM_ref4, DW_AT_location, DW_FORM_exprloc );
+        abbrev.writeByte( 0 );
+        return abbrev;
+    }
+
+    /**
+     * Write a single abbreviation declaration.
+     *
+     * @param abbrev
+     *            the target
+     * @param code
+     *            the abbreviation code
+     * @param tag
+     *            the DWARF tag
+     * @param hasChildren
+     *            true, if the entry has children
+     * @param attributes
+     *            pairs of attribute and form
+     */
+    private static void abbrev( Buffer abbrev, int code, int tag, boolean hasChildren, int... attributes ) {
+        abbrev.writeUleb( code );
+        abbrev.writeUleb( tag );
+        abbrev.writeByte( hasChildren ? 1 : 0 );
+        for( int attribute : attributes ) {
+            abbrev.writeUleb( attribute );
+        }
+        abbrev.writeUleb( 0 );
+        abbrev.writeUleb( 0 );
+    }
+
+    /**
+     * Create the debugging information entries.
+     *
+     * @return the content of .debug_info
+     */
+    private Buffer createInfo() {
+        Buffer info = new Buffer();
+        info.writeInt( 0 ); // unit_length, patched at the end
+        info.writeShort( 4 ); // version
+        info.writeInt( 0 ); // debug_abbrev_offset
+        info.writeByte( 4 ); // address_size of wasm32
+
+        int codeEnd = 0;
+        for( DebugFunction debug : functions ) {
+            codeEnd = Math.max( codeEnd, debug.func.codeStart + debug.func.codeSize );
+        }
+
+        info.writeUleb( ABBREV_COMPILE_UNIT );
+        info.writeInt( getString( "JWebAssembly" ) );
+        info.writeShort( DW_LANG_Java );
+        info.writeInt( getString( compDir == null ? "" : compDir ) );
+        info.writeInt( 0 ); // the offset of the line program
+        info.writeInt( 0 ); // low_pc
+        info.writeInt( codeEnd ); // high_pc as length
+
+        for( StructType type : structTypes ) {
+            typeOffsets.put( type, info.size );
+            info.writeUleb( ABBREV_STRUCTURE );
+            info.writeInt( getString( type.getName() ) );
+            List<NamedStorageType> fields = type.getFields();
+            if( fields != null ) {
+                for( NamedStorageType field : fields ) {
+                    if( field.getName() == null ) {
+                        continue;
+                    }
+                    info.writeUleb( ABBREV_MEMBER );
+                    info.writeInt( getString( field.getName() ) );
+                    writeTypeRef( info, field.getType() );
+                }
+            }
+            info.writeByte( 0 ); // end of children
+        }
+
+        for( DebugFunction debug : functions ) {
+            Function func = debug.func;
+            info.writeUleb( ABBREV_SUBPROGRAM );
+            info.writeInt( func.codeStart );
+            info.writeInt( func.codeSize );
+            info.writeInt( getString( debug.name ) );
+            info.writeInt( getString( debug.linkageName ) );
+            info.writeUleb( debug.file );
+            List<AnyType> localTypes = func.localTypes;
+            if( localTypes != null ) {
+                for( int i = 0; i < localTypes.size(); i++ ) {
+                    String name = func.localNames.get( i );
+                    if( name == null ) {
+                        continue;
+                    }
+                    info.writeUleb( i < func.paramCount ? ABBREV_PARAMETER : ABBREV_VARIABLE );
+                    info.writeInt( getString( name ) );
+                    writeTypeRef( info, localTypes.get( i ) );
+                    Buffer expr = new Buffer();
+                    expr.writeByte( DW_OP_WASM_location );
+                    expr.writeByte( 0x00 ); // wasm local
+                    expr.writeUleb( i );
+                    info.writeUleb( expr.size );
+                    info.write( expr );
+                }
+            }
+            info.writeByte( 0 ); // end of children
+        }
+
+        // the types that are referenced but are not a struct type
+        for( int i = 0; i < typePatches.size(); i += 2 ) {
+            AnyType type = (AnyType)typePatches.get( i + 1 );
+            if( !typeOffsets.containsKey( type ) ) {
+                writeType( info, type );
+            }
+        }
+        info.writeByte( 0 ); // end of the children of the compile unit
+
+        for( int i = 0; i < typePatches.size(); i += 2 ) {
+            info.setInt( (Integer)typePatches.get( i ), typeOffsets.get( typePatches.get( i + 1 ) ) );
+        }
+        info.setInt( 0, info.size - 4 );
+        return info;
+    }
+
+    /**
+     * Write a reference to a type that is patched later.
+     *
+     * @param info
+     *            the target
+     * @param type
+     *            the referenced type
+     */
+    private void writeTypeRef( Buffer info, AnyType type ) {
+        typePatches.add( info.size );
+        typePatches.add( type );
+        info.writeInt( 0 );
+    }
+
+    /**
+     * Write the entry for a type that is not a struct type. References to struct types are written as reference type.
+     * The list of patches can grow while writing.
+     *
+     * @param info
+     *            the target
+     * @param type
+     *            the type
+     */
+    private void writeType( Buffer info, AnyType type ) {
+        typeOffsets.put( type, info.size );
+        if( type instanceof StructType ) {
+            info.writeUleb( ABBREV_REFERENCE );
+            writeTypeRef( info, new StructRef( (StructType)type ) );
+            return;
+        }
+        if( type instanceof StructRef ) {
+            // a struct that was not written as struct type, declare it without fields
+            info.writeUleb( ABBREV_STRUCTURE );
+            info.writeInt( getString( ((StructRef)type).type.getName() ) );
+            info.writeByte( 0 ); // end of children
+            return;
+        }
+        String name = type.toString();
+        int encoding;
+        int size;
+        if( type instanceof ValueType ) {
+            switch( (ValueType)type ) {
+                case i32:
+                    name = "int";
+                    encoding = DW_ATE_signed;
+                    size = 4;
+                    break;
+                case i64:
+                    name = "long";
+                    encoding = DW_ATE_signed;
+                    size = 8;
+                    break;
+                case f32:
+                    name = "float";
+                    encoding = DW_ATE_float;
+                    size = 4;
+                    break;
+                case f64:
+                    name = "double";
+                    encoding = DW_ATE_float;
+                    size = 8;
+                    break;
+                case bool:
+                    name = "boolean";
+                    encoding = DW_ATE_boolean;
+                    size = 1;
+                    break;
+                case i8:
+                    name = "byte";
+                    encoding = DW_ATE_signed;
+                    size = 1;
+                    break;
+                case i16:
+                    name = "short";
+                    encoding = DW_ATE_signed;
+                    size = 2;
+                    break;
+                case u16:
+                    name = "char";
+                    encoding = DW_ATE_unsigned;
+                    size = 2;
+                    break;
+                case v128:
+                    encoding = DW_ATE_unsigned;
+                    size = 16;
+                    break;
+                default:
+                    encoding = DW_ATE_address;
+                    size = 4;
+            }
+        } else {
+            encoding = DW_ATE_address;
+            size = 4;
+        }
+        info.writeUleb( ABBREV_BASE_TYPE );
+        info.writeInt( getString( name ) );
+        info.writeByte( encoding );
+        info.writeByte( size );
+    }
+
+    /**
+     * Create the line number program with a sequence for every function.
+     *
+     * @return the content of .debug_line
+     */
+    private Buffer createLineProgram() {
+        Buffer line = new Buffer();
+        line.writeInt( 0 ); // unit_length, patched at the end
+        line.writeShort( 4 ); // version
+        line.writeInt( 0 ); // header_length, patched
+        int headerStart = line.size;
+        line.writeByte( 1 ); // minimum_instruction_length
+        line.writeByte( 1 ); // maximum_operations_per_instruction
+        line.writeByte( 1 ); // default_is_stmt
+        line.writeByte( LINE_BASE );
+        line.writeByte( LINE_RANGE );
+        line.writeByte( OPCODE_BASE );
+        for( int length : new int[] { 0, 1, 1, 1, 1, 0, 0, 0, 1, 0, 0, 1 } ) {
+            line.writeByte( length ); // standard_opcode_lengths
+        }
+        if( compDir != null ) {
+            line.writeString( compDir );
+        }
+        line.writeByte( 0 ); // end of include_directories
+        for( String file : files.keySet() ) {
+            line.writeString( file );
+            line.writeUleb( compDir != null ? 1 : 0 ); // directory index
+            line.writeUleb( 0 ); // modification time
+            line.writeUleb( 0 ); // file length
+        }
+        line.writeByte( 0 ); // end of file_names
+        line.setInt( headerStart - 4, line.size - headerStart );
+
+        for( DebugFunction debug : functions ) {
+            Function func = debug.func;
+            SourceMappingBuffer mappings = func.sourceMappings;
+            if( mappings == null || debug.file == 0 ) {
+                continue;
+            }
+            int base = func.codeStart + func.codeHeaderSize;
+            int address = func.codeStart;
+            int lineNumber = 1;
+
+            line.writeByte( 0 ); // extended opcode
+            line.writeUleb( 5 );
+            line.writeByte( 0x02 ); // DW_LNE_set_address
+            line.writeInt( address );
+            if( debug.file != 1 ) {
+                line.writeByte( 0x04 ); // DW_LNS_set_file
+                line.writeUleb( debug.file );
+            }
+            for( int i = 0; i < mappings.size(); i++ ) {
+                int javaLine = mappings.getSourceLine( i ) + 1;
+                if( javaLine < 1 ) {
+                    continue;
+                }
+                int addressDelta = base + mappings.getRelativeColumn( i ) - address;
+                int lineDelta = javaLine - lineNumber;
+                if( addressDelta < 0 ) {
+                    continue;
+                }
+                if( lineDelta < LINE_BASE || lineDelta >= LINE_BASE + LINE_RANGE ) {
+                    line.writeByte( 0x03 ); // DW_LNS_advance_line
+                    line.writeSleb( lineDelta );
+                    lineDelta = 0;
+                }
+                int special = (lineDelta - LINE_BASE) + LINE_RANGE * addressDelta + OPCODE_BASE;
+                if( special > 255 ) {
+                    line.writeByte( 0x02 ); // DW_LNS_advance_pc
+                    line.writeUleb( addressDelta );
+                    special = (lineDelta - LINE_BASE) + OPCODE_BASE;
+                }
+                line.writeByte( special );
+                address += addressDelta;
+                lineNumber = javaLine;
+            }
+            line.writeByte( 0x02 ); // DW_LNS_advance_pc
+            line.writeUleb( func.codeStart + func.codeSize - address );
+            line.writeByte( 0 ); // extended opcode
+            line.writeUleb( 1 );
+            line.writeByte( 0x01 ); // DW_LNE_end_sequence
+        }
+        line.setInt( 0, line.size - 4 );
+        return line;
+    }
+
+    /**
+     * Get the offset of a string in the string section.
+     *
+     * @param value
+     *            the string
+     * @return the offset
+     */
+    private int getString( @Nonnull String value ) {
+        Integer offset = strings.get( value );
+        if( offset == null ) {
+            offset = str.size;
+            strings.put( value, offset );
+            str.writeString( value );
+        }
+        return offset;
+    }
+
+    /**
+     * A function of the module.
+     */
+    private static class DebugFunction {
+
+        private String   name;
+
+        private String   linkageName;
+
+        private int      file;
+
+        private Function func;
+    }
+
+    /**
+     * A reference to a struct type as key in the type offsets.
+     */
+    private static class StructRef implements AnyType {
+
+        private final StructType type;
+
+        private StructRef( StructType type ) {
+            this.type = type;
+        }
+
+        @Override
+        public int getCode() {
+            return type.getCode();
+        }
+
+        @Override
+        public boolean isRefType() {
+            return true;
+        }
+
+        @Override
+        public boolean isSubTypeOf( @Nonnull AnyType other ) {
+            return false;
+        }
+
+        @Override
+        public boolean equals( @Nullable Object obj ) {
+            return obj instanceof StructRef && ((StructRef)obj).type == type;
+        }
+
+        @Override
+        public int hashCode() {
+            return type.hashCode();
+        }
+    }
+
+    /**
+     * A growable byte buffer with the little endian encoding of DWARF.
+     */
+    private static class Buffer {
+
+        private byte[] bytes = new byte[256];
+
+        private int    size;
+
+        private void ensure( int count ) {
+            if( size + count > bytes.length ) {
+                bytes = Arrays.copyOf( bytes, Math.max( 2 * bytes.length, size + count ) );
+            }
+        }
+
+        private void writeByte( int value ) {
+            ensure( 1 );
+            bytes[size++] = (byte)value;
+        }
+
+        private void writeShort( int value ) {
+            writeByte( value );
+            writeByte( value >> 8 );
+        }
+
+        private void writeInt( int value ) {
+            ensure( 4 );
+            setInt( size, value );
+            size += 4;
+        }
+
+        private void setInt( int pos, int value ) {
+            bytes[pos] = (byte)value;
+            bytes[pos + 1] = (byte)(value >> 8);
+            bytes[pos + 2] = (byte)(value >> 16);
+            bytes[pos + 3] = (byte)(value >> 24);
+        }
+
+        private void writeUleb( int value ) {
+            do {
+                int b = value & 0x7F;
+                value >>>= 7;
+                writeByte( value != 0 ? b | 0x80 : b );
+            } while( value != 0 );
+        }
+
+        private void writeSleb( int value ) {
+            while( true ) {
+                int b = value & 0x7F;
+                value >>= 7;
+                if( (value == 0 && (b & 0x40) == 0) || (value == -1 && (b & 0x40) != 0) ) {
+                    writeByte( b );
+                    return;
+                }
+                writeByte( b | 0x80 );
+            }
+        }
+
+        private void writeString( String value ) {
+            byte[] data = value.getBytes( StandardCharsets.UTF_8 );
+            ensure( data.length + 1 );
+            System.arraycopy( data, 0, bytes, size, data.length );
+            size += data.length;
+            bytes[size++] = 0;
+        }
+
+        private void write( Buffer other ) {
+            ensure( other.size );
+            System.arraycopy( other.bytes, 0, bytes, size, other.size );
+            size += other.size;
+        }
+    }
+}
@@ -16,10 +16,13 @@
 package de.inetsoftware.jwebassembly.binary;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import de.inetsoftware.jwebassembly.sourcemap.SourceMapping;
+import de.inetsoftware.jwebassembly.sourcemap.SourceMappingBuffer;
+import de.inetsoftware.jwebassembly.wasm.AnyType;
 
 /**
  * An entry in the function section of the WebAssembly.
@@ -36,7 +39,32 @@ class Function extends SectionEntry {
 
     WasmOutputStream         functionsStream;
 
-    ArrayList<SourceMapping> sourceMappings;
+    SourceMappingBuffer      sourceMappings;
+
+    String                   sourceFile;
+
+    List<AnyType>            localTypes;
+
+    List<String>             localNames;
+
+    int                      paramCount;
+
+    int                      codeHeaderSize;
+
+    int                      codeStart;
+
+    int                      codeSize;
+
+    int[]                    callPositions;
+
+    int                      callCount;
+
+    /** the type ids of the indirect calls, -1 for a call_ref without type */
+    Set<Integer>             indirectCallTypes;
+
+    WasmOutputStream         secondaryStream;
+
+    boolean                  dataAccess;
 
     /**
      * {@inheritDoc}
@@ -58,9 +86,38 @@ void writeSectionEntry( WasmOutputStream stream ) throws IOException {
      */
     void markCodePosition( int streamPosition, int javaSourceLine, String sourceFileName ) {
         if( sourceMappings == null ) {
-            sourceMappings = new ArrayList<>();
+            sourceMappings = new SourceMappingBuffer();
+        }
+        sourceMappings.add( streamPosition, javaSourceLine, sourceFileName );
+    }
+
+    /**
+     * Add the position of a function index of a call instruction. It is needed to move the function into another
+     * module with a different function index space.
+     * 
+     * @param codePosition
+     *            the position in the code stream
+     */
+    void addCallPosition( int codePosition ) {
+        if( callPositions == null ) {
+            callPositions = new int[8];
+        } else if( callCount == callPositions.length ) {
+            callPositions = Arrays.copyOf( callPositions, 2 * callCount );
+        }
+        callPositions[callCount++] = codePosition;
+    }
+
+    /**
+     * Add the type of an indirect call. It is needed to find the possible targets of the call.
+     * 
+     * @param typeId
+     *            the type id of the called function or -1 if the type is unknown
+     */
+    void addIndirectCall( int typeId ) {
+        if( indirectCallTypes == null ) {
+            indirectCallTypes = new HashSet<>();
         }
-        sourceMappings.add( new SourceMapping( streamPosition, javaSourceLine, sourceFileName ) );
+        indirectCallTypes.add( typeId );
     }
 
     /**
@@ -71,9 +128,7 @@ void markCodePosition( int streamPosition, int javaSourceLine, String sourceFile
      */
     void addCodeOffset( int offset ) {
         if( sourceMappings != null ) {
-            for( SourceMapping mapping : sourceMappings ) {
-                mapping.addOffset( offset );
-            }
+            sourceMappings.addOffset( offset );
         }
     }
 }
@@ -18,6 +18,7 @@
 import java.io.IOException;
 
 import de.inetsoftware.jwebassembly.wasm.AnyType;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
 
 /**
  * An entry in the global section of the WebAssembly.
@@ -32,14 +33,33 @@ class Global extends SectionEntry {
 
     boolean mutability;
 
+    /** the initial value or null for the default value of the type */
+    Number  value;
+
     /**
      * {@inheritDoc}
      */
     @Override
     void writeSectionEntry( WasmOutputStream stream ) throws IOException {
+        writeGlobalType( stream );
+        if( value != null ) {
+            stream.writeConst( value, (ValueType)type );
+        } else {
+            stream.writeDefaultValue( this.type );
+        }
+        stream.writeOpCode( InstructionOpcodes.END );
+    }
+
+    /**
+     * Write the type and the mutability of the global. This is the same for the global and the import section.
+     * 
+     * @param stream
+     *            the target
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    void writeGlobalType( WasmOutputStream stream ) throws IOException {
         stream.writeRefValueType( this.type );
         stream.write( this.mutability ? 1 : 0 );
-        stream.writeDefaultValue( this.type );
-        stream.writeOpCode( InstructionOpcodes.END );
     }
 }
@@ -457,6 +457,9 @@ interface InstructionOpcodes {
 
     static final int REF_ISNULL             = 0xD1;
 
+    /** creates a reference to the given function */
+    static final int REF_FUNC               = 0xD2;
+
     /** converts a nullable reference to a non-nullable one or traps if null */
     static final int REF_AS_NON_NULL        = 0xD3;
 
@@ -483,6 +486,12 @@ interface InstructionOpcodes {
 
     static final int I64_TRUNC_SAT_F64_U    = 0xFC07;
 
+    // === bulk memory opcodes ===== https://webassembly.github.io/spec/core/binary/instructions.html#memory-instructions
+
+    static final int MEMORY_INIT            = 0xFC08;
+
+    static final int DATA_DROP              = 0xFC09;
+
     // === table opcodes ===== https://webassembly.github.io/reference-types/core/binary/instructions.html#table-instructions
 
     static final int TABLE_GROW             = 0xFC0F;
@@ -499,6 +508,10 @@ interface InstructionOpcodes {
 
     static final int STRUCT_GET             = 0xFB03;
 
+    static final int STRUCT_GET_S           = 0xFB04;
+
+    static final int STRUCT_GET_U           = 0xFB05;
+
     static final int STRUCT_SET             = 0xFB06;
 
 
@@ -518,5 +531,40 @@ interface InstructionOpcodes {
 
     static final int RTT_CANON              = 0xFB30;
 
+    static final int RTT_SUB                = 0xFB31;
+
     static final int REF_CAST               = 0xFB41;
+
+    // === SIMD opcodes ===== https://github.com/WebAssembly/simd/blob/main/proposals/simd/BinarySIMD.md
+
+    /** prefix of all SIMD operations, the operation code follow as varuint32, see SimdOperator */
+    static final int SIMD_PREFIX            = 0xFD;
+
+    // === threads/atomic opcodes ===== https://github.com/WebAssembly/threads/blob/main/proposals/threads/Overview.md
+
+    static final int MEMORY_ATOMIC_NOTIFY   = 0xFE00;
+
+    static final int MEMORY_ATOMIC_WAIT32   = 0xFE01;
+
+    static final int MEMORY_ATOMIC_WAIT64   = 0xFE02;
+
+    static final int I32_ATOMIC_LOAD        = 0xFE10;
+
+    static final int I64_ATOMIC_LOAD        = 0xFE11;
+
+    static final int I32_ATOMIC_STORE       = 0xFE17;
+
+    static final int I64_ATOMIC_STORE       = 0xFE18;
+
+    static final int I32_ATOMIC_RMW_ADD     = 0xFE1E;
+
+    static final int I64_ATOMIC_RMW_ADD     = 0xFE1F;
+
+    static final int I32_ATOMIC_RMW_XCHG    = 0xFE41;
+
+    static final int I64_ATOMIC_RMW_XCHG    = 0xFE42;
+
+    static final int I32_ATOMIC_RMW_CMPXCHG = 0xFE48;
+
+    static final int I64_ATOMIC_RMW_CMPXCHG = 0xFE49;
 }
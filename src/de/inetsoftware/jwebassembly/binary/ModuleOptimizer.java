@@ -0,0 +1,1422 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Code;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Custom;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Data;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Element;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Export;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Global;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Import;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Table;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Type;
+import de.inetsoftware.jwebassembly.module.WasmOptions;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * Optimizer over the complete binary module. The optimizations of {@link de.inetsoftware.jwebassembly.module.CodeOptimizer}
+ * see only a single function. This optimizer runs after all functions, types and indices are known and rewrite the
+ * module:
+ * <ul>
+ * <li>merge structural identical struct, array and function types
+ * <li>fold functions with identical code and imports with identical names
+ * <li>remove unused functions, imports, globals and types
+ * <li>renumber the functions and types by the count of usages so that the often used have the short LEB128 indices
+ * <li>order the functions by the similarity of its code for a better compression if the compressed output is enabled
+ * <li>group the locals of every function by type and usage and remove unused locals
+ * </ul>
+ * The name section is dropped. Custom sections with code offsets like the source map and DWARF are not updated, that
+ * the optimizer is not used with debug names and DWARF.
+ * 
+ * @author Volker Berlin
+ */
+class ModuleOptimizer implements InstructionOpcodes {
+
+    /** The count of following functions that are compared for the nearest neighbor */
+    private static final int                            MAX_SIMILARITY_CANDIDATES = 1024;
+
+    private static final HashMap<Integer, SimdOperator> SIMD      = new HashMap<>();
+    static {
+        for( SimdOperator op : SimdOperator.values() ) {
+            SIMD.put( op.getCode(), op );
+        }
+    }
+
+    private final WasmOptions                           options;
+
+    private final WasmReader                            module;
+
+    private final WasmInputStream                       input;
+
+    /** The representative of every type after merging of structural identical types */
+    private int[]                                       typeReps;
+
+    /** The representative of every function after folding of identical functions */
+    private int[]                                       functionReps;
+
+    private int[]                                       typeUses;
+
+    private int[]                                       functionUses;
+
+    private boolean[]                                   usedFunctions;
+
+    private boolean[]                                   usedGlobals;
+
+    private final ArrayList<Integer>                    functionQueue = new ArrayList<>();
+
+    private final ArrayList<Integer>                    globalQueue   = new ArrayList<>();
+
+    /** true, while the reachable code is scanned for usages */
+    private boolean                                     scan;
+
+    private int[]                                       typeMap;
+
+    private int[]                                       functionMap;
+
+    /** The mapping of the globals or null for the identity */
+    private int[]                                       globalMap;
+
+    /** The mapping of the locals of the current function or null for the identity */
+    private int[]                                       localMap;
+
+    /** The usages of the locals of the current function or null if not counted */
+    private int[]                                       localUses;
+
+    /** The histograms of the operations of every used function if the functions are ordered by similarity */
+    private int[][]                                     histograms;
+
+    /** The histogram of the operations of the current function or null if not counted */
+    private int[]                                       histogram;
+
+    /**
+     * Create an optimizer.
+     * 
+     * @param options
+     *            compiler properties
+     * @param module
+     *            the module
+     */
+    private ModuleOptimizer( WasmOptions options, WasmReader module ) {
+        this.options = options;
+        this.module = module;
+        this.input = new WasmInputStream( module.bytes );
+    }
+
+    /**
+     * Optimize a binary module.
+     * 
+     * @param options
+     *            compiler properties
+     * @param bytes
+     *            the bytes of the module
+     * @return the bytes of the optimized module
+     * @throws IOException
+     *             if the module can not be read
+     */
+    @Nonnull
+    static byte[] optimize( WasmOptions options, @Nonnull byte[] bytes ) throws IOException {
+        byte[] optimized = new ModuleOptimizer( options, new WasmReader( bytes ) ).optimize();
+        JWebAssembly.LOGGER.fine( "Module optimizer: " + bytes.length + " -> " + optimized.length + " bytes" );
+        return optimized;
+    }
+
+    /**
+     * Run all optimizations.
+     * 
+     * @return the bytes of the optimized module
+     * @throws IOException
+     *             if the module can not be read
+     */
+    @Nonnull
+    private byte[] optimize() throws IOException {
+        mergeTypes();
+        foldFunctions();
+        markUsed();
+        renumber();
+        return write();
+    }
+
+    /**
+     * Find the structural identical types. The types are refined from a single class until the count of classes does
+     * not change. Then all types in a class are equivalent also if they are recursive.
+     */
+    private void mergeTypes() {
+        int count = module.types.size();
+        int[] classes = new int[count];
+        int classCount = Math.min( count, 1 );
+        while( true ) {
+            HashMap<String, Integer> keys = new HashMap<>();
+            int[] next = new int[count];
+            for( int i = 0; i < count; i++ ) {
+                String key = classes[i] + ":" + typeKey( module.types.get( i ), classes );
+                Integer cls = keys.get( key );
+                if( cls == null ) {
+                    cls = keys.size();
+                    keys.put( key, cls );
+                }
+                next[i] = cls;
+            }
+            classes = next;
+            if( keys.size() == classCount ) {
+                break;
+            }
+            classCount = keys.size();
+        }
+        int[] first = new int[classCount];
+        Arrays.fill( first, -1 );
+        typeReps = new int[count];
+        for( int i = 0; i < count; i++ ) {
+            if( first[classes[i]] < 0 ) {
+                first[classes[i]] = i;
+            }
+            typeReps[i] = first[classes[i]];
+        }
+    }
+
+    /**
+     * Create a key of the structure of a type.
+     * 
+     * @param type
+     *            the type
+     * @param classes
+     *            the current class of every type
+     * @return the key
+     */
+    @Nonnull
+    private static String typeKey( Type type, int[] classes ) {
+        StringBuilder key = new StringBuilder().append( type.form ).append( '(' );
+        if( type.form == ValueType.func.getCode() ) {
+            appendTypes( key, type.params, classes );
+            key.append( ")(" );
+            appendTypes( key, type.results, classes );
+        } else {
+            appendTypes( key, type.fields, classes );
+            for( boolean mutable : type.mutable ) {
+                key.append( mutable ? 'm' : 'i' );
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Append value types to a key of a type.
+     * 
+     * @param key
+     *            the target
+     * @param valueTypes
+     *            the value types
+     * @param classes
+     *            the current class of every type
+     */
+    private static void appendTypes( StringBuilder key, int[] valueTypes, int[] classes ) {
+        for( int valueType : valueTypes ) {
+            if( WasmReader.isTypeRef( valueType ) ) {
+                key.append( WasmReader.isNullable( valueType ) ? 'n' : 'r' ).append( classes[WasmReader.getTypeIndex( valueType )] );
+            } else {
+                key.append( valueType );
+            }
+            key.append( ',' );
+        }
+    }
+
+    /**
+     * Fold imports with the same name and functions with identical code. This is repeated until nothing changed because
+     * the code of two functions can be identical only after folding of the called functions.
+     * 
+     * @throws IOException
+     *             if the code can not be read
+     */
+    private void foldFunctions() throws IOException {
+        int count = module.functions.size();
+        functionReps = identity( count );
+        HashMap<String, Integer> keys = new HashMap<>();
+        for( Import entry : module.imports ) {
+            if( entry.kind == ExternalKind.Function ) {
+                String key = entry.module + '\n' + entry.name + '\n' + typeReps[module.functions.get( entry.index )];
+                Integer other = keys.putIfAbsent( key, entry.index );
+                if( other != null ) {
+                    functionReps[entry.index] = other;
+                }
+            }
+        }
+
+        typeMap = typeReps;
+        functionMap = functionReps;
+        globalMap = null;
+        localMap = null;
+        localUses = null;
+        boolean changed;
+        do {
+            changed = false;
+            keys.clear();
+            for( int i = module.importedFunctions; i < count; i++ ) {
+                if( functionReps[i] != i ) {
+                    continue;
+                }
+                Integer other = keys.putIfAbsent( codeKey( i ), i );
+                if( other != null ) {
+                    functionReps[i] = other;
+                    changed = true;
+                }
+            }
+            for( int i = 0; i < count; i++ ) {
+                int rep = functionReps[i];
+                while( functionReps[rep] != rep ) {
+                    rep = functionReps[rep];
+                }
+                functionReps[i] = rep;
+            }
+        } while( changed );
+    }
+
+    /**
+     * Create a key of the type, the locals and the code of a function with the current representatives.
+     * 
+     * @param funcIdx
+     *            the function index
+     * @return the key
+     * @throws IOException
+     *             if the code can not be read
+     */
+    @Nonnull
+    private String codeKey( int funcIdx ) throws IOException {
+        Code code = module.codes.get( funcIdx - module.importedFunctions );
+        WasmOutputStream key = new WasmOutputStream( options );
+        key.writeVaruint32( typeReps[module.functions.get( funcIdx )] );
+        key.writeVaruint32( code.locals.length );
+        for( int local : code.locals ) {
+            writeValueType( key, local );
+        }
+        rewriteExpression( code.start, code.end, key );
+        return new String( key.toByteArray(), StandardCharsets.ISO_8859_1 );
+    }
+
+    /**
+     * Mark all functions and globals that are reachable from the exports, the start function and the element segments
+     * and count the usages of the functions and types.
+     * 
+     * @throws IOException
+     *             if the code can not be read
+     */
+    private void markUsed() throws IOException {
+        scan = true;
+        typeMap = typeReps;
+        functionMap = functionReps;
+        globalMap = null;
+        typeUses = new int[module.types.size()];
+        functionUses = new int[module.functions.size()];
+        usedFunctions = new boolean[module.functions.size()];
+        usedGlobals = new boolean[module.globals.size()];
+        histograms = options.compressedOutput() ? new int[module.functions.size()][] : null;
+        WasmOutputStream sink = new WasmOutputStream( options );
+
+        for( Export export : module.exports ) {
+            if( export.kind == ExternalKind.Function ) {
+                mapFunction( export.index );
+            } else if( export.kind == ExternalKind.Global ) {
+                mapGlobal( export.index );
+            }
+        }
+        if( module.start >= 0 ) {
+            mapFunction( module.start );
+        }
+        for( Element element : module.elements ) {
+            if( element.mode == Element.ACTIVE ) {
+                rewriteExpression( element.offsetStart, element.offsetEnd, sink );
+            }
+            for( int funcIdx : element.functions ) {
+                mapFunction( funcIdx );
+            }
+        }
+        for( Data data : module.datas ) {
+            if( !data.passive ) {
+                rewriteExpression( data.offsetStart, data.offsetEnd, sink );
+            }
+        }
+        for( Table table : module.tables ) {
+            writeValueType( sink, table.type );
+        }
+        for( int typeIdx : module.tags ) {
+            mapType( typeIdx );
+        }
+
+        while( !functionQueue.isEmpty() || !globalQueue.isEmpty() ) {
+            sink.reset();
+            if( !globalQueue.isEmpty() ) {
+                Global global = module.globals.get( globalQueue.remove( globalQueue.size() - 1 ) );
+                writeValueType( sink, global.type );
+                if( !global.imported ) {
+                    rewriteExpression( global.initStart, global.initEnd, sink );
+                }
+                continue;
+            }
+            int funcIdx = functionQueue.remove( functionQueue.size() - 1 );
+            mapType( module.functions.get( funcIdx ) );
+            if( funcIdx >= module.importedFunctions ) {
+                Code code = module.codes.get( funcIdx - module.importedFunctions );
+                for( int local : code.locals ) {
+                    writeValueType( sink, local );
+                }
+                if( histograms != null ) {
+                    histogram = histograms[funcIdx] = new int[0x200];
+                }
+                rewriteExpression( code.start, code.end, sink );
+                histogram = null;
+            }
+        }
+
+        // the types that are referenced from used types
+        ArrayList<Integer> typeQueue = new ArrayList<>();
+        for( int i = 0; i < typeUses.length; i++ ) {
+            if( typeUses[i] > 0 ) {
+                typeQueue.add( i );
+            }
+        }
+        while( !typeQueue.isEmpty() ) {
+            Type type = module.types.get( typeQueue.remove( typeQueue.size() - 1 ) );
+            int[][] valueTypes = type.form == ValueType.func.getCode() ? new int[][] { type.params, type.results } : new int[][] { type.fields };
+            for( int[] types : valueTypes ) {
+                for( int valueType : types ) {
+                    if( WasmReader.isTypeRef( valueType ) ) {
+                        int rep = typeReps[WasmReader.getTypeIndex( valueType )];
+                        if( typeUses[rep]++ == 0 ) {
+                            typeQueue.add( rep );
+                        }
+                    }
+                }
+            }
+        }
+        scan = false;
+    }
+
+    /**
+     * Calculate the new indices of the functions, types and globals. The imported functions must be before the defined
+     * functions. The globals keep its order because an init value can read a previous global.
+     */
+    private void renumber() {
+        int count = module.functions.size();
+        int[] newFunctions = new int[count];
+        int next = renumber( functionReps, functionUses, usedFunctions, 0, module.importedFunctions, 0, newFunctions );
+        int end = renumber( functionReps, functionUses, usedFunctions, module.importedFunctions, count, next, newFunctions );
+        if( histograms != null ) {
+            orderBySimilarity( newFunctions, next, end );
+        }
+        functionMap = newFunctions;
+
+        count = module.types.size();
+        boolean[] usedTypes = new boolean[count];
+        for( int i = 0; i < count; i++ ) {
+            usedTypes[i] = typeUses[i] > 0;
+        }
+        int[] newTypes = new int[count];
+        renumber( typeReps, typeUses, usedTypes, 0, count, 0, newTypes );
+        typeMap = newTypes;
+
+        count = module.globals.size();
+        globalMap = new int[count];
+        next = 0;
+        for( int i = 0; i < count; i++ ) {
+            globalMap[i] = usedGlobals[i] ? next++ : -1;
+        }
+    }
+
+    /**
+     * Calculate the new indices of a range of an index space. The used representatives are sorted by the count of
+     * usages. The other entries get the index of its representative.
+     * 
+     * @param reps
+     *            the representative of every old index
+     * @param uses
+     *            the count of usages of every representative
+     * @param used
+     *            the used representatives
+     * @param from
+     *            the first old index of the range
+     * @param to
+     *            the end of the range
+     * @param next
+     *            the first new index for the range
+     * @param map
+     *            the target for the new indices
+     * @return the next free new index
+     */
+    private static int renumber( int[] reps, int[] uses, boolean[] used, int from, int to, int next, int[] map ) {
+        ArrayList<Integer> kept = new ArrayList<>();
+        for( int i = from; i < to; i++ ) {
+            map[i] = -1;
+            if( reps[i] == i && used[i] ) {
+                kept.add( i );
+            }
+        }
+        kept.sort( ( a, b ) -> uses[b] - uses[a] );
+        for( int idx : kept ) {
+            map[idx] = next++;
+        }
+        for( int i = from; i < to; i++ ) {
+            map[i] = map[reps[i]];
+        }
+        return next;
+    }
+
+    /**
+     * Order the defined functions by the similarity of its operations so that similar code is near together for a better
+     * compression of the module. The functions are only moved inside the ranges of indices with the same LEB128 size, so
+     * that the size of the calls does not change. Every range is ordered with a greedy nearest neighbor chain that starts
+     * with the most used function. The distance is the difference of the relative frequencies of the operations.
+     * 
+     * @param map
+     *            the new indices of the functions
+     * @param from
+     *            the new index of the first defined function
+     * @param to
+     *            the end of the new indices
+     */
+    private void orderBySimilarity( int[] map, int from, int to ) {
+        int[] functions = new int[to - from];
+        for( int i = module.importedFunctions; i < map.length; i++ ) {
+            if( functionReps[i] == i && map[i] >= 0 ) {
+                functions[map[i] - from] = i;
+            }
+        }
+
+        // sparse histograms with the relative frequencies of the used operations
+        int[][] operations = new int[functions.length][];
+        double[][] frequencies = new double[functions.length][];
+        for( int i = 0; i < functions.length; i++ ) {
+            int[] counts = histograms[functions[i]];
+            int sum = 0;
+            int used = 0;
+            for( int value : counts ) {
+                sum += value;
+                if( value > 0 ) {
+                    used++;
+                }
+            }
+            operations[i] = new int[used];
+            frequencies[i] = new double[used];
+            used = 0;
+            for( int op = 0; op < counts.length; op++ ) {
+                if( counts[op] > 0 ) {
+                    operations[i][used] = op;
+                    frequencies[i][used++] = counts[op] / (double)sum;
+                }
+            }
+        }
+
+        int[] order = identity( functions.length );
+        for( int start = 0; start < functions.length; ) {
+            int index = from + start;
+            int limit = index < 1 << 7 ? 1 << 7 : index < 1 << 14 ? 1 << 14 : index < 1 << 21 ? 1 << 21 : to;
+            int end = Math.min( to, limit ) - from;
+            for( int i = start; i < end - 1; i++ ) {
+                int nearest = i + 1;
+                double nearestSimilarity = -1;
+                for( int k = i + 1; k < end && k <= i + MAX_SIMILARITY_CANDIDATES; k++ ) {
+                    double similarity = similarity( operations[order[i]], frequencies[order[i]], operations[order[k]], frequencies[order[k]] );
+                    if( similarity > nearestSimilarity ) {
+                        nearestSimilarity = similarity;
+                        nearest = k;
+                    }
+                }
+                swap( order, i + 1, nearest );
+            }
+            start = end;
+        }
+
+        for( int i = 0; i < functions.length; i++ ) {
+            map[functions[order[i]]] = from + i;
+        }
+        for( int i = module.importedFunctions; i < map.length; i++ ) {
+            map[i] = map[functionReps[i]];
+        }
+    }
+
+    /**
+     * The similarity of two sparse histograms. This is the sum of the minimum frequencies of the operations. The
+     * difference of the histograms is 2 - 2 * similarity.
+     * 
+     * @param ops1
+     *            the sorted operations of the first histogram
+     * @param frequencies1
+     *            the relative frequencies of the first histogram
+     * @param ops2
+     *            the sorted operations of the second histogram
+     * @param frequencies2
+     *            the relative frequencies of the second histogram
+     * @return the similarity between 0 and 1
+     */
+    private static double similarity( int[] ops1, double[] frequencies1, int[] ops2, double[] frequencies2 ) {
+        double similarity = 0;
+        for( int i = 0, k = 0; i < ops1.length && k < ops2.length; ) {
+            if( ops1[i] < ops2[k] ) {
+                i++;
+            } else if( ops1[i] > ops2[k] ) {
+                k++;
+            } else {
+                similarity += Math.min( frequencies1[i++], frequencies2[k++] );
+            }
+        }
+        return similarity;
+    }
+
+    /**
+     * Swap two entries of an array.
+     * 
+     * @param array
+     *            the array
+     * @param a
+     *            the first index
+     * @param b
+     *            the second index
+     */
+    private static void swap( int[] array, int a, int b ) {
+        int temp = array[a];
+        array[a] = array[b];
+        array[b] = temp;
+    }
+
+    /**
+     * Write the optimized module.
+     * 
+     * @return the bytes
+     * @throws IOException
+     *             if the module can not be read
+     */
+    @Nonnull
+    private byte[] write() throws IOException {
+        WasmOutputStream wasm = new WasmOutputStream( options );
+        wasm.write( module.bytes, 0, 8 ); // magic and version
+
+        List<Integer> types = sortByNewIndex( typeMap, typeReps );
+        WasmOutputStream section = new WasmOutputStream( options );
+        section.writeVaruint32( types.size() );
+        for( int typeIdx : types ) {
+            writeType( section, module.types.get( typeIdx ) );
+        }
+        writeSection( wasm, SectionType.Type, section, types.size() );
+
+        int[] imported = new int[ExternalKind.values().length];
+        for( Import entry : module.imports ) {
+            imported[entry.kind.ordinal()]++;
+        }
+        List<Integer> functions = sortByNewIndex( functionMap, functionReps );
+        section = new WasmOutputStream( options );
+        int count = 0;
+        for( int funcIdx : functions ) {
+            if( funcIdx < module.importedFunctions ) {
+                for( Import entry : module.imports ) {
+                    if( entry.kind == ExternalKind.Function && entry.index == funcIdx ) {
+                        writeImport( section, entry );
+                        count++;
+                    }
+                }
+            }
+        }
+        for( Import entry : module.imports ) {
+            if( entry.kind != ExternalKind.Function && (entry.kind != ExternalKind.Global || usedGlobals[entry.index]) ) {
+                writeImport( section, entry );
+                count++;
+            }
+        }
+        WasmOutputStream imports = new WasmOutputStream( options );
+        imports.writeVaruint32( count );
+        section.writeTo( imports );
+        writeSection( wasm, SectionType.Import, imports, count );
+
+        count = functions.size() - count( functions, module.importedFunctions );
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( count );
+        for( int funcIdx : functions ) {
+            if( funcIdx >= module.importedFunctions ) {
+                section.writeVaruint32( mapType( module.functions.get( funcIdx ) ) );
+            }
+        }
+        writeSection( wasm, SectionType.Function, section, count );
+
+        count = module.tables.size() - imported[ExternalKind.Table.ordinal()];
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( count );
+        for( Table table : module.tables.subList( imported[ExternalKind.Table.ordinal()], module.tables.size() ) ) {
+            writeValueType( section, table.type );
+            writeLimits( section, table );
+        }
+        writeSection( wasm, SectionType.Table, section, count );
+
+        count = module.memories.size() - imported[ExternalKind.Memory.ordinal()];
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( count );
+        for( Table memory : module.memories.subList( imported[ExternalKind.Memory.ordinal()], module.memories.size() ) ) {
+            writeLimits( section, memory );
+        }
+        writeSection( wasm, SectionType.Memory, section, count );
+
+        count = module.tags.size() - imported[ExternalKind.Tag.ordinal()];
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( count );
+        for( int typeIdx : module.tags.subList( imported[ExternalKind.Tag.ordinal()], module.tags.size() ) ) {
+            section.write( 0 ); // attribute
+            section.writeVaruint32( mapType( typeIdx ) );
+        }
+        writeSection( wasm, SectionType.Tag, section, count );
+
+        section = new WasmOutputStream( options );
+        count = 0;
+        for( int i = imported[ExternalKind.Global.ordinal()]; i < module.globals.size(); i++ ) {
+            if( usedGlobals[i] ) {
+                count++;
+            }
+        }
+        section.writeVaruint32( count );
+        for( int i = imported[ExternalKind.Global.ordinal()]; i < module.globals.size(); i++ ) {
+            if( usedGlobals[i] ) {
+                Global global = module.globals.get( i );
+                writeValueType( section, global.type );
+                section.write( global.mutable ? 1 : 0 );
+                rewriteExpression( global.initStart, global.initEnd, section );
+            }
+        }
+        writeSection( wasm, SectionType.Global, section, count );
+
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( module.exports.size() );
+        for( Export export : module.exports ) {
+            section.writeString( export.name );
+            section.write( export.kind.ordinal() );
+            section.writeVaruint32( export.kind == ExternalKind.Function ? mapFunction( export.index ) : export.kind == ExternalKind.Global ? mapGlobal( export.index ) : export.index );
+        }
+        writeSection( wasm, SectionType.Export, section, module.exports.size() );
+
+        if( module.start >= 0 ) {
+            section = new WasmOutputStream( options );
+            section.writeVaruint32( mapFunction( module.start ) );
+            wasm.writeSection( SectionType.Start, section );
+        }
+
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( module.elements.size() );
+        for( Element element : module.elements ) {
+            writeElement( section, element );
+        }
+        writeSection( wasm, SectionType.Element, section, module.elements.size() );
+
+        if( module.dataCount >= 0 ) {
+            section = new WasmOutputStream( options );
+            section.writeVaruint32( module.dataCount );
+            wasm.writeSection( SectionType.DataCount, section );
+        }
+
+        count = functions.size() - count( functions, module.importedFunctions );
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( count );
+        for( int funcIdx : functions ) {
+            if( funcIdx >= module.importedFunctions ) {
+                writeCode( section, funcIdx );
+            }
+        }
+        writeSection( wasm, SectionType.Code, section, count );
+
+        section = new WasmOutputStream( options );
+        section.writeVaruint32( module.datas.size() );
+        for( Data data : module.datas ) {
+            if( data.passive ) {
+                section.writeVaruint32( 1 );
+            } else {
+                if( data.memory == 0 ) {
+                    section.writeVaruint32( 0 );
+                } else {
+                    section.writeVaruint32( 2 );
+                    section.writeVaruint32( data.memory );
+                }
+                rewriteExpression( data.offsetStart, data.offsetEnd, section );
+            }
+            section.writeVaruint32( data.size );
+            section.write( module.bytes, data.start, data.size );
+        }
+        writeSection( wasm, SectionType.Data, section, module.datas.size() );
+
+        for( Custom custom : module.customs ) {
+            if( !"name".equals( custom.name ) ) {
+                section = new WasmOutputStream( options );
+                section.writeString( custom.name );
+                section.write( module.bytes, custom.start, custom.end - custom.start );
+                wasm.writeSection( SectionType.Custom, section );
+            }
+        }
+        return wasm.toByteArray();
+    }
+
+    /**
+     * Count the old indices below a limit.
+     * 
+     * @param indices
+     *            the old indices
+     * @param limit
+     *            the limit
+     * @return the count
+     */
+    private static int count( List<Integer> indices, int limit ) {
+        int count = 0;
+        for( int idx : indices ) {
+            if( idx < limit ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the kept representatives in the order of the new indices.
+     * 
+     * @param map
+     *            the new index of every old index
+     * @param reps
+     *            the representative of every old index
+     * @return the old indices of the representatives
+     */
+    @Nonnull
+    private static List<Integer> sortByNewIndex( int[] map, int[] reps ) {
+        ArrayList<Integer> list = new ArrayList<>();
+        for( int i = 0; i < map.length; i++ ) {
+            if( reps[i] == i && map[i] >= 0 ) {
+                list.add( i );
+            }
+        }
+        list.sort( ( a, b ) -> map[a] - map[b] );
+        return list;
+    }
+
+    /**
+     * Write a section if it has entries.
+     * 
+     * @param wasm
+     *            the module
+     * @param type
+     *            the section type
+     * @param section
+     *            the content of the section with the count of entries
+     * @param count
+     *            the count of entries
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static void writeSection( WasmOutputStream wasm, SectionType type, WasmOutputStream section, int count ) throws IOException {
+        if( count > 0 ) {
+            wasm.writeSection( type, section );
+        }
+    }
+
+    /**
+     * Write an entry of the type section.
+     * 
+     * @param stream
+     *            the target
+     * @param type
+     *            the type
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeType( WasmOutputStream stream, Type type ) throws IOException {
+        stream.writeVarint( type.form );
+        if( type.form == ValueType.func.getCode() ) {
+            writeValueTypes( stream, type.params );
+            writeValueTypes( stream, type.results );
+        } else {
+            if( type.form == ValueType.struct.getCode() ) {
+                stream.writeVaruint32( type.fields.length );
+            }
+            for( int i = 0; i < type.fields.length; i++ ) {
+                writeValueType( stream, type.fields[i] );
+                stream.writeVarint( type.mutable[i] ? 1 : 0 );
+            }
+        }
+    }
+
+    /**
+     * Write an entry of the import section.
+     * 
+     * @param stream
+     *            the target
+     * @param entry
+     *            the import
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeImport( WasmOutputStream stream, Import entry ) throws IOException {
+        stream.writeString( entry.module );
+        stream.writeString( entry.name );
+        stream.write( entry.kind.ordinal() );
+        switch( entry.kind ) {
+            case Function:
+                stream.writeVaruint32( mapType( module.functions.get( entry.index ) ) );
+                break;
+            case Table:
+                Table table = module.tables.get( entry.index );
+                writeValueType( stream, table.type );
+                writeLimits( stream, table );
+                break;
+            case Memory:
+                writeLimits( stream, module.memories.get( entry.index ) );
+                break;
+            case Global:
+                Global global = module.globals.get( entry.index );
+                writeValueType( stream, global.type );
+                stream.write( global.mutable ? 1 : 0 );
+                break;
+            case Tag:
+                stream.write( 0 ); // attribute
+                stream.writeVaruint32( mapType( module.tags.get( entry.index ) ) );
+                break;
+        }
+    }
+
+    /**
+     * Write the limits of a table or memory.
+     * 
+     * @param stream
+     *            the target
+     * @param table
+     *            the table or memory
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static void writeLimits( WasmOutputStream stream, Table table ) throws IOException {
+        stream.write( (table.max >= 0 ? 1 : 0) | (table.shared ? 2 : 0) );
+        stream.writeVaruint32( table.min );
+        if( table.max >= 0 ) {
+            stream.writeVaruint32( table.max );
+        }
+    }
+
+    /**
+     * Write an entry of the element section.
+     * 
+     * @param stream
+     *            the target
+     * @param element
+     *            the element segment
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeElement( WasmOutputStream stream, Element element ) throws IOException {
+        switch( element.mode ) {
+            case Element.PASSIVE:
+                stream.writeVaruint32( 1 );
+                stream.write( 0 ); // element kind funcref
+                break;
+            case Element.DECLARATIVE:
+                stream.writeVaruint32( 3 );
+                stream.write( 0 ); // element kind funcref
+                break;
+            default:
+                if( element.table == 0 ) {
+                    stream.writeVaruint32( 0 );
+                    rewriteExpression( element.offsetStart, element.offsetEnd, stream );
+                } else {
+                    stream.writeVaruint32( 2 );
+                    stream.writeVaruint32( element.table );
+                    rewriteExpression( element.offsetStart, element.offsetEnd, stream );
+                    stream.write( 0 ); // element kind funcref
+                }
+        }
+        stream.writeVaruint32( element.functions.length );
+        for( int funcIdx : element.functions ) {
+            stream.writeVaruint32( mapFunction( funcIdx ) );
+        }
+    }
+
+    /**
+     * Write the code of a function. The used locals are grouped by its type. The groups with the most usages and in a
+     * group the locals with the most usages get the smallest indices.
+     * 
+     * @param stream
+     *            the target
+     * @param funcIdx
+     *            the old function index
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeCode( WasmOutputStream stream, int funcIdx ) throws IOException {
+        Code code = module.codes.get( funcIdx - module.importedFunctions );
+        int paramCount = module.getFunctionType( funcIdx ).params.length;
+
+        // count the usages of every local
+        localUses = new int[paramCount + code.locals.length];
+        localMap = null;
+        WasmOutputStream body = new WasmOutputStream( options );
+        rewriteExpression( code.start, code.end, body );
+
+        LinkedHashMap<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for( int i = 0; i < code.locals.length; i++ ) {
+            if( localUses[paramCount + i] > 0 ) {
+                groups.computeIfAbsent( mapValueType( code.locals[i] ), key -> new ArrayList<>() ).add( paramCount + i );
+            }
+        }
+        List<List<Integer>> sorted = new ArrayList<>( groups.values() );
+        for( List<Integer> group : sorted ) {
+            group.sort( ( a, b ) -> localUses[b] - localUses[a] );
+        }
+        sorted.sort( ( a, b ) -> sum( b ) - sum( a ) );
+
+        localMap = identity( localUses.length );
+        int next = paramCount;
+        for( List<Integer> group : sorted ) {
+            for( int idx : group ) {
+                localMap[idx] = next++;
+            }
+        }
+        localUses = null;
+
+        body.reset();
+        body.writeVaruint32( sorted.size() );
+        for( List<Integer> group : sorted ) {
+            body.writeVaruint32( group.size() );
+            writeValueType( body, code.locals[group.get( 0 ) - paramCount] );
+        }
+        rewriteExpression( code.start, code.end, body );
+        localMap = null;
+
+        stream.writeVaruint32( body.size() );
+        body.writeTo( stream );
+    }
+
+    /**
+     * The sum of the usages of a group of locals.
+     * 
+     * @param group
+     *            the indices of the locals
+     * @return the sum
+     */
+    private int sum( List<Integer> group ) {
+        int sum = 0;
+        for( int idx : group ) {
+            sum += localUses[idx];
+        }
+        return sum;
+    }
+
+    /**
+     * Create an identity mapping.
+     * 
+     * @param count
+     *            the count of indices
+     * @return the mapping
+     */
+    @Nonnull
+    private static int[] identity( int count ) {
+        int[] map = new int[count];
+        for( int i = 0; i < count; i++ ) {
+            map[i] = i;
+        }
+        return map;
+    }
+
+    /**
+     * Map a type index and count its usage while scanning.
+     * 
+     * @param idx
+     *            the old type index
+     * @return the mapped index
+     * @throws IOException
+     *             if the index is invalid
+     */
+    private int mapType( int idx ) throws IOException {
+        if( idx < 0 || idx >= typeMap.length || typeMap[idx] < 0 ) {
+            throw new IOException( "Invalid type index " + idx );
+        }
+        int mapped = typeMap[idx];
+        if( scan ) {
+            typeUses[mapped]++;
+        }
+        return mapped;
+    }
+
+    /**
+     * Map a function index. While scanning the usage is counted and the function is marked as reachable.
+     * 
+     * @param idx
+     *            the old function index
+     * @return the mapped index
+     * @throws IOException
+     *             if the index is invalid
+     */
+    private int mapFunction( int idx ) throws IOException {
+        if( idx >= functionMap.length || functionMap[idx] < 0 ) {
+            throw new IOException( "Invalid function index " + idx );
+        }
+        int mapped = functionMap[idx];
+        if( scan ) {
+            functionUses[mapped]++;
+            if( !usedFunctions[mapped] ) {
+                usedFunctions[mapped] = true;
+                functionQueue.add( mapped );
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Map a global index. While scanning the global is marked as reachable.
+     * 
+     * @param idx
+     *            the old global index
+     * @return the mapped index
+     * @throws IOException
+     *             if the index is invalid
+     */
+    private int mapGlobal( int idx ) throws IOException {
+        if( idx >= module.globals.size() || (globalMap != null && globalMap[idx] < 0) ) {
+            throw new IOException( "Invalid global index " + idx );
+        }
+        if( scan && !usedGlobals[idx] ) {
+            usedGlobals[idx] = true;
+            globalQueue.add( idx );
+        }
+        return globalMap == null ? idx : globalMap[idx];
+    }
+
+    /**
+     * Map a local index and count its usage.
+     * 
+     * @param idx
+     *            the old local index
+     * @return the mapped index
+     * @throws IOException
+     *             if the index is invalid
+     */
+    private int mapLocal( int idx ) throws IOException {
+        if( localUses != null ) {
+            if( idx >= localUses.length ) {
+                throw new IOException( "Invalid local index " + idx );
+            }
+            localUses[idx]++;
+        }
+        return localMap == null ? idx : localMap[idx];
+    }
+
+    /**
+     * Map a value type with a type reference.
+     * 
+     * @param valueType
+     *            the value type
+     * @return the mapped value type
+     * @throws IOException
+     *             if the type index is invalid
+     */
+    private int mapValueType( int valueType ) throws IOException {
+        if( WasmReader.isTypeRef( valueType ) ) {
+            return WasmReader.refType( mapType( WasmReader.getTypeIndex( valueType ) ), WasmReader.isNullable( valueType ) );
+        }
+        return valueType;
+    }
+
+    /**
+     * Write a value type with the mapped type index.
+     * 
+     * @param stream
+     *            the target
+     * @param valueType
+     *            the value type in the encoding of {@link WasmInputStream#readValueType()}
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeValueType( WasmOutputStream stream, int valueType ) throws IOException {
+        if( WasmReader.isTypeRef( valueType ) ) {
+            stream.writeVarint( WasmReader.isNullable( valueType ) ? ValueType.optref.getCode() : ValueType.ref.getCode() );
+            stream.writeVarint( mapType( WasmReader.getTypeIndex( valueType ) ) );
+        } else {
+            stream.writeVarint( valueType );
+        }
+    }
+
+    /**
+     * Write a vector of value types.
+     * 
+     * @param stream
+     *            the target
+     * @param valueTypes
+     *            the value types
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeValueTypes( WasmOutputStream stream, int[] valueTypes ) throws IOException {
+        stream.writeVaruint32( valueTypes.length );
+        for( int valueType : valueTypes ) {
+            writeValueType( stream, valueType );
+        }
+    }
+
+    /**
+     * Copy the immediate value of a heap type or a block type. A not negative value is a type index.
+     * 
+     * @param stream
+     *            the target
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void copyTypeIndex( WasmOutputStream stream ) throws IOException {
+        int code = input.readVarint32();
+        stream.writeVarint( code >= 0 ? mapType( code ) : code );
+        if( code == ValueType.optref.getCode() || code == ValueType.ref.getCode() ) {
+            copyTypeIndex( stream ); // block type with a reference
+        }
+    }
+
+    /**
+     * Copy an unsigned integer.
+     * 
+     * @param stream
+     *            the target
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void copyVaruint( WasmOutputStream stream ) throws IOException {
+        stream.writeVaruint32( input.readVaruint32() );
+    }
+
+    /**
+     * Copy raw bytes.
+     * 
+     * @param stream
+     *            the target
+     * @param length
+     *            the count of bytes
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void copyBytes( WasmOutputStream stream, int length ) throws IOException {
+        int pos = input.getPosition();
+        input.skipBytes( length );
+        stream.write( module.bytes, pos, length );
+    }
+
+    /**
+     * Copy an expression and replace all indices with the current mappings.
+     * 
+     * @param start
+     *            the position of the first operation
+     * @param end
+     *            the position after the final END operation
+     * @param stream
+     *            the target
+     * @throws IOException
+     *             if an operation is unknown
+     */
+    private void rewriteExpression( int start, int end, WasmOutputStream stream ) throws IOException {
+        input.setPosition( start );
+        while( input.getPosition() < end ) {
+            int op = input.readOpCode();
+            if( histogram != null ) {
+                histogram[op > 0xFF ? 0x100 | (op & 0xFF) : op]++;
+            }
+            stream.writeOpCode( op );
+            rewriteImmediates( op, stream );
+        }
+    }
+
+    /**
+     * Copy the immediate values of an operation and replace all indices with the current mappings.
+     * 
+     * @param op
+     *            the operation code
+     * @param stream
+     *            the target
+     * @throws IOException
+     *             if the operation is unknown
+     */
+    private void rewriteImmediates( int op, WasmOutputStream stream ) throws IOException {
+        if( op >= I32_LOAD && op <= I54_STORE32 ) {
+            copyVaruint( stream ); // alignment
+            copyVaruint( stream ); // offset
+            return;
+        }
+        if( op >= MEMORY_ATOMIC_NOTIFY && op <= I64_ATOMIC_RMW_CMPXCHG + 5 ) {
+            if( op == 0xFE03 ) { // atomic.fence
+                copyBytes( stream, 1 );
+            } else {
+                copyVaruint( stream ); // alignment
+                copyVaruint( stream ); // offset
+            }
+            return;
+        }
+        if( op >= I32_TRUNC_SAT_F32_S && op <= I64_TRUNC_SAT_F64_U ) {
+            return;
+        }
+        switch( op ) {
+            case BLOCK:
+            case LOOP:
+            case IF:
+            case TRY:
+            case REF_NULL:
+            case STRUCT_NEW:
+            case STRUCT_NEW_DEFAULT:
+            case ARRAY_NEW:
+            case ARRAY_NEW_DEFAULT:
+            case ARRAY_GET:
+            case ARRAY_GET_S:
+            case ARRAY_GET_U:
+            case ARRAY_SET:
+            case ARRAY_LEN:
+            case RTT_CANON:
+            case RTT_SUB:
+                copyTypeIndex( stream );
+                break;
+            case STRUCT_GET:
+            case STRUCT_GET_S:
+            case STRUCT_GET_U:
+            case STRUCT_SET:
+                copyTypeIndex( stream );
+                copyVaruint( stream ); // field index
+                break;
+            case BR:
+            case BR_IF:
+            case BR_ON_NULL:
+            case DELEGATE:
+            case CATCH:
+            case THROW:
+            case TABLE_GET:
+            case TABLE_SET:
+            case TABLE_GROW:
+            case TABLE_SIZE:
+            case TABLE_FILL:
+            case DATA_DROP:
+            case 0xFC0D: // elem.drop
+                copyVaruint( stream );
+                break;
+            case BR_ON_EXN:
+            case 0xFC0C: // table.init
+            case 0xFC0E: // table.copy
+                copyVaruint( stream );
+                copyVaruint( stream );
+                break;
+            case BR_TABLE:
+                int count = input.readVaruint32();
+                stream.writeVaruint32( count );
+                for( int i = 0; i <= count; i++ ) {
+                    copyVaruint( stream );
+                }
+                break;
+            case CALL:
+            case RETURN_CALL:
+            case REF_FUNC:
+                stream.writeVaruint32( mapFunction( input.readVaruint32() ) );
+                break;
+            case CALL_INDIRECT:
+            case RETURN_CALL_INDIRECT:
+                stream.writeVaruint32( mapType( input.readVaruint32() ) );
+                copyVaruint( stream ); // table index
+                break;
+            case 0x1C: // select with type
+                count = input.readVaruint32();
+                stream.writeVaruint32( count );
+                for( int i = 0; i < count; i++ ) {
+                    writeValueType( stream, input.readValueType() );
+                }
+                break;
+            case LOCAL_GET:
+            case LOCAL_SET:
+            case LOCAL_TEE:
+                stream.writeVaruint32( mapLocal( input.readVaruint32() ) );
+                break;
+            case GLOBAL_GET:
+            case GLOBAL_SET:
+                stream.writeVaruint32( mapGlobal( input.readVaruint32() ) );
+                break;
+            case MEMORY_SIZE:
+            case MEMORY_GROW:
+            case 0xFC0B: // memory.fill
+                copyBytes( stream, 1 );
+                break;
+            case 0xFC0A: // memory.copy
+                copyBytes( stream, 2 );
+                break;
+            case MEMORY_INIT:
+                copyVaruint( stream );
+                copyBytes( stream, 1 );
+                break;
+            case I32_CONST:
+                stream.writeVarint( input.readVarint32() );
+                break;
+            case I64_CONST:
+                stream.writeVarint( input.readVarint64() );
+                break;
+            case F32_CONST:
+                copyBytes( stream, 4 );
+                break;
+            case F64_CONST:
+                copyBytes( stream, 8 );
+                break;
+            case SIMD_PREFIX:
+                rewriteSimd( stream );
+                break;
+            default:
+                if( op > 0xFF && op != REF_CAST ) {
+                    throw new IOException( "Unknown operation code 0x" + Integer.toHexString( op ) );
+                }
+        }
+    }
+
+    /**
+     * Copy a SIMD operation with its immediate values.
+     * 
+     * @param stream
+     *            the target
+     * @throws IOException
+     *             if the operation is unknown
+     */
+    private void rewriteSimd( WasmOutputStream stream ) throws IOException {
+        int code = input.readVaruint32();
+        stream.writeVaruint32( code );
+        SimdOperator op = SIMD.get( code );
+        if( op == null ) {
+            throw new IOException( "Unknown SIMD operation code 0x" + Integer.toHexString( code ) );
+        }
+        switch( op.getKind() ) {
+            case LOAD:
+            case STORE:
+                copyVaruint( stream ); // alignment
+                copyVaruint( stream ); // offset
+                break;
+            case LOAD_LANE:
+            case STORE_LANE:
+                copyVaruint( stream ); // alignment
+                copyVaruint( stream ); // offset
+                copyBytes( stream, 1 );
+                break;
+            case EXTRACT_LANE:
+            case REPLACE_LANE:
+                copyBytes( stream, 1 );
+                break;
+            case CONST:
+            case SHUFFLE:
+                copyBytes( stream, 16 );
+                break;
+            default:
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.IOException;
+import java.util.List;
+
+import de.inetsoftware.jwebassembly.wasm.AnyType;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * An immutable global with the vtable struct instance of a type. It is initialized with a constant expression of the
+ * function references.
+ * 
+ * @author Volker Berlin
+ */
+class VTableGlobal extends Global {
+
+    int[]         functionIds;
+
+    List<AnyType> rttChain;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeSectionEntry( WasmOutputStream stream ) throws IOException {
+        int typeId = this.type.getCode();
+        writeGlobalType( stream );
+        for( int functionId : functionIds ) {
+            stream.writeOpCode( InstructionOpcodes.REF_FUNC );
+            stream.writeVaruint32( functionId );
+        }
+        BinaryModuleWriter.writeRtt( stream, rttChain );
+        stream.writeOpCode( InstructionOpcodes.STRUCT_NEW );
+        stream.writeVarint( typeId );
+        stream.writeOpCode( InstructionOpcodes.END );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeGlobalType( WasmOutputStream stream ) throws IOException {
+        stream.writeValueType( ValueType.ref );
+        stream.writeVarint( this.type.getCode() );
+        stream.write( 0 ); // immutable
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import de.inetsoftware.jwebassembly.module.FunctionName;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * A vtable struct entry in the type section of the WebAssembly. Every field is an immutable typed reference to a
+ * function. The function types are resolved on writing because the signatures are written after the types.
+ * 
+ * @author Volker Berlin
+ */
+class VTableTypeEntry extends TypeEntry {
+
+    private final List<FunctionName>          functions;
+
+    private final ToIntFunction<FunctionName> getTypeId;
+
+    /**
+     * Create a new instance.
+     * 
+     * @param functions
+     *            the functions of the vtable
+     * @param getTypeId
+     *            source for the type IDs of the functions
+     */
+    VTableTypeEntry( List<FunctionName> functions, ToIntFunction<FunctionName> getTypeId ) {
+        this.functions = functions;
+        this.getTypeId = getTypeId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    ValueType getTypeForm() {
+        return ValueType.struct;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeSectionEntryDetails( WasmOutputStream stream ) throws IOException {
+        stream.writeVaruint32( functions.size() );
+        for( FunctionName func : functions ) {
+            stream.writeValueType( ValueType.ref );
+            stream.writeVarint( getTypeId.applyAsInt( func ) );
+            stream.writeVarint( 0 ); // 0 - immutable; 1 - mutable
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return System.identityHashCode( this );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( Object obj ) {
+        return obj == this; // every type has its own vtable struct
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * The inverse of {@link WasmOutputStream}. It reads the values of a module in memory with random access to the
+ * position.
+ * 
+ * @author Volker Berlin
+ */
+class WasmInputStream extends ByteArrayInputStream {
+
+    /**
+     * Create a stream over the bytes of a module.
+     * 
+     * @param bytes
+     *            the bytes
+     */
+    WasmInputStream( @Nonnull byte[] bytes ) {
+        super( bytes );
+    }
+
+    /**
+     * The current read position.
+     * 
+     * @return the position in the bytes
+     */
+    int getPosition() {
+        return pos;
+    }
+
+    /**
+     * Set the read position.
+     * 
+     * @param position
+     *            the position in the bytes
+     */
+    void setPosition( @Nonnegative int position ) {
+        pos = position;
+    }
+
+    /**
+     * Read a single unsigned byte.
+     * 
+     * @return the byte
+     * @throws IOException
+     *             if the end of the data is reached
+     */
+    int readUint8() throws IOException {
+        int b = read();
+        if( b < 0 ) {
+            throw new EOFException( "Unexpected end of module at " + pos );
+        }
+        return b;
+    }
+
+    /**
+     * Read a binary operation code. The sub codes of the GC, the numeric and the atomic prefix are combined with the
+     * prefix like the constants of {@link InstructionOpcodes}. The sub code of the SIMD prefix is not read.
+     * 
+     * @return the operation code
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    int readOpCode() throws IOException {
+        int op = readUint8();
+        switch( op ) {
+            case 0xFB:
+            case 0xFC:
+            case 0xFE:
+                return (op << 8) | readVaruint32();
+            default:
+                return op;
+        }
+    }
+
+    /**
+     * Read an unsigned integer.
+     * 
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    int readVaruint32() throws IOException {
+        long value = readVarint( 32, false );
+        if( value > Integer.MAX_VALUE ) {
+            throw new IOException( "Unsupported unsigned value " + value + " at " + pos );
+        }
+        return (int)value;
+    }
+
+    /**
+     * Read a signed 32 bit integer.
+     * 
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    int readVarint32() throws IOException {
+        return (int)readVarint( 32, true );
+    }
+
+    /**
+     * Read a signed 64 bit integer.
+     * 
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    long readVarint64() throws IOException {
+        return readVarint( 64, true );
+    }
+
+    /**
+     * Read a LEB128 value.
+     * 
+     * @param bits
+     *            the maximum count of bits
+     * @param signed
+     *            true, if the value is signed
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private long readVarint( int bits, boolean signed ) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if( shift >= bits ) {
+                throw new IOException( "Integer representation too long at " + pos );
+            }
+            b = readUint8();
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        } while( (b & 0x80) != 0 );
+        if( signed && shift < 64 && (b & 0x40) != 0 ) {
+            value |= -1L << shift;
+        }
+        return value;
+    }
+
+    /**
+     * Read a little endian 32 bit integer.
+     * 
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    int readInt32() throws IOException {
+        return readUint8() | (readUint8() << 8) | (readUint8() << 16) | (readUint8() << 24);
+    }
+
+    /**
+     * Read a float value.
+     * 
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    float readFloat() throws IOException {
+        return Float.intBitsToFloat( readInt32() );
+    }
+
+    /**
+     * Read a double value.
+     * 
+     * @return the value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    double readDouble() throws IOException {
+        long low = readInt32() & 0xFFFFFFFFL;
+        return Double.longBitsToDouble( low | ((long)readInt32() << 32) );
+    }
+
+    /**
+     * Read an UTF8 encoded string with its length.
+     * 
+     * @return the string
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    String readString() throws IOException {
+        int length = readVaruint32();
+        skipBytes( length );
+        return new String( buf, pos - length, length, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Skip a count of bytes.
+     * 
+     * @param length
+     *            the count of bytes
+     * @throws IOException
+     *             if the end of the data is reached
+     */
+    void skipBytes( @Nonnegative int length ) throws IOException {
+        if( length > count - pos ) {
+            throw new EOFException( "Unexpected end of module at " + pos );
+        }
+        pos += length;
+    }
+
+    /**
+     * Read a value type like {@link WasmOutputStream#writeRefValueType(de.inetsoftware.jwebassembly.wasm.AnyType)}
+     * has written it. A reference to a defined type is returned in the encoding of {@link WasmReader#refType(int, boolean)}.
+     * All other types are returned with the code of {@link ValueType}.
+     * 
+     * @return the type
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    int readValueType() throws IOException {
+        int code = readVarint32();
+        if( code == ValueType.optref.getCode() || code == ValueType.ref.getCode() ) {
+            return readHeapType( code == ValueType.optref.getCode() );
+        }
+        return code;
+    }
+
+    /**
+     * Read the heap type of a reference like {@link WasmOutputStream#writeValueType(de.inetsoftware.jwebassembly.wasm.AnyType)}
+     * has written it.
+     * 
+     * @param nullable
+     *            true, if the reference can be null
+     * @return the type in the encoding of {@link #readValueType()}
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    int readHeapType( boolean nullable ) throws IOException {
+        int heapType = readVarint32();
+        return heapType < 0 ? heapType : WasmReader.refType( heapType, nullable );
+    }
+}
@@ -0,0 +1,836 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * Reader for the binary format. It is the inverse of {@link BinaryModuleWriter} and parse the sections of a module into
+ * a simple model. Expressions like the code of the functions and the init values are not decoded. The model hold only
+ * its positions in the bytes of the module. http://webassembly.org/docs/binary-encoding/
+ * 
+ * The value types are coded as int. The types of {@link ValueType} have its negative code. A reference to a type of the
+ * type section has a positive value, see {@link #refType(int, boolean)}.
+ * 
+ * @author Volker Berlin
+ */
+class WasmReader {
+
+    private static final int           WASM_BINARY_MAGIC   = 0x6D736100;        // \0asm
+
+    private static final int           WASM_BINARY_VERSION = 1;
+
+    /**
+     * The order of the known sections in a module. The tag and the data count section have a higher id as its position.
+     */
+    private static final SectionType[] SECTION_ORDER       = { SectionType.Type, SectionType.Import, SectionType.Function, SectionType.Table,
+                    SectionType.Memory, SectionType.Tag, SectionType.Global, SectionType.Export, SectionType.Start, SectionType.Element,
+                    SectionType.DataCount, SectionType.Code, SectionType.Data };
+
+    final byte[]                       bytes;
+
+    final List<Type>                   types               = new ArrayList<>();
+
+    final List<Import>                 imports             = new ArrayList<>();
+
+    /** The type index of every function in the function index space, first the imported functions */
+    final List<Integer>                functions           = new ArrayList<>();
+
+    final List<Table>                  tables              = new ArrayList<>();
+
+    final List<Table>                  memories            = new ArrayList<>();
+
+    /** The type index of every tag in the tag index space, first the imported tags */
+    final List<Integer>                tags                = new ArrayList<>();
+
+    final List<Global>                 globals             = new ArrayList<>();
+
+    final List<Export>                 exports             = new ArrayList<>();
+
+    final List<Element>                elements            = new ArrayList<>();
+
+    final List<Code>                   codes               = new ArrayList<>();
+
+    final List<Data>                   datas               = new ArrayList<>();
+
+    final List<Custom>                 customs             = new ArrayList<>();
+
+    final HashMap<Integer, String>     functionNames       = new HashMap<>();
+
+    int                                importedFunctions;
+
+    int                                start               = -1;
+
+    int                                dataCount           = -1;
+
+    /**
+     * Read a module.
+     * 
+     * @param bytes
+     *            the bytes of the module
+     * @throws IOException
+     *             if the bytes are not a valid binary module
+     */
+    WasmReader( @Nonnull byte[] bytes ) throws IOException {
+        this.bytes = bytes;
+        WasmInputStream input = new WasmInputStream( bytes );
+        if( input.readInt32() != WASM_BINARY_MAGIC ) {
+            throw new IOException( "Invalid wasm magic" );
+        }
+        int version = input.readInt32();
+        if( version != WASM_BINARY_VERSION ) {
+            throw new IOException( "Unsupported wasm version: " + version );
+        }
+        int order = -1;
+        while( input.available() > 0 ) {
+            int id = input.readUint8();
+            int size = input.readVaruint32();
+            int end = input.getPosition() + size;
+            if( size > input.available() ) {
+                throw new IOException( "Section " + id + " is larger as the module" );
+            }
+            if( id >= SectionType.values().length ) {
+                throw new IOException( "Unknown section id " + id );
+            }
+            SectionType type = SectionType.values()[id];
+            if( type != SectionType.Custom ) {
+                int idx = indexOf( type );
+                if( idx <= order ) {
+                    throw new IOException( "Section " + type + " is out of order" );
+                }
+                order = idx;
+            }
+            readSection( input, type, end );
+            if( input.getPosition() != end ) {
+                throw new IOException( "Section " + type + " has a wrong size" );
+            }
+        }
+        if( functions.size() - importedFunctions != codes.size() ) {
+            throw new IOException( "The count of functions " + (functions.size() - importedFunctions) + " does not match the count of codes " + codes.size() );
+        }
+    }
+
+    /**
+     * Get the position of the section type in the order of the sections.
+     * 
+     * @param type
+     *            the section type
+     * @return the position
+     */
+    private static int indexOf( SectionType type ) {
+        for( int i = 0; i < SECTION_ORDER.length; i++ ) {
+            if( SECTION_ORDER[i] == type ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a section.
+     * 
+     * @param input
+     *            the input positioned after the size of the section
+     * @param type
+     *            the type of the section
+     * @param end
+     *            the end position of the section
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void readSection( WasmInputStream input, SectionType type, int end ) throws IOException {
+        switch( type ) {
+            case Custom:
+                Custom custom = new Custom();
+                custom.name = input.readString();
+                custom.start = input.getPosition();
+                custom.end = end;
+                customs.add( custom );
+                if( "name".equals( custom.name ) ) {
+                    readNames( input, end );
+                }
+                input.setPosition( end );
+                return;
+            case DataCount:
+                dataCount = input.readVaruint32();
+                return;
+            case Start:
+                start = input.readVaruint32();
+                return;
+            default:
+        }
+        int count = input.readVaruint32();
+        for( int i = 0; i < count; i++ ) {
+            switch( type ) {
+                case Type:
+                    types.add( readType( input ) );
+                    break;
+                case Import:
+                    readImport( input );
+                    break;
+                case Function:
+                    functions.add( input.readVaruint32() );
+                    break;
+                case Table:
+                    tables.add( readTable( input, input.readValueType() ) );
+                    break;
+                case Memory:
+                    memories.add( readTable( input, 0 ) );
+                    break;
+                case Tag:
+                    tags.add( readTag( input ) );
+                    break;
+                case Global:
+                    Global global = readGlobalType( input );
+                    global.initStart = input.getPosition();
+                    global.initEnd = skipExpression( input );
+                    globals.add( global );
+                    break;
+                case Export:
+                    Export export = new Export();
+                    export.name = input.readString();
+                    export.kind = readExternalKind( input );
+                    export.index = input.readVaruint32();
+                    exports.add( export );
+                    break;
+                case Element:
+                    elements.add( readElement( input ) );
+                    break;
+                case Code:
+                    codes.add( readCode( input ) );
+                    break;
+                case Data:
+                    datas.add( readData( input ) );
+                    break;
+                default:
+            }
+        }
+    }
+
+    /**
+     * Read an entry of the type section.
+     * 
+     * @param input
+     *            the input
+     * @return the type
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static Type readType( WasmInputStream input ) throws IOException {
+        Type type = new Type();
+        type.form = input.readVarint32();
+        if( type.form == ValueType.func.getCode() ) {
+            type.params = readValueTypes( input );
+            type.results = readValueTypes( input );
+        } else if( type.form == ValueType.struct.getCode() || type.form == ValueType.array.getCode() ) {
+            int count = type.form == ValueType.array.getCode() ? 1 : input.readVaruint32();
+            type.fields = new int[count];
+            type.mutable = new boolean[count];
+            for( int i = 0; i < count; i++ ) {
+                type.fields[i] = input.readValueType();
+                type.mutable[i] = input.readVarint32() != 0;
+            }
+        } else {
+            throw new IOException( "Unknown type form " + type.form );
+        }
+        return type;
+    }
+
+    /**
+     * Read a vector of value types.
+     * 
+     * @param input
+     *            the input
+     * @return the types
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static int[] readValueTypes( WasmInputStream input ) throws IOException {
+        int[] result = new int[input.readVaruint32()];
+        for( int i = 0; i < result.length; i++ ) {
+            result[i] = input.readValueType();
+        }
+        return result;
+    }
+
+    /**
+     * Read an entry of the import section.
+     * 
+     * @param input
+     *            the input
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void readImport( WasmInputStream input ) throws IOException {
+        Import entry = new Import();
+        entry.module = input.readString();
+        entry.name = input.readString();
+        entry.kind = readExternalKind( input );
+        switch( entry.kind ) {
+            case Function:
+                entry.index = functions.size();
+                functions.add( input.readVaruint32() );
+                importedFunctions++;
+                break;
+            case Table:
+                entry.index = tables.size();
+                tables.add( readTable( input, input.readValueType() ) );
+                break;
+            case Memory:
+                entry.index = memories.size();
+                memories.add( readTable( input, 0 ) );
+                break;
+            case Global:
+                entry.index = globals.size();
+                Global global = readGlobalType( input );
+                global.imported = true;
+                globals.add( global );
+                break;
+            case Tag:
+                entry.index = tags.size();
+                tags.add( readTag( input ) );
+                break;
+        }
+        imports.add( entry );
+    }
+
+    /**
+     * Read the kind of an import or export.
+     * 
+     * @param input
+     *            the input
+     * @return the kind
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static ExternalKind readExternalKind( WasmInputStream input ) throws IOException {
+        int kind = input.readUint8();
+        if( kind >= ExternalKind.values().length ) {
+            throw new IOException( "Unknown external kind " + kind );
+        }
+        return ExternalKind.values()[kind];
+    }
+
+    /**
+     * Read the limits of a table or memory.
+     * 
+     * @param input
+     *            the input
+     * @param type
+     *            the element type of a table or 0 for a memory
+     * @return the table
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static Table readTable( WasmInputStream input, int type ) throws IOException {
+        Table table = new Table();
+        table.type = type;
+        int flags = input.readUint8();
+        if( flags > 3 ) {
+            throw new IOException( "Unknown limits flags " + flags );
+        }
+        table.shared = (flags & 2) != 0;
+        table.min = input.readVaruint32();
+        table.max = (flags & 1) != 0 ? input.readVaruint32() : -1;
+        return table;
+    }
+
+    /**
+     * Read a tag declaration.
+     * 
+     * @param input
+     *            the input
+     * @return the type index of the tag
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static int readTag( WasmInputStream input ) throws IOException {
+        int attribute = input.readUint8();
+        if( attribute != 0 ) {
+            throw new IOException( "Unknown tag attribute " + attribute );
+        }
+        return input.readVaruint32();
+    }
+
+    /**
+     * Read the type of a global.
+     * 
+     * @param input
+     *            the input
+     * @return the global without init value
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static Global readGlobalType( WasmInputStream input ) throws IOException {
+        Global global = new Global();
+        global.type = input.readValueType();
+        int mutability = input.readUint8();
+        if( mutability > 1 ) {
+            throw new IOException( "Invalid mutability " + mutability );
+        }
+        global.mutable = mutability != 0;
+        return global;
+    }
+
+    /**
+     * Read an entry of the element section.
+     * 
+     * @param input
+     *            the input
+     * @return the element segment
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static Element readElement( WasmInputStream input ) throws IOException {
+        Element element = new Element();
+        int flags = input.readVaruint32();
+        if( flags > 3 ) {
+            throw new IOException( "Unsupported element segment with expressions, flags: " + flags );
+        }
+        element.mode = flags == 1 ? Element.PASSIVE : flags == 3 ? Element.DECLARATIVE : Element.ACTIVE;
+        if( flags == 2 ) {
+            element.table = input.readVaruint32();
+        }
+        if( element.mode == Element.ACTIVE ) {
+            element.offsetStart = input.getPosition();
+            element.offsetEnd = skipExpression( input );
+        }
+        if( flags != 0 ) {
+            int elemKind = input.readUint8();
+            if( elemKind != 0 ) {
+                throw new IOException( "Unknown element kind " + elemKind );
+            }
+        }
+        element.functions = new int[input.readVaruint32()];
+        for( int i = 0; i < element.functions.length; i++ ) {
+            element.functions[i] = input.readVaruint32();
+        }
+        return element;
+    }
+
+    /**
+     * Read an entry of the code section.
+     * 
+     * @param input
+     *            the input
+     * @return the code
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static Code readCode( WasmInputStream input ) throws IOException {
+        Code code = new Code();
+        int size = input.readVaruint32();
+        code.bodyStart = input.getPosition();
+        code.end = code.bodyStart + size;
+        if( size > input.available() ) {
+            throw new IOException( "Function body is larger as the code section" );
+        }
+        int entryCount = input.readVaruint32();
+        ArrayList<Integer> locals = new ArrayList<>();
+        for( int i = 0; i < entryCount; i++ ) {
+            int count = input.readVaruint32();
+            if( locals.size() + (long)count > 50000 ) {
+                throw new IOException( "Too many locals" );
+            }
+            int type = input.readValueType();
+            for( int j = 0; j < count; j++ ) {
+                locals.add( type );
+            }
+        }
+        code.locals = new int[locals.size()];
+        for( int i = 0; i < code.locals.length; i++ ) {
+            code.locals[i] = locals.get( i );
+        }
+        code.start = input.getPosition();
+        if( code.start > code.end ) {
+            throw new IOException( "Locals are larger as the function body" );
+        }
+        input.setPosition( code.end );
+        return code;
+    }
+
+    /**
+     * Read an entry of the data section.
+     * 
+     * @param input
+     *            the input
+     * @return the data segment
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private static Data readData( WasmInputStream input ) throws IOException {
+        Data data = new Data();
+        int flags = input.readVaruint32();
+        if( flags > 2 ) {
+            throw new IOException( "Unknown data segment flags " + flags );
+        }
+        data.passive = flags == 1;
+        if( flags == 2 ) {
+            data.memory = input.readVaruint32();
+        }
+        if( !data.passive ) {
+            data.offsetStart = input.getPosition();
+            data.offsetEnd = skipExpression( input );
+        }
+        data.size = input.readVaruint32();
+        data.start = input.getPosition();
+        input.skipBytes( data.size );
+        return data;
+    }
+
+    /**
+     * Read the function names of the custom "name" section.
+     * 
+     * @param input
+     *            the input positioned after the name of the section
+     * @param end
+     *            the end position of the section
+     */
+    private void readNames( WasmInputStream input, int end ) {
+        try {
+            while( input.getPosition() < end ) {
+                int id = input.readUint8();
+                int size = input.readVaruint32();
+                int next = input.getPosition() + size;
+                if( id == 1 ) { // function names
+                    int count = input.readVaruint32();
+                    for( int i = 0; i < count; i++ ) {
+                        functionNames.put( input.readVaruint32(), input.readString() );
+                    }
+                }
+                input.setPosition( next );
+            }
+        } catch( IOException ex ) {
+            // the names are only for debugging, a broken name section is not an error of the module
+        }
+    }
+
+    /**
+     * Skip a constant expression like an init value or an offset. The expression ends with the first END operation.
+     * Constant expressions does not contain blocks.
+     * 
+     * @param input
+     *            the input
+     * @return the position after the END operation
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static int skipExpression( WasmInputStream input ) throws IOException {
+        do {
+            int op = input.readOpCode();
+            switch( op ) {
+                case InstructionOpcodes.END:
+                    return input.getPosition();
+                case InstructionOpcodes.I32_CONST:
+                    input.readVarint32();
+                    break;
+                case InstructionOpcodes.I64_CONST:
+                    input.readVarint64();
+                    break;
+                case InstructionOpcodes.F32_CONST:
+                    input.skipBytes( 4 );
+                    break;
+                case InstructionOpcodes.F64_CONST:
+                    input.skipBytes( 8 );
+                    break;
+                case InstructionOpcodes.REF_NULL:
+                    input.readVarint32();
+                    break;
+                case InstructionOpcodes.REF_FUNC:
+                case InstructionOpcodes.GLOBAL_GET:
+                    input.readVaruint32();
+                    break;
+                case InstructionOpcodes.RTT_CANON:
+                case InstructionOpcodes.RTT_SUB:
+                case InstructionOpcodes.STRUCT_NEW:
+                case InstructionOpcodes.STRUCT_NEW_DEFAULT:
+                    input.readVarint32();
+                    break;
+                default:
+                    throw new IOException( "Unsupported operation in constant expression: 0x" + Integer.toHexString( op ) );
+            }
+        } while( true );
+    }
+
+    /**
+     * Get the encoding of a reference to a type of the type section.
+     * 
+     * @param typeIdx
+     *            the index in the type section
+     * @param nullable
+     *            true, if the reference can be null (optref)
+     * @return the value type
+     */
+    static int refType( int typeIdx, boolean nullable ) {
+        return (typeIdx << 1) | (nullable ? 1 : 0);
+    }
+
+    /**
+     * If the value type is a reference to a type of the type section.
+     * 
+     * @param valueType
+     *            the value type
+     * @return true, if it is a reference to a defined type
+     */
+    static boolean isTypeRef( int valueType ) {
+        return valueType >= 0;
+    }
+
+    /**
+     * Get the index in the type section of a reference.
+     * 
+     * @param valueType
+     *            a value type for which {@link #isTypeRef(int)} is true
+     * @return the index
+     */
+    static int getTypeIndex( int valueType ) {
+        return valueType >> 1;
+    }
+
+    /**
+     * If the reference can be null.
+     * 
+     * @param valueType
+     *            a value type for which {@link #isTypeRef(int)} is true
+     * @return true, if nullable
+     */
+    static boolean isNullable( int valueType ) {
+        return (valueType & 1) != 0;
+    }
+
+    /**
+     * Get a readable name of a value type for messages.
+     * 
+     * @param valueType
+     *            the value type
+     * @return the name
+     */
+    @Nonnull
+    static String toString( int valueType ) {
+        if( isTypeRef( valueType ) ) {
+            return (isNullable( valueType ) ? "(optref " : "(ref ") + getTypeIndex( valueType ) + ")";
+        }
+        for( ValueType type : ValueType.values() ) {
+            if( type.getCode() == valueType ) {
+                return type.name();
+            }
+        }
+        return "type(" + valueType + ")";
+    }
+
+    /**
+     * Get the type of a function.
+     * 
+     * @param funcIdx
+     *            the index in the function index space
+     * @return the type or null if the index or the type index is invalid
+     */
+    @Nullable
+    Type getFunctionType( int funcIdx ) {
+        if( funcIdx < 0 || funcIdx >= functions.size() ) {
+            return null;
+        }
+        return getFunctionTypeEntry( functions.get( funcIdx ) );
+    }
+
+    /**
+     * Get a function type of the type section.
+     * 
+     * @param typeIdx
+     *            the index in the type section
+     * @return the type or null if the index is invalid or it is not a function type
+     */
+    @Nullable
+    Type getFunctionTypeEntry( int typeIdx ) {
+        if( typeIdx < 0 || typeIdx >= types.size() ) {
+            return null;
+        }
+        Type type = types.get( typeIdx );
+        return type.form == ValueType.func.getCode() ? type : null;
+    }
+
+    /**
+     * Get a readable name of a function for messages.
+     * 
+     * @param funcIdx
+     *            the index in the function index space
+     * @return the name
+     */
+    @Nonnull
+    String getFunctionName( int funcIdx ) {
+        String name = functionNames.get( funcIdx );
+        return name == null ? "function " + funcIdx : "function " + funcIdx + " $" + name;
+    }
+
+    /**
+     * An entry of the type section.
+     */
+    static class Type {
+
+        /** The code of {@link ValueType#func}, {@link ValueType#struct} or {@link ValueType#array} */
+        int       form;
+
+        int[]     params;
+
+        int[]     results;
+
+        /** The fields of a struct or the single element type of an array */
+        int[]     fields;
+
+        boolean[] mutable;
+    }
+
+    /**
+     * An entry of the import section.
+     */
+    static class Import {
+
+        String       module;
+
+        String       name;
+
+        ExternalKind kind;
+
+        /** The index in the index space of its kind */
+        int          index;
+    }
+
+    /**
+     * A table or a linear memory.
+     */
+    static class Table {
+
+        /** The element type of a table */
+        int     type;
+
+        int     min;
+
+        /** The maximum or -1 if there is no maximum */
+        int     max;
+
+        boolean shared;
+    }
+
+    /**
+     * A global variable.
+     */
+    static class Global {
+
+        int     type;
+
+        boolean mutable;
+
+        boolean imported;
+
+        int     initStart;
+
+        int     initEnd;
+    }
+
+    /**
+     * An entry of the export section.
+     */
+    static class Export {
+
+        String       name;
+
+        ExternalKind kind;
+
+        int          index;
+    }
+
+    /**
+     * An element segment.
+     */
+    static class Element {
+
+        static final int ACTIVE      = 0;
+
+        static final int PASSIVE     = 1;
+
+        static final int DECLARATIVE = 2;
+
+        int              mode;
+
+        int              table;
+
+        int              offsetStart;
+
+        int              offsetEnd;
+
+        int[]            functions;
+    }
+
+    /**
+     * The body of a function. The code start after the declaration of the locals and end with the final END operation.
+     */
+    static class Code {
+
+        int[] locals;
+
+        int   bodyStart;
+
+        int   start;
+
+        int   end;
+    }
+
+    /**
+     * A data segment.
+     */
+    static class Data {
+
+        boolean passive;
+
+        int     memory;
+
+        int     offsetStart;
+
+        int     offsetEnd;
+
+        int     start;
+
+        int     size;
+    }
+
+    /**
+     * A custom section. The payload start after the name.
+     */
+    static class Custom {
+
+        String name;
+
+        int    start;
+
+        int    end;
+    }
+}
@@ -0,0 +1,1839 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import de.inetsoftware.jwebassembly.WasmException;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Code;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Data;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Element;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Export;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Global;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Table;
+import de.inetsoftware.jwebassembly.binary.WasmReader.Type;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * Validator for a module that was read with {@link WasmReader}. It checks the indices of all sections and the types of
+ * all instructions with a stack of value types like a WebAssembly engine before it compiles a module. It covers the
+ * MVP and the extensions that the compiler can use: multi value, reference types, bulk memory, tail calls, SIMD,
+ * threads, exception handling and GC with typed function references. The instructions of the proposals are checked in
+ * the encoding that {@link BinaryModuleWriter} writes.
+ * 
+ * @author Volker Berlin
+ */
+class WasmValidator implements InstructionOpcodes {
+
+    /** A value on the stack after unreachable code that match every type */
+    private static final int                            UNKNOWN    = Integer.MIN_VALUE;
+
+    /** The runtime type of a type index is coded as RTT - typeIdx. It can occur only on the stack. */
+    private static final int                            RTT        = -0x1000000;
+
+    private static final int                            I32        = ValueType.i32.getCode();
+
+    private static final int                            I64        = ValueType.i64.getCode();
+
+    private static final int                            F32        = ValueType.f32.getCode();
+
+    private static final int                            F64        = ValueType.f64.getCode();
+
+    private static final int                            V128       = ValueType.v128.getCode();
+
+    private static final int                            I8         = ValueType.i8.getCode();
+
+    private static final int                            I16        = ValueType.i16.getCode();
+
+    private static final int                            FUNCREF    = ValueType.funcref.getCode();
+
+    private static final int                            EXTERNREF  = ValueType.externref.getCode();
+
+    private static final int                            ANYREF     = ValueType.anyref.getCode();
+
+    private static final int                            EQREF      = ValueType.eqref.getCode();
+
+    private static final int                            EXNREF     = ValueType.exnref.getCode();
+
+    private static final int[]                          NO_TYPES   = {};
+
+    private static final int                            MAX_ERRORS = 20;
+
+    private static final HashMap<Integer, SimdOperator> SIMD       = new HashMap<>();
+    static {
+        for( SimdOperator op : SimdOperator.values() ) {
+            SIMD.put( op.getCode(), op );
+        }
+    }
+
+    private final WasmReader                            module;
+
+    private final WasmInputStream                       input;
+
+    private final List<String>                          errors     = new ArrayList<>();
+
+    private final HashMap<Long, Boolean>                subTypes   = new HashMap<>();
+
+    private final ArrayList<Frame>                      frames     = new ArrayList<>();
+
+    private int[]                                       stack      = new int[32];
+
+    private int                                         stackSize;
+
+    private int[]                                       locals;
+
+    /** The count of globals that a constant expression can read or -1 if the current expression is not constant */
+    private int                                         constantGlobals;
+
+    private int                                         opPosition;
+
+    /**
+     * Create a validator for a module.
+     * 
+     * @param module
+     *            the module
+     */
+    WasmValidator( @Nonnull WasmReader module ) {
+        this.module = module;
+        this.input = new WasmInputStream( module.bytes );
+    }
+
+    /**
+     * Read and validate a module.
+     * 
+     * @param bytes
+     *            the bytes of the module
+     * @param name
+     *            the name of the module for the error message
+     * @throws WasmException
+     *             if the module is not valid
+     */
+    static void validate( @Nonnull byte[] bytes, @Nonnull String name ) {
+        List<String> errors;
+        try {
+            errors = new WasmValidator( new WasmReader( bytes ) ).validate();
+        } catch( IOException ex ) {
+            throw WasmException.create( "Invalid binary format of the " + name + ": " + ex.getMessage(), ex );
+        }
+        if( !errors.isEmpty() ) {
+            StringBuilder message = new StringBuilder( "Validation of the " + name + " failed:" );
+            for( int i = 0; i < errors.size() && i < MAX_ERRORS; i++ ) {
+                message.append( "\n\t" ).append( errors.get( i ) );
+            }
+            if( errors.size() > MAX_ERRORS ) {
+                message.append( "\n\t... and " + (errors.size() - MAX_ERRORS) + " more errors" );
+            }
+            throw new WasmException( message.toString(), -1 );
+        }
+    }
+
+    /**
+     * Validate the module.
+     * 
+     * @return the list of errors, empty if the module is valid
+     */
+    @Nonnull
+    List<String> validate() {
+        validateTypes();
+        for( int i = 0; i < module.functions.size(); i++ ) {
+            if( module.getFunctionType( i ) == null ) {
+                error( module.getFunctionName( i ) + " has the invalid type index " + module.functions.get( i ) );
+            }
+        }
+        for( int i = 0; i < module.tables.size(); i++ ) {
+            Table table = module.tables.get( i );
+            if( !isRef( table.type ) || !isValueType( table.type ) ) {
+                error( "Table " + i + " has the invalid element type " + toString( table.type ) );
+            }
+            validateLimits( "Table " + i, table, Integer.MAX_VALUE );
+        }
+        if( module.memories.size() > 1 ) {
+            error( "Multiple memories are not supported" );
+        }
+        for( int i = 0; i < module.memories.size(); i++ ) {
+            validateLimits( "Memory " + i, module.memories.get( i ), 65536 );
+        }
+        for( int i = 0; i < module.tags.size(); i++ ) {
+            Type type = module.getFunctionTypeEntry( module.tags.get( i ) );
+            if( type == null || type.results.length > 0 ) {
+                error( "Tag " + i + " has the invalid type index " + module.tags.get( i ) );
+            }
+        }
+        validateGlobals();
+        validateExports();
+        if( module.start >= 0 ) {
+            Type type = module.getFunctionType( module.start );
+            if( type == null || type.params.length > 0 || type.results.length > 0 ) {
+                error( "The start function " + module.start + " must be a valid function without parameters and results" );
+            }
+        }
+        validateElements();
+        validateDatas();
+        for( int i = 0; i < module.codes.size(); i++ ) {
+            validateCode( module.importedFunctions + i, module.codes.get( i ) );
+        }
+        return errors;
+    }
+
+    /**
+     * Add an error of the module structure.
+     * 
+     * @param message
+     *            the message
+     */
+    private void error( String message ) {
+        errors.add( message );
+    }
+
+    /**
+     * Create an exception for an error in an expression. The caller adds the position.
+     * 
+     * @param message
+     *            the message
+     * @return the exception
+     */
+    @Nonnull
+    private static WasmException fail( String message ) {
+        return new WasmException( message, -1 );
+    }
+
+    /**
+     * Check the types of the type section.
+     */
+    private void validateTypes() {
+        for( int i = 0; i < module.types.size(); i++ ) {
+            Type type = module.types.get( i );
+            if( type.form == ValueType.func.getCode() ) {
+                for( int valueType : type.params ) {
+                    if( !isValueType( valueType ) ) {
+                        error( "Type " + i + " has the invalid parameter type " + toString( valueType ) );
+                    }
+                }
+                for( int valueType : type.results ) {
+                    if( !isValueType( valueType ) ) {
+                        error( "Type " + i + " has the invalid result type " + toString( valueType ) );
+                    }
+                }
+            } else {
+                for( int valueType : type.fields ) {
+                    if( !isValueType( valueType ) && valueType != I8 && valueType != I16 ) {
+                        error( "Type " + i + " has the invalid field type " + toString( valueType ) );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the limits of a table or memory.
+     * 
+     * @param name
+     *            the name for a message
+     * @param table
+     *            the table or memory
+     * @param maximum
+     *            the maximum of the limits
+     */
+    private void validateLimits( String name, Table table, int maximum ) {
+        if( table.min > maximum || table.max > maximum ) {
+            error( name + " is larger as " + maximum );
+        }
+        if( table.max >= 0 && table.min > table.max ) {
+            error( name + " has a minimum " + table.min + " that is larger as the maximum " + table.max );
+        }
+        if( table.shared && table.max < 0 ) {
+            error( name + " is shared without a maximum" );
+        }
+    }
+
+    /**
+     * Check the types and the init values of the globals.
+     */
+    private void validateGlobals() {
+        for( int i = 0; i < module.globals.size(); i++ ) {
+            Global global = module.globals.get( i );
+            if( !isValueType( global.type ) ) {
+                error( "Global " + i + " has the invalid type " + toString( global.type ) );
+            } else if( !global.imported ) {
+                validateConstant( "Init value of global " + i, global.initStart, global.initEnd, global.type, i );
+            }
+        }
+    }
+
+    /**
+     * Check the exports.
+     */
+    private void validateExports() {
+        HashSet<String> names = new HashSet<>();
+        for( Export export : module.exports ) {
+            if( !names.add( export.name ) ) {
+                error( "Duplicate export name " + export.name );
+            }
+            int count;
+            switch( export.kind ) {
+                case Function:
+                    count = module.functions.size();
+                    break;
+                case Table:
+                    count = module.tables.size();
+                    break;
+                case Memory:
+                    count = module.memories.size();
+                    break;
+                case Global:
+                    count = module.globals.size();
+                    break;
+                default:
+                    count = module.tags.size();
+            }
+            if( export.index >= count ) {
+                error( "Export " + export.name + " has the invalid " + export.kind + " index " + export.index );
+            }
+        }
+    }
+
+    /**
+     * Check the element segments.
+     */
+    private void validateElements() {
+        for( int i = 0; i < module.elements.size(); i++ ) {
+            Element element = module.elements.get( i );
+            if( element.mode == Element.ACTIVE ) {
+                if( element.table >= module.tables.size() ) {
+                    error( "Element segment " + i + " has the invalid table index " + element.table );
+                } else if( !isSubType( FUNCREF, module.tables.get( element.table ).type ) ) {
+                    error( "Element segment " + i + " writes functions into the table " + element.table + " of type " + toString( module.tables.get( element.table ).type ) );
+                }
+                validateConstant( "Offset of element segment " + i, element.offsetStart, element.offsetEnd, I32, module.globals.size() );
+            }
+            for( int funcIdx : element.functions ) {
+                if( funcIdx >= module.functions.size() ) {
+                    error( "Element segment " + i + " has the invalid function index " + funcIdx );
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the data segments.
+     */
+    private void validateDatas() {
+        if( module.dataCount >= 0 && module.dataCount != module.datas.size() ) {
+            error( "The data count " + module.dataCount + " does not match the count of data segments " + module.datas.size() );
+        }
+        for( int i = 0; i < module.datas.size(); i++ ) {
+            Data data = module.datas.get( i );
+            if( !data.passive ) {
+                if( data.memory >= module.memories.size() ) {
+                    error( "Data segment " + i + " has the invalid memory index " + data.memory );
+                }
+                validateConstant( "Offset of data segment " + i, data.offsetStart, data.offsetEnd, I32, module.globals.size() );
+            }
+        }
+    }
+
+    /**
+     * Check a constant expression.
+     * 
+     * @param name
+     *            the name for a message
+     * @param start
+     *            the start position of the expression
+     * @param end
+     *            the end position after the END operation
+     * @param type
+     *            the expected type
+     * @param globalCount
+     *            the count of globals that the expression can read
+     */
+    private void validateConstant( String name, int start, int end, int type, int globalCount ) {
+        locals = NO_TYPES;
+        constantGlobals = globalCount;
+        try {
+            validateExpression( start, end, new int[] { type } );
+        } catch( WasmException | IOException ex ) {
+            error( name + ": " + ex.getMessage() + " at 0x" + Integer.toHexString( opPosition ) );
+        }
+    }
+
+    /**
+     * Check the code of a function.
+     * 
+     * @param funcIdx
+     *            the index of the function
+     * @param code
+     *            the code
+     */
+    private void validateCode( int funcIdx, Code code ) {
+        Type type = module.getFunctionType( funcIdx );
+        if( type == null ) {
+            return; // already reported
+        }
+        locals = new int[type.params.length + code.locals.length];
+        System.arraycopy( type.params, 0, locals, 0, type.params.length );
+        System.arraycopy( code.locals, 0, locals, type.params.length, code.locals.length );
+        constantGlobals = -1;
+        opPosition = code.bodyStart;
+        try {
+            for( int local : code.locals ) {
+                if( !isValueType( local ) ) {
+                    throw fail( "Invalid type of a local " + toString( local ) );
+                }
+                if( !isDefaultable( local ) ) {
+                    throw fail( "Local without default value " + toString( local ) );
+                }
+            }
+            validateExpression( code.start, code.end, type.results );
+        } catch( WasmException | IOException ex ) {
+            error( module.getFunctionName( funcIdx ) + ": " + ex.getMessage() + " at 0x" + Integer.toHexString( opPosition ) );
+        }
+    }
+
+    /**
+     * Check the types of an expression with a stack of value types.
+     * 
+     * @param start
+     *            the position of the first operation
+     * @param end
+     *            the position after the final END operation
+     * @param results
+     *            the expected result of the expression
+     * @throws IOException
+     *             if the expression can not be decoded
+     */
+    private void validateExpression( int start, int end, int[] results ) throws IOException {
+        input.setPosition( start );
+        stackSize = 0;
+        frames.clear();
+        pushFrame( -1, NO_TYPES, results );
+        while( !frames.isEmpty() ) {
+            opPosition = input.getPosition();
+            if( opPosition >= end ) {
+                throw fail( "Missing END of the expression" );
+            }
+            validateInstruction( input.readOpCode() );
+        }
+        if( input.getPosition() != end ) {
+            opPosition = input.getPosition();
+            throw fail( "Operations after the END of the expression" );
+        }
+    }
+
+    /**
+     * Check a single operation and change the stack.
+     * 
+     * @param op
+     *            the operation code
+     * @throws IOException
+     *             if the immediate values can not be decoded
+     */
+    private void validateInstruction( int op ) throws IOException {
+        if( constantGlobals >= 0 && !isConstant( op ) ) {
+            throw fail( "Operation 0x" + Integer.toHexString( op ) + " is not constant" );
+        }
+        Type type;
+        Frame frame;
+        int[] types;
+        int valueType;
+        switch( op ) {
+            case UNREACHABLE:
+                setUnreachable();
+                break;
+            case NOP:
+                break;
+            case BLOCK:
+            case LOOP:
+            case TRY:
+                type = readBlockType();
+                pop( type.params );
+                pushFrame( op, type.params, type.results );
+                break;
+            case IF:
+                type = readBlockType();
+                pop( I32 );
+                pop( type.params );
+                pushFrame( op, type.params, type.results );
+                break;
+            case ELSE:
+                if( getFrame( 0 ).opCode != IF ) {
+                    throw fail( "ELSE without IF" );
+                }
+                frame = popFrame();
+                pushFrame( ELSE, frame.params, frame.results );
+                break;
+            case CATCH:
+            case CATCH_ALL:
+                int opCode = getFrame( 0 ).opCode;
+                if( opCode != TRY && opCode != CATCH ) {
+                    throw fail( "CATCH without TRY" );
+                }
+                frame = popFrame();
+                pushFrame( op, NO_TYPES, frame.results );
+                if( op == CATCH ) {
+                    push( getTag( input.readVaruint32() ).params );
+                }
+                break;
+            case DELEGATE:
+                if( getFrame( 0 ).opCode != TRY ) {
+                    throw fail( "DELEGATE without TRY" );
+                }
+                frame = popFrame();
+                getFrame( input.readVaruint32() );
+                push( frame.results );
+                break;
+            case END:
+                frame = popFrame();
+                if( frame.opCode == IF && !isSubType( frame.params, frame.results ) ) {
+                    throw fail( "IF without ELSE must have the same parameters and results" );
+                }
+                push( frame.results );
+                break;
+            case THROW:
+                pop( getTag( input.readVaruint32() ).params );
+                setUnreachable();
+                break;
+            case RETHROW:
+                pop( EXNREF );
+                setUnreachable();
+                break;
+            case BR_ON_EXN:
+                types = labelTypes( getFrame( input.readVaruint32() ) );
+                if( !isSubType( getTag( input.readVaruint32() ).params, types ) ) {
+                    throw fail( "The tag does not match the branch target" );
+                }
+                pop( EXNREF );
+                push( EXNREF );
+                break;
+            case BR:
+                pop( labelTypes( getFrame( input.readVaruint32() ) ) );
+                setUnreachable();
+                break;
+            case BR_IF:
+                types = labelTypes( getFrame( input.readVaruint32() ) );
+                pop( I32 );
+                pop( types );
+                push( types );
+                break;
+            case BR_TABLE:
+                validateBrTable();
+                break;
+            case RETURN:
+                pop( frames.get( 0 ).results );
+                setUnreachable();
+                break;
+            case CALL:
+            case RETURN_CALL:
+                int funcIdx = input.readVaruint32();
+                type = module.getFunctionType( funcIdx );
+                if( type == null ) {
+                    throw fail( "Invalid function index " + funcIdx );
+                }
+                call( type, op == RETURN_CALL );
+                break;
+            case CALL_INDIRECT:
+            case RETURN_CALL_INDIRECT:
+                int typeIdx = input.readVaruint32();
+                type = module.getFunctionTypeEntry( typeIdx );
+                if( type == null ) {
+                    throw fail( "Invalid function type index " + typeIdx );
+                }
+                if( !isSubType( FUNCREF, getTable( input.readVaruint32() ).type ) ) {
+                    throw fail( "Indirect call over a table without functions" );
+                }
+                pop( I32 );
+                call( type, op == RETURN_CALL_INDIRECT );
+                break;
+            case CALL_REF:
+            case RETURN_CALL_REF:
+                valueType = pop();
+                if( valueType == UNKNOWN ) {
+                    setUnreachable();
+                    break;
+                }
+                type = WasmReader.isTypeRef( valueType ) ? module.getFunctionTypeEntry( WasmReader.getTypeIndex( valueType ) ) : null;
+                if( type == null ) {
+                    throw fail( "call_ref needs a typed function reference but found " + toString( valueType ) );
+                }
+                call( type, op == RETURN_CALL_REF );
+                break;
+            case DROP:
+                pop();
+                break;
+            case SELECT:
+                pop( I32 );
+                int type1 = pop();
+                int type2 = pop();
+                if( (type1 != UNKNOWN && isRef( type1 )) || (type2 != UNKNOWN && isRef( type2 )) ) {
+                    throw fail( "SELECT without type needs numeric values" );
+                }
+                if( type1 != type2 && type1 != UNKNOWN && type2 != UNKNOWN ) {
+                    throw fail( "SELECT with different types " + toString( type1 ) + " and " + toString( type2 ) );
+                }
+                push( type1 == UNKNOWN ? type2 : type1 );
+                break;
+            case 0x1C: // select with type
+                if( input.readVaruint32() != 1 ) {
+                    throw fail( "SELECT needs exactly one type" );
+                }
+                valueType = input.readValueType();
+                pop( I32 );
+                pop( valueType );
+                pop( valueType );
+                push( valueType );
+                break;
+            case LOCAL_GET:
+                push( getLocal( input.readVaruint32() ) );
+                break;
+            case LOCAL_SET:
+                pop( getLocal( input.readVaruint32() ) );
+                break;
+            case LOCAL_TEE:
+                valueType = getLocal( input.readVaruint32() );
+                pop( valueType );
+                push( valueType );
+                break;
+            case GLOBAL_GET:
+                push( getGlobal( input.readVaruint32() ).type );
+                break;
+            case GLOBAL_SET:
+                Global global = getGlobal( input.readVaruint32() );
+                if( !global.mutable ) {
+                    throw fail( "Write access to an immutable global" );
+                }
+                pop( global.type );
+                break;
+            case TABLE_GET:
+                valueType = getTable( input.readVaruint32() ).type;
+                pop( I32 );
+                push( valueType );
+                break;
+            case TABLE_SET:
+                valueType = getTable( input.readVaruint32() ).type;
+                pop( valueType );
+                pop( I32 );
+                break;
+            case MEMORY_SIZE:
+                readMemoryIndex();
+                push( I32 );
+                break;
+            case MEMORY_GROW:
+                readMemoryIndex();
+                pop( I32 );
+                push( I32 );
+                break;
+            case I32_CONST:
+                input.readVarint32();
+                push( I32 );
+                break;
+            case I64_CONST:
+                input.readVarint64();
+                push( I64 );
+                break;
+            case F32_CONST:
+                input.skipBytes( 4 );
+                push( F32 );
+                break;
+            case F64_CONST:
+                input.skipBytes( 8 );
+                push( F64 );
+                break;
+            case REF_NULL:
+                valueType = input.readHeapType( true );
+                if( !isValueType( valueType ) || !isRef( valueType ) ) {
+                    throw fail( "Invalid heap type " + toString( valueType ) );
+                }
+                push( valueType );
+                break;
+            case REF_ISNULL:
+                popRef();
+                push( I32 );
+                break;
+            case REF_FUNC:
+                funcIdx = input.readVaruint32();
+                if( module.getFunctionType( funcIdx ) == null ) {
+                    throw fail( "Invalid function index " + funcIdx );
+                }
+                push( WasmReader.refType( module.functions.get( funcIdx ), false ) );
+                break;
+            case REF_AS_NON_NULL:
+                push( nonNull( popRef() ) );
+                break;
+            case BR_ON_NULL:
+                types = labelTypes( getFrame( input.readVaruint32() ) );
+                valueType = popRef();
+                pop( types );
+                push( types );
+                push( nonNull( valueType ) );
+                break;
+            case REF_EQ:
+                pop( EQREF );
+                pop( EQREF );
+                push( I32 );
+                break;
+            case MEMORY_INIT:
+                readDataIndex();
+                readMemoryIndex();
+                pop( I32 );
+                pop( I32 );
+                pop( I32 );
+                break;
+            case DATA_DROP:
+                readDataIndex();
+                break;
+            case 0xFC0A: // memory.copy
+                readMemoryIndex();
+                readMemoryIndex();
+                pop( I32 );
+                pop( I32 );
+                pop( I32 );
+                break;
+            case 0xFC0B: // memory.fill
+                readMemoryIndex();
+                pop( I32 );
+                pop( I32 );
+                pop( I32 );
+                break;
+            case TABLE_GROW:
+                valueType = getTable( input.readVaruint32() ).type;
+                pop( I32 );
+                pop( valueType );
+                push( I32 );
+                break;
+            case TABLE_SIZE:
+                getTable( input.readVaruint32() );
+                push( I32 );
+                break;
+            case TABLE_FILL:
+                valueType = getTable( input.readVaruint32() ).type;
+                pop( I32 );
+                pop( valueType );
+                pop( I32 );
+                break;
+            case SIMD_PREFIX:
+                validateSimd();
+                break;
+            default:
+                if( !validateNumeric( op ) && !validateMemoryAccess( op ) && !validateAtomic( op ) && !validateGC( op ) ) {
+                    throw fail( "Unknown operation code 0x" + Integer.toHexString( op ) );
+                }
+        }
+    }
+
+    /**
+     * If the operation is valid in a constant expression.
+     * 
+     * @param op
+     *            the operation code
+     * @return true, if constant
+     */
+    private static boolean isConstant( int op ) {
+        switch( op ) {
+            case END:
+            case I32_CONST:
+            case I64_CONST:
+            case F32_CONST:
+            case F64_CONST:
+            case REF_NULL:
+            case REF_FUNC:
+            case GLOBAL_GET:
+            case RTT_CANON:
+            case RTT_SUB:
+            case STRUCT_NEW:
+            case STRUCT_NEW_DEFAULT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check a br_table operation.
+     * 
+     * @throws IOException
+     *             if the immediate values can not be decoded
+     */
+    private void validateBrTable() throws IOException {
+        int count = input.readVaruint32();
+        int[][] targets = new int[count + 1][];
+        for( int i = 0; i <= count; i++ ) {
+            targets[i] = labelTypes( getFrame( input.readVaruint32() ) );
+        }
+        pop( I32 );
+        int[] defaultTypes = targets[count];
+        int[] values = new int[defaultTypes.length];
+        for( int i = values.length - 1; i >= 0; i-- ) {
+            values[i] = pop( defaultTypes[i] );
+        }
+        for( int[] types : targets ) {
+            if( types.length != values.length || !isSubType( values, types ) ) {
+                throw fail( "The targets of br_table have different types" );
+            }
+        }
+        setUnreachable();
+    }
+
+    /**
+     * Check a function call.
+     * 
+     * @param type
+     *            the type of the called function
+     * @param tailCall
+     *            true, if it is a tail call
+     */
+    private void call( Type type, boolean tailCall ) {
+        pop( type.params );
+        if( tailCall ) {
+            if( !isSubType( type.results, frames.get( 0 ).results ) ) {
+                throw fail( "The results of the tail call does not match the results of the function" );
+            }
+            setUnreachable();
+        } else {
+            push( type.results );
+        }
+    }
+
+    /**
+     * Check a numeric operation of the MVP, the sign extension and the non trapping conversions.
+     * 
+     * @param op
+     *            the operation code
+     * @return false, if it is not a numeric operation
+     */
+    private boolean validateNumeric( int op ) {
+        if( op == I32_EQZ ) {
+            return unary( I32, I32 );
+        }
+        if( op <= I32_GE_U && op >= I32_EQ ) {
+            return binary( I32, I32 );
+        }
+        if( op == I64_EQZ ) {
+            return unary( I64, I32 );
+        }
+        if( op <= I64_GE_U && op >= I64_EQ ) {
+            return binary( I64, I32 );
+        }
+        if( op <= F32_GE && op >= F32_EQ ) {
+            return binary( F32, I32 );
+        }
+        if( op <= F64_GE && op >= F64_EQ ) {
+            return binary( F64, I32 );
+        }
+        if( op <= I32_POPCNT && op >= I32_CLZ ) {
+            return unary( I32, I32 );
+        }
+        if( op <= I32_ROTR && op >= I32_ADD ) {
+            return binary( I32, I32 );
+        }
+        if( op <= I64_POPCNT && op >= I64_CLZ ) {
+            return unary( I64, I64 );
+        }
+        if( op <= I64_ROTR && op >= I64_ADD ) {
+            return binary( I64, I64 );
+        }
+        if( op <= F32_SQRT && op >= F32_ABS ) {
+            return unary( F32, F32 );
+        }
+        if( op <= F32_COPYSIGN && op >= F32_ADD ) {
+            return binary( F32, F32 );
+        }
+        if( op <= F64_SQRT && op >= F64_ABS ) {
+            return unary( F64, F64 );
+        }
+        if( op <= F64_COPYSIGN && op >= F64_ADD ) {
+            return binary( F64, F64 );
+        }
+        switch( op ) {
+            case I32_WRAP_I64:
+                return unary( I64, I32 );
+            case I32_TRUNC_F32_S:
+            case I32_TRUNC_F32_U:
+            case I32_TRUNC_SAT_F32_S:
+            case I32_TRUNC_SAT_F32_U:
+            case I32_REINTERPRET_F32:
+                return unary( F32, I32 );
+            case I32_TRUNC_F64_S:
+            case I32_TRUNC_F64_U:
+            case I32_TRUNC_SAT_F64_S:
+            case I32_TRUNC_SAT_F64_U:
+                return unary( F64, I32 );
+            case I64_EXTEND_I32_S:
+            case I64_EXTEND_I32_U:
+                return unary( I32, I64 );
+            case I64_TRUNC_F32_S:
+            case I64_TRUNC_F32_U:
+            case I64_TRUNC_SAT_F32_S:
+            case I64_TRUNC_SAT_F32_U:
+                return unary( F32, I64 );
+            case I64_TRUNC_F64_S:
+            case I64_TRUNC_F64_U:
+            case I64_TRUNC_SAT_F64_S:
+            case I64_TRUNC_SAT_F64_U:
+            case I64_REINTERPRET_F64:
+                return unary( F64, I64 );
+            case F32_CONVERT_I32_S:
+            case F32_CONVERT_I32_U:
+            case F32_REINTERPRET_I32:
+                return unary( I32, F32 );
+            case F32_CONVERT_I64_S:
+            case F32_CONVERT_I64_U:
+                return unary( I64, F32 );
+            case F32_DEMOTE_F64:
+                return unary( F64, F32 );
+            case F64_CONVERT_I32_S:
+            case F64_CONVERT_I32_U:
+                return unary( I32, F64 );
+            case F64_CONVERT_I64_S:
+            case F64_CONVERT_I64_U:
+            case F64_REINTERPRET_I64:
+                return unary( I64, F64 );
+            case F64_PROMOTE_F32:
+                return unary( F32, F64 );
+            case I32_EXTEND8_S:
+            case I32_EXTEND16_S:
+                return unary( I32, I32 );
+            case I64_EXTEND8_S:
+            case I64_EXTEND16_S:
+            case I64_EXTEND32_S:
+                return unary( I64, I64 );
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check an operation with one operand.
+     * 
+     * @param param
+     *            the type of the operand
+     * @param result
+     *            the type of the result
+     * @return true
+     */
+    private boolean unary( int param, int result ) {
+        pop( param );
+        push( result );
+        return true;
+    }
+
+    /**
+     * Check an operation with two operands of the same type.
+     * 
+     * @param param
+     *            the type of the operands
+     * @param result
+     *            the type of the result
+     * @return true
+     */
+    private boolean binary( int param, int result ) {
+        pop( param );
+        pop( param );
+        push( result );
+        return true;
+    }
+
+    /**
+     * Check a load or store operation of the MVP.
+     * 
+     * @param op
+     *            the operation code
+     * @return false, if it is not a memory access
+     * @throws IOException
+     *             if the immediate values can not be decoded
+     */
+    private boolean validateMemoryAccess( int op ) throws IOException {
+        if( op < I32_LOAD || op > I54_STORE32 ) {
+            return false;
+        }
+        //                       28 29 2A 2B 2C 2D 2E 2F 30 31 32 33 34 35 36 37 38 39 3A 3B 3C 3D 3E
+        int[] alignments = { 2, 3, 2, 3, 0, 0, 1, 1, 0, 0, 1, 1, 2, 2, 2, 3, 2, 3, 0, 1, 0, 1, 2 };
+        int[] valueTypes = { I32, I64, F32, F64, I32, I32, I32, I32, I64, I64, I64, I64, I64, I64, I32, I64, F32, F64, I32, I32, I64, I64, I64 };
+        int idx = op - I32_LOAD;
+        readMemArg( alignments[idx], false );
+        if( op < I32_STORE ) {
+            pop( I32 );
+            push( valueTypes[idx] );
+        } else {
+            pop( valueTypes[idx] );
+            pop( I32 );
+        }
+        return true;
+    }
+
+    /**
+     * Check an atomic operation of the threads proposal.
+     * 
+     * @param op
+     *            the operation code
+     * @return false, if it is not an atomic operation
+     * @throws IOException
+     *             if the immediate values can not be decoded
+     */
+    private boolean validateAtomic( int op ) throws IOException {
+        switch( op ) {
+            case MEMORY_ATOMIC_NOTIFY:
+                readMemArg( 2, true );
+                pop( I32 );
+                pop( I32 );
+                push( I32 );
+                return true;
+            case MEMORY_ATOMIC_WAIT32:
+            case MEMORY_ATOMIC_WAIT64:
+                int type = op == MEMORY_ATOMIC_WAIT32 ? I32 : I64;
+                readMemArg( op == MEMORY_ATOMIC_WAIT32 ? 2 : 3, true );
+                pop( I64 ); // timeout
+                pop( type );
+                pop( I32 );
+                push( I32 );
+                return true;
+            case 0xFE03: // atomic.fence
+                if( input.readUint8() != 0 ) {
+                    throw fail( "atomic.fence needs a zero byte" );
+                }
+                return true;
+            default:
+        }
+        if( op < I32_ATOMIC_LOAD || op > I64_ATOMIC_RMW_CMPXCHG + 5 ) {
+            return false;
+        }
+        // every group has the variants: i32, i64, i32_8u, i32_16u, i64_8u, i64_16u, i64_32u
+        int variant = (op - I32_ATOMIC_LOAD) % 7;
+        int type = variant == 1 || variant >= 4 ? I64 : I32;
+        int[] alignments = { 2, 3, 0, 1, 0, 1, 2 };
+        readMemArg( alignments[variant], true );
+        if( op < I32_ATOMIC_STORE ) {
+            pop( I32 );
+            push( type );
+        } else if( op < I32_ATOMIC_RMW_ADD ) {
+            pop( type );
+            pop( I32 );
+        } else if( op < I32_ATOMIC_RMW_CMPXCHG ) {
+            pop( type );
+            pop( I32 );
+            push( type );
+        } else {
+            pop( type );
+            pop( type );
+            pop( I32 );
+            push( type );
+        }
+        return true;
+    }
+
+    /**
+     * Check a GC operation.
+     * 
+     * @param op
+     *            the operation code
+     * @return false, if it is not a GC operation
+     * @throws IOException
+     *             if the immediate values can not be decoded
+     */
+    private boolean validateGC( int op ) throws IOException {
+        int typeIdx;
+        Type type;
+        int fieldType;
+        switch( op ) {
+            case STRUCT_NEW:
+            case STRUCT_NEW_DEFAULT:
+                typeIdx = readTypeIndex( ValueType.struct );
+                type = module.types.get( typeIdx );
+                pop( RTT - typeIdx );
+                for( int i = type.fields.length - 1; i >= 0; i-- ) {
+                    if( op == STRUCT_NEW ) {
+                        pop( unpacked( type.fields[i] ) );
+                    } else if( !isDefaultable( type.fields[i] ) ) {
+                        throw fail( "Field " + i + " has no default value" );
+                    }
+                }
+                push( WasmReader.refType( typeIdx, false ) );
+                return true;
+            case STRUCT_GET:
+            case STRUCT_GET_S:
+            case STRUCT_GET_U:
+            case STRUCT_SET:
+                typeIdx = readTypeIndex( ValueType.struct );
+                type = module.types.get( typeIdx );
+                int field = input.readVaruint32();
+                if( field >= type.fields.length ) {
+                    throw fail( "Invalid field index " + field + " of type " + typeIdx );
+                }
+                fieldType = type.fields[field];
+                validateFieldAccess( op - STRUCT_GET, typeIdx, fieldType, type.mutable[field], false );
+                return true;
+            case ARRAY_NEW:
+            case ARRAY_NEW_DEFAULT:
+                typeIdx = readTypeIndex( ValueType.array );
+                type = module.types.get( typeIdx );
+                pop( RTT - typeIdx );
+                pop( I32 );
+                if( op == ARRAY_NEW ) {
+                    pop( unpacked( type.fields[0] ) );
+                } else if( !isDefaultable( type.fields[0] ) ) {
+                    throw fail( "The array elements has no default value" );
+                }
+                push( WasmReader.refType( typeIdx, false ) );
+                return true;
+            case ARRAY_GET:
+            case ARRAY_GET_S:
+            case ARRAY_GET_U:
+            case ARRAY_SET:
+                typeIdx = readTypeIndex( ValueType.array );
+                type = module.types.get( typeIdx );
+                validateFieldAccess( op - ARRAY_GET, typeIdx, type.fields[0], type.mutable[0], true );
+                return true;
+            case ARRAY_LEN:
+                typeIdx = readTypeIndex( ValueType.array );
+                pop( WasmReader.refType( typeIdx, true ) );
+                push( I32 );
+                return true;
+            case RTT_CANON:
+                typeIdx = input.readVarint32();
+                if( typeIdx < 0 || typeIdx >= module.types.size() ) {
+                    throw fail( "Invalid type index " + typeIdx + " of rtt.canon" );
+                }
+                push( RTT - typeIdx );
+                return true;
+            case RTT_SUB:
+                typeIdx = input.readVarint32();
+                if( typeIdx < 0 || typeIdx >= module.types.size() ) {
+                    throw fail( "Invalid type index " + typeIdx + " of rtt.sub" );
+                }
+                int parent = pop();
+                if( parent != UNKNOWN ) {
+                    if( parent > RTT ) {
+                        throw fail( "rtt.sub needs a rtt but found " + toString( parent ) );
+                    }
+                    if( !isSubTypeIndex( typeIdx, RTT - parent ) ) {
+                        throw fail( "Type " + typeIdx + " of rtt.sub is not a sub type of " + (RTT - parent) );
+                    }
+                }
+                push( RTT - typeIdx );
+                return true;
+            case REF_CAST:
+                int rtt = pop();
+                int ref = pop();
+                if( ref != UNKNOWN && !isRef( ref ) ) {
+                    throw fail( "ref.cast needs a reference but found " + toString( ref ) );
+                }
+                if( rtt == UNKNOWN ) {
+                    push( UNKNOWN );
+                } else if( rtt <= RTT ) {
+                    push( WasmReader.refType( RTT - rtt, ref == UNKNOWN || !WasmReader.isTypeRef( ref ) || WasmReader.isNullable( ref ) ) );
+                } else {
+                    throw fail( "ref.cast needs a rtt but found " + toString( rtt ) );
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check the access to a field of a struct or an element of an array.
+     * 
+     * @param kind
+     *            0 - get, 1 - get_s, 2 - get_u, 3 - set
+     * @param typeIdx
+     *            the index of the struct or array type
+     * @param fieldType
+     *            the storage type of the field
+     * @param mutable
+     *            if the field is mutable
+     * @param array
+     *            true, for an array
+     */
+    private void validateFieldAccess( int kind, int typeIdx, int fieldType, boolean mutable, boolean array ) {
+        boolean packed = fieldType == I8 || fieldType == I16;
+        if( kind == 3 ) {
+            if( !mutable ) {
+                throw fail( "Write access to an immutable field of type " + typeIdx );
+            }
+            pop( unpacked( fieldType ) );
+        } else if( packed != (kind != 0) ) {
+            throw fail( packed ? "A packed field needs a signed or unsigned get" : "Only a packed field can be read signed or unsigned" );
+        }
+        if( array ) {
+            pop( I32 );
+        }
+        pop( WasmReader.refType( typeIdx, true ) );
+        if( kind != 3 ) {
+            push( unpacked( fieldType ) );
+        }
+    }
+
+    /**
+     * Check a SIMD operation.
+     * 
+     * @throws IOException
+     *             if the immediate values can not be decoded
+     */
+    private void validateSimd() throws IOException {
+        int code = input.readVaruint32();
+        SimdOperator op = SIMD.get( code );
+        if( op == null ) {
+            throw fail( "Unknown SIMD operation code 0x" + Integer.toHexString( code ) );
+        }
+        switch( op.getKind() ) {
+            case LOAD:
+                readMemArg( op.getAlignment(), false );
+                pop( I32 );
+                push( V128 );
+                break;
+            case STORE:
+                readMemArg( op.getAlignment(), false );
+                pop( V128 );
+                pop( I32 );
+                break;
+            case LOAD_LANE:
+            case STORE_LANE:
+                readMemArg( op.getAlignment(), false );
+                readLane( 16 >> op.getAlignment() );
+                pop( V128 );
+                pop( I32 );
+                if( op.getKind() == SimdOperator.Kind.LOAD_LANE ) {
+                    push( V128 );
+                }
+                break;
+            case CONST:
+                input.skipBytes( 16 );
+                push( V128 );
+                break;
+            case SHUFFLE:
+                for( int i = 0; i < 16; i++ ) {
+                    readLane( 32 );
+                }
+                pop( V128 );
+                pop( V128 );
+                push( V128 );
+                break;
+            case SPLAT:
+                pop( op.getLaneType().getCode() );
+                push( V128 );
+                break;
+            case EXTRACT_LANE:
+                readLane( getLaneCount( op ) );
+                pop( V128 );
+                push( op.getLaneType().getCode() );
+                break;
+            case REPLACE_LANE:
+                readLane( getLaneCount( op ) );
+                pop( op.getLaneType().getCode() );
+                pop( V128 );
+                push( V128 );
+                break;
+            case TERNARY:
+                pop( V128 );
+                //$FALL-THROUGH$
+            case BINARY:
+                pop( V128 );
+                //$FALL-THROUGH$
+            case UNARY:
+                pop( V128 );
+                push( V128 );
+                break;
+            case TEST:
+                pop( V128 );
+                push( I32 );
+                break;
+            case SHIFT:
+                pop( I32 );
+                pop( V128 );
+                push( V128 );
+                break;
+            default:
+                throw fail( "Unknown SIMD operation " + op );
+        }
+    }
+
+    /**
+     * Get the count of lanes of an operation with a shape like i8x16 or f64x2.
+     * 
+     * @param op
+     *            the operation
+     * @return the count of lanes
+     */
+    private static int getLaneCount( SimdOperator op ) {
+        String name = op.name();
+        return Integer.parseInt( name.substring( name.indexOf( 'x' ) + 1, 5 ) );
+    }
+
+    /**
+     * Read a lane index.
+     * 
+     * @param lanes
+     *            the count of lanes
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void readLane( int lanes ) throws IOException {
+        int lane = input.readUint8();
+        if( lane >= lanes ) {
+            throw fail( "Invalid lane index " + lane );
+        }
+    }
+
+    /**
+     * Read the alignment and the offset of a memory access.
+     * 
+     * @param naturalAlignment
+     *            the natural alignment of the access
+     * @param exact
+     *            true, if the alignment must be the natural alignment like for atomic operations
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void readMemArg( int naturalAlignment, boolean exact ) throws IOException {
+        int alignment = input.readVaruint32();
+        input.readVaruint32(); // offset
+        if( module.memories.isEmpty() ) {
+            throw fail( "Memory access without memory" );
+        }
+        if( alignment > naturalAlignment || (exact && alignment != naturalAlignment) ) {
+            throw fail( "Invalid alignment " + alignment + " for a natural alignment of " + naturalAlignment );
+        }
+    }
+
+    /**
+     * Read the reserved memory index of a memory operation.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void readMemoryIndex() throws IOException {
+        int idx = input.readUint8();
+        if( idx >= module.memories.size() ) {
+            throw fail( "Invalid memory index " + idx );
+        }
+    }
+
+    /**
+     * Read the index of a data segment.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void readDataIndex() throws IOException {
+        int idx = input.readVaruint32();
+        if( module.dataCount < 0 ) {
+            throw fail( "The data count section is required for a data segment index" );
+        }
+        if( idx >= module.dataCount ) {
+            throw fail( "Invalid data segment index " + idx );
+        }
+    }
+
+    /**
+     * Read the index of a struct or array type of a GC operation.
+     * 
+     * @param form
+     *            the expected form of the type
+     * @return the index
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private int readTypeIndex( ValueType form ) throws IOException {
+        int typeIdx = input.readVarint32();
+        if( typeIdx < 0 || typeIdx >= module.types.size() || module.types.get( typeIdx ).form != form.getCode() ) {
+            throw fail( "Invalid " + form + " type index " + typeIdx );
+        }
+        return typeIdx;
+    }
+
+    /**
+     * Read the type of a block, loop, if or try.
+     * 
+     * @return the type with parameters and results
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    @Nonnull
+    private Type readBlockType() throws IOException {
+        int code = input.readVarint32();
+        Type type = new Type();
+        type.params = NO_TYPES;
+        if( code == ValueType.empty.getCode() ) {
+            type.results = NO_TYPES;
+            return type;
+        }
+        if( code == ValueType.optref.getCode() || code == ValueType.ref.getCode() ) {
+            type.results = new int[] { input.readHeapType( code == ValueType.optref.getCode() ) };
+        } else if( code < 0 ) {
+            type.results = new int[] { code };
+        } else {
+            type = module.getFunctionTypeEntry( code );
+            if( type == null ) {
+                throw fail( "Invalid block type index " + code );
+            }
+            return type;
+        }
+        if( !isValueType( type.results[0] ) ) {
+            throw fail( "Invalid block type " + toString( type.results[0] ) );
+        }
+        return type;
+    }
+
+    /**
+     * Get the type of a local variable.
+     * 
+     * @param idx
+     *            the index of the local
+     * @return the type
+     */
+    private int getLocal( int idx ) {
+        if( idx >= locals.length ) {
+            throw fail( "Invalid local index " + idx );
+        }
+        return locals[idx];
+    }
+
+    /**
+     * Get a global variable.
+     * 
+     * @param idx
+     *            the index of the global
+     * @return the global
+     */
+    @Nonnull
+    private Global getGlobal( int idx ) {
+        if( idx >= module.globals.size() ) {
+            throw fail( "Invalid global index " + idx );
+        }
+        Global global = module.globals.get( idx );
+        if( constantGlobals >= 0 && (idx >= constantGlobals || global.mutable) ) {
+            throw fail( "A constant expression can read only previous immutable globals" );
+        }
+        return global;
+    }
+
+    /**
+     * Get a table.
+     * 
+     * @param idx
+     *            the index of the table
+     * @return the table
+     */
+    @Nonnull
+    private Table getTable( int idx ) {
+        if( idx >= module.tables.size() ) {
+            throw fail( "Invalid table index " + idx );
+        }
+        return module.tables.get( idx );
+    }
+
+    /**
+     * Get the type of a tag.
+     * 
+     * @param idx
+     *            the index of the tag
+     * @return the type
+     */
+    @Nonnull
+    private Type getTag( int idx ) {
+        Type type = idx < module.tags.size() ? module.getFunctionTypeEntry( module.tags.get( idx ) ) : null;
+        if( type == null ) {
+            throw fail( "Invalid tag index " + idx );
+        }
+        return type;
+    }
+
+    /**
+     * Push a value on the stack.
+     * 
+     * @param type
+     *            the type of the value
+     */
+    private void push( int type ) {
+        if( stackSize == stack.length ) {
+            int[] newStack = new int[2 * stackSize];
+            System.arraycopy( stack, 0, newStack, 0, stackSize );
+            stack = newStack;
+        }
+        stack[stackSize++] = type;
+    }
+
+    /**
+     * Push values on the stack.
+     * 
+     * @param types
+     *            the types of the values
+     */
+    private void push( int[] types ) {
+        for( int type : types ) {
+            push( type );
+        }
+    }
+
+    /**
+     * Pop a value of any type from the stack.
+     * 
+     * @return the type of the value
+     */
+    private int pop() {
+        Frame frame = getFrame( 0 );
+        if( stackSize == frame.height ) {
+            if( frame.unreachable ) {
+                return UNKNOWN;
+            }
+            throw fail( "Missing value on the stack" );
+        }
+        return stack[--stackSize];
+    }
+
+    /**
+     * Pop a value from the stack.
+     * 
+     * @param expected
+     *            the expected type
+     * @return the type of the value
+     */
+    private int pop( int expected ) {
+        int actual = pop();
+        if( !isSubType( actual, expected ) ) {
+            throw fail( "Expected " + toString( expected ) + " but found " + toString( actual ) + " on the stack" );
+        }
+        return actual;
+    }
+
+    /**
+     * Pop values from the stack.
+     * 
+     * @param types
+     *            the expected types in the order of the stack
+     */
+    private void pop( int[] types ) {
+        for( int i = types.length - 1; i >= 0; i-- ) {
+            pop( types[i] );
+        }
+    }
+
+    /**
+     * Pop a reference from the stack.
+     * 
+     * @return the type of the reference
+     */
+    private int popRef() {
+        int type = pop();
+        if( type != UNKNOWN && !isRef( type ) ) {
+            throw fail( "Expected a reference but found " + toString( type ) + " on the stack" );
+        }
+        return type;
+    }
+
+    /**
+     * Get the frame of a block.
+     * 
+     * @param depth
+     *            the depth like in a branch, 0 is the inner block
+     * @return the frame
+     */
+    @Nonnull
+    private Frame getFrame( int depth ) {
+        if( depth >= frames.size() ) {
+            throw fail( "Invalid branch depth " + depth );
+        }
+        return frames.get( frames.size() - 1 - depth );
+    }
+
+    /**
+     * Start a new block.
+     * 
+     * @param opCode
+     *            the operation that start the block
+     * @param params
+     *            the parameters of the block
+     * @param results
+     *            the results of the block
+     */
+    private void pushFrame( int opCode, int[] params, int[] results ) {
+        Frame frame = new Frame();
+        frame.opCode = opCode;
+        frame.params = params;
+        frame.results = results;
+        frame.height = stackSize;
+        frames.add( frame );
+        push( params );
+    }
+
+    /**
+     * End the current block.
+     * 
+     * @return the frame of the block
+     */
+    @Nonnull
+    private Frame popFrame() {
+        Frame frame = getFrame( 0 );
+        pop( frame.results );
+        if( stackSize != frame.height ) {
+            throw fail( (stackSize - frame.height) + " values are left on the stack at the end of the block" );
+        }
+        frames.remove( frames.size() - 1 );
+        return frame;
+    }
+
+    /**
+     * Get the types that a branch to the block must have on the stack.
+     * 
+     * @param frame
+     *            the frame of the block
+     * @return the types
+     */
+    @Nonnull
+    private static int[] labelTypes( Frame frame ) {
+        return frame.opCode == LOOP ? frame.params : frame.results;
+    }
+
+    /**
+     * Mark the rest of the current block as unreachable. The stack is then polymorphic.
+     */
+    private void setUnreachable() {
+        Frame frame = getFrame( 0 );
+        stackSize = frame.height;
+        frame.unreachable = true;
+    }
+
+    /**
+     * If the type is a valid value type.
+     * 
+     * @param type
+     *            the type
+     * @return true, if valid
+     */
+    private boolean isValueType( int type ) {
+        if( WasmReader.isTypeRef( type ) ) {
+            return WasmReader.getTypeIndex( type ) < module.types.size();
+        }
+        return type == I32 || type == I64 || type == F32 || type == F64 || type == V128 || isRef( type );
+    }
+
+    /**
+     * If the type is a reference type.
+     * 
+     * @param type
+     *            the type
+     * @return true, if reference
+     */
+    private static boolean isRef( int type ) {
+        return WasmReader.isTypeRef( type ) || type == FUNCREF || type == EXTERNREF || type == ANYREF || type == EQREF || type == EXNREF;
+    }
+
+    /**
+     * If a local, a field or an array element of this type has a default value.
+     * 
+     * @param type
+     *            the type
+     * @return true, if it has a default value
+     */
+    private static boolean isDefaultable( int type ) {
+        return !WasmReader.isTypeRef( type ) || WasmReader.isNullable( type );
+    }
+
+    /**
+     * The type of a storage type on the stack.
+     * 
+     * @param type
+     *            the storage type
+     * @return the value type
+     */
+    private static int unpacked( int type ) {
+        return type == I8 || type == I16 ? I32 : type;
+    }
+
+    /**
+     * The non nullable type of a reference.
+     * 
+     * @param type
+     *            the type
+     * @return the non nullable type
+     */
+    private static int nonNull( int type ) {
+        return WasmReader.isTypeRef( type ) ? WasmReader.refType( WasmReader.getTypeIndex( type ), false ) : type;
+    }
+
+    /**
+     * If every value type is a sub type of the type with the same index.
+     * 
+     * @param subs
+     *            the sub types
+     * @param supers
+     *            the super types
+     * @return true, if sub types
+     */
+    private boolean isSubType( int[] subs, int[] supers ) {
+        if( subs.length != supers.length ) {
+            return false;
+        }
+        for( int i = 0; i < subs.length; i++ ) {
+            if( !isSubType( subs[i], supers[i] ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If a value type is a sub type of another type. The compiler use externref as top type of all references like
+     * {@link ValueType#isSubTypeOf(de.inetsoftware.jwebassembly.wasm.AnyType)}. The struct types are structural sub
+     * types like in the GC proposal.
+     * 
+     * @param sub
+     *            the sub type
+     * @param sup
+     *            the super type
+     * @return true, if sub type
+     */
+    private boolean isSubType( int sub, int sup ) {
+        if( sub == sup || sub == UNKNOWN || sup == UNKNOWN ) {
+            return true;
+        }
+        if( !isRef( sub ) || !isRef( sup ) ) {
+            return false;
+        }
+        if( WasmReader.isTypeRef( sup ) ) {
+            if( !WasmReader.isTypeRef( sub ) || (WasmReader.isNullable( sub ) && !WasmReader.isNullable( sup )) ) {
+                return false;
+            }
+            return isSubTypeIndex( WasmReader.getTypeIndex( sub ), WasmReader.getTypeIndex( sup ) );
+        }
+        if( sup == EXTERNREF || sup == ANYREF ) {
+            return true;
+        }
+        if( !WasmReader.isTypeRef( sub ) ) {
+            return false;
+        }
+        int form = module.types.get( WasmReader.getTypeIndex( sub ) ).form;
+        if( sup == FUNCREF ) {
+            return form == ValueType.func.getCode();
+        }
+        return sup == EQREF && form != ValueType.func.getCode();
+    }
+
+    /**
+     * If a defined type is a structural sub type of another defined type.
+     * 
+     * @param sub
+     *            the index of the sub type
+     * @param sup
+     *            the index of the super type
+     * @return true, if sub type
+     */
+    private boolean isSubTypeIndex( int sub, int sup ) {
+        if( sub == sup ) {
+            return true;
+        }
+        Long key = ((long)sub << 32) | sup;
+        Boolean result = subTypes.get( key );
+        if( result != null ) {
+            return result;
+        }
+        subTypes.put( key, Boolean.TRUE ); // assumption for recursive types
+        Type subType = module.types.get( sub );
+        Type superType = module.types.get( sup );
+        boolean isSubType = subType.form == superType.form;
+        if( isSubType ) {
+            if( subType.form == ValueType.func.getCode() ) {
+                isSubType = isEquivalent( subType.params, superType.params ) && isEquivalent( subType.results, superType.results );
+            } else {
+                isSubType = superType.fields.length <= subType.fields.length;
+                for( int i = 0; isSubType && i < superType.fields.length; i++ ) {
+                    if( superType.mutable[i] ) {
+                        isSubType = subType.mutable[i] && isEquivalent( subType.fields[i], superType.fields[i] );
+                    } else {
+                        isSubType = isSubType( subType.fields[i], superType.fields[i] );
+                    }
+                }
+            }
+        }
+        subTypes.put( key, isSubType );
+        return isSubType;
+    }
+
+    /**
+     * If the value types are structural equivalent.
+     * 
+     * @param types1
+     *            the first types
+     * @param types2
+     *            the second types
+     * @return true, if equivalent
+     */
+    private boolean isEquivalent( int[] types1, int[] types2 ) {
+        if( types1.length != types2.length ) {
+            return false;
+        }
+        for( int i = 0; i < types1.length; i++ ) {
+            if( !isEquivalent( types1[i], types2[i] ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If a value type is structural equivalent to another type.
+     * 
+     * @param type1
+     *            the first type
+     * @param type2
+     *            the second type
+     * @return true, if equivalent
+     */
+    private boolean isEquivalent( int type1, int type2 ) {
+        return isSubType( type1, type2 ) && isSubType( type2, type1 );
+    }
+
+    /**
+     * Get a readable name of a value type for messages.
+     * 
+     * @param type
+     *            the type
+     * @return the name
+     */
+    @Nonnull
+    private static String toString( int type ) {
+        if( type == UNKNOWN ) {
+            return "unknown";
+        }
+        if( type <= RTT ) {
+            return "(rtt " + (RTT - type) + ")";
+        }
+        return WasmReader.toString( type );
+    }
+
+    /**
+     * The state of a block while validating.
+     */
+    private static class Frame {
+
+        /** The operation that start the block or -1 for the function */
+        private int     opCode;
+
+        private int[]   params;
+
+        private int[]   results;
+
+        /** The height of the stack at the start of the block */
+        private int     height;
+
+        private boolean unreachable;
+    }
+}
@@ -70,6 +70,24 @@ public void addImport( String module, String name, Function<String, Object> anno
         }
     }
 
+    /**
+     * Add the shared linear memory that the module imports as "env.memory" with the threads feature. An import "memory"
+     * that the application has declared self in the module "env" is not replaced.
+     * 
+     * @param initial
+     *            the initial count of 64 KiB pages
+     * @param maximum
+     *            the maximum count of 64 KiB pages
+     */
+    public void addSharedMemory( int initial, int maximum ) {
+        Map<String, Function<String, Object>> moduleEntries = modules.get( "env" );
+        if( moduleEntries == null ) {
+            modules.put( "env", moduleEntries = new HashMap<>() );
+        }
+        String content = "new WebAssembly.Memory({initial:" + initial + ",maximum:" + maximum + ",shared:true})";
+        moduleEntries.putIfAbsent( "memory", ( key ) -> JAVA_SCRIPT_CONTENT.equals( key ) ? content : null );
+    }
+
     /**
      * Finish the accumulate of imports and write the JavaScript file.
      * 
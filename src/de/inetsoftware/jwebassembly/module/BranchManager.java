@@ -27,8 +27,8 @@
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import de.inetsoftware.classparser.ByteCode;
 import de.inetsoftware.classparser.Code;
-import de.inetsoftware.classparser.CodeInputStream;
 import de.inetsoftware.classparser.ConstantClass;
 import de.inetsoftware.classparser.TryCatchFinally;
 import de.inetsoftware.jwebassembly.WasmException;
@@ -67,6 +67,10 @@ class BranchManager {
 
     private BlockType conditionType;
 
+    private final Stackifier                    stackifier;
+
+    private boolean                             useStackifier;
+
     /**
      * Create a branch manager.
      * 
@@ -81,6 +85,7 @@ public BranchManager( WasmOptions options, List<WasmInstruction> instructions, L
         this.options = options;
         this.instructions = instructions;
         this.localVariables = localVariables;
+        this.stackifier = options.useStackifier() ? new Stackifier( instructions ) : null;
     }
 
     /**
@@ -96,6 +101,9 @@ void reset( @Nonnull Code code ) {
         breakOperations.clear();
         root.endPos = code.getCodeSize();
         exceptionTable = code.getExceptionTable();
+        if( stackifier != null ) {
+            stackifier.reset();
+        }
     }
 
     /**
@@ -112,6 +120,9 @@ void reset( @Nonnull Code code ) {
      */
     void addGotoOperator( int startPosition, int offset, int nextPosition, int lineNumber ) {
         allParsedOperations.add( new ParsedBlock( JavaBlockOperator.GOTO, startPosition, offset, nextPosition, lineNumber ) );
+        if( stackifier != null ) {
+            stackifier.addGoto( startPosition, startPosition + offset );
+        }
     }
 
     /**
@@ -126,6 +137,9 @@ void addGotoOperator( int startPosition, int offset, int nextPosition, int lineN
      */
     void addReturnOperator( int startPosition, int nextPosition, int lineNumber ) {
         allParsedOperations.add( new ParsedBlock( JavaBlockOperator.RETURN, startPosition, Integer.MAX_VALUE - startPosition, nextPosition, lineNumber ) );
+        if( stackifier != null ) {
+            stackifier.addReturn( startPosition );
+        }
     }
 
     /**
@@ -144,6 +158,9 @@ void addIfOperator( int startPosition, int offset, int lineNumber, WasmNumericIn
         JumpInstruction jump = new JumpInstruction( startPosition + offset, 1, null, startPosition, lineNumber );
         instructions.add( jump );
         allParsedOperations.add( new IfParsedBlock( startPosition, offset, lineNumber, instr ) );
+        if( stackifier != null ) {
+            stackifier.addIf( startPosition, startPosition + offset, startPosition + 3 );
+        }
     }
 
     /**
@@ -162,12 +179,41 @@ void addIfOperator( int startPosition, int offset, int lineNumber, WasmNumericIn
      */
     void addSwitchOperator( int startPosition, int lineNumber, @Nullable int[] keys, @Nonnull int[] positions, int defaultPosition ) {
         allParsedOperations.add( new SwitchParsedBlock( startPosition, lineNumber, keys, positions, defaultPosition ) );
+        if( stackifier != null ) {
+            stackifier.addSwitch( startPosition, keys, positions, defaultPosition );
+        }
     }
 
     /**
-     * Calculate all block operators from the parsed information.
+     * Calculate all block operators from the parsed information. If the stackifier is enabled and can handle the code
+     * then it is used instead of the tree calculation.
      */
     void calculate() {
+        useStackifier = stackifier != null && exceptionTable.length == 0 && calculateStackifier();
+        if( useStackifier ) {
+            return;
+        }
+        calculateTree();
+    }
+
+    /**
+     * Calculate the control flow with the stackifier. A failure in the stackifier is not fatal, the code is then
+     * structured with the tree calculation.
+     * 
+     * @return true, if the stackifier can handle the code
+     */
+    private boolean calculateStackifier() {
+        try {
+            return stackifier.calculate();
+        } catch( RuntimeException ex ) {
+            return false;
+        }
+    }
+
+    /**
+     * Calculate all block operators with the tree of the parsed blocks.
+     */
+    private void calculateTree() {
         List<ParsedBlock> parsedOperations = allParsedOperations;
         addTryCatchBlocks( parsedOperations );
         addLoops( parsedOperations );
@@ -1544,9 +1590,19 @@ private BranchNode addMiddleNode( BranchNode parent, int startPos, int endPos )
      * Check on every instruction position if there any branch is ending
      * 
      * @param byteCode
-     *            the byte code stream
+     *            the decoded byte code
      */
-    void handle( CodeInputStream byteCode ) {
+    void handle( ByteCode byteCode ) {
+        if( useStackifier ) {
+            try {
+                stackifier.handle();
+                return;
+            } catch( RuntimeException ex ) {
+                // the instructions are only replaced after the stackifier has finished
+                useStackifier = false;
+                calculateTree();
+            }
+        }
         int codePosition = -1;
         for( int idx = 0; idx < instructions.size(); idx++ ) {
             WasmInstruction instr = instructions.get( idx );
@@ -1562,7 +1618,7 @@ void handle( CodeInputStream byteCode ) {
                 idx = root.handle( codePosition, instructions, idx, lineNumber );
             } while( codePosition < nextCodePosition );
         }
-        root.handle( byteCode.getCodePosition(), instructions, instructions.size(), byteCode.getLineNumber() );
+        root.handle( byteCode.getCodePosition( byteCode.size() ), instructions, instructions.size(), byteCode.getLineNumber( byteCode.size() ) );
         root.calculateBlockType( instructions );
     }
 
@@ -16,18 +16,21 @@
 */
 package de.inetsoftware.jwebassembly.module;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URL;
 import java.util.HashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import de.inetsoftware.classparser.ClassFile;
+import de.inetsoftware.classparser.ClassFileCache;
 import de.inetsoftware.jwebassembly.WasmException;
 
 /**
- * Cache and manager for the loaded ClassFiles
+ * Cache and manager for the loaded ClassFiles. The bytes of the class files are shared with other compilations over
+ * the process wide {@link ClassFileCache}.
  * 
  * @author Volker Berlin
  */
@@ -38,10 +41,14 @@ public class ClassFileLoader {
     //A weak cache has produce problems if there are different versions of the same class in the build path and/or library path. Then the prescan can add the second version of the class. 
     private final HashMap<String, ClassFile>        cache = new HashMap<>();
 
+    private final HashMap<String, URL>              libraryClasses = new HashMap<>();
+
     private final ClassLoader                       loader;
 
     private final ClassLoader                       bootLoader;
 
+    private final File                              cacheDirectory;
+
     /**
      * Create a new instance
      * 
@@ -49,7 +56,20 @@ public class ClassFileLoader {
      *            the classloader to find the *.class files
      */
     public ClassFileLoader( ClassLoader loader ) {
+        this( loader, null );
+    }
+
+    /**
+     * Create a new instance
+     * 
+     * @param loader
+     *            the classloader to find the *.class files
+     * @param cacheDirectory
+     *            optional directory to share the class files with other JVM instances
+     */
+    public ClassFileLoader( ClassLoader loader, @Nullable File cacheDirectory ) {
         this.loader = loader;
+        this.cacheDirectory = cacheDirectory;
         ClassLoader cl = ClassLoader.getSystemClassLoader();
         do {
             ClassLoader parent = cl.getParent();
@@ -80,9 +100,15 @@ public ClassFile get( String className ) throws IOException {
         if( classFile != null ) {
             return classFile;
         }
-        InputStream stream = loader.getResourceAsStream( className + ".class" );
-        if( stream != null ) {
-            classFile = new ClassFile( stream );
+        URL url = libraryClasses.remove( className );
+        if( url != null ) {
+            classFile = ClassFileCache.getShared().get( url, cacheDirectory );
+            cache( classFile );
+            return classFile;
+        }
+        url = loader.getResource( className + ".class" );
+        if( url != null ) {
+            classFile = ClassFileCache.getShared().get( url, cacheDirectory );
             cache.put( className, classFile );
         }
         return classFile;
@@ -116,6 +142,10 @@ public ClassFile getClassFile( String className ) throws IOException, WasmExcept
      */
     public void cache( @Nonnull ClassFile classFile ) {
         String name = classFile.getThisClass().getName();
+        if( libraryClasses.containsKey( name ) ) {
+            // the class of a previous library has precedence and is loaded on demand
+            return;
+        }
         if( bootLoader.getResource( name + ".class" ) != null ) {
             // if the same resource is exist in the JVM self then we need to hold the reference permanently
             if( replace.get( name ) == null ) {
@@ -130,6 +160,21 @@ public void cache( @Nonnull ClassFile classFile ) {
         }
     }
 
+    /**
+     * Register a class of a library that is loaded on first use. The first registration of a class name wins like the
+     * order of the library path.
+     * 
+     * @param className
+     *            the class name like "java/lang/Object"
+     * @param url
+     *            the URL of the *.class file
+     */
+    void addLibraryClass( @Nonnull String className, @Nonnull URL url ) {
+        if( replace.get( className ) == null && cache.get( className ) == null ) {
+            libraryClasses.putIfAbsent( className, url );
+        }
+    }
+
     /**
      * Replace the class in the cache with the given instance to the loader cache.
      * 
@@ -137,8 +182,14 @@ public void cache( @Nonnull ClassFile classFile ) {
      *            the name of the class to replace
      * @param classFile
      *            the replacing ClassFile
+     * @throws IOException
+     *             If any I/O error occur
      */
-    void replace( String className, ClassFile classFile ) {
+    void replace( String className, ClassFile classFile ) throws IOException {
+        if( libraryClasses.containsKey( className ) ) {
+            // a library class that exists also in the JVM self has precedence
+            get( className );
+        }
         if( replace.get( className ) == null ) {
             classFile = new ClassFile( className, classFile );
             replace.put( className, classFile );
@@ -15,10 +15,14 @@
  */
 package de.inetsoftware.jwebassembly.module;
 
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Objects;
 
+import de.inetsoftware.jwebassembly.module.ControlFlowGraph.SsaValue;
 import de.inetsoftware.jwebassembly.module.WasmInstruction.Type;
 import de.inetsoftware.jwebassembly.wasm.VariableOperator;
+import de.inetsoftware.jwebassembly.wasm.WasmBlockOperator;
 
 /**
  * Optimize the code of a single method/function through using of WebAssembly features without equivalent in Java.
@@ -27,6 +31,18 @@
  */
 class CodeOptimizer {
 
+    private final WasmOptions options;
+
+    /**
+     * Create a new instance.
+     * 
+     * @param options
+     *            compiler properties
+     */
+    CodeOptimizer( WasmOptions options ) {
+        this.options = options;
+    }
+
     /**
      * Optimize the code before writing.
      * 
@@ -34,6 +50,13 @@ class CodeOptimizer {
      *            the list of instructions
      */
     void optimize( List<WasmInstruction> instructions ) {
+        if( options.useTailCalls() ) {
+            optimizeTailCalls( instructions );
+        }
+        if( options.ssaOptimizer() ) {
+            removeDeadStores( instructions );
+        }
+
         for( int i = instructions.size()-1; i >= 0; i-- ) {
             WasmInstruction instr = instructions.get( i );
             switch( instr.getType() ) {
@@ -61,4 +84,92 @@ void optimize( List<WasmInstruction> instructions ) {
 
     }
 
+    /**
+     * Remove all stores to locals whose value is never read. A local.set is replaced with a drop and a local.tee is
+     * removed. The values are calculated on the SSA form of the locals.
+     * 
+     * @param instructions
+     *            the list of instructions
+     */
+    private static void removeDeadStores( List<WasmInstruction> instructions ) {
+        ControlFlowGraph graph = ControlFlowGraph.build( instructions );
+        if( graph == null ) {
+            return;
+        }
+        graph.getLiveValues();
+        for( int i = instructions.size() - 1; i >= 0; i-- ) {
+            SsaValue value = graph.getValue( i );
+            if( value == null || value.def != i || value.isLive() ) {
+                continue;
+            }
+            WasmLocalInstruction local = (WasmLocalInstruction)instructions.get( i );
+            if( local.getOperator() == VariableOperator.tee ) {
+                instructions.remove( i );
+            } else {
+                instructions.set( i, new WasmBlockInstruction( WasmBlockOperator.DROP, null, local.getCodePosition(), local.getLineNumber() ) );
+            }
+        }
+    }
+
+    /**
+     * Mark all calls in a tail position as tail call and remove the following return: call, return --> return_call.
+     * Calls inside a try block are not changed because a tail call would leave the exception handler.
+     * 
+     * @param instructions
+     *            the list of instructions
+     */
+    private static void optimizeTailCalls( List<WasmInstruction> instructions ) {
+        ArrayDeque<Boolean> blocks = new ArrayDeque<>(); // true for a try block
+        int tryCount = 0;
+        for( int i = 0; i < instructions.size(); i++ ) {
+            WasmInstruction instr = instructions.get( i );
+            switch( instr.getType() ) {
+                case Block:
+                    switch( ((WasmBlockInstruction)instr).getOperation() ) {
+                        case BLOCK:
+                        case LOOP:
+                        case IF:
+                            blocks.push( Boolean.FALSE );
+                            break;
+                        case TRY:
+                            blocks.push( Boolean.TRUE );
+                            tryCount++;
+                            break;
+                        case END:
+                            if( !blocks.isEmpty() && blocks.pop() ) {
+                                tryCount--;
+                            }
+                            break;
+                        default:
+                    }
+                    break;
+                case Call:
+                case CallVirtual:
+                case CallInterface:
+                    if( tryCount > 0 ) {
+                        continue;
+                    }
+                    int n = i + 1;
+                    while( n < instructions.size() && instructions.get( n ).getType() == Type.Nop ) {
+                        n++;
+                    }
+                    if( n == instructions.size() || instructions.get( n ).getType() != Type.Block ) {
+                        continue;
+                    }
+                    WasmBlockInstruction ret = (WasmBlockInstruction)instructions.get( n );
+                    if( ret.getOperation() != WasmBlockOperator.RETURN ) {
+                        continue;
+                    }
+                    WasmCallInstruction call = (WasmCallInstruction)instr;
+                    if( !Objects.equals( call.getPushValueType(), ret.getPushValueType() ) ) {
+                        // the result type of the callee must be the same as of the caller
+                        continue;
+                    }
+                    call.setTailCall();
+                    instructions.remove( n );
+                    break;
+                default:
+            }
+        }
+    }
 }
@@ -0,0 +1,715 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import de.inetsoftware.jwebassembly.wasm.VariableOperator;
+
+/**
+ * A control flow graph in SSA form for the locals of a single function. It is built from the structured instructions
+ * after the BranchManager. The basic blocks are continuous ranges of the instruction list in the original order. That
+ * the lowering back to structured WebAssembly is simple the instruction list. Transformations that does not change the
+ * control flow can change the instructions in place.
+ * <p>
+ * The graph contains the basic blocks with predecessors and successors, the dominator tree, the phi nodes for locals
+ * and the def-use chains of all local values. Code with exception handling is not supported.
+ *
+ * @author Volker Berlin
+ */
+class ControlFlowGraph {
+
+    private final List<WasmInstruction> instructions;
+
+    private final List<BasicBlock>      blocks   = new ArrayList<>();
+
+    /** the reachable blocks in reverse postorder, the first is the entry block */
+    private BasicBlock[]                order;
+
+    /** the reaching value of every local.get and the new value of every local.set/tee, indexed by instruction */
+    private SsaValue[]                  values;
+
+    /** the initial values of the locals on function entry: parameters or default values */
+    private SsaValue[]                  entryValues;
+
+    /** locals that are also used implicit by other instructions like DupThis */
+    private final BitSet                pinned   = new BitSet();
+
+    private int                         localCount;
+
+    /**
+     * Create a graph for the given instructions.
+     *
+     * @param instructions
+     *            the structured instructions of a function
+     */
+    private ControlFlowGraph( List<WasmInstruction> instructions ) {
+        this.instructions = instructions;
+    }
+
+    /**
+     * Build the control flow graph and the SSA form of the locals for the instructions of a function.
+     *
+     * @param instructions
+     *            the structured instructions of a function
+     * @return the graph or null if the code contains not supported instructions like exception handling
+     */
+    @Nullable
+    static ControlFlowGraph build( @Nonnull List<WasmInstruction> instructions ) {
+        ControlFlowGraph graph = new ControlFlowGraph( instructions );
+        if( !graph.buildBlocks() ) {
+            return null;
+        }
+        graph.calculateOrder();
+        graph.calculateDominators();
+        graph.buildSsa();
+        return graph;
+    }
+
+    /**
+     * Get all basic blocks in the order of the instructions. This include unreachable blocks.
+     *
+     * @return the blocks
+     */
+    @Nonnull
+    List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Get the entry block of the function
+     *
+     * @return the block
+     */
+    @Nonnull
+    BasicBlock getEntry() {
+        return blocks.get( 0 );
+    }
+
+    /**
+     * Get the value that a local instruction read or write.
+     *
+     * @param idx
+     *            the index of a local instruction
+     * @return the value or null if it is not a local instruction or the instruction is unreachable
+     */
+    @Nullable
+    SsaValue getValue( int idx ) {
+        return values[idx];
+    }
+
+    /**
+     * Get the value of a local on entry of the function.
+     *
+     * @param local
+     *            the index of the local
+     * @return the value
+     */
+    @Nonnull
+    SsaValue getEntryValue( int local ) {
+        return entryValues[local];
+    }
+
+    /**
+     * If the local is used implicit by another instruction than a local instruction. The values of such locals must
+     * not be removed.
+     *
+     * @param local
+     *            the index of the local
+     * @return true, if pinned
+     */
+    boolean isPinned( int local ) {
+        return pinned.get( local );
+    }
+
+    /**
+     * Lower the graph back to a structured instruction list. Because the blocks are ranges of the original structured
+     * instructions this is the concatenation of the reachable and unreachable blocks in the original order.
+     *
+     * @return the instructions
+     */
+    @Nonnull
+    List<WasmInstruction> lower() {
+        List<WasmInstruction> result = new ArrayList<>( instructions.size() );
+        for( BasicBlock block : blocks ) {
+            result.addAll( instructions.subList( block.start, block.end ) );
+        }
+        return result;
+    }
+
+    /**
+     * Split the instructions into basic blocks and connect them with edges.
+     *
+     * @return false, if there is an unsupported instruction
+     */
+    private boolean buildBlocks() {
+        ArrayDeque<Frame> frames = new ArrayDeque<>();
+        BasicBlock current = startBlock( new BasicBlock(), 0 );
+        int size = instructions.size();
+        for( int i = 0; i < size; i++ ) {
+            WasmInstruction instr = instructions.get( i );
+            switch( instr.getType() ) {
+                case Local:
+                    localCount = Math.max( localCount, ((WasmLocalInstruction)instr).getIndex() + 1 );
+                    continue;
+                case DupThis:
+                    int thisIdx = ((DupThis)instr).getValue().getVariableIndexOfThis();
+                    pinned.set( thisIdx );
+                    localCount = Math.max( localCount, thisIdx + 1 );
+                    continue;
+                case Block:
+                    break;
+                default:
+                    continue;
+            }
+            WasmBlockInstruction block = (WasmBlockInstruction)instr;
+            Frame frame;
+            switch( block.getOperation() ) {
+                case BLOCK:
+                    frames.push( new Frame( null, null ) );
+                    break;
+                case LOOP:
+                    BasicBlock header = startBlock( new BasicBlock(), i );
+                    current.addSuccessor( header );
+                    frames.push( new Frame( header, null ) );
+                    current = header;
+                    break;
+                case IF:
+                    frame = new Frame( null, current );
+                    frames.push( frame );
+                    current = startBlock( new BasicBlock(), i + 1 );
+                    frame.condition.addSuccessor( current );
+                    break;
+                case ELSE:
+                    frame = frames.peek();
+                    if( frame == null || frame.condition == null ) {
+                        return false;
+                    }
+                    current.addSuccessor( frame.end );
+                    current = startBlock( new BasicBlock(), i + 1 );
+                    frame.condition.addSuccessor( current );
+                    frame.condition = null;
+                    break;
+                case END:
+                    frame = frames.poll();
+                    if( frame == null ) {
+                        // the end of the function
+                        current = startBlock( new BasicBlock(), i + 1 );
+                        break;
+                    }
+                    current.addSuccessor( frame.end );
+                    BasicBlock condition = frame.condition;
+                    current = startBlock( frame.end, i + 1 );
+                    if( condition != null ) {
+                        // IF without ELSE
+                        condition.addSuccessor( current );
+                    }
+                    break;
+                case BR:
+                    current.addSuccessor( target( frames, (Integer)block.getData() ) );
+                    current = startBlock( new BasicBlock(), i + 1 );
+                    break;
+                case BR_IF:
+                case BR_ON_NULL:
+                    BasicBlock next = new BasicBlock();
+                    current.addSuccessor( target( frames, (Integer)block.getData() ) );
+                    current.addSuccessor( next );
+                    current = startBlock( next, i + 1 );
+                    break;
+                case BR_TABLE:
+                    for( int depth : (int[])block.getData() ) {
+                        current.addSuccessor( target( frames, depth ) );
+                    }
+                    current = startBlock( new BasicBlock(), i + 1 );
+                    break;
+                case RETURN:
+                case UNREACHABLE:
+                case THROW:
+                case RETHROW:
+                    current = startBlock( new BasicBlock(), i + 1 );
+                    break;
+                case TRY:
+                case CATCH:
+                case BR_ON_EXN:
+                    return false;
+                default:
+            }
+        }
+        current.end = size;
+        return true;
+    }
+
+    /**
+     * Finish the current block and start the given block at the instruction index.
+     *
+     * @param block
+     *            the new block
+     * @param start
+     *            the index of the first instruction
+     * @return the block
+     */
+    private BasicBlock startBlock( BasicBlock block, int start ) {
+        if( !blocks.isEmpty() ) {
+            blocks.get( blocks.size() - 1 ).end = start;
+        }
+        block.start = start;
+        block.index = blocks.size();
+        blocks.add( block );
+        return block;
+    }
+
+    /**
+     * Get the target block of a branch.
+     *
+     * @param frames
+     *            the current open frames
+     * @param depth
+     *            the depth of the branch
+     * @return the target block or the exit block for a branch to the function level
+     */
+    private static BasicBlock target( ArrayDeque<Frame> frames, int depth ) {
+        for( Frame frame : frames ) {
+            if( depth-- == 0 ) {
+                return frame.loop != null ? frame.loop : frame.end;
+            }
+        }
+        return null; // function level, like a return
+    }
+
+    /**
+     * Calculate the reverse postorder of all reachable blocks.
+     */
+    private void calculateOrder() {
+        BasicBlock[] postorder = new BasicBlock[blocks.size()];
+        int count = 0;
+        BitSet visited = new BitSet();
+        ArrayDeque<BasicBlock> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> next = new ArrayDeque<>();
+        BasicBlock entry = getEntry();
+        visited.set( entry.index );
+        stack.push( entry );
+        next.push( 0 );
+        while( !stack.isEmpty() ) {
+            BasicBlock block = stack.peek();
+            int succIdx = next.pop();
+            if( succIdx < block.successors.size() ) {
+                next.push( succIdx + 1 );
+                BasicBlock succ = block.successors.get( succIdx );
+                if( !visited.get( succ.index ) ) {
+                    visited.set( succ.index );
+                    stack.push( succ );
+                    next.push( 0 );
+                }
+            } else {
+                stack.pop();
+                postorder[count++] = block;
+            }
+        }
+        order = new BasicBlock[count];
+        for( int i = 0; i < count; i++ ) {
+            BasicBlock block = postorder[count - 1 - i];
+            block.order = i;
+            order[i] = block;
+        }
+    }
+
+    /**
+     * Calculate the immediate dominators, the dominator tree and the dominance frontiers with the iterative algorithm of
+     * Cooper, Harvey and Kennedy.
+     */
+    private void calculateDominators() {
+        BasicBlock entry = order[0];
+        entry.idom = entry;
+        boolean changed = true;
+        while( changed ) {
+            changed = false;
+            for( int i = 1; i < order.length; i++ ) {
+                BasicBlock block = order[i];
+                BasicBlock idom = null;
+                for( BasicBlock pred : block.predecessors ) {
+                    if( pred.idom == null ) {
+                        continue; // unreachable or not processed yet
+                    }
+                    idom = idom == null ? pred : intersect( pred, idom );
+                }
+                if( block.idom != idom ) {
+                    block.idom = idom;
+                    changed = true;
+                }
+            }
+        }
+        entry.idom = null;
+
+        for( int i = 1; i < order.length; i++ ) {
+            BasicBlock block = order[i];
+            block.idom.dominated.add( block );
+        }
+
+        for( BasicBlock block : order ) {
+            if( block.predecessors.size() < 2 ) {
+                continue;
+            }
+            for( BasicBlock pred : block.predecessors ) {
+                if( pred.order < 0 ) {
+                    continue;
+                }
+                for( BasicBlock runner = pred; runner != block.idom && runner != null; runner = runner.idom ) {
+                    if( !runner.frontier.contains( block ) ) {
+                        runner.frontier.add( block );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the nearest common dominator of two blocks.
+     *
+     * @param b1
+     *            first block
+     * @param b2
+     *            second block
+     * @return the common dominator
+     */
+    private static BasicBlock intersect( BasicBlock b1, BasicBlock b2 ) {
+        while( b1 != b2 ) {
+            while( b1.order > b2.order ) {
+                b1 = b1.idom;
+            }
+            while( b2.order > b1.order ) {
+                b2 = b2.idom;
+            }
+        }
+        return b1;
+    }
+
+    /**
+     * Place the phi nodes on the dominance frontiers and rename all locals along the dominator tree.
+     */
+    private void buildSsa() {
+        values = new SsaValue[instructions.size()];
+        entryValues = new SsaValue[localCount];
+        BasicBlock entry = order[0];
+        for( int l = 0; l < localCount; l++ ) {
+            entryValues[l] = new SsaValue( l, -1, entry );
+        }
+
+        // place the phi nodes
+        BitSet[] defBlocks = new BitSet[localCount];
+        for( BasicBlock block : order ) {
+            for( int i = block.start; i < block.end; i++ ) {
+                WasmInstruction instr = instructions.get( i );
+                if( instr.getType() == WasmInstruction.Type.Local ) {
+                    WasmLocalInstruction local = (WasmLocalInstruction)instr;
+                    if( local.getOperator() != VariableOperator.get ) {
+                        int l = local.getIndex();
+                        if( defBlocks[l] == null ) {
+                            defBlocks[l] = new BitSet();
+                        }
+                        defBlocks[l].set( block.order );
+                    }
+                }
+            }
+        }
+        for( int l = 0; l < localCount; l++ ) {
+            if( defBlocks[l] == null ) {
+                continue;
+            }
+            BitSet hasPhi = new BitSet();
+            ArrayDeque<BasicBlock> worklist = new ArrayDeque<>();
+            for( int b = defBlocks[l].nextSetBit( 0 ); b >= 0; b = defBlocks[l].nextSetBit( b + 1 ) ) {
+                worklist.add( order[b] );
+            }
+            while( !worklist.isEmpty() ) {
+                BasicBlock block = worklist.poll();
+                for( BasicBlock df : block.frontier ) {
+                    if( !hasPhi.get( df.order ) ) {
+                        hasPhi.set( df.order );
+                        df.phis.add( new Phi( l, df ) );
+                        if( !defBlocks[l].get( df.order ) ) {
+                            defBlocks[l].set( df.order );
+                            worklist.add( df );
+                        }
+                    }
+                }
+            }
+        }
+
+        // rename along the dominator tree, iterative to handle deep trees
+        SsaValue[] current = entryValues.clone();
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        stack.push( entry );
+        while( !stack.isEmpty() ) {
+            Object item = stack.pop();
+            if( item instanceof SsaValue[] ) {
+                current = (SsaValue[])item; // the state at the end of the dominator
+                continue;
+            }
+            BasicBlock block = (BasicBlock)item;
+            for( Phi phi : block.phis ) {
+                current[phi.local] = phi;
+            }
+            for( int i = block.start; i < block.end; i++ ) {
+                WasmInstruction instr = instructions.get( i );
+                if( instr.getType() != WasmInstruction.Type.Local ) {
+                    continue;
+                }
+                WasmLocalInstruction local = (WasmLocalInstruction)instr;
+                int l = local.getIndex();
+                if( local.getOperator() == VariableOperator.get ) {
+                    SsaValue value = current[l];
+                    value.uses.add( i );
+                    values[i] = value;
+                } else {
+                    SsaValue value = new SsaValue( l, i, block );
+                    current[l] = value;
+                    values[i] = value;
+                }
+            }
+            for( BasicBlock succ : block.successors ) {
+                int predIdx = succ.predecessors.indexOf( block );
+                for( Phi phi : succ.phis ) {
+                    SsaValue value = current[phi.local];
+                    phi.operands[predIdx] = value;
+                    value.phiUses.add( phi );
+                }
+            }
+            for( int c = block.dominated.size() - 1; c >= 0; c-- ) {
+                stack.push( block.dominated.get( c ) );
+                stack.push( current.clone() );
+            }
+        }
+    }
+
+    /**
+     * Calculate all values that are read. A value is live if it is used by a local.get or by a phi node of a live
+     * value. The values of pinned locals are ever live.
+     *
+     * @return the live values
+     */
+    @Nonnull
+    List<SsaValue> getLiveValues() {
+        List<SsaValue> live = new ArrayList<>();
+        ArrayDeque<SsaValue> worklist = new ArrayDeque<>();
+        for( SsaValue value : allValues() ) {
+            if( !value.uses.isEmpty() || pinned.get( value.local ) ) {
+                value.live = true;
+                worklist.add( value );
+            }
+        }
+        while( !worklist.isEmpty() ) {
+            SsaValue value = worklist.poll();
+            live.add( value );
+            if( value instanceof Phi ) {
+                for( SsaValue operand : ((Phi)value).operands ) {
+                    if( operand != null && !operand.live ) {
+                        operand.live = true;
+                        worklist.add( operand );
+                    }
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Get all values of the function: entry values, phi nodes and the values of local.set/tee.
+     *
+     * @return the values
+     */
+    @Nonnull
+    private List<SsaValue> allValues() {
+        List<SsaValue> all = new ArrayList<>( Arrays.asList( entryValues ) );
+        for( BasicBlock block : order ) {
+            all.addAll( block.phis );
+        }
+        for( int i = 0; i < values.length; i++ ) {
+            SsaValue value = values[i];
+            if( value != null && value.def == i ) {
+                all.add( value );
+            }
+        }
+        return all;
+    }
+
+    /**
+     * An open block, loop or if on the label stack during building.
+     */
+    private static class Frame {
+
+        /** the header block for a LOOP, else null */
+        private final BasicBlock loop;
+
+        /** the block after the END */
+        private final BasicBlock end = new BasicBlock();
+
+        /** the block with the condition of an IF until the ELSE */
+        private BasicBlock       condition;
+
+        /**
+         * Create a frame.
+         *
+         * @param loop
+         *            the header of a loop or null
+         * @param condition
+         *            the block that ends with the IF or null
+         */
+        private Frame( BasicBlock loop, BasicBlock condition ) {
+            this.loop = loop;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * A basic block is a continuous range of instructions without branches into or out of the range.
+     */
+    static class BasicBlock {
+
+        /** first instruction index */
+        int                              start;
+
+        /** the index after the last instruction */
+        int                              end;
+
+        /** the index in the list of all blocks */
+        int                              index;
+
+        /** the index in reverse postorder or -1 if unreachable */
+        int                              order      = -1;
+
+        final List<BasicBlock>           successors   = new ArrayList<>();
+
+        final List<BasicBlock>           predecessors = new ArrayList<>();
+
+        /** the immediate dominator or null for the entry and unreachable blocks */
+        BasicBlock                       idom;
+
+        /** the blocks that are immediate dominated from this block */
+        final List<BasicBlock>           dominated    = new ArrayList<>();
+
+        /** the dominance frontier */
+        final List<BasicBlock>           frontier     = new ArrayList<>();
+
+        final List<Phi>                  phis         = new ArrayList<>();
+
+        /**
+         * Add a control flow edge.
+         *
+         * @param succ
+         *            the successor or null for the function exit
+         */
+        void addSuccessor( @Nullable BasicBlock succ ) {
+            if( succ != null && !successors.contains( succ ) ) {
+                successors.add( succ );
+                succ.predecessors.add( this );
+            }
+        }
+
+        /**
+         * If this block dominate the other block.
+         *
+         * @param other
+         *            the other block
+         * @return true, if every path from entry to other go through this block
+         */
+        boolean dominates( @Nonnull BasicBlock other ) {
+            for( BasicBlock block = other; block != null; block = block.idom ) {
+                if( block == this ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A single definition of a local.
+     */
+    static class SsaValue {
+
+        /** the index of the local */
+        final int               local;
+
+        /** the instruction index of the local.set/tee, -1 for the entry value and -2 for a phi */
+        final int               def;
+
+        /** the block of the definition */
+        final BasicBlock        block;
+
+        /** the instruction indices of the local.get that read this value */
+        final List<Integer>     uses    = new ArrayList<>();
+
+        /** the phi nodes that use this value */
+        final List<Phi>         phiUses = new ArrayList<>();
+
+        private boolean         live;
+
+        /**
+         * If the value is read. Valid after {@link ControlFlowGraph#getLiveValues()}.
+         *
+         * @return true, if live
+         */
+        boolean isLive() {
+            return live;
+        }
+
+        /**
+         * Create a value.
+         *
+         * @param local
+         *            the index of the local
+         * @param def
+         *            the defining instruction index
+         * @param block
+         *            the block of the definition
+         */
+        SsaValue( int local, int def, BasicBlock block ) {
+            this.local = local;
+            this.def = def;
+            this.block = block;
+        }
+    }
+
+    /**
+     * A phi node on a join point of the control flow.
+     */
+    static class Phi extends SsaValue {
+
+        /** the value for every predecessor of the block in the same order */
+        final SsaValue[] operands;
+
+        /**
+         * Create a phi node.
+         *
+         * @param local
+         *            the index of the local
+         * @param block
+         *            the join block
+         */
+        Phi( int local, BasicBlock block ) {
+            super( local, -2, block );
+            operands = new SsaValue[block.predecessors.size()];
+        }
+    }
+}
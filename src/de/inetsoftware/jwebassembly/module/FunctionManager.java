@@ -17,13 +17,16 @@
 
 import static de.inetsoftware.jwebassembly.module.WasmCodeBuilder.CLASS_INIT;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -41,12 +44,28 @@
  */
 class FunctionManager {
 
+    private static final Comparator<FunctionState> ORDER       = ( s1, s2 ) -> Integer.compare( s1.order, s2.order );
+
     private final Map<FunctionName, FunctionState> states      = new LinkedHashMap<>();
 
+    /** functions that are needed but not scanned, in registration order */
+    private final TreeSet<FunctionState>           needed      = new TreeSet<>( ORDER );
+
+    /** functions that are needed or scanned but not written, in registration order */
+    private final TreeSet<FunctionState>           writeLater  = new TreeSet<>( ORDER );
+
+    /** used static class constructors, in registration order */
+    private final TreeSet<FunctionState>           clinits     = new TreeSet<>( ORDER );
+
+    /** abstract functions, in registration order */
+    private final TreeSet<FunctionState>           abstracts   = new TreeSet<>( ORDER );
+
     private final Set<String>                      usedClasses = new LinkedHashSet<>();
 
     private int                                    neededCount;
 
+    private int                                    stateCount;
+
     private boolean                                isFinish;
 
     /**
@@ -67,11 +86,78 @@ void prepareFinish() {
     private FunctionState getOrCreate( @Nonnull FunctionName name ) {
         FunctionState state = states.get( name );
         if( state == null ) {
-            states.put( name, state = new FunctionState() );
+            states.put( name, state = new FunctionState( name, stateCount++ ) );
         }
         return state;
     }
 
+    /**
+     * Change the state of a function and update the work lists.
+     * 
+     * @param state
+     *            the function
+     * @param newState
+     *            the new state
+     */
+    private void setState( @Nonnull FunctionState state, @Nonnull State newState ) {
+        removeFromLists( state );
+        state.state = newState;
+        addToLists( state );
+    }
+
+    /**
+     * Add the function to all work lists that match its current state.
+     * 
+     * @param state
+     *            the function
+     */
+    private void addToLists( @Nonnull FunctionState state ) {
+        switch( state.state ) {
+            case None:
+                return;
+            case Needed:
+                needed.add( state );
+                writeLater.add( state );
+                break;
+            case Scanned:
+                writeLater.add( state );
+                break;
+            case Abstract:
+                abstracts.add( state );
+                break;
+            default:
+        }
+        if( state.name.methodName.equals( CLASS_INIT ) ) {
+            clinits.add( state );
+        }
+    }
+
+    /**
+     * Remove the function from all work lists. The lists are sorted by the order, that the order must not change
+     * before.
+     * 
+     * @param state
+     *            the function
+     */
+    private void removeFromLists( @Nonnull FunctionState state ) {
+        switch( state.state ) {
+            case None:
+                return;
+            case Needed:
+                needed.remove( state );
+                writeLater.remove( state );
+                break;
+            case Scanned:
+                writeLater.remove( state );
+                break;
+            case Abstract:
+                abstracts.remove( state );
+                break;
+            default:
+        }
+        clinits.remove( state );
+    }
+
     /**
      * Get the count of needed functions
      * 
@@ -152,8 +238,13 @@ void markAsExport( @Nonnull FunctionName name, @Nonnull Map<String, Object> expo
     void markAsNeededAndReplaceIfExists( @Nonnull SyntheticFunctionName name ) {
         FunctionState state = states.get( name );
         if( state != null ) {
+            // move the function to the end of the order with the new name
             states.remove( name );
             states.put( name, state );
+            removeFromLists( state );
+            state.name = name;
+            state.order = stateCount++;
+            addToLists( state );
         }
         markAsNeeded( name, !name.istStatic() );
     }
@@ -183,7 +274,7 @@ FunctionName markAsNeeded( @Nonnull FunctionName name, boolean needThisParameter
                 throw new WasmException( "Prepare was already finish: " + name.signatureName, -1 );
             }
             neededCount++;
-            state.state = State.Needed;
+            setState( state, State.Needed );
             state.needThisParameter = needThisParameter;
             JWebAssembly.LOGGER.fine( "\t\tcall: " + name.signatureName );
             usedClasses.add( name.className );
@@ -222,7 +313,7 @@ void markAsScanned( @Nonnull FunctionName name ) {
         switch( state.state ) {
             case None:
             case Needed:
-                state.state = State.Scanned;
+                setState( state, State.Scanned );
                 break;
         }
     }
@@ -234,7 +325,7 @@ void markAsScanned( @Nonnull FunctionName name ) {
      *            the function name
      */
     void markAsWritten( @Nonnull FunctionName name ) {
-        getOrCreate( name ).state = State.Written;
+        setState( getOrCreate( name ), State.Written );
     }
 
     /**
@@ -244,7 +335,7 @@ void markAsWritten( @Nonnull FunctionName name ) {
      *            the function name
      */
     void markAsAbstract( @Nonnull FunctionName name ) {
-        getOrCreate( name ).state = State.Abstract;
+        setState( getOrCreate( name ), State.Abstract );
     }
 
     /**
@@ -253,8 +344,7 @@ void markAsAbstract( @Nonnull FunctionName name ) {
      * @return an iterator
      */
     Iterator<FunctionName> getNeededImports() {
-        return states.entrySet().stream().filter( entry -> {
-            FunctionState state = entry.getValue();
+        return iterator( writeLater, state -> {
             switch( state.state ) {
                 case Needed:
                 case Scanned:
@@ -262,7 +352,7 @@ Iterator<FunctionName> getNeededImports() {
                 default:
             }
             return false;
-        } ).map( entry -> entry.getKey() ).iterator();
+        } );
     }
 
     /**
@@ -294,12 +384,7 @@ Map<String, Object> getExportAnannotation( FunctionName name ) {
      */
     @Nullable
     FunctionName nextScannLater() {
-        for( Entry<FunctionName, FunctionState> entry : states.entrySet() ) {
-            if( entry.getValue().state == State.Needed ) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return needed.isEmpty() ? null : needed.first().name;
     }
 
     /**
@@ -319,7 +404,7 @@ Iterator<String> getUsedClasses() {
      */
     @Nonnull
     Iterator<FunctionName> getWriteLaterClinit() {
-        return iterator( entry -> entry.getKey().methodName.equals( CLASS_INIT ) && entry.getValue().state != State.None );
+        return iterator( clinits, state -> state.state != State.None );
     }
 
     /**
@@ -329,8 +414,8 @@ Iterator<FunctionName> getWriteLaterClinit() {
      */
     @Nonnull
     Iterator<FunctionName> getWriteLater() {
-        return iterator( entry -> {
-            switch( entry.getValue().state ) {
+        return iterator( writeLater, state -> {
+            switch( state.state ) {
                 case Needed:
                 case Scanned:
                     return true;
@@ -346,8 +431,8 @@ Iterator<FunctionName> getWriteLater() {
      * @return an iterator
      */
     Iterator<FunctionName> getAbstractedFunctions() {
-        return iterator( entry -> {
-            switch( entry.getValue().state ) {
+        return iterator( abstracts, state -> {
+            switch( state.state ) {
                 case Abstract:
                     return true;
                 default:
@@ -357,15 +442,44 @@ Iterator<FunctionName> getAbstractedFunctions() {
     }
 
     /**
-     * get a iterator for function names
+     * get a iterator for function names. The iterator works on a snapshot of the list and check the filter on
+     * traversal. That the states can change while iterating.
      * 
+     * @param list
+     *            the work list
      * @param filter
      *            the filter
      * @return the iterator
      */
     @Nonnull
-    private Iterator<FunctionName> iterator( Predicate<Entry<FunctionName, FunctionState>> filter ) {
-        return states.entrySet().stream().filter( filter ).map( entry -> entry.getKey() ).iterator();
+    private Iterator<FunctionName> iterator( Collection<FunctionState> list, Predicate<FunctionState> filter ) {
+        FunctionState[] snapshot = list.toArray( new FunctionState[list.size()] );
+        return new Iterator<FunctionName>() {
+            private int           idx;
+
+            private FunctionState next;
+
+            @Override
+            public boolean hasNext() {
+                while( next == null && idx < snapshot.length ) {
+                    FunctionState state = snapshot[idx++];
+                    if( filter.test( state ) ) {
+                        next = state;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public FunctionName next() {
+                if( !hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                FunctionName name = next.name;
+                next = null;
+                return name;
+            }
+        };
     }
 
     /**
@@ -451,7 +565,7 @@ void addReplacement( @Nonnull FunctionName name, MethodInfo method ) {
     void setAlias( @Nonnull FunctionName name, FunctionName alias ) {
         FunctionState state = getOrCreate( name );
         state.alias = alias;
-        state.state = State.Written;
+        setState( state, State.Written );
     }
 
     /**
@@ -520,6 +634,10 @@ int getITableIndex( @Nonnull FunctionName name ) {
      */
     private static class FunctionState {
 
+        private FunctionName             name;
+
+        private int                      order;
+
         private State                    state     = State.None;
 
         private MethodInfo               method;
@@ -535,6 +653,19 @@ private static class FunctionState {
         private int                      itableIdx = -1;
 
         private boolean                  needThisParameter;
+
+        /**
+         * Create a new instance.
+         * 
+         * @param name
+         *            the function name
+         * @param order
+         *            the registration order
+         */
+        private FunctionState( FunctionName name, int order ) {
+            this.name = name;
+            this.order = order;
+        }
     }
 
     private static enum State {
@@ -0,0 +1,166 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * The list of instructions of a WasmCodeBuilder. It notify the incremental stack model of the StackInspector about
+ * every change inside the list. Appending of instructions does not discard any saved state.
+ *
+ * @author Volker Berlin
+ */
+class InstructionList extends ArrayList<WasmInstruction> {
+
+    private static final long    serialVersionUID = 1L;
+
+    private final StackInspector stackInspector   = new StackInspector( this );
+
+    /**
+     * Get the incremental stack model of this instructions.
+     *
+     * @return the inspector
+     */
+    StackInspector getStackInspector() {
+        return stackInspector;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WasmInstruction set( int index, WasmInstruction element ) {
+        stackInspector.invalidate( index );
+        return super.set( index, element );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add( int index, WasmInstruction element ) {
+        stackInspector.invalidate( index );
+        super.add( index, element );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll( int index, Collection<? extends WasmInstruction> c ) {
+        stackInspector.invalidate( index );
+        return super.addAll( index, c );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WasmInstruction remove( int index ) {
+        stackInspector.invalidate( index );
+        return super.remove( index );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( Object o ) {
+        stackInspector.invalidate( indexOf( o ) );
+        return super.remove( o );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll( Collection<?> c ) {
+        stackInspector.invalidate( 0 );
+        return super.removeAll( c );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll( Collection<?> c ) {
+        stackInspector.invalidate( 0 );
+        return super.retainAll( c );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeIf( Predicate<? super WasmInstruction> filter ) {
+        stackInspector.invalidate( 0 );
+        return super.removeIf( filter );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void removeRange( int fromIndex, int toIndex ) {
+        stackInspector.invalidate( fromIndex );
+        super.removeRange( fromIndex, toIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replaceAll( UnaryOperator<WasmInstruction> operator ) {
+        stackInspector.invalidate( 0 );
+        super.replaceAll( operator );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sort( Comparator<? super WasmInstruction> c ) {
+        stackInspector.invalidate( 0 );
+        super.sort( c );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        stackInspector.invalidate( 0 );
+        super.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A sub list can change the elements without a notify. That all saved states from the start of the sub list are
+     * discarded.
+     */
+    @Override
+    public List<WasmInstruction> subList( int fromIndex, int toIndex ) {
+        stackInspector.invalidate( fromIndex );
+        return super.subList( fromIndex, toIndex );
+    }
+}
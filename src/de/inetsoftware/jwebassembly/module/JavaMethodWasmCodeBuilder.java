@@ -15,18 +15,16 @@
  */
 package de.inetsoftware.jwebassembly.module;
 
-import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.Nonnull;
 
 import de.inetsoftware.classparser.BootstrapMethod;
+import de.inetsoftware.classparser.ByteCode;
 import de.inetsoftware.classparser.ClassFile;
 import de.inetsoftware.classparser.Code;
-import de.inetsoftware.classparser.CodeInputStream;
 import de.inetsoftware.classparser.ConstantClass;
 import de.inetsoftware.classparser.ConstantInvokeDynamic;
-import de.inetsoftware.classparser.ConstantPool;
 import de.inetsoftware.classparser.ConstantRef;
 import de.inetsoftware.classparser.MethodInfo;
 import de.inetsoftware.jwebassembly.WasmException;
@@ -82,7 +80,7 @@ void init( @Nonnull WasmOptions options, @Nonnull ClassFileLoader classFileLoade
      *             if some Java code can't converted
      */
     void buildCode( @Nonnull Code code, MethodInfo method ) {
-        CodeInputStream byteCode = null;
+        ByteCode byteCode = null;
         try {
             reset( code.getLocalVariableTable(), method, null );
             branchManager.reset( code );
@@ -96,12 +94,12 @@ void buildCode( @Nonnull Code code, MethodInfo method ) {
                 addGlobalInstruction( false, name, ValueType.i32, null, -1, -1 );
             }
 
-            byteCode = code.getByteCode();
+            byteCode = code.getDecodedByteCode();
             AnyType returnType = new ValueTypeParser( method.getType().substring( method.getType().lastIndexOf( ')' ) + 1), getTypeManager() ).next();
-            writeCode( byteCode, code.getConstantPool(), method.getDeclaringClassFile(), returnType );
+            writeCode( byteCode, method.getDeclaringClassFile(), returnType );
             calculateVariables();
         } catch( Throwable ioex ) {
-            int lineNumber = byteCode == null ? -1 : byteCode.getLineNumber();
+            int lineNumber = byteCode == null ? -1 : byteCode.getLineNumber( byteCode.size() );
             throw WasmException.create( ioex, lineNumber );
         }
     }
@@ -110,9 +108,7 @@ void buildCode( @Nonnull Code code, MethodInfo method ) {
      * Write the byte code of a method.
      * 
      * @param byteCode
-     *            a stream of byte code
-     * @param constantPool
-     *            the constant pool of the the current class
+     *            the decoded byte code
      * @param classFile
      *            the declaring class file
      * @param returnType
@@ -120,15 +116,15 @@ void buildCode( @Nonnull Code code, MethodInfo method ) {
      * @throws WasmException
      *             if some Java code can't converted
      */
-    private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, ClassFile classFile, AnyType returnType ) throws WasmException {
+    private void writeCode( ByteCode byteCode, ClassFile classFile, AnyType returnType ) throws WasmException {
         boolean nullConstants = false;
         int lineNumber = -1;
         try {
-            boolean wide = false;
-            while( byteCode.available() > 0 ) {
-                int codePos = byteCode.getCodePosition();
-                lineNumber = byteCode.getLineNumber();
-                int op = byteCode.readUnsignedByte();
+            int size = byteCode.size();
+            for( int i = 0; i < size; i++ ) {
+                int codePos = byteCode.getCodePosition( i );
+                lineNumber = byteCode.getLineNumber( i );
+                int op = byteCode.getOpCode( i );
                 switch( op ) {
                     case 0: // nop
                         break;
@@ -159,32 +155,32 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         addConstInstruction( Double.valueOf( op - 14 ), ValueType.f64, codePos, lineNumber );
                         break;
                     case 16: // bipush
-                        addConstInstruction( Integer.valueOf( byteCode.readByte() ), ValueType.i32, codePos, lineNumber );
+                        addConstInstruction( Integer.valueOf( byteCode.getOperand( i, 0 ) ), ValueType.i32, codePos, lineNumber );
                         break;
                     case 17: // sipush
-                        addConstInstruction( Integer.valueOf( byteCode.readShort() ), ValueType.i32, codePos, lineNumber );
+                        addConstInstruction( Integer.valueOf( byteCode.getOperand( i, 0 ) ), ValueType.i32, codePos, lineNumber );
                         break;
                     case 18: // ldc
-                        addConstInstruction( constantPool.get( byteCode.readUnsignedByte() ), codePos, lineNumber );
+                        addConstInstruction( byteCode.getConstant( i ), codePos, lineNumber );
                         break;
                     case 19: // ldc_w
                     case 20: // ldc2_w
-                        addConstInstruction( constantPool.get( byteCode.readUnsignedShort() ), codePos, lineNumber );
+                        addConstInstruction( byteCode.getConstant( i ), codePos, lineNumber );
                         break;
                     case 21: // iload
-                        addLoadStoreInstruction( ValueType.i32, true, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.i32, true, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 22: // lload
-                        addLoadStoreInstruction( ValueType.i64, true, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.i64, true, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 23: // fload
-                        addLoadStoreInstruction( ValueType.f32, true, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.f32, true, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 24: // dload
-                        addLoadStoreInstruction( ValueType.f64, true, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.f64, true, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 25: // aload
-                        addLoadStoreInstruction( ValueType.eqref, true, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.eqref, true, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 26: // iload_0
                     case 27: // iload_1
@@ -242,16 +238,16 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         addArrayInstruction( ArrayOperator.GET_S, ValueType.i16, codePos, lineNumber );
                         break;
                     case 54: // istore
-                        addLoadStoreInstruction( ValueType.i32, false, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.i32, false, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 55: // lstore
-                        addLoadStoreInstruction( ValueType.i64, false, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.i64, false, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 56: // fstore
-                        addLoadStoreInstruction( ValueType.f32, false, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.f32, false, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 57: // dstore
-                        addLoadStoreInstruction( ValueType.f64, false, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( ValueType.f64, false, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 58: // astore
                         storeType = branchManager.getCatchType( codePos );
@@ -261,7 +257,7 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         } else {
                             storeType = findValueTypeFromStack( 1, codePos );
                         }
-                        addLoadStoreInstruction( storeType, false, byteCode.readUnsignedIndex( wide ), codePos, lineNumber );
+                        addLoadStoreInstruction( storeType, false, byteCode.getOperand( i, 0 ), codePos, lineNumber );
                         break;
                     case 59: // istore_0
                     case 60: // istore_1
@@ -468,9 +464,9 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         addNumericInstruction( NumericOperator.xor, ValueType.i64, codePos, lineNumber );
                         break;
                     case 132: // iinc
-                        int idx = byteCode.readUnsignedIndex( wide );
+                        int idx = byteCode.getOperand( i, 0 );
                         addLoadStoreInstruction( ValueType.i32, true, idx, codePos, lineNumber );
-                        addConstInstruction( (int)(wide ? byteCode.readShort() : byteCode.readByte()), ValueType.i32, codePos, lineNumber );
+                        addConstInstruction( byteCode.getOperand( i, 1 ), ValueType.i32, codePos, lineNumber );
                         addNumericInstruction( NumericOperator.add, ValueType.i32, codePos, lineNumber );
                         addLoadStoreInstruction( ValueType.i32, false, idx, codePos, lineNumber );
                         break;
@@ -521,61 +517,61 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         addConvertInstruction( ValueTypeConvertion.i2s, codePos, lineNumber );
                         break;
                     case 148: // lcmp
-                        opCompare( ValueType.i64, byteCode, codePos, lineNumber );
+                        opCompare( ValueType.i64, byteCode, ++i, lineNumber );
                         break;
                     case 149: // fcmpl
                     case 150: // fcmpg
-                        opCompare( ValueType.f32, byteCode, codePos, lineNumber );
+                        opCompare( ValueType.f32, byteCode, ++i, lineNumber );
                         break;
                     case 151: // dcmpl
                     case 152: // dcmpg
-                        opCompare( ValueType.f64, byteCode, codePos, lineNumber );
+                        opCompare( ValueType.f64, byteCode, ++i, lineNumber );
                         break;
                     case 153: // ifeq
-                        opIfCondition( NumericOperator.eq, byteCode, codePos, lineNumber );
+                        opIfCondition( NumericOperator.eq, byteCode, i, codePos, lineNumber );
                         break;
                     case 154: // ifne
-                        opIfCondition( NumericOperator.ne, byteCode, codePos, lineNumber );
+                        opIfCondition( NumericOperator.ne, byteCode, i, codePos, lineNumber );
                         break;
                     case 155: // iflt
-                        opIfCondition( NumericOperator.lt, byteCode, codePos, lineNumber );
+                        opIfCondition( NumericOperator.lt, byteCode, i, codePos, lineNumber );
                         break;
                     case 156: // ifge
-                        opIfCondition( NumericOperator.ge, byteCode, codePos, lineNumber );
+                        opIfCondition( NumericOperator.ge, byteCode, i, codePos, lineNumber );
                         break;
                     case 157: // ifgt
-                        opIfCondition( NumericOperator.gt, byteCode, codePos, lineNumber );
+                        opIfCondition( NumericOperator.gt, byteCode, i, codePos, lineNumber );
                         break;
                     case 158: // ifle
-                        opIfCondition( NumericOperator.le, byteCode, codePos, lineNumber );
+                        opIfCondition( NumericOperator.le, byteCode, i, codePos, lineNumber );
                         break;
                     case 159: // if_icmpeq
-                        opIfCompareCondition( NumericOperator.eq, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.eq, byteCode, i, codePos, lineNumber );
                         break;
                     case 160: // if_icmpne
-                        opIfCompareCondition( NumericOperator.ne, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.ne, byteCode, i, codePos, lineNumber );
                         break;
                     case 161: // if_icmplt
-                        opIfCompareCondition( NumericOperator.lt, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.lt, byteCode, i, codePos, lineNumber );
                         break;
                     case 162: // if_icmpge
-                        opIfCompareCondition( NumericOperator.ge, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.ge, byteCode, i, codePos, lineNumber );
                         break;
                     case 163: // if_icmpgt
-                        opIfCompareCondition( NumericOperator.gt, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.gt, byteCode, i, codePos, lineNumber );
                         break;
                     case 164: // if_icmple
-                        opIfCompareCondition( NumericOperator.le, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.le, byteCode, i, codePos, lineNumber );
                         break;
                     case 165: // if_acmpeq
-                        opIfCompareCondition( NumericOperator.ref_eq, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.ref_eq, byteCode, i, codePos, lineNumber );
                         break;
                     case 166: // if_acmpne
-                        opIfCompareCondition( NumericOperator.ref_ne, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.ref_ne, byteCode, i, codePos, lineNumber );
                         break;
                     case 167: // goto
-                        int offset = byteCode.readShort();
-                        branchManager.addGotoOperator( codePos, offset, byteCode.getCodePosition(), lineNumber );
+                        int offset = byteCode.getOperand( i, 0 );
+                        branchManager.addGotoOperator( codePos, offset, byteCode.getCodePosition( i + 1 ), lineNumber );
                         addJumpPlaceholder( codePos + offset, 0, null, codePos, lineNumber ); // marker of the line number for the branch manager
                         break;
                     case 168: // jsr
@@ -585,7 +581,7 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                                         + op, lineNumber );
                     case 170: // tableswitch
                     case 171: // lookupswitch
-                        writeSwitchCode( byteCode, op == 171 );
+                        writeSwitchCode( byteCode, i, op == 171 );
                         break;
                     case 172: // ireturn
                     case 173: // lreturn
@@ -614,30 +610,29 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                                 type = null;
                         }
                         addBlockInstruction( WasmBlockOperator.RETURN, type, codePos, lineNumber );
-                        branchManager.addReturnOperator( codePos, byteCode.getCodePosition(), lineNumber );
+                        branchManager.addReturnOperator( codePos, byteCode.getCodePosition( i + 1 ), lineNumber );
                         break;
                     case 178: // getstatic
-                        ConstantRef ref = (ConstantRef)constantPool.get( byteCode.readUnsignedShort() );
+                        ConstantRef ref = (ConstantRef)byteCode.getConstant( i );
                         addGlobalInstruction( true, ref, codePos, lineNumber );
                         break;
                     case 179: // putstatic
-                        ref = (ConstantRef)constantPool.get( byteCode.readUnsignedShort() );
+                        ref = (ConstantRef)byteCode.getConstant( i );
                         addGlobalInstruction( false, ref, codePos, lineNumber );
                         break;
                     case 180: // getfield
-                        ref = (ConstantRef)constantPool.get( byteCode.readUnsignedShort() );
+                        ref = (ConstantRef)byteCode.getConstant( i );
                         addStructInstruction( StructOperator.GET, ref.getClassName(), new NamedStorageType( ref, getTypeManager() ), codePos, lineNumber );
                         break;
                     case 181: // putfield
-                        ref = (ConstantRef)constantPool.get( byteCode.readUnsignedShort() );
+                        ref = (ConstantRef)byteCode.getConstant( i );
                         addStructInstruction( StructOperator.SET, ref.getClassName(), new NamedStorageType( ref, getTypeManager() ), codePos, lineNumber );
                         break;
                     case 182: // invokevirtual
                     case 183: // invokespecial, invoke a constructor
                     case 184: // invokestatic
                     case 185: // invokeinterface
-                        idx = byteCode.readUnsignedShort();
-                        ref = (ConstantRef)constantPool.get( idx );
+                        ref = (ConstantRef)byteCode.getConstant( i );
                         FunctionName funcName = new FunctionName( ref );
                         switch( op ) {
                             case 182:
@@ -651,26 +646,22 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                                 break;
                             case 185:
                                 addCallInterfaceInstruction( funcName, codePos, lineNumber );
-                                byteCode.read(); // count
-                                byteCode.read(); // 0
                                 break;
                         }
                         break;
                     case 186: // invokedynamic
-                        idx = byteCode.readUnsignedShort();
-                        ConstantInvokeDynamic dynamic = (ConstantInvokeDynamic)constantPool.get( idx );
-                        idx = byteCode.readUnsignedShort(); // ever zero
+                        ConstantInvokeDynamic dynamic = (ConstantInvokeDynamic)byteCode.getConstant( i );
                         idx = dynamic.getBootstrapMethodIndex();
                         BootstrapMethod method = classFile.getBootstrapMethod( idx );
                         String name = dynamic.getType();
                         addInvokeDynamic( method, name, dynamic.getName(), codePos, lineNumber );
                         break;
                     case 187: // new
-                        name = ((ConstantClass)constantPool.get( byteCode.readUnsignedShort() )).getName();
+                        name = ((ConstantClass)byteCode.getConstant( i )).getName();
                         addStructInstruction( StructOperator.NEW_DEFAULT, name, null, codePos, lineNumber );
                         break;
                     case 188: // newarray
-                        int typeValue = byteCode.readByte();
+                        int typeValue = byteCode.getOperand( i, 0 );
                         switch( typeValue ) {
                             case 4: // boolean
                                 type = ValueType.bool;
@@ -702,7 +693,7 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         addArrayInstruction( ArrayOperator.NEW, type, codePos, lineNumber );
                         break;
                     case 189: // anewarray
-                        name = ((ConstantClass)constantPool.get( byteCode.readUnsignedShort() )).getName();
+                        name = ((ConstantClass)byteCode.getConstant( i )).getName();
                         type = getTypeManager().valueOf( name );
                         addArrayInstruction( ArrayOperator.NEW, type, codePos, lineNumber );
                         break;
@@ -714,43 +705,50 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                         addBlockInstruction( WasmBlockOperator.THROW, null, codePos, lineNumber );
                         break;
                     case 192: // checkcast
-                        name = ((ConstantClass)constantPool.get( byteCode.readUnsignedShort() )).getName();
+                        name = ((ConstantClass)byteCode.getConstant( i )).getName();
                         addStructInstruction( StructOperator.CAST, name, null, codePos, lineNumber );
                         break;
                     case 193: // instanceof
-                        name = ((ConstantClass)constantPool.get( byteCode.readUnsignedShort() )).getName();
+                        name = ((ConstantClass)byteCode.getConstant( i )).getName();
                         addStructInstruction( StructOperator.INSTANCEOF, name, null, codePos, lineNumber );
                         break;
                     case 194: // monitorenter
-                        addBlockInstruction( WasmBlockOperator.MONITOR_ENTER, null, codePos, lineNumber );
+                        if( getOptions().useThreads() ) {
+                            addCallInstruction( getOptions().monitors.getMonitorEnter(), false, codePos, lineNumber );
+                        } else {
+                            addBlockInstruction( WasmBlockOperator.MONITOR_ENTER, null, codePos, lineNumber );
+                        }
                         break;
                     case 195: // monitorexit
-                        addBlockInstruction( WasmBlockOperator.MONITOR_EXIT, null, codePos, lineNumber );
+                        if( getOptions().useThreads() ) {
+                            addCallInstruction( getOptions().monitors.getMonitorExit(), false, codePos, lineNumber );
+                        } else {
+                            addBlockInstruction( WasmBlockOperator.MONITOR_EXIT, null, codePos, lineNumber );
+                        }
                         break;
                     case 196: // wide
                         // https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-6.html#jvms-6.5.wide
-                        wide = true;
-                        continue;
+                        // the operands of the next instruction are already decoded with the wide format
+                        break;
                     case 197: // multianewarray
-                        name = ((ConstantClass)constantPool.get( byteCode.readUnsignedShort() )).getName();
-                        idx = byteCode.readUnsignedByte();
+                        name = ((ConstantClass)byteCode.getConstant( i )).getName();
+                        idx = byteCode.getOperand( i, 1 );
                         addMultiNewArrayInstruction( idx, name, codePos, lineNumber );
                         break;
                     case 198: // ifnull
-                        opIfCompareCondition( NumericOperator.ifnull, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.ifnull, byteCode, i, codePos, lineNumber );
                         break;
                     case 199: // ifnonnull
-                        opIfCompareCondition( NumericOperator.ifnonnull, byteCode, codePos, lineNumber );
+                        opIfCompareCondition( NumericOperator.ifnonnull, byteCode, i, codePos, lineNumber );
                         break;
                     case 200: // goto_w
-                        offset = byteCode.readInt();
-                        branchManager.addGotoOperator( codePos, offset, byteCode.getCodePosition(), lineNumber );
+                        offset = byteCode.getOperand( i, 0 );
+                        branchManager.addGotoOperator( codePos, offset, byteCode.getCodePosition( i + 1 ), lineNumber );
                         addNopInstruction( codePos, lineNumber ); // marker of the line number for the branch manager
                         break;
                     default:
                         throw new WasmException( "Unimplemented Java byte code operation: " + op, lineNumber );
                 }
-                wide = false;
             }
             unsafeManager.replaceUnsafe( getInstructions() );
             branchManager.calculate();
@@ -759,7 +757,7 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
                 // if a method ends with a loop or block without a break then code after the loop is no reachable
                 // Java does not need a return byte code in this case
                 // But WebAssembly need the dead code to validate
-                addBlockInstruction( WasmBlockOperator.UNREACHABLE, null, byteCode.getCodePosition(), byteCode.getLineNumber() );
+                addBlockInstruction( WasmBlockOperator.UNREACHABLE, null, byteCode.getCodePosition( size ), byteCode.getLineNumber( size ) );
             }
 
             if( nullConstants && getOptions().useGC() ) {
@@ -775,32 +773,27 @@ private void writeCode( CodeInputStream byteCode, ConstantPool constantPool, Cla
      * Write the both switch operation codes
      * 
      * @param byteCode
-     *            the current stream with a position after the operation code
+     *            the decoded byte code
+     * @param idx
+     *            the index of the switch instruction
      * @param isLookupSwitch
      *            true, if the operation was a loopupswitch; false, if the operation was a tableswitch
-     * @throws IOException
-     *             if any I/O error occur
      */
-    private void writeSwitchCode( CodeInputStream byteCode, boolean isLookupSwitch ) throws IOException {
-        int lineNumber = byteCode.getLineNumber();
-        int codePos = byteCode.getCodePosition();
-        int startPosition = codePos;
-        int padding = startPosition % 4;
-        if( padding > 0 ) {
-            byteCode.skip( 4 - padding );
-        }
-        startPosition--;
+    private void writeSwitchCode( ByteCode byteCode, int idx, boolean isLookupSwitch ) {
+        int lineNumber = byteCode.getLineNumber( idx );
+        int startPosition = byteCode.getCodePosition( idx );
+        int codePos = startPosition + 1;
 
-        int defaultPosition = startPosition + byteCode.readInt();
+        int defaultPosition = startPosition + byteCode.getOperand( idx, 0 );
         int[] keys;
         int[] positions;
         if( isLookupSwitch ) { // lookupswitch
-            int count = byteCode.readInt();
+            int count = byteCode.getOperand( idx, 1 );
             keys = new int[count];
             positions = new int[count];
             for( int i = 0; i < count; i++ ) {
-                keys[i] = byteCode.readInt();
-                positions[i] = startPosition + byteCode.readInt();
+                keys[i] = byteCode.getOperand( idx, 2 + 2 * i );
+                positions[i] = startPosition + byteCode.getOperand( idx, 3 + 2 * i );
             }
             int tempI32 = getTempVariable( ValueType.i32, codePos, Integer.MAX_VALUE );
             int block = 0;
@@ -836,12 +829,12 @@ private void writeSwitchCode( CodeInputStream byteCode, boolean isLookupSwitch )
             }
             addBlockInstruction( WasmBlockOperator.BR, defaultBlock, codePos, lineNumber );
         } else {
-            int low = byteCode.readInt();
+            int low = byteCode.getOperand( idx, 1 );
             keys = null;
-            int count = byteCode.readInt() - low + 1;
+            int count = byteCode.getOperand( idx, 2 ) - low + 1;
             positions = new int[count];
             for( int i = 0; i < count; i++ ) {
-                positions[i] = startPosition + byteCode.readInt();
+                positions[i] = startPosition + byteCode.getOperand( idx, 3 + i );
             }
             if( low != 0 ) { // the br_table starts ever with the value 0. That we need to subtract the start value if it different
                 addConstInstruction( low, ValueType.i32, codePos, lineNumber );
@@ -880,17 +873,17 @@ private static int findNext( int current, int[] values ) {
      * @param compareOp
      *            The condition for the continue of a loop.
      * @param byteCode
-     *            current byte code stream to read the target offset.
+     *            the decoded byte code to read the target offset.
+     * @param idx
+     *            the index of the if instruction
      * @param codePos
      *            the code position/offset in the Java method
      * @param lineNumber
      *            the line number in the Java source code
-     * @throws IOException
-     *             if any I/O errors occur.
      */
-    private void opIfCondition( NumericOperator compareOp, CodeInputStream byteCode, int codePos, int lineNumber ) throws IOException {
+    private void opIfCondition( NumericOperator compareOp, ByteCode byteCode, int idx, int codePos, int lineNumber ) {
         addConstInstruction( 0, ValueType.i32, codePos, lineNumber );
-        opIfCompareCondition( compareOp, byteCode, codePos, lineNumber );
+        opIfCompareCondition( compareOp, byteCode, idx, codePos, lineNumber );
     }
 
     /**
@@ -901,18 +894,18 @@ private void opIfCondition( NumericOperator compareOp, CodeInputStream byteCode,
      * @param compareOp
      *            The condition for the continue of a loop.
      * @param byteCode
-     *            current byte code stream to read the target offset.
+     *            the decoded byte code to read the target offset.
+     * @param idx
+     *            the index of the if instruction
      * @param codePos
      *            the code position/offset in the Java method
      * @param lineNumber
      *            the line number in the Java source code
-     * @throws IOException
-     *             if any I/O errors occur.
      */
-    private void opIfCompareCondition( NumericOperator compareOp, CodeInputStream byteCode, int codePos, int lineNumber ) throws IOException {
-        int offset = byteCode.readShort();
+    private void opIfCompareCondition( NumericOperator compareOp, ByteCode byteCode, int idx, int codePos, int lineNumber ) {
+        int offset = byteCode.getOperand( idx, 0 );
         WasmNumericInstruction compare = addNumericInstruction( compareOp, ValueType.i32, codePos, lineNumber );
-        branchManager.addIfOperator( codePos, offset, byteCode.getLineNumber(), compare );
+        branchManager.addIfOperator( codePos, offset, byteCode.getLineNumber( idx + 1 ), compare );
     }
 
     /**
@@ -922,18 +915,16 @@ private void opIfCompareCondition( NumericOperator compareOp, CodeInputStream by
      * @param valueType
      *            the value type of the compared
      * @param byteCode
-     *            current byte code stream to read the next operation.
-     * @param codePos
-     *            the code position/offset in the Java method
+     *            the decoded byte code to read the next operation.
+     * @param idx
+     *            the index of the next operation after the compare
      * @param lineNumber
      *            the line number in the Java source code
-     * @throws IOException
-     *             if any I/O errors occur.
      */
-    private void opCompare( ValueType valueType, CodeInputStream byteCode, int codePos, int lineNumber ) throws IOException {
-        codePos = byteCode.getCodePosition();
+    private void opCompare( ValueType valueType, ByteCode byteCode, int idx, int lineNumber ) {
+        int codePos = byteCode.getCodePosition( idx );
         NumericOperator numOp;
-        int nextOp = byteCode.read();
+        int nextOp = idx < byteCode.size() ? byteCode.getOpCode( idx ) : -1;
         switch( nextOp ) {
             case 153: // ifeq
                 numOp = NumericOperator.eq;
@@ -956,9 +947,9 @@ private void opCompare( ValueType valueType, CodeInputStream byteCode, int codeP
             default:
                 throw new WasmException( "Unexpected compare sub operation: " + nextOp, -1 );
         }
-        int offset = byteCode.readShort();
+        int offset = byteCode.getOperand( idx, 0 );
         WasmNumericInstruction compare = addNumericInstruction( numOp, valueType, codePos, lineNumber );
-        branchManager.addIfOperator( codePos, offset, byteCode.getLineNumber(), compare );
+        branchManager.addIfOperator( codePos, offset, byteCode.getLineNumber( idx + 1 ), compare );
     }
 
     /**
@@ -0,0 +1,281 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import de.inetsoftware.classparser.ClassFile;
+import de.inetsoftware.classparser.ClassFileCache;
+import de.inetsoftware.classparser.MethodInfo;
+import de.inetsoftware.jwebassembly.JWebAssembly;
+
+/**
+ * The symbol index of a library archive. It lists all classes of the archive in the order of the entries and marks the
+ * classes with annotations of the compiler like Replace, Partial, Import and Export. Only the marked classes must be
+ * prepared before a compile. All other classes are linked on demand if the compile reach it.
+ * 
+ * The index is created for every compile. Optional it is stored in the class file cache directory. Then the next
+ * compilations and other JVM instances does not need to scan the archive again.
+ * 
+ * @author Volker Berlin
+ */
+class LibraryIndex {
+
+    private static final int         MAGIC      = 0x4A574C49; // JWLI
+
+    private static final int         VERSION    = 1;
+
+    private final ArrayList<String>  classNames = new ArrayList<>();
+
+    private final ArrayList<String>  entryNames = new ArrayList<>();
+
+    private final ArrayList<Boolean> annotated  = new ArrayList<>();
+
+    /**
+     * Get the index of a library from the cache directory or create it.
+     * 
+     * @param library
+     *            the URL of the library
+     * @param cacheDirectory
+     *            optional directory for a persistent cache between JVM instances
+     * @return the index or null if the library is not a local archive. Directories can change without a change of its
+     *         time stamp and are scanned completely on every compile.
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nullable
+    static LibraryIndex get( @Nonnull URL library, @Nullable File cacheDirectory ) throws IOException {
+        if( !"file".equals( library.getProtocol() ) ) {
+            return null;
+        }
+        File file;
+        try {
+            file = new File( library.toURI() );
+        } catch( URISyntaxException | IllegalArgumentException ex ) {
+            return null;
+        }
+        if( !file.isFile() ) {
+            return null;
+        }
+        String source = library.toExternalForm();
+        String stamp = file.lastModified() + "-" + file.length();
+
+        File diskFile = cacheDirectory != null ? new File( cacheDirectory, ClassFileCache.hash( source + '\n' + stamp ) + ".index" ) : null;
+        LibraryIndex index = null;
+        if( diskFile != null && diskFile.isFile() ) {
+            index = read( diskFile );
+        }
+        if( index == null ) {
+            index = create( library, cacheDirectory );
+            if( diskFile != null ) {
+                try {
+                    index.write( diskFile );
+                } catch( IOException ex ) {
+                    // the directory is only an optimization, a read only or full directory should not break the compile
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Scan all classes of the archive.
+     * 
+     * @param library
+     *            the URL of the archive
+     * @param cacheDirectory
+     *            optional directory for a persistent cache between JVM instances
+     * @return the index
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nonnull
+    private static LibraryIndex create( @Nonnull URL library, @Nullable File cacheDirectory ) throws IOException {
+        LibraryIndex index = new LibraryIndex();
+        try (ZipInputStream input = new ZipInputStream( library.openStream() )) {
+            do {
+                ZipEntry entry = input.getNextEntry();
+                if( entry == null ) {
+                    break;
+                }
+                String entryName = entry.getName();
+                if( entryName.endsWith( ".class" ) ) {
+                    String className = entryName.substring( 0, entryName.length() - 6 );
+                    boolean hasAnnotations;
+                    try {
+                        URL entryUrl = new URL( "jar:" + library + "!/" + entryName );
+                        ClassFile classFile = ClassFileCache.getShared().get( entryUrl, new BufferedInputStream( input ) {
+                            @Override
+                            public void close() {
+                            } // does not close the zip stream
+                        }, cacheDirectory );
+                        className = classFile.getThisClass().getName();
+                        hasAnnotations = hasAnnotations( classFile );
+                    } catch( Throwable th ) {
+                        // the class is prepared on every compile and report the error
+                        JWebAssembly.LOGGER.log( Level.FINE, "Parsing error with " + entryName + " in " + library, th );
+                        hasAnnotations = true;
+                    }
+                    index.classNames.add( className );
+                    index.entryNames.add( entryName );
+                    index.annotated.add( hasAnnotations );
+                }
+            } while( true );
+        }
+        return index;
+    }
+
+    /**
+     * If the class or one of its methods has an annotation that must be processed before the compile.
+     * 
+     * @param classFile
+     *            the class
+     * @return true, if the class must be prepared
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    private static boolean hasAnnotations( @Nonnull ClassFile classFile ) throws IOException {
+        if( classFile.getAnnotation( JWebAssembly.REPLACE_ANNOTATION ) != null || classFile.getAnnotation( JWebAssembly.PARTIAL_ANNOTATION ) != null ) {
+            return true;
+        }
+        for( MethodInfo method : classFile.getMethods() ) {
+            if( method.getAnnotation( JWebAssembly.REPLACE_ANNOTATION ) != null //
+                            || method.getAnnotation( JWebAssembly.IMPORT_ANNOTATION ) != null //
+                            || method.getAnnotation( JWebAssembly.EXPORT_ANNOTATION ) != null ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the index from the cache directory.
+     * 
+     * @param diskFile
+     *            the file of the index
+     * @return the index or null if the file is not valid
+     */
+    @Nullable
+    private static LibraryIndex read( @Nonnull File diskFile ) {
+        try (DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( diskFile ) ) )) {
+            if( input.readInt() != MAGIC || input.readInt() != VERSION ) {
+                return null;
+            }
+            LibraryIndex index = new LibraryIndex();
+            int count = input.readInt();
+            for( int i = 0; i < count; i++ ) {
+                index.annotated.add( input.readBoolean() );
+                index.classNames.add( input.readUTF() );
+                index.entryNames.add( input.readUTF() );
+            }
+            return index;
+        } catch( IOException ex ) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the index to the cache directory. Concurrent writers of other JVMs see ever the complete file.
+     * 
+     * @param diskFile
+     *            the target file
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    private void write( @Nonnull File diskFile ) throws IOException {
+        Path dir = diskFile.getParentFile().toPath();
+        Files.createDirectories( dir );
+        Path temp = Files.createTempFile( dir, "index", ".tmp" );
+        try {
+            try (DataOutputStream output = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( temp ) ) )) {
+                output.writeInt( MAGIC );
+                output.writeInt( VERSION );
+                output.writeInt( size() );
+                for( int i = 0; i < size(); i++ ) {
+                    output.writeBoolean( annotated.get( i ) );
+                    output.writeUTF( classNames.get( i ) );
+                    output.writeUTF( entryNames.get( i ) );
+                }
+            }
+            Files.move( temp, diskFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( temp );
+        }
+    }
+
+    /**
+     * The count of classes in the archive.
+     * 
+     * @return the count
+     */
+    int size() {
+        return classNames.size();
+    }
+
+    /**
+     * The name of a class like "java/lang/Object".
+     * 
+     * @param idx
+     *            the index of the class
+     * @return the name
+     */
+    @Nonnull
+    String getClassName( int idx ) {
+        return classNames.get( idx );
+    }
+
+    /**
+     * The name of the entry in the archive.
+     * 
+     * @param idx
+     *            the index of the class
+     * @return the entry name
+     */
+    @Nonnull
+    String getEntryName( int idx ) {
+        return entryNames.get( idx );
+    }
+
+    /**
+     * If the class must be prepared before the compile.
+     * 
+     * @param idx
+     *            the index of the class
+     * @return true, if the class has annotations of the compiler
+     */
+    boolean isAnnotated( int idx ) {
+        return annotated.get( idx );
+    }
+}
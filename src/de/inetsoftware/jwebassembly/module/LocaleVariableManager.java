@@ -54,6 +54,8 @@ class LocaleVariableManager {
 
     private final HashSet<String>    names      = new HashSet<>();
 
+    private SlotRanges[]             slotRanges = new SlotRanges[0];
+
     /**
      * Create a new instance.
      */
@@ -195,6 +197,7 @@ void reset( LocalVariableTable variableTable, MethodInfo method, Iterator<AnyTyp
 
         // in Eclipse for lambda expression only the method parameters has an entry in the variable table. But the not define parameter of the lambda constructor come before.
         Arrays.sort( variables, 0, size );
+        buildRanges();
     }
 
     /**
@@ -265,10 +268,12 @@ private void useImpl( AnyType valueType, int idx, int javaCodePos ) {
             } else if( var.endPos == Integer.MAX_VALUE && javaCodePos > 0 ) {
                 // seems the slot was reused with a different type, in WASM we need to use 2 variables in this case
                 var.endPos = javaCodePos - 1;
+                updateRange( idx );
                 idx = size;
                 resetAddVar( valueType, var.idx );
                 var = variables[idx];
                 var.startPos = javaCodePos;
+                addRange( idx );
             } else if( types.isFinish() ) {
                 throw new WasmException( "Redefine local variable '" + var.name + "' type from " + var.valueType + " to " + valueType + " in slot " + var.idx
                                 + ". Compile the Java code with debug information to correct this problem.", -1 );
@@ -282,6 +287,7 @@ private void useImpl( AnyType valueType, int idx, int javaCodePos ) {
     void useIndex(  AnyType valueType, int wasmIdx ) {
         while( size <= wasmIdx ) {
             resetAddVar( null, size );
+            addRange( size - 1 );
         }
         useImpl( valueType, wasmIdx, 0 );
     }
@@ -299,6 +305,7 @@ void calculate() {
                 i--;
             }
         }
+        buildRanges();
     }
 
     /**
@@ -358,6 +365,7 @@ int getTempVariable( AnyType valueType, int startCodePosition, int endCodePositi
                     }
                 }
                 var.endPos = endCodePosition;
+                updateRange( i );
                 return var.idx;
             }
         }
@@ -369,6 +377,7 @@ int getTempVariable( AnyType valueType, int startCodePosition, int endCodePositi
         var.startPos = startCodePosition;
         var.endPos = endCodePosition;
         size++;
+        addRange( size - 1 );
         return var.idx;
     }
 
@@ -383,7 +392,10 @@ int getTempVariable( AnyType valueType, int startCodePosition, int endCodePositi
     void expandUse( int slot, int javaCodePos ) {
         Variable var = variables[slot];
         //TODO does we need to check for overlap with other slots?
-        var.endPos = Math.max( var.endPos, javaCodePos );
+        if( javaCodePos > var.endPos ) {
+            var.endPos = javaCodePos;
+            updateRange( slot );
+        }
     }
 
     /**
@@ -395,38 +407,131 @@ void expandUse( int slot, int javaCodePos ) {
      * @return the variable index in WebAssembly
      */
     int get( int slot, int javaCodePos ) {
-        for( int i = 0; i < size; i++ ) {
-            Variable var = variables[i];
-            if( slot != var.idx ) {
-                continue;
+        SlotRanges ranges = slot >= 0 && slot < slotRanges.length ? slotRanges[slot] : null;
+        if( ranges != null && ranges.count > 0 ) {
+            int[] vars = ranges.vars;
+            // the last range that start before or on the code position
+            int low = 0;
+            int high = ranges.count;
+            while( low < high ) {
+                int mid = (low + high) >>> 1;
+                if( variables[vars[mid]].startPos <= javaCodePos ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
             }
-            if( var.matchCodePosition( javaCodePos ) ) {
-                return i;
+            int last = low - 1;
+
+            // ranges can overlap, the first declared variable wins
+            int index = -1;
+            for( int k = last; k >= 0 && variables[vars[ranges.maxEnd[k]]].endPos >= javaCodePos; k-- ) {
+                int i = vars[k];
+                if( variables[i].endPos >= javaCodePos && (index < 0 || i < index) ) {
+                    index = i;
+                }
+            }
+            if( index >= 0 ) {
+                return index;
             }
-        }
 
-        // there is no variable slot declared for the given java code position
-        // in a second try we search for a slot that has the smallest distance
-        // TODO a better option can be to use the next slot and not the smallest distance because the position is define some time on first use and not on assign
-        int index = -1;
-        int distance = Integer.MAX_VALUE;
-        for( int i = 0; i < size; i++ ) {
-            Variable var = variables[i];
-            if( slot != var.idx ) {
-                continue;
+            // there is no variable slot declared for the given java code position
+            // in a second try we use the range with the smallest distance, on equal distance the next range
+            int before = last >= 0 ? vars[ranges.maxEnd[last]] : -1;
+            int after = last + 1 < ranges.count ? vars[last + 1] : -1;
+            if( before < 0 ) {
+                return after;
             }
+            if( after < 0 ) {
+                return before;
+            }
+            long distanceBefore = (long)javaCodePos - variables[before].endPos;
+            long distanceAfter = (long)variables[after].startPos - javaCodePos;
+            return distanceBefore < distanceAfter ? before : after;
+        }
+
+        throw new WasmException( "Can not find local variable for slot: " + slot + " on code position " + javaCodePos, -1 );
+    }
 
-            int distanceDiff = Math.min( Math.abs( javaCodePos - var.startPos), Math.abs( javaCodePos - var.endPos ) );
-            if( distanceDiff <= distance ) {
-                index = i;
-                distance = distanceDiff;
+    /**
+     * Rebuild the code ranges of all slots from the current variables.
+     */
+    private void buildRanges() {
+        for( SlotRanges ranges : slotRanges ) {
+            if( ranges != null ) {
+                ranges.count = 0;
             }
         }
-        if( index >= 0 ) {
-            return index;
+        for( int i = 0; i < size; i++ ) {
+            addRange( i );
         }
+    }
 
-        throw new WasmException( "Can not find local variable for slot: " + slot + " on code position " + javaCodePos, -1 );
+    /**
+     * Get the code ranges of a slot and create it if needed.
+     * 
+     * @param slot
+     *            the memory/slot index of the local variable in Java
+     * @return the ranges
+     */
+    @Nonnull
+    private SlotRanges getRanges( int slot ) {
+        if( slot >= slotRanges.length ) {
+            slotRanges = Arrays.copyOf( slotRanges, Math.max( slot + 1, 2 * slotRanges.length ) );
+        }
+        SlotRanges ranges = slotRanges[slot];
+        if( ranges == null ) {
+            slotRanges[slot] = ranges = new SlotRanges();
+        }
+        return ranges;
+    }
+
+    /**
+     * Add the variable to the code ranges of its slot. Its start position can not change after this call.
+     * 
+     * @param i
+     *            the index of the variable
+     */
+    private void addRange( int i ) {
+        int slot = variables[i].idx;
+        if( slot < 0 ) {
+            return;
+        }
+        SlotRanges ranges = getRanges( slot );
+        int startPos = variables[i].startPos;
+        int k = ranges.count;
+        if( k == ranges.vars.length ) {
+            ranges.vars = Arrays.copyOf( ranges.vars, 2 * k );
+            ranges.maxEnd = Arrays.copyOf( ranges.maxEnd, 2 * k );
+        }
+        int[] vars = ranges.vars;
+        while( k > 0 && variables[vars[k - 1]].startPos > startPos ) {
+            vars[k] = vars[k - 1];
+            k--;
+        }
+        vars[k] = i;
+        ranges.count++;
+        ranges.updateMaxEnd( variables, k );
+    }
+
+    /**
+     * Update the code ranges after the end position of the variable was changed.
+     * 
+     * @param i
+     *            the index of the variable
+     */
+    private void updateRange( int i ) {
+        int slot = variables[i].idx;
+        SlotRanges ranges = slot >= 0 && slot < slotRanges.length ? slotRanges[slot] : null;
+        if( ranges == null ) {
+            return;
+        }
+        for( int k = 0; k < ranges.count; k++ ) {
+            if( ranges.vars[k] == i ) {
+                ranges.updateMaxEnd( variables, k );
+                return;
+            }
+        }
     }
 
     /**
@@ -451,6 +556,7 @@ Variable[] getCopy() {
         for( int i = 0; i < size; i++ ) {
             variables[i] = new Variable();
         }
+        buildRanges();
         return copy;
     }
 
@@ -464,6 +570,7 @@ void setCopy( @Nonnull Variable[] copy ) {
         size = copy.length;
         ensureCapacity( size );
         System.arraycopy( copy, 0, variables, 0, size );
+        buildRanges();
     }
 
     /**
@@ -516,4 +623,31 @@ public int compareTo( Variable o ) {
             return Integer.compare( idx, o.idx );
         }
     }
+
+    /**
+     * The code ranges of all variables of a single Java slot, sorted by the start position.
+     */
+    private static class SlotRanges {
+
+        private int[] vars   = new int[2];
+
+        private int[] maxEnd = new int[2];
+
+        private int   count;
+
+        /**
+         * Recalculate the running maximum of the end positions starting with the given range.
+         * 
+         * @param variables
+         *            all variables
+         * @param k
+         *            the first changed range
+         */
+        private void updateMaxEnd( Variable[] variables, int k ) {
+            for( ; k < count; k++ ) {
+                int prev = k > 0 ? maxEnd[k - 1] : -1;
+                maxEnd[k] = prev >= 0 && variables[vars[prev]].endPos >= variables[vars[k]].endPos ? prev : k;
+            }
+        }
+    }
 }
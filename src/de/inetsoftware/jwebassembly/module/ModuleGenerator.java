@@ -38,6 +38,7 @@
 import javax.annotation.Nullable;
 
 import de.inetsoftware.classparser.ClassFile;
+import de.inetsoftware.classparser.ClassFileCache;
 import de.inetsoftware.classparser.Code;
 import de.inetsoftware.classparser.ConstantClass;
 import de.inetsoftware.classparser.MethodInfo;
@@ -102,8 +103,8 @@ public ModuleGenerator( @Nonnull ModuleWriter writer, WasmTarget target, @Nonnul
         this.javaCodeBuilder = new JavaMethodWasmCodeBuilder( watParser );
         this.writer = writer;
         this.javaScript = new JavaScriptWriter( target );
-        this.classFileLoader = new ClassFileLoader( new URLClassLoader( libraries.toArray( new URL[libraries.size()] ) ) );
         WasmOptions options = writer.options;
+        this.classFileLoader = new ClassFileLoader( new URLClassLoader( libraries.toArray( new URL[libraries.size()] ) ), options.getClassFileCache() );
         functions = options.functions;
         types = options.types;
         strings = options.strings;
@@ -117,24 +118,38 @@ public ModuleGenerator( @Nonnull ModuleWriter writer, WasmTarget target, @Nonnul
 
         //register some synthetic functions
         types.getTypeTableMemoryOffsetFunctionName();
+        options.registerSplitLoader();
     }
 
     /**
-     * Scan the libraries for annotated methods
+     * Scan the libraries for annotated methods. Archives are linked over its {@link LibraryIndex}. Then only the
+     * annotated classes are parsed and all other classes are loaded on demand.
      * 
      * @param libraries
      *            libraries
      */
     private void scanLibraries( @Nonnull List<URL> libraries ) {
+        File cacheDirectory = writer.options.getClassFileCache();
         // search for replacement methods in the libraries
         for( URL url : libraries ) {
+            try {
+                LibraryIndex index = LibraryIndex.get( url, cacheDirectory );
+                if( index != null ) {
+                    linkLibrary( url, index, cacheDirectory );
+                    continue;
+                }
+            } catch( IOException e ) {
+                e.printStackTrace();
+                continue;
+            }
+
             try {
                 File file = new File(url.toURI());
                 if( file.isDirectory() ) {
                     for( Iterator<Path> iterator = Files.walk( file.toPath() ).iterator(); iterator.hasNext(); ) {
                         Path path = iterator.next();
                         if( path.toString().endsWith( ".class" ) ) {
-                            ClassFile classFile = new ClassFile( new BufferedInputStream( Files.newInputStream( path ) ) );
+                            ClassFile classFile = ClassFileCache.getShared().get( path.toUri().toURL(), cacheDirectory );
                             prepare( classFile );
                         }
                     }
@@ -151,11 +166,12 @@ private void scanLibraries( @Nonnull List<URL> libraries ) {
                     }
                     if( entry.getName().endsWith( ".class" ) ) {
                         try {
-                            ClassFile classFile = new ClassFile( new BufferedInputStream( input ) {
+                            URL entryUrl = new URL( "jar:" + url + "!/" + entry.getName() );
+                            ClassFile classFile = ClassFileCache.getShared().get( entryUrl, new BufferedInputStream( input ) {
                                 @Override
                                 public void close() {
                                 } // does not close the zip stream
-                            } );
+                            }, cacheDirectory );
                             prepare( classFile );
                         } catch( Throwable th ) {
                             JWebAssembly.LOGGER.log( Level.SEVERE, "Parsing error with " + entry.getName() + " in " + url, th );
@@ -168,6 +184,33 @@ public void close() {
         }
     }
 
+    /**
+     * Prepare the annotated classes of a library archive and register all other classes for loading on demand. The
+     * order of the classes is the same as in the archive, so the precedence of duplicate classes does not change.
+     * 
+     * @param url
+     *            the URL of the archive
+     * @param index
+     *            the index of the archive
+     * @param cacheDirectory
+     *            optional directory for a persistent cache between JVM instances
+     */
+    private void linkLibrary( @Nonnull URL url, @Nonnull LibraryIndex index, @Nullable File cacheDirectory ) {
+        for( int i = 0; i < index.size(); i++ ) {
+            String entryName = index.getEntryName( i );
+            try {
+                URL entryUrl = new URL( "jar:" + url + "!/" + entryName );
+                if( index.isAnnotated( i ) ) {
+                    prepare( ClassFileCache.getShared().get( entryUrl, cacheDirectory ) );
+                } else {
+                    classFileLoader.addLibraryClass( index.getClassName( i ), entryUrl );
+                }
+            } catch( Throwable th ) {
+                JWebAssembly.LOGGER.log( Level.SEVERE, "Parsing error with " + entryName + " in " + url, th );
+            }
+        }
+    }
+
     /**
      * Prepare the content of the class.
      * 
@@ -379,6 +422,7 @@ public void prepareFinish() throws IOException {
         types.prepareFinish( writer );
         functions.prepareFinish();
         strings.prepareFinish( writer );
+        writer.options.monitors.prepareFinish( writer ); // must be the last, the lock is not part of the data segment
     }
 
     /**
@@ -465,6 +509,9 @@ public void finish() throws IOException {
                 }
             }
         }
+        if( writer.options.useThreads() ) {
+            javaScript.addSharedMemory( writer.getInitialMemoryPages(), writer.getMaximumMemoryPages() );
+        }
         javaScript.finish();
     }
 
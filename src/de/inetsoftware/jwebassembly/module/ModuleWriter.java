@@ -18,13 +18,17 @@
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import de.inetsoftware.jwebassembly.WasmException;
 import de.inetsoftware.jwebassembly.module.TypeManager.BlockType;
 import de.inetsoftware.jwebassembly.module.TypeManager.StructType;
+import de.inetsoftware.jwebassembly.module.TypeManager.VTableType;
 import de.inetsoftware.jwebassembly.wasm.AnyType;
 import de.inetsoftware.jwebassembly.wasm.ArrayOperator;
 import de.inetsoftware.jwebassembly.wasm.ArrayType;
@@ -32,6 +36,7 @@
 import de.inetsoftware.jwebassembly.wasm.MemoryOperator;
 import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
 import de.inetsoftware.jwebassembly.wasm.NumericOperator;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
 import de.inetsoftware.jwebassembly.wasm.StructOperator;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 import de.inetsoftware.jwebassembly.wasm.VariableOperator;
@@ -54,6 +59,17 @@ public abstract class ModuleWriter implements Closeable {
      */
     protected final ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
 
+    /**
+     * The maximum page count (2 GiB) of the shared memory if the threads feature is used. A shared memory requires a
+     * maximum.
+     */
+    private static final int              SHARED_MEMORY_MAX_PAGES = 0x8000;
+
+    /**
+     * The name of the exported immutable global with the offset where a heap can start in the linear memory.
+     */
+    protected static final String         HEAP_BASE               = "__heap_base";
+
     /**
      * Create a instance with its options.
      * 
@@ -64,6 +80,108 @@ protected ModuleWriter( WasmOptions options ) {
         this.options = options;
     }
 
+    /**
+     * Get the count of bytes of the active data segment. With the threads feature the memory is shared and every new
+     * instance initialize the data segment again. Then the trailing zero bytes are not part of the segment that the
+     * runtime state like a hold lock at the end of the data is not reset. With passive strings the segment ends before
+     * the strings.
+     * 
+     * @return the segment size
+     */
+    protected int getDataSegmentSize() {
+        int size = dataStream.size();
+        if( options.strings.getPassiveSize() > 0 ) {
+            size = options.strings.getMemoryOffset();
+        } else if( options.useThreads() ) {
+            byte[] data = dataStream.toByteArray();
+            while( size > 0 && data[size - 1] == 0 ) {
+                size--;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the byte offset in the linear memory where a heap can start. This is the configured heap base or the end of
+     * the static data aligned to 16 bytes.
+     * 
+     * @return the offset
+     * @throws WasmException
+     *             if the static data does not fit below the configured heap base
+     */
+    protected int getHeapBase() throws WasmException {
+        int dataSize = dataStream.size();
+        int heapBase = options.getMemoryHeapBase();
+        if( heapBase > 0 ) {
+            if( dataSize > heapBase ) {
+                throw new WasmException( "The static data of " + dataSize + " bytes does not fit below the heap base " + heapBase, -1 );
+            }
+            return heapBase;
+        }
+        return (dataSize + 15) & ~15;
+    }
+
+    /**
+     * If the module should export the heap base as immutable global "__heap_base". This requires a linear memory and
+     * any of the memory properties.
+     * 
+     * @return true, if the global should be written
+     * @throws WasmException
+     *             if the static data does not fit below the heap base or the maximum is too small
+     */
+    protected boolean exportHeapBase() throws WasmException {
+        return options.exportHeapBase() && getInitialMemoryPages() > 0;
+    }
+
+    /**
+     * Get the initial count of pages of the linear memory. It covers the static data, the heap base and the configured
+     * initial size.
+     * 
+     * @return the count of 64 KiB pages or 0 if the module does not need a memory
+     * @throws WasmException
+     *             if the static data does not fit below the heap base or the maximum is too small
+     */
+    protected int getInitialMemoryPages() throws WasmException {
+        int pages = (getHeapBase() + 0xFFFF) / 0x10000; // a page is defined with a size of 64KiB
+        pages = Math.max( pages, options.getMemoryInitialPages() );
+        int maximum = options.getMemoryMaximumPages();
+        if( maximum >= 0 && pages > maximum ) {
+            throw new WasmException( "The initial memory of " + pages + " pages is larger as the maximum of " + maximum + " pages", -1 );
+        }
+        return pages;
+    }
+
+    /**
+     * Get the maximum count of pages of the linear memory. A shared memory requires a maximum.
+     * 
+     * @return the count of 64 KiB pages or -1 if there is no maximum
+     */
+    protected int getMaximumMemoryPages() {
+        int maximum = options.getMemoryMaximumPages();
+        if( maximum < 0 && options.useThreads() ) {
+            maximum = SHARED_MEMORY_MAX_PAGES;
+        }
+        return maximum;
+    }
+
+    /**
+     * Get the offset of the passive data segment with the constant strings in the linear memory.
+     * 
+     * @return the offset
+     */
+    protected int getPassiveSegmentOffset() {
+        return options.strings.getMemoryOffset();
+    }
+
+    /**
+     * Get the count of bytes of the passive data segment with the constant strings.
+     * 
+     * @return the segment size or 0 if there is no passive segment
+     */
+    protected int getPassiveSegmentSize() {
+        return options.strings.getPassiveSize();
+    }
+
     /**
      * Finish the prepare after all classes/methods are prepare. This must be call before we can start with write the
      * first method.
@@ -81,6 +199,42 @@ protected ModuleWriter( WasmOptions options ) {
      */
     protected abstract int writeStructType( @Nonnull StructType type ) throws IOException;
 
+    /**
+     * Write the GC vtable struct of a type with the typed function references and the immutable global with its
+     * instance. Only called if call_ref is enabled.
+     * 
+     * @param type
+     *            the type with the vtable
+     * @return type ID of the vtable struct
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    protected abstract int writeVTableType( @Nonnull StructType type ) throws IOException;
+
+    /**
+     * Get the types of the runtime type of a struct. The runtime type of a type with a super type is a sub of the
+     * runtime type of the super type. Only with call_ref a type has a super type.
+     * 
+     * @param type
+     *            the struct type or vtable type
+     * @return the types, starting with the root type and ending with the type self
+     */
+    @Nonnull
+    protected static List<AnyType> getRttChain( @Nonnull AnyType type ) {
+        ArrayList<AnyType> chain = new ArrayList<>();
+        while( type != null ) {
+            chain.add( 0, type );
+            if( type instanceof StructType ) {
+                type = ((StructType)type).getSuperType();
+            } else if( type instanceof VTableType ) {
+                type = ((VTableType)type).getSuperType();
+            } else {
+                type = null;
+            }
+        }
+        return chain;
+    }
+
     /**
      * Write a block type.
      * 
@@ -285,7 +439,23 @@ protected ModuleWriter( WasmOptions options ) {
      * @throws IOException
      *             if any I/O error occur
      */
-    protected abstract void writeFunctionCall( FunctionName name, String comment ) throws IOException;
+    protected void writeFunctionCall( FunctionName name, String comment ) throws IOException {
+        writeFunctionCall( name, comment, false );
+    }
+
+    /**
+     * Write a call to a function.
+     * 
+     * @param name
+     *            the function name
+     * @param comment
+     *            optional comment for the text format
+     * @param tailCall
+     *            true, if the call is in a tail position and should be written as return_call
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    protected abstract void writeFunctionCall( FunctionName name, String comment, boolean tailCall ) throws IOException;
 
     /**
      * Write a function call to an instance function. On the stack there must be the object.
@@ -294,10 +464,24 @@ protected ModuleWriter( WasmOptions options ) {
      *            the function name
      * @param type
      *            the base type that should be called
+     * @param tailCall
+     *            true, if the call is in a tail position and should be written as return_call_indirect
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    protected abstract void writeVirtualFunctionCall( FunctionName name, AnyType type, boolean tailCall ) throws IOException;
+
+    /**
+     * Write a call over a typed function reference. On the stack there must be the parameters and the function reference.
+     * 
+     * @param name
+     *            the function name of the signature
+     * @param tailCall
+     *            true, if the call is in a tail position and should be written as return_call_ref
      * @throws IOException
      *             if any I/O error occur
      */
-    protected abstract void writeVirtualFunctionCall( FunctionName name, AnyType type ) throws IOException;
+    protected abstract void writeFunctionRefCall( FunctionName name, boolean tailCall ) throws IOException;
 
     /**
      * Write a block/branch code
@@ -354,4 +538,22 @@ protected ModuleWriter( WasmOptions options ) {
      *             if any I/O error occur
      */
     protected abstract void writeMemoryOperator( MemoryOperator memOp, ValueType valueType, int offset, int alignment ) throws IOException;
+
+    /**
+     * Write a fixed-width SIMD operation.
+     * 
+     * @param op
+     *            the SIMD operation
+     * @param offset
+     *            the offset into the memory if it is a memory operation
+     * @param alignment
+     *            the alignment of the value on the linear memory if it is a memory operation (0: 8 Bit; 1: 16 Bit; 2: 32 Bit; 3: 64 Bit; 4: 128 Bit)
+     * @param lane
+     *            the lane index if it is a lane operation
+     * @param immediate
+     *            the 16 bytes of v128.const or the 16 lane indices of i8x16.shuffle
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    protected abstract void writeSimdOperator( SimdOperator op, int offset, int alignment, int lane, byte[] immediate ) throws IOException;
 }
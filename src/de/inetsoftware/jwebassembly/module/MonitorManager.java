@@ -0,0 +1,127 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * Handle the lowering of synchronized blocks (MONITOR_ENTER/MONITOR_EXIT) if the threads feature is enabled. The
+ * objects of a WASM instance can not be shared between threads. That only the shared linear memory is visible for all
+ * threads. Because of this all monitors are mapped to a single reentrant futex lock in the linear memory.
+ *
+ * @author Volker Berlin
+ */
+class MonitorManager {
+
+    private static final String MONITOR_CLASS  = "de/inetsoftware/jwebassembly/module/nativecode/Monitor";
+
+    /**
+     * The size of the lock in the linear memory: lock state, owner thread id, thread id counter
+     */
+    static final int            LOCK_SIZE      = 12;
+
+    private final WasmOptions   options;
+
+    private FunctionName        monitorEnter;
+
+    private FunctionName        monitorExit;
+
+    private int                 lockMemoryOffset;
+
+    /**
+     * Create a new instance.
+     *
+     * @param options
+     *            compiler properties and shared managers
+     */
+    MonitorManager( WasmOptions options ) {
+        this.options = options;
+    }
+
+    /**
+     * Get the function name of the monitor enter function. The function has 1 parameter (the object) and no return
+     * value.
+     *
+     * @return the name
+     */
+    @Nonnull
+    FunctionName getMonitorEnter() {
+        if( monitorEnter == null ) {
+            registerLockMemoryOffset();
+            monitorEnter = new FunctionName( MONITOR_CLASS + ".monitorEnter(Ljava/lang/Object;)V" );
+        }
+        return monitorEnter;
+    }
+
+    /**
+     * Get the function name of the monitor exit function. The function has 1 parameter (the object) and no return
+     * value.
+     *
+     * @return the name
+     */
+    @Nonnull
+    FunctionName getMonitorExit() {
+        if( monitorExit == null ) {
+            registerLockMemoryOffset();
+            monitorExit = new FunctionName( MONITOR_CLASS + ".monitorExit(Ljava/lang/Object;)V" );
+        }
+        return monitorExit;
+    }
+
+    /**
+     * Register the function lockMemoryOffset() as synthetic function.
+     */
+    private void registerLockMemoryOffset() {
+        if( monitorEnter != null || monitorExit != null ) {
+            return;
+        }
+        WatCodeSyntheticFunctionName offsetFunction =
+                        new WatCodeSyntheticFunctionName( MONITOR_CLASS, "lockMemoryOffset", "()I", "", null, ValueType.i32 ) {
+                            protected String getCode() {
+                                return "i32.const " + lockMemoryOffset;
+                            }
+                        };
+        options.functions.markAsNeededAndReplaceIfExists( offsetFunction );
+    }
+
+    /**
+     * Finish the prepare. Reserve the lock in the linear memory if a monitor is used. The lock is placed at the end of
+     * the static data because the writers does not add trailing zero bytes to the data segment. That a new instance on
+     * the same shared memory does not reset a hold lock.
+     *
+     * @param writer
+     *            the targets for the lock
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    void prepareFinish( ModuleWriter writer ) throws IOException {
+        if( monitorEnter == null && monitorExit == null ) {
+            return;
+        }
+        ByteArrayOutputStream dataStream = writer.dataStream;
+        while( (dataStream.size() & 3) != 0 ) {
+            dataStream.write( 0 ); // atomic access requires an aligned address
+        }
+        lockMemoryOffset = dataStream.size();
+        dataStream.write( new byte[LOCK_SIZE] );
+    }
+}
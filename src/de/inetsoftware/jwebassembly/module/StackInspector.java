@@ -1,5 +1,5 @@
 /*
-   Copyright 2020 - 2021 Volker Berlin (i-net software)
+   Copyright 2020 - 2026 Volker Berlin (i-net software)
 
    Licensed under the Apache License, Version 2.0 (the "License");
    you may not use this file except in compliance with the License.
@@ -16,7 +16,7 @@
 */
 package de.inetsoftware.jwebassembly.module;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -24,18 +24,49 @@
 
 import de.inetsoftware.jwebassembly.WasmException;
 import de.inetsoftware.jwebassembly.module.WasmInstruction.Type;
-import de.inetsoftware.jwebassembly.wasm.AnyType;
 
 /**
  * Inspect the current parsed instructions to find details over specific stack information.
+ * <p>
+ * An instance hold an incremental abstract model of the stack for an {@link InstructionList}. For every instruction
+ * the stack after the instruction is saved as an immutable linked list of {@link StackValue}. Appending instructions
+ * continue the simulation from the last saved state. A change inside the list discard the saved states from the
+ * changed position.
  *
  * @author Volker Berlin
  */
 class StackInspector {
 
+    private final List<WasmInstruction> instructions;
+
+    /** the stack after the instruction at the same index */
+    private StackValue[]                stacks     = new StackValue[64];
+
+    /** position up to which following instructions are skipped because of a forward GOTO */
+    private int[]                       skipUntil  = new int[64];
+
+    /** the saved state is only valid if javaCodePos is lower as this value */
+    private int[]                       validBelow = new int[64];
+
+    /** the saved state is only valid if javaCodePos is equals or greater as this value */
+    private int[]                       validFrom  = new int[64];
+
+    /** count of instructions with a valid saved state */
+    private int                         validCount;
+
+    /**
+     * Create an incremental stack model for the given instructions.
+     *
+     * @param instructions
+     *            the instructions
+     */
+    StackInspector( List<WasmInstruction> instructions ) {
+        this.instructions = instructions;
+    }
+
     /**
      * Inspect the instructions to find details over a specific stack position.
-     * 
+     *
      * @param instructions
      *            the parsed instructions
      * @param count
@@ -46,60 +77,179 @@ class StackInspector {
      */
     @Nonnull
     static StackValue findInstructionThatPushValue( List<WasmInstruction> instructions, int count, int javaCodePos ) {
+        return findInstructionThatPushValue( instructions, instructions.size(), count, javaCodePos );
+    }
+
+    /**
+     * Inspect the first instructions to find details over a specific stack position.
+     *
+     * @param instructions
+     *            the parsed instructions
+     * @param size
+     *            the count of instructions from the start that should be inspected
+     * @param count
+     *            the count of values on the stack back. 1 means the last value. 2 means the penultimate value.
+     * @param javaCodePos
+     *            the current code position, important to follow jumps in the code
+     * @return details of the stack position
+     */
+    @Nonnull
+    static StackValue findInstructionThatPushValue( List<WasmInstruction> instructions, int size, int count, int javaCodePos ) {
+        StackInspector inspector;
+        if( instructions instanceof InstructionList ) {
+            inspector = ((InstructionList)instructions).getStackInspector();
+        } else {
+            inspector = new StackInspector( instructions );
+        }
+        StackValue stackValue = inspector.getStack( size, javaCodePos );
+        while( --count > 0 && stackValue != null ) {
+            stackValue = stackValue.next;
+        }
+        if( stackValue == null ) {
+            throw new WasmException( "Push instruction not found", -1 ); // should never occur
+        }
+        return stackValue;
+    }
+
+    /**
+     * Discard the saved stack states from the given instruction index. Must be called on every change of the
+     * instructions.
+     *
+     * @param idx
+     *            the first changed index
+     */
+    void invalidate( int idx ) {
+        if( idx < validCount ) {
+            validCount = Math.max( idx, 0 );
+        }
+    }
+
+    /**
+     * Get the stack after the first instructions.
+     *
+     * @param size
+     *            the count of instructions from the start
+     * @param javaCodePos
+     *            the current code position, important to follow jumps in the code
+     * @return the top most value of the stack or null if the stack is empty
+     */
+    private StackValue getStack( int size, int javaCodePos ) {
+        // find the longest saved state that is also valid for the current code position. The validity range of a state is
+        // the intersection of the ranges of all previous states. That we can search backward.
+        int i = Math.min( validCount, size );
+        while( i > 0 && (javaCodePos < validFrom[i - 1] || javaCodePos >= validBelow[i - 1]) ) {
+            i--;
+        }
+        if( i == size ) {
+            return i == 0 ? null : stacks[i - 1];
+        }
+
+        ensureCapacity( size );
+        StackValue stack;
+        int skip;
+        int from;
+        int below;
+        if( i == 0 ) {
+            stack = null;
+            skip = Integer.MIN_VALUE;
+            from = Integer.MIN_VALUE;
+            below = Integer.MAX_VALUE;
+        } else {
+            stack = stacks[i - 1];
+            skip = skipUntil[i - 1];
+            from = validFrom[i - 1];
+            below = validBelow[i - 1];
+        }
+
         // because there can be jumps (GOTO) we can analyze the stack only forward. If we iterate backward we will not see that we are in a jump.
-        ArrayDeque<StackValue> stack = new ArrayDeque<>();
-        int size = instructions.size();
-        for( int i = 0; i < size; i++ ) {
+        for( ; i < size; i++ ) {
             WasmInstruction instr = instructions.get( i );
-            int popCount = instr.getPopCount();
-            for( int p = 0; p < popCount; p++ ) {
-                stack.pop();
-            }
-            AnyType pushValue = instr.getPushValueType();
-            if( pushValue != null ) {
-                StackValue el = new StackValue();
-                el.idx = i;
-                el.instr = instr;
-                stack.push( el );
-            }
-            if( instr.getType() == Type.Jump ) {
-                if( popCount == 0 ) { // GOTO, for example on the end of the THEN branch
-                    JumpInstruction jump = (JumpInstruction)instr;
-                    int jumpPos = jump.getJumpPosition();
-                    if( jumpPos > javaCodePos ) {
-                        // we need a stack position inside a branch, we can remove all outside
-                        stack.clear();
-                    } else if( jumpPos > instr.getCodePosition() ) {
-                        while( ++i < size && jumpPos > instructions.get( i ).getCodePosition() ) {
-                            //nothing
+            if( skip > instr.getCodePosition() ) {
+                // skip the instructions of a jump
+            } else {
+                skip = Integer.MIN_VALUE;
+                int popCount = instr.getPopCount();
+                for( int p = 0; p < popCount; p++ ) {
+                    if( stack == null ) {
+                        throw new NoSuchElementException();
+                    }
+                    stack = stack.next;
+                }
+                if( instr.getPushValueType() != null ) {
+                    stack = new StackValue( i, instr, stack );
+                }
+                if( instr.getType() == Type.Jump ) {
+                    if( popCount == 0 ) { // GOTO, for example on the end of the THEN branch
+                        JumpInstruction jump = (JumpInstruction)instr;
+                        int jumpPos = jump.getJumpPosition();
+                        if( jumpPos > javaCodePos ) {
+                            // we need a stack position inside a branch, we can remove all outside
+                            stack = null;
+                            below = Math.min( below, jumpPos );
+                        } else {
+                            if( jumpPos > instr.getCodePosition() ) {
+                                skip = jumpPos;
+                            }
+                            from = Math.max( from, jumpPos );
                         }
-                        i--; // we are on the right position but the loop increment
+                    } else {
+                        // TODO poCount == 1 means an ternary operator (Question mark operator). We should return the operator with the lowest level but not null (ValueType.eqref).
                     }
-                } else {
-                    // TODO poCount == 1 means an ternary operator (Question mark operator). We should return the operator with the lowest level but not null (ValueType.eqref).
                 }
             }
+            stacks[i] = stack;
+            skipUntil[i] = skip;
+            validFrom[i] = from;
+            validBelow[i] = below;
         }
+        validCount = size;
+        return stack;
+    }
 
-        try {
-            StackValue stackValue;
-            do {
-                stackValue = stack.pop();
-            } while( --count > 0 );
-            return stackValue;
-        } catch( NoSuchElementException ex ) {
-            throw new WasmException( "Push instruction not found", -1 ); // should never occur
+    /**
+     * Grow the arrays of the saved states if needed.
+     *
+     * @param size
+     *            the needed size
+     */
+    private void ensureCapacity( int size ) {
+        if( size > stacks.length ) {
+            int newLength = Math.max( size, stacks.length * 2 );
+            stacks = Arrays.copyOf( stacks, newLength );
+            skipUntil = Arrays.copyOf( skipUntil, newLength );
+            validFrom = Arrays.copyOf( validFrom, newLength );
+            validBelow = Arrays.copyOf( validBelow, newLength );
         }
     }
 
     /**
-     * Hold the state of the stack.
+     * Hold the state of the stack. The values are immutable that they can be shared between the saved states of
+     * different instructions.
      */
     static class StackValue {
         /** the instruction index that push the stack value */
-        int             idx;
+        final int             idx;
 
         /** the instruction that push the stack value */
-        WasmInstruction instr;
+        final WasmInstruction instr;
+
+        /** the value below this value on the stack or null */
+        final StackValue      next;
+
+        /**
+         * Create a new stack value.
+         *
+         * @param idx
+         *            the instruction index
+         * @param instr
+         *            the instruction
+         * @param next
+         *            the value below
+         */
+        private StackValue( int idx, WasmInstruction instr, StackValue next ) {
+            this.idx = idx;
+            this.instr = instr;
+            this.next = next;
+        }
     }
 }
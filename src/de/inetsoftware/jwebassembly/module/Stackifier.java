@@ -0,0 +1,774 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+import de.inetsoftware.jwebassembly.wasm.WasmBlockOperator;
+
+/**
+ * An alternative to the tree calculation of the BranchManager. It build a control flow graph of basic blocks from the
+ * jumps of the Java byte code and create the structured WebAssembly code from the dominator tree like described in
+ * "Beyond Relooper" from Norman Ramsey. Every step is linear in the count of instructions except the sorting of the
+ * merge nodes. Every basic block is written exactly once.
+ * <p>
+ * Only a subset of the Java code is supported: no exception handlers, no values on the stack at the borders of basic
+ * blocks (like a ternary operator) and a reducible control flow. For all other the caller must use the BranchManager.
+ *
+ * @author Volker Berlin
+ */
+class Stackifier {
+
+    private final List<WasmInstruction> instructions;
+
+    private final ArrayList<Jump>       jumps  = new ArrayList<>();
+
+    /** the basic blocks in the order of the instructions */
+    private Block[]                     blocks;
+
+    /** the reachable blocks in reverse postorder */
+    private Block[]                     order;
+
+    private List<WasmInstruction>       output;
+
+    /** the count of the current open block, loop and if instructions */
+    private int                         contextSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param instructions
+     *            the instructions of the function
+     */
+    Stackifier( List<WasmInstruction> instructions ) {
+        this.instructions = instructions;
+    }
+
+    /**
+     * Remove all jump information for reusing.
+     */
+    void reset() {
+        jumps.clear();
+        blocks = null;
+        order = null;
+        output = null;
+    }
+
+    /**
+     * Add a GOTO.
+     *
+     * @param startPosition
+     *            the code position of the GOTO
+     * @param target
+     *            the code position of the jump target
+     */
+    void addGoto( int startPosition, int target ) {
+        jumps.add( new Jump( JavaBlockOperator.GOTO, startPosition, new int[] { target } ) );
+    }
+
+    /**
+     * Add a RETURN.
+     *
+     * @param startPosition
+     *            the code position of the RETURN
+     */
+    void addReturn( int startPosition ) {
+        jumps.add( new Jump( JavaBlockOperator.RETURN, startPosition, new int[0] ) );
+    }
+
+    /**
+     * Add a conditional jump. The compare instruction is on the stack.
+     *
+     * @param startPosition
+     *            the code position of the IF
+     * @param target
+     *            the code position of the jump target if the condition is true
+     * @param nextPosition
+     *            the code position of the next instruction
+     */
+    void addIf( int startPosition, int target, int nextPosition ) {
+        jumps.add( new Jump( JavaBlockOperator.IF, startPosition, new int[] { target, nextPosition } ) );
+    }
+
+    /**
+     * Add a tableswitch or lookupswitch.
+     *
+     * @param startPosition
+     *            the code position of the switch
+     * @param keys
+     *            the values of the cases or null if a tableswitch
+     * @param positions
+     *            the code positions of the cases
+     * @param defaultPosition
+     *            the code position of the default case
+     */
+    void addSwitch( int startPosition, @Nullable int[] keys, @Nonnull int[] positions, int defaultPosition ) {
+        int[] targets = Arrays.copyOf( positions, positions.length + 1 );
+        targets[positions.length] = defaultPosition;
+        Jump jump = new Jump( JavaBlockOperator.SWITCH, startPosition, targets );
+        jump.tableSwitch = keys == null;
+        jumps.add( jump );
+    }
+
+    /**
+     * Build the control flow graph and check if the code is supported.
+     *
+     * @return true, if the code can be structured with this stackifier
+     */
+    boolean calculate() {
+        return buildBlocks() && checkStack() && calculateOrder() && calculateDominators();
+    }
+
+    /**
+     * Write the structured code. Replace the instructions with block, loop, if and branch instructions in the order of
+     * the dominator tree.
+     */
+    void handle() {
+        output = new ArrayList<>( instructions.size() + 2 * blocks.length );
+        contextSize = 0;
+        try {
+            doTree( order[0], null );
+            instructions.clear();
+            instructions.addAll( output );
+        } finally {
+            output = null;
+        }
+    }
+
+    /**
+     * Split the instructions into basic blocks. A block start on every jump target and after every jump.
+     *
+     * @return false, if the instructions can not be mapped to basic blocks
+     */
+    private boolean buildBlocks() {
+        int size = instructions.size();
+        if( size == 0 ) {
+            return false;
+        }
+        int count = jumps.size();
+        for( Jump jump : jumps ) {
+            count += jump.targets.length;
+        }
+        int[] boundaries = new int[count];
+        count = 0;
+        for( Jump jump : jumps ) {
+            for( int target : jump.targets ) {
+                boundaries[count++] = target;
+            }
+            boundaries[count++] = jump.startPosition + 1;
+        }
+        Arrays.sort( boundaries, 0, count );
+
+        // map the code positions to the instruction index of the first instruction on or after the position
+        HashMap<Integer, Block> positions = new HashMap<>();
+        ArrayList<Block> list = new ArrayList<>();
+        Block current = new Block( 0 );
+        list.add( current );
+        int idx = 0;
+        int lastCodePos = Integer.MIN_VALUE;
+        for( int b = 0; b < count; b++ ) {
+            int pos = boundaries[b];
+            while( idx < size ) {
+                int codePos = instructions.get( idx ).getCodePosition();
+                if( codePos < lastCodePos ) {
+                    return false; // not in order of the code positions
+                }
+                lastCodePos = codePos;
+                if( codePos >= pos ) {
+                    break;
+                }
+                idx++;
+            }
+            if( idx == size ) {
+                positions.put( pos, null ); // after the last instruction
+                continue;
+            }
+            if( idx > current.start ) {
+                current.end = idx;
+                current = new Block( idx );
+                list.add( current );
+            }
+            positions.put( pos, current );
+        }
+        current.end = size;
+        for( ; idx < size; idx++ ) {
+            int codePos = instructions.get( idx ).getCodePosition();
+            if( codePos < lastCodePos ) {
+                return false;
+            }
+            lastCodePos = codePos;
+        }
+        blocks = list.toArray( new Block[list.size()] );
+        for( int i = 0; i < blocks.length; i++ ) {
+            blocks[i].index = i;
+        }
+
+        // assign the jumps to the blocks and create the edges
+        for( Jump jump : jumps ) {
+            int start = jump.startPosition;
+            Block after = positions.get( start + 1 );
+            Block block = after == null ? blocks[blocks.length - 1] : blocks[after.index - 1];
+            if( after != null && after.index == 0 || block.jump != null || (positions.containsKey( start ) && positions.get( start ) == after) ) {
+                return false; // there is no instruction on the jump position
+            }
+            block.jump = jump;
+            jump.targetBlocks = new Block[jump.targets.length];
+            for( int t = 0; t < jump.targets.length; t++ ) {
+                Block succ = positions.get( jump.targets[t] );
+                if( succ == null ) {
+                    return false;
+                }
+                jump.targetBlocks[t] = succ;
+                block.addSuccessor( succ );
+                if( jump.op == JavaBlockOperator.SWITCH ) {
+                    succ.switchTarget = true;
+                }
+            }
+        }
+        for( int i = 0; i < blocks.length - 1; i++ ) {
+            Block block = blocks[i];
+            if( block.jump == null ) {
+                // fall through, for example after an athrow this is not reached but it is allowed
+                block.addSuccessor( blocks[i + 1] );
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that the stack is empty on the borders of all basic blocks. A tableswitch has the value for the br_table on
+     * the stack.
+     *
+     * @return true, if the stack is empty at all borders
+     */
+    private boolean checkStack() {
+        for( Block block : blocks ) {
+            int height = 0;
+            for( int i = block.start; i < block.end; i++ ) {
+                WasmInstruction instr = instructions.get( i );
+                height -= instr.getPopCount();
+                if( height < 0 ) {
+                    return false;
+                }
+                if( instr.getPushValueType() != null ) {
+                    height++;
+                }
+            }
+            Jump jump = block.jump;
+            int expected = jump != null && jump.tableSwitch ? 1 : 0;
+            if( height != expected && (jump == null || jump.op != JavaBlockOperator.RETURN) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculate the reverse postorder of the blocks.
+     *
+     * @return false, if there are unreachable blocks
+     */
+    private boolean calculateOrder() {
+        Block[] postorder = new Block[blocks.length];
+        int count = 0;
+        ArrayDeque<Block> stack = new ArrayDeque<>();
+        Block entry = blocks[0];
+        entry.visited = true;
+        stack.push( entry );
+        while( !stack.isEmpty() ) {
+            Block block = stack.peek();
+            if( block.nextSuccessor < block.successors.size() ) {
+                Block succ = block.successors.get( block.nextSuccessor++ );
+                if( !succ.visited ) {
+                    succ.visited = true;
+                    stack.push( succ );
+                }
+            } else {
+                stack.pop();
+                postorder[count++] = block;
+            }
+        }
+        if( count != blocks.length ) {
+            return false;
+        }
+        order = new Block[count];
+        for( int i = 0; i < count; i++ ) {
+            Block block = postorder[count - 1 - i];
+            block.order = i;
+            order[i] = block;
+        }
+        return true;
+    }
+
+    /**
+     * Calculate the dominator tree, the loop headers and the merge nodes.
+     *
+     * @return false, if the control flow is not reducible
+     */
+    private boolean calculateDominators() {
+        Block entry = order[0];
+        entry.idom = entry;
+        boolean changed = true;
+        while( changed ) {
+            changed = false;
+            for( int i = 1; i < order.length; i++ ) {
+                Block block = order[i];
+                Block idom = null;
+                for( Block pred : block.predecessors ) {
+                    if( pred.idom != null ) {
+                        idom = idom == null ? pred : intersect( pred, idom );
+                    }
+                }
+                if( block.idom != idom ) {
+                    block.idom = idom;
+                    changed = true;
+                }
+            }
+        }
+        entry.idom = null;
+        numberDominatorTree();
+
+        for( Block block : order ) {
+            int forward = 0;
+            for( Block pred : block.predecessors ) {
+                if( pred.order >= block.order ) {
+                    // a back edge must go to a dominator, else the control flow is irreducible
+                    if( !block.dominates( pred ) ) {
+                        return false;
+                    }
+                    block.loopHeader = true;
+                } else {
+                    forward++;
+                }
+            }
+            block.merge = forward > 1 || block.switchTarget;
+        }
+
+        // the merge children of every node, the child with the highest order is the outermost
+        for( int i = order.length - 1; i > 0; i-- ) {
+            Block block = order[i];
+            if( block.merge ) {
+                block.idom.mergeChildren.add( block );
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number the blocks in a preorder walk of the dominator tree that the dominance check between two blocks is constant.
+     */
+    private void numberDominatorTree() {
+        int[] childCount = new int[order.length];
+        for( int i = 1; i < order.length; i++ ) {
+            childCount[order[i].idom.order]++;
+        }
+        Block[][] children = new Block[order.length][];
+        for( int i = 0; i < order.length; i++ ) {
+            children[i] = new Block[childCount[i]];
+            childCount[i] = 0;
+        }
+        for( int i = 1; i < order.length; i++ ) {
+            int parent = order[i].idom.order;
+            children[parent][childCount[parent]++] = order[i];
+        }
+        int counter = 0;
+        ArrayDeque<Block> stack = new ArrayDeque<>();
+        stack.push( order[0] );
+        while( !stack.isEmpty() ) {
+            Block block = stack.pop();
+            block.domFirst = counter++;
+            for( Block child : children[block.order] ) {
+                stack.push( child );
+            }
+        }
+        // the last number in the subtree, children have ever a higher order as the parent
+        for( int i = order.length - 1; i >= 0; i-- ) {
+            Block block = order[i];
+            block.domLast = Math.max( block.domLast, block.domFirst );
+            if( block.idom != null ) {
+                block.idom.domLast = Math.max( block.idom.domLast, block.domLast );
+            }
+        }
+    }
+
+    /**
+     * Find the nearest common dominator of two blocks.
+     *
+     * @param b1
+     *            first block
+     * @param b2
+     *            second block
+     * @return the common dominator
+     */
+    private static Block intersect( Block b1, Block b2 ) {
+        while( b1 != b2 ) {
+            while( b1.order > b2.order ) {
+                b1 = b1.idom;
+            }
+            while( b2.order > b1.order ) {
+                b2 = b2.idom;
+            }
+        }
+        return b1;
+    }
+
+    /**
+     * Write the code of a block and all blocks that it dominate.
+     *
+     * @param block
+     *            the block
+     * @param follow
+     *            the merge block that follow directly after the code or null
+     */
+    private void doTree( Block block, @Nullable Block follow ) {
+        if( block.loopHeader ) {
+            addBlockInstruction( WasmBlockOperator.LOOP, null, block );
+            block.loopLabel = contextSize++;
+            nodeWithin( block, 0, follow );
+            contextSize--;
+            block.loopLabel = -1;
+            addBlockInstruction( WasmBlockOperator.END, null, block );
+        } else {
+            nodeWithin( block, 0, follow );
+        }
+    }
+
+    /**
+     * Write the code of a block nested in blocks for its merge children.
+     *
+     * @param block
+     *            the block
+     * @param childIdx
+     *            the index of the next merge child that need a block
+     * @param follow
+     *            the merge block that follow directly after the code or null
+     */
+    private void nodeWithin( Block block, int childIdx, @Nullable Block follow ) {
+        if( childIdx < block.mergeChildren.size() ) {
+            Block child = block.mergeChildren.get( childIdx );
+            addBlockInstruction( WasmBlockOperator.BLOCK, null, block );
+            child.blockLabel = contextSize++;
+            nodeWithin( block, childIdx + 1, child );
+            contextSize--;
+            child.blockLabel = -1;
+            addBlockInstruction( WasmBlockOperator.END, null, child );
+            doTree( child, follow );
+            return;
+        }
+
+        Jump jump = block.jump;
+        if( jump == null ) {
+            output.addAll( instructions.subList( block.start, block.end ) );
+            if( !block.successors.isEmpty() ) {
+                doBranch( block, block.successors.get( 0 ), follow );
+            }
+            return;
+        }
+        switch( jump.op ) {
+            case RETURN:
+                output.addAll( instructions.subList( block.start, block.end ) );
+                break;
+            case GOTO:
+                output.addAll( instructions.subList( block.start, block.end ) );
+                doBranch( block, block.successors.get( 0 ), follow );
+                break;
+            case IF:
+                output.addAll( instructions.subList( block.start, block.end ) );
+                Block target = jump.targetBlocks[0];
+                Block next = jump.targetBlocks[1];
+                if( target == next ) {
+                    addBlockInstruction( WasmBlockOperator.DROP, null, block );
+                    doBranch( block, next, follow );
+                } else if( isLabel( block, target ) ) {
+                    addBlockInstruction( WasmBlockOperator.BR_IF, depth( block, target ), block );
+                    doBranch( block, next, follow );
+                } else {
+                    addBlockInstruction( WasmBlockOperator.IF, ValueType.empty, block );
+                    contextSize++;
+                    doTree( target, follow );
+                    if( !isLabel( block, next ) || next != follow || next.order <= block.order ) {
+                        int elseIdx = output.size();
+                        addBlockInstruction( WasmBlockOperator.ELSE, null, block );
+                        doBranch( block, next, follow );
+                        removeEmptyElse( elseIdx );
+                    }
+                    contextSize--;
+                    addBlockInstruction( WasmBlockOperator.END, null, block );
+                }
+                break;
+            case SWITCH:
+                if( jump.tableSwitch ) {
+                    output.addAll( instructions.subList( block.start, block.end ) );
+                    int[] data = new int[jump.targets.length];
+                    for( int i = 0; i < data.length; i++ ) {
+                        data[i] = depth( block, jump.targetBlocks[i] );
+                    }
+                    addBlockInstruction( WasmBlockOperator.BR_TABLE, data, block );
+                } else {
+                    writeLookupSwitch( block, jump );
+                }
+                break;
+            default:
+                throw new IllegalStateException( jump.op.toString() );
+        }
+    }
+
+    /**
+     * Remove an ELSE if the else branch does not write any code, for example only the placeholder of a GOTO.
+     *
+     * @param elseIdx
+     *            the index of the ELSE in the output
+     */
+    private void removeEmptyElse( int elseIdx ) {
+        for( int i = elseIdx + 1; i < output.size(); i++ ) {
+            switch( output.get( i ).getType() ) {
+                case Jump:
+                case Nop:
+                    break;
+                default:
+                    return;
+            }
+        }
+        output.remove( elseIdx );
+    }
+
+    /**
+     * Write the instructions of a block that ends with a lookupswitch. The code builder has created a chain of compares
+     * and br_if with the block numbers of the classic BranchManager in the order of the case positions. This numbers
+     * are replaced with the depth of the case blocks.
+     *
+     * @param block
+     *            the block
+     * @param jump
+     *            the lookupswitch
+     */
+    private void writeLookupSwitch( Block block, Jump jump ) {
+        int caseCount = jump.targets.length - 1;
+        Integer[] sorted = new Integer[caseCount];
+        for( int i = 0; i < caseCount; i++ ) {
+            sorted[i] = i;
+        }
+        Arrays.sort( sorted, ( a, b ) -> Integer.compare( jump.targets[a], jump.targets[b] ) ); // stable
+        int caseIdx = 0;
+        for( int i = block.start; i < block.end; i++ ) {
+            WasmInstruction instr = instructions.get( i );
+            if( instr.getType() == WasmInstruction.Type.Block && instr.getCodePosition() == jump.startPosition ) {
+                WasmBlockInstruction blockInstr = (WasmBlockInstruction)instr;
+                switch( blockInstr.getOperation() ) {
+                    case BR_IF:
+                        blockInstr.setData( depth( block, jump.targetBlocks[sorted[caseIdx++]] ) );
+                        break;
+                    case BR:
+                        blockInstr.setData( depth( block, jump.targetBlocks[caseCount] ) );
+                        break;
+                    default:
+                }
+            }
+            output.add( instr );
+        }
+    }
+
+    /**
+     * Write the branch from a block to another block.
+     *
+     * @param from
+     *            the block that branch
+     * @param to
+     *            the target block
+     * @param follow
+     *            the merge block that follow directly after the code or null
+     */
+    private void doBranch( Block from, Block to, @Nullable Block follow ) {
+        if( isLabel( from, to ) ) {
+            if( to == follow && to.order > from.order ) {
+                return; // the block ends directly before the target
+            }
+            addBlockInstruction( WasmBlockOperator.BR, depth( from, to ), from );
+        } else {
+            doTree( to, follow );
+        }
+    }
+
+    /**
+     * If the target is reached with a br instruction or if the code is written inline.
+     *
+     * @param from
+     *            the block that branch
+     * @param to
+     *            the target block
+     * @return true, if a label
+     */
+    private static boolean isLabel( Block from, Block to ) {
+        return to.order <= from.order || to.merge;
+    }
+
+    /**
+     * Calculate the depth of a br instruction from the current context.
+     *
+     * @param from
+     *            the block that branch
+     * @param to
+     *            the target block
+     * @return the relative depth
+     */
+    private int depth( Block from, Block to ) {
+        int label = to.order <= from.order ? to.loopLabel : to.blockLabel;
+        if( label < 0 ) {
+            throw new IllegalStateException( "Branch target is not on the label stack" );
+        }
+        return contextSize - 1 - label;
+    }
+
+    /**
+     * Add a structure instruction to the output.
+     *
+     * @param op
+     *            the operation
+     * @param data
+     *            the extra data of the operation
+     * @param block
+     *            the block for the code position and line number
+     */
+    private void addBlockInstruction( WasmBlockOperator op, Object data, Block block ) {
+        WasmInstruction instr = instructions.get( Math.min( block.start, instructions.size() - 1 ) );
+        output.add( new WasmBlockInstruction( op, data, instr.getCodePosition(), instr.getLineNumber() ) );
+    }
+
+    /**
+     * A jump from the Java byte code.
+     */
+    private static class Jump {
+
+        private final JavaBlockOperator op;
+
+        private final int               startPosition;
+
+        /** the code positions of the jump targets, for IF the target and the next position */
+        private final int[]             targets;
+
+        private boolean                 tableSwitch;
+
+        /** the blocks of the targets */
+        private Block[]                 targetBlocks;
+
+        /**
+         * Create a jump.
+         *
+         * @param op
+         *            the operation
+         * @param startPosition
+         *            the code position of the jump
+         * @param targets
+         *            the targets
+         */
+        private Jump( JavaBlockOperator op, int startPosition, int[] targets ) {
+            this.op = op;
+            this.startPosition = startPosition;
+            this.targets = targets;
+        }
+    }
+
+    /**
+     * A basic block, a range of instructions without jumps into or out of the range.
+     */
+    private static class Block {
+
+        private final int         start;
+
+        private int               end;
+
+        private int               index;
+
+        /** the jump at the end of the block or null if it fall through */
+        private Jump              jump;
+
+        private final List<Block> successors    = new ArrayList<>();
+
+        private final List<Block> predecessors  = new ArrayList<>();
+
+        private final List<Block> mergeChildren = new ArrayList<>();
+
+        private int               nextSuccessor;
+
+        private boolean           visited;
+
+        private int               order         = -1;
+
+        private Block             idom;
+
+        private boolean           loopHeader;
+
+        private boolean           merge;
+
+        private boolean           switchTarget;
+
+        private int               loopLabel     = -1;
+
+        private int               blockLabel    = -1;
+
+        /** the last block that has added an edge to this block */
+        private Block             edgeFrom;
+
+        /** the interval of this block in a preorder walk of the dominator tree */
+        private int               domFirst;
+
+        private int               domLast;
+
+        /**
+         * Create a block.
+         *
+         * @param start
+         *            the index of the first instruction
+         */
+        private Block( int start ) {
+            this.start = start;
+        }
+
+        /**
+         * Add a control flow edge.
+         *
+         * @param succ
+         *            the successor
+         */
+        private void addSuccessor( Block succ ) {
+            if( succ.edgeFrom != this ) { // all edges of a block are added in one step
+                succ.edgeFrom = this;
+                successors.add( succ );
+                succ.predecessors.add( this );
+            }
+        }
+
+        /**
+         * If this block dominate the other block.
+         *
+         * @param other
+         *            the other block
+         * @return true, if every path from entry to other go through this block
+         */
+        private boolean dominates( Block other ) {
+            return domFirst <= other.domFirst && other.domFirst <= domLast;
+        }
+    }
+}
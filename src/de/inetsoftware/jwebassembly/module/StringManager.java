@@ -40,6 +40,8 @@ public class StringManager extends LinkedHashMap<String, Integer> {
 
     private int             stringMemoryOffset;
 
+    private int             passiveSize;
+
     /**
      * Create a new instance.
      * 
@@ -79,7 +81,13 @@ FunctionName getStringConstantFunction() {
             WatCodeSyntheticFunctionName offsetFunction =
                             new WatCodeSyntheticFunctionName( "de/inetsoftware/jwebassembly/module/nativecode/StringTable", "stringsMemoryOffset", "()I", "", null, ValueType.i32 ) {
                                 protected String getCode() {
-                                    return "i32.const " + stringMemoryOffset;
+                                    if( passiveSize == 0 ) {
+                                        return "i32.const " + stringMemoryOffset;
+                                    }
+                                    // copy the strings from the passive data segment on first use, the first index entry is never zero after it
+                                    return "i32.const " + stringMemoryOffset + " i32.load offset=0 align=4 i32.eqz " //
+                                                    + "if i32.const " + stringMemoryOffset + " i32.const 0 i32.const " + passiveSize + " memory.init 0 data.drop 0 end " //
+                                                    + "i32.const " + stringMemoryOffset;
                                 }
                             };
             functions.markAsNeededAndReplaceIfExists( offsetFunction );
@@ -149,6 +157,29 @@ void prepareFinish( ModuleWriter writer ) throws IOException {
         }
 
         stringOut.writeTo( dataStream );
+
+        if( writer.options.passiveStrings() ) {
+            passiveSize = dataStream.size() - stringMemoryOffset;
+        }
+    }
+
+    /**
+     * Get the offset of the string data in the linear memory.
+     * 
+     * @return the offset
+     */
+    int getMemoryOffset() {
+        return stringMemoryOffset;
+    }
+
+    /**
+     * Get the size of the passive data segment with the strings. The segment is copied to the memory offset of the
+     * strings on the first use of a string constant.
+     * 
+     * @return the size or 0 if the strings are part of the active data segment
+     */
+    int getPassiveSize() {
+        return passiveSize;
     }
 
     /**
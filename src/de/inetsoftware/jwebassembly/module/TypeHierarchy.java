@@ -0,0 +1,132 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import javax.annotation.Nonnull;
+
+import de.inetsoftware.classparser.ClassFile;
+import de.inetsoftware.classparser.ConstantClass;
+
+/**
+ * Memoized index of the Java class hierarchy. Every class that is requested get a running id and a bit set with the
+ * ids of all its super classes and all its interfaces. After the first request a subtype check is constant time
+ * without loading any class file.
+ * 
+ * The hierarchy of a class file does not change after it was loaded. Replacements are registered before the first
+ * scan and partial classes add only methods and fields.
+ * 
+ * @author Volker Berlin
+ */
+class TypeHierarchy {
+
+    private final ClassFileLoader       classFileLoader;
+
+    private final HashMap<String, Node> nodes = new HashMap<>();
+
+    /**
+     * Create a new instance.
+     * 
+     * @param classFileLoader
+     *            for loading the class files
+     */
+    TypeHierarchy( @Nonnull ClassFileLoader classFileLoader ) {
+        this.classFileLoader = classFileLoader;
+    }
+
+    /**
+     * Check if a class extends or implements another class or interface. A class is not a sub type of itself.
+     * 
+     * @param className
+     *            the name of the class like "java/lang/Integer"
+     * @param superName
+     *            the name of the possible super class or interface like "java/lang/Number"
+     * @return true, if superName is a direct or indirect super class or interface
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    boolean isSubTypeOf( @Nonnull String className, @Nonnull String superName ) throws IOException {
+        Node node = getNode( className );
+        // all super types of the class have a node now, an unknown name can't be a super type
+        Node superNode = nodes.get( superName );
+        return superNode != null && node.supers.get( superNode.id );
+    }
+
+    /**
+     * Get the node of a class and create it if needed.
+     * 
+     * @param className
+     *            the name of the class
+     * @return the node
+     * @throws IOException
+     *             If any I/O error occur
+     */
+    @Nonnull
+    private Node getNode( @Nonnull String className ) throws IOException {
+        Node node = nodes.get( className );
+        if( node != null ) {
+            return node;
+        }
+        node = new Node( nodes.size() );
+        nodes.put( className, node );
+        ClassFile classFile = classFileLoader.get( className );
+        if( classFile != null ) {
+            ConstantClass superClass = classFile.getSuperClass();
+            if( superClass != null ) {
+                node.addSuper( getNode( superClass.getName() ) );
+            }
+            for( ConstantClass iface : classFile.getInterfaces() ) {
+                node.addSuper( getNode( iface.getName() ) );
+            }
+        }
+        return node;
+    }
+
+    /**
+     * A class in the hierarchy.
+     */
+    private static class Node {
+
+        private final int    id;
+
+        private final BitSet supers = new BitSet();
+
+        /**
+         * Create a new instance.
+         * 
+         * @param id
+         *            the running id
+         */
+        private Node( int id ) {
+            this.id = id;
+        }
+
+        /**
+         * Add a direct super class or interface with all its super types.
+         * 
+         * @param superNode
+         *            the super node
+         */
+        private void addSuper( @Nonnull Node superNode ) {
+            supers.set( superNode.id );
+            supers.or( superNode.supers );
+        }
+    }
+}
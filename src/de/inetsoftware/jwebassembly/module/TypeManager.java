@@ -33,6 +33,7 @@
 import java.util.function.ToIntFunction;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import de.inetsoftware.classparser.BootstrapMethod;
 import de.inetsoftware.classparser.ClassFile;
@@ -67,6 +68,11 @@ public class TypeManager {
      */
     static final String                     FIELD_HASHCODE                     = ".hashcode";
 
+    /**
+     * Name of field with the reference to the GC vtable struct if call_ref is used, start with a point for an invalid Java identifier.
+     */
+    static final String                     FIELD_VTABLE_REF                   = ".vtableref";
+
     /**
      * Name of field with array value.
      */
@@ -107,7 +113,7 @@ public class TypeManager {
      * <li>array component type
      * <li>offset of fields description
      */
-    private static final int                VTABLE_FIRST_FUNCTION_INDEX        = 5;
+    static final int                        VTABLE_FIRST_FUNCTION_INDEX        = 5;
 
     private static final FunctionName       CLASS_CONSTANT_FUNCTION            = new FunctionName( "java/lang/Class.classConstant(I)Ljava/lang/Class;" );
 
@@ -178,6 +184,10 @@ public class TypeManager {
 
     private ClassFileLoader                 classFileLoader;
 
+    private TypeHierarchy                   hierarchy;
+
+    private HashSet<String>                 neededFieldNames;
+
     /**
      * Initialize the type manager.
      * 
@@ -196,6 +206,7 @@ public class TypeManager {
      */
     void init( ClassFileLoader classFileLoader ) {
         this.classFileLoader = classFileLoader;
+        this.hierarchy = new TypeHierarchy( classFileLoader );
     }
 
     /**
@@ -223,6 +234,15 @@ boolean isFinish() {
      *             if any I/O error occur on loading or writing
      */
     void scanTypeHierarchy() throws IOException {
+        if( options.useCallRef() ) {
+            valueOf( "java/lang/Object" ); // the type of the field FIELD_VTABLE_REF
+
+            // the structs of a class hierarchy must have a common prefix that the runtime types can build a sub type chain
+            neededFieldNames = new HashSet<>();
+            for( StructType type : structTypes.values() ) {
+                neededFieldNames.addAll( type.neededFields );
+            }
+        }
         for( StructType type : new ArrayList<>( structTypes.values() ) ) {
             type.scanTypeHierarchy( options.functions, this, classFileLoader );
         }
@@ -255,6 +275,16 @@ void prepareFinish( ModuleWriter writer ) throws IOException {
         }
     }
 
+    /**
+     * Create the set for the needed fields of a struct type. With call_ref it contains already the needed fields of
+     * all types.
+     * 
+     * @return a new set
+     */
+    private HashSet<String> createNeededFieldSet() {
+        return neededFieldNames == null ? new HashSet<>() : new HashSet<>( neededFieldNames );
+    }
+
     /**
      * Create an accessor for typeTableOffset and mark it.
      * 
@@ -323,6 +353,16 @@ public StructType valueOf( String name ) {
         return type;
     }
 
+    /**
+     * If fields of type boolean, byte, char and short are stored with the packed storage types i8 and i16. This is only
+     * possible with GC structs. Without GC the fields are JavaScript properties.
+     * 
+     * @return true, if packed
+     */
+    public boolean usePackedFields() {
+        return options.useGC();
+    }
+
     /**
      * Get the array type for the given component type.
      * 
@@ -624,6 +664,12 @@ public static class StructType implements AnyType {
 
         private List<FunctionName>                  vtable;
 
+        private List<FunctionName>                  vtableRoots;
+
+        private List<FunctionName>                  vtableRefs;
+
+        private StructType                          superType;
+
         private Set<StructType>                     instanceOFs;
 
         private Map<StructType, List<FunctionName>> interfaceMethods;
@@ -633,6 +679,8 @@ public static class StructType implements AnyType {
          */
         private int                                 vtableOffset;
 
+        private VTableType                          vtableType;
+
         /**
          * Create a reference to type
          * 
@@ -682,6 +730,8 @@ private void scanTypeHierarchy( FunctionManager functions, TypeManager types, Cl
             JWebAssembly.LOGGER.fine( "scan type hierachy: " + name );
             fields = new ArrayList<>();
             vtable = new ArrayList<>();
+            vtableRoots = new ArrayList<>();
+            superType = null;
             instanceOFs = new LinkedHashSet<>(); // remembers the order from bottom to top class.
             instanceOFs.add( this );
             interfaceMethods = new LinkedHashMap<>();
@@ -690,7 +740,7 @@ private void scanTypeHierarchy( FunctionManager functions, TypeManager types, Cl
                     // nothing
                     break;
                 case array:
-                    HashSet<String> allNeededFields = new HashSet<>();
+                    HashSet<String> allNeededFields = types.createNeededFieldSet();
                     listStructFields( "java/lang/Object", functions, types, classFileLoader, allNeededFields );
                     fields.add( ((ArrayType)this).getNativeFieldName() );
                     break;
@@ -698,7 +748,7 @@ private void scanTypeHierarchy( FunctionManager functions, TypeManager types, Cl
                     fields.add( new NamedStorageType( ((ArrayType)this).getArrayType(), null, null ) );
                     break;
                 case lambda:
-                    allNeededFields = new HashSet<>();
+                    allNeededFields = types.createNeededFieldSet();
                     listStructFields( "java/lang/Object", functions, types, classFileLoader, allNeededFields );
                     LambdaType lambda = (LambdaType)this;
                     fields.addAll( lambda.getParamFields() );
@@ -711,9 +761,34 @@ private void scanTypeHierarchy( FunctionManager functions, TypeManager types, Cl
                     // add all interfaces to the instanceof set
                     listInterfaces( functions, types, classFileLoader );
 
-                    allNeededFields = new HashSet<>();
+                    allNeededFields = types.createNeededFieldSet();
                     listStructFields( name, functions, types, classFileLoader, allNeededFields );
             }
+            if( types.options.useCallRef() && kind != StructTypeKind.primitive && kind != StructTypeKind.array_native ) {
+                listVTableRefs( functions, types );
+            }
+        }
+
+        /**
+         * List the functions of the GC vtable struct. Every slot is typed with the signature of the root declaration of
+         * the method. If the receiver type of the implementation is different then an adapter casts the receiver.
+         * 
+         * @param functions
+         *            the function manager
+         * @param types
+         *            the type manager
+         */
+        private void listVTableRefs( FunctionManager functions, TypeManager types ) {
+            vtableRefs = new ArrayList<>();
+            for( int i = 0; i < vtable.size(); i++ ) {
+                FunctionName func = vtable.get( i );
+                FunctionName root = vtableRoots.get( i );
+                if( !func.className.equals( root.className ) ) {
+                    func = new VTableAdapterFunctionName( func, types.valueOf( root.className ), types );
+                    functions.markAsNeeded( func, false );
+                }
+                vtableRefs.add( func );
+            }
         }
 
         /**
@@ -727,6 +802,9 @@ private void scanTypeHierarchy( FunctionManager functions, TypeManager types, Cl
         private void writeStructType( ModuleWriter writer ) throws IOException {
             JWebAssembly.LOGGER.fine( "write type: " + name );
             code = writer.writeStructType( this );
+            if( manager.options.useCallRef() && kind != StructTypeKind.primitive && kind != StructTypeKind.array_native ) {
+                getVTableType().code = writer.writeVTableType( this );
+            }
         }
 
         /**
@@ -756,16 +834,15 @@ private void listStructFields( String className, FunctionManager functions, Type
                 // to make it possible to cast an interface to java/lang/Object it must have the same fileds also if we never create an instance
                 fields.add( new NamedStorageType( ValueType.i32, className, FIELD_VTABLE ) );
                 fields.add( new NamedStorageType( ValueType.i32, className, FIELD_HASHCODE ) );
+                addVTableRefField( className, types );
                 return;
             }
 
-            {
-                // list all used fields
-                StructType type = types.structTypes.get( className );
-                if( type != null ) {
-                    allNeededFields.addAll( type.neededFields );
-                    instanceOFs.add( type );
-                }
+            // list all used fields
+            StructType type = types.structTypes.get( className );
+            if( type != null ) {
+                allNeededFields.addAll( type.neededFields );
+                instanceOFs.add( type );
             }
 
             // List stuff of super class
@@ -776,6 +853,10 @@ private void listStructFields( String className, FunctionManager functions, Type
             } else {
                 fields.add( new NamedStorageType( ValueType.i32, className, FIELD_VTABLE ) );
                 fields.add( new NamedStorageType( ValueType.i32, className, FIELD_HASHCODE ) );
+                addVTableRefField( className, types );
+            }
+            if( type != null && type != this && types.options.useCallRef() ) {
+                superType = type; // the nearest super class with a type, the recursion ends with the direct super class
             }
 
             // list all fields
@@ -812,6 +893,21 @@ private void listStructFields( String className, FunctionManager functions, Type
             }
         }
 
+        /**
+         * Add the field with the reference to the GC vtable struct if call_ref is used. The field is declared in the root
+         * class with the vtable type of java/lang/Object that all struct types has the same prefix.
+         * 
+         * @param className
+         *            the root class name
+         * @param types
+         *            the type manager
+         */
+        private void addVTableRefField( String className, TypeManager types ) {
+            if( types.options.useCallRef() ) {
+                fields.add( new NamedStorageType( types.valueOf( "java/lang/Object" ).getVTableType(), className, FIELD_VTABLE_REF ) );
+            }
+        }
+
         /**
          * Add the function to the vtable or replace if already exists
          * 
@@ -838,6 +934,7 @@ private void addOrUpdateVTable( FunctionManager functions, FunctionName funcName
             if( idx == vtable.size() && functions.isUsed( funcName ) ) {
                 // if a new needed method then add it
                 vtable.add( funcName );
+                vtableRoots.add( funcName );
             }
             if( idx < vtable.size() ) {
                 functions.setVTableIndex( funcName, idx + VTABLE_FIRST_FUNCTION_INDEX );
@@ -1009,52 +1106,10 @@ public boolean isSubTypeOf( AnyType type ) {
             }
 
             try {
-                ClassFile classFile = manager.classFileLoader.get( name );
-                String otherTypeName = structType.name;
-                while( classFile != null ) {
-                    if( isSubTypeOf( classFile, otherTypeName )) {
-                        return true;
-                    }
-
-                    ConstantClass superClass = classFile.getSuperClass();
-                    if( superClass == null ) {
-                        break;
-                    }
-                    String superName = superClass.getName();
-                    if( superName.equals( otherTypeName ) ) {
-                        return true;
-                    }
-                    classFile = manager.classFileLoader.get( superName );
-                }
+                return manager.hierarchy.isSubTypeOf( name, structType.name );
             } catch( IOException ex ) {
                 throw new UncheckedIOException( ex );
             }
-
-            return false;
-        }
-
-        /**
-         * Check for sub interface recursively.
-         * 
-         * @param classFile
-         *            the class file to check
-         * @param otherTypeName
-         *            the searching interface name
-         * @return true, if a sub interface
-         * @throws IOException
-         *             If any I/O error occur
-         */
-        private boolean isSubTypeOf( ClassFile classFile, String otherTypeName ) throws IOException {
-            for( ConstantClass iface : classFile.getInterfaces() ) {
-                if( iface.getName().equals( otherTypeName ) ) {
-                    return true;
-                }
-                ClassFile iClassFile = manager.classFileLoader.get( iface.getName() );
-                if( iClassFile != null && isSubTypeOf( iClassFile, otherTypeName ) ) {
-                    return true;
-                }
-            }
-            return false;
         }
 
         /**
@@ -1189,7 +1244,11 @@ public void writeToStream( ByteArrayOutputStream dataStream, ToIntFunction<Funct
                     nameIdx = options.strings.get( field.getName() );
                     //TODO adapt this format for the reflection API
                     data.writeInt32( nameIdx );
-                    data.writeInt32( field.getType().getCode() );
+                    AnyType fieldType = field.getType();
+                    if( fieldType == ValueType.bool || fieldType == ValueType.i8 || fieldType == ValueType.u16 || fieldType == ValueType.i16 ) {
+                        fieldType = ValueType.i32; // packed storage has the same reflection type as without GC
+                    }
+                    data.writeInt32( fieldType.getCode() );
                 }
             }
 
@@ -1205,6 +1264,49 @@ public int getVTable() {
             return this.vtableOffset;
         }
 
+        /**
+         * Get the functions of the vtable in the order of the vtable index.
+         * 
+         * @return the functions
+         */
+        public List<FunctionName> getVTableFunctions() {
+            return vtable;
+        }
+
+        /**
+         * Get the functions of the GC vtable struct in the order of the vtable index. The functions have the signature
+         * of the root declaration. Used if call_ref is enabled.
+         * 
+         * @return the functions
+         */
+        public List<FunctionName> getVTableRefFunctions() {
+            return vtableRefs;
+        }
+
+        /**
+         * Get the nearest super class which is also a used type. The runtime type of this type is a sub of its runtime
+         * type. Only set if call_ref is enabled.
+         * 
+         * @return the super type or null
+         */
+        @Nullable
+        public StructType getSuperType() {
+            return superType;
+        }
+
+        /**
+         * Get the type of the GC vtable struct of this type. Used if call_ref is enabled.
+         * 
+         * @return the vtable type
+         */
+        @Nonnull
+        public VTableType getVTableType() {
+            if( vtableType == null ) {
+                vtableType = new VTableType( this );
+            }
+            return vtableType;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -1214,6 +1316,92 @@ public String toString() {
         }
     }
 
+    /**
+     * The type of the GC struct with the typed function references of the vtable of a StructType. There is one immutable
+     * global instance for every StructType. It is only used if call_ref is enabled.
+     * 
+     * @author Volker Berlin
+     */
+    public static class VTableType implements AnyType {
+
+        private final StructType structType;
+
+        private int              code = Integer.MAX_VALUE;
+
+        /**
+         * Create a new instance.
+         * 
+         * @param structType
+         *            the type which has this vtable
+         */
+        private VTableType( @Nonnull StructType structType ) {
+            this.structType = structType;
+        }
+
+        /**
+         * Get the type which has this vtable
+         * 
+         * @return the type
+         */
+        @Nonnull
+        public StructType getStructType() {
+            return structType;
+        }
+
+        /**
+         * Get the vtable type of the super type.
+         * 
+         * @return the super vtable type or null
+         */
+        @Nullable
+        public VTableType getSuperType() {
+            StructType superType = structType.getSuperType();
+            return superType == null ? null : superType.getVTableType();
+        }
+
+        /**
+         * Get the name of the immutable global with the vtable instance.
+         * 
+         * @return the name
+         */
+        @Nonnull
+        public FunctionName getGlobalName() {
+            return new FunctionName( structType.getName(), FIELD_VTABLE, "" );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isRefType() {
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isSubTypeOf( AnyType type ) {
+            return type == this || (type instanceof VTableType && structType.isSubTypeOf( ((VTableType)type).structType ));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "$" + structType.getName() + FIELD_VTABLE;
+        }
+    }
+
     /**
      * A generated type that represent a lambda expression
      */
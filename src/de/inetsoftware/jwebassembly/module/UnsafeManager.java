@@ -348,7 +348,7 @@ private static String getClassConst( List<WasmInstruction> instructions, StackVa
                     if( instr.getType() == Type.Local ) {
                         WasmLocalInstruction loadInstr = (WasmLocalInstruction)instr;
                         if( loadInstr.getSlot() == slot && loadInstr.getOperator() == VariableOperator.set ) {
-                            stackValue = StackInspector.findInstructionThatPushValue( instructions.subList( 0, i ), 1, instr.getCodePosition() );
+                            stackValue = StackInspector.findInstructionThatPushValue( instructions, i, 1, instr.getCodePosition() );
                             instr = stackValue.instr;
                             break;
                         }
@@ -377,21 +377,20 @@ private void patch_objectFieldOffset_Java8( List<WasmInstruction> instructions,
         UnsafeState state = findUnsafeState( instructions, idx );
 
         // objectFieldOffset() has 2 parameters THIS(Unsafe) and a Field
-        List<WasmInstruction> paramInstructions = instructions.subList( 0, idx );
-        int from = StackInspector.findInstructionThatPushValue( paramInstructions, 2, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 2, callInst.getCodePosition() ).idx;
 
-        StackValue stackValue = StackInspector.findInstructionThatPushValue( paramInstructions, 1, callInst.getCodePosition() );
+        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, 1, callInst.getCodePosition() );
         WasmInstruction instr = stackValue.instr;
         WasmCallInstruction fieldInst = (WasmCallInstruction)instr;
 
         FunctionName fieldFuncName = fieldInst.getFunctionName();
         switch( fieldFuncName.signatureName ) {
             case "java/lang/Class.getDeclaredField(Ljava/lang/String;)Ljava/lang/reflect/Field;":
-                stackValue = StackInspector.findInstructionThatPushValue( instructions.subList( 0, stackValue.idx ), 1, fieldInst.getCodePosition() );
+                stackValue = StackInspector.findInstructionThatPushValue( instructions, stackValue.idx, 1, fieldInst.getCodePosition() );
                 state.fieldName = ((WasmConstStringInstruction)stackValue.instr).getValue();
 
                 // find the class value on which getDeclaredField is called
-                stackValue = StackInspector.findInstructionThatPushValue( instructions.subList( 0, stackValue.idx ), 1, fieldInst.getCodePosition() );
+                stackValue = StackInspector.findInstructionThatPushValue( instructions, stackValue.idx, 1, fieldInst.getCodePosition() );
                 state.typeName = getClassConst( instructions, stackValue );
                 break;
 
@@ -421,15 +420,14 @@ private void patch_objectFieldOffset_Java11( List<WasmInstruction> instructions,
         UnsafeState state = findUnsafeState( instructions, idx );
 
         // objectFieldOffset() has 3 parameters THIS(Unsafe), class and the fieldname
-        List<WasmInstruction> paramInstructions = instructions.subList( 0, idx );
-        int from = StackInspector.findInstructionThatPushValue( paramInstructions, 3, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 3, callInst.getCodePosition() ).idx;
 
-        StackValue stackValue = StackInspector.findInstructionThatPushValue( paramInstructions, 1, callInst.getCodePosition() );
+        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, 1, callInst.getCodePosition() );
         state.fieldName = ((WasmConstStringInstruction)stackValue.instr).getValue();
 
         // find the class value on which getDeclaredField is called
         int classParamIdx = isAtomicReferenceFieldUpdater ? 3 : 2;
-        stackValue = StackInspector.findInstructionThatPushValue( paramInstructions, classParamIdx, callInst.getCodePosition() );
+        stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, classParamIdx, callInst.getCodePosition() );
         state.typeName = getClassConst( instructions, stackValue );
 
         useFieldName( state );
@@ -450,10 +448,9 @@ private void patch_arrayBaseOffset( List<WasmInstruction> instructions, int idx,
         UnsafeState state = findUnsafeState( instructions, idx );
 
         // objectFieldOffset() has 2 parameters THIS(Unsafe) and a Class from an array
-        List<WasmInstruction> paramInstructions = instructions.subList( 0, idx );
-        int from = StackInspector.findInstructionThatPushValue( paramInstructions, 2, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 2, callInst.getCodePosition() ).idx;
 
-        StackValue stackValue = StackInspector.findInstructionThatPushValue( paramInstructions, 1, callInst.getCodePosition() );
+        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, 1, callInst.getCodePosition() );
         state.typeName = getClassConst( instructions, stackValue );
 
         nop( instructions, from, idx );
@@ -472,7 +469,7 @@ private void patch_arrayBaseOffset( List<WasmInstruction> instructions, int idx,
      *            the method call to Unsafe
      */
     private void patch_arrayIndexScale( List<WasmInstruction> instructions, int idx, WasmCallInstruction callInst ) {
-        int from = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), 2, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 2, callInst.getCodePosition() ).idx;
 
         nop( instructions, from, idx );
         // we put the constant value 1 on the stack because we does not want shift array positions
@@ -508,7 +505,7 @@ private void useFieldName( @Nonnull UnsafeState state ) throws IOException {
      *            the function parameter on the stack with the field offset on the stack. This must be a long (Java signature "J") for Unsafe. This is the parameter count from right.
      */
     private void patchFieldFunction( List<WasmInstruction> instructions, int idx, final WasmCallInstruction callInst, FunctionName name, int fieldNameParam ) {
-        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), fieldNameParam, callInst.getCodePosition() );
+        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, fieldNameParam, callInst.getCodePosition() );
         WasmInstruction instr = stackValue.instr;
 
         Set<FunctionName> fieldNames;
@@ -529,7 +526,7 @@ private void patchFieldFunction( List<WasmInstruction> instructions, int idx, fi
             if( fieldNameWithOffset == null ) {
                 // java.util.concurrent.ConcurrentHashMap.tabAt() calculate a value with the field
                 int pos2 = stackValue.idx;
-                stackValue = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), fieldNameParam + 1, callInst.getCodePosition() );
+                stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, fieldNameParam + 1, callInst.getCodePosition() );
                 int i = stackValue.idx;
                 for( ; i < pos2; i++ ) {
                     instr = instructions.get( i );
@@ -589,7 +586,7 @@ protected String getCode() {
                                                             + "   i32.const 1" //
                                                             + "   return" //
                                                             + " end" //
-                                                            + " i32.const 1" //
+                                                            + " i32.const 0" // the current value is not the expected value
                                                             + " return";
                                         } else {
                                             // array access
@@ -608,7 +605,7 @@ protected String getCode() {
                                                             + "   i32.const 1" //
                                                             + "   return" //
                                                             + " end" //
-                                                            + " i32.const 1" //
+                                                            + " i32.const 0" // the current value is not the expected value
                                                             + " return";
                                         }
 
@@ -721,7 +718,7 @@ private void patch_getLongUnaligned( List<WasmInstruction> instructions, int idx
      *            the method call to Unsafe
      */
     private void patch_isBigEndian( List<WasmInstruction> instructions, int idx, final WasmCallInstruction callInst ) {
-//        int from = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), 1, callInst.getCodePosition() ).idx;
+//        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 1, callInst.getCodePosition() ).idx;
 //
 //        nop( instructions, from, idx );
 
@@ -740,7 +737,7 @@ private void patch_isBigEndian( List<WasmInstruction> instructions, int idx, fin
      *            the method call to Unsafe
      */
     private void replaceWithConstNumber( List<WasmInstruction> instructions, int idx, final WasmCallInstruction callInst, int paramCount, int number ) {
-        int from = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), 1, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 1, callInst.getCodePosition() ).idx;
 
         nop( instructions, from, idx );
 
@@ -761,7 +758,7 @@ private void replaceWithConstNumber( List<WasmInstruction> instructions, int idx
      *            the count of params that must be removed from stack (including THIS if instance method)
      */
     private void remove( List<WasmInstruction> instructions, int idx, final WasmCallInstruction callInst, int paramCount ) {
-        int from = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), paramCount, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, paramCount, callInst.getCodePosition() ).idx;
 
         nop( instructions, from, idx + 1 );
     }
@@ -833,14 +830,13 @@ private void patch_findVarHandle( List<WasmInstruction> instructions, int idx, W
         UnsafeState state = findUnsafeState( instructions, idx );
 
         // objectFieldOffset() has 3 parameters THIS(Unsafe), class and the fieldname
-        List<WasmInstruction> paramInstructions = instructions.subList( 0, idx );
-        int from = StackInspector.findInstructionThatPushValue( paramInstructions, 4, callInst.getCodePosition() ).idx;
+        int from = StackInspector.findInstructionThatPushValue( instructions, idx, 4, callInst.getCodePosition() ).idx;
 
-        StackValue stackValue = StackInspector.findInstructionThatPushValue( paramInstructions, 2, callInst.getCodePosition() );
+        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, 2, callInst.getCodePosition() );
         state.fieldName = ((WasmConstStringInstruction)stackValue.instr).getValue();
 
         // find the class value on which getDeclaredField is called
-        stackValue = StackInspector.findInstructionThatPushValue( paramInstructions, 3, callInst.getCodePosition() );
+        stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, 3, callInst.getCodePosition() );
         state.typeName = getClassConst( instructions, stackValue );
 
         useFieldName( state );
@@ -862,7 +858,7 @@ private void patch_findVarHandle( List<WasmInstruction> instructions, int idx, W
      *            the function parameter with the field offset on the stack. This must be a long (Java signature "J") for Unsafe.
      */
     private void patchVarHandleFieldFunction( List<WasmInstruction> instructions, int idx, final WasmCallInstruction callInst, FunctionName name, int fieldNameParam ) {
-        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions.subList( 0, idx ), fieldNameParam, callInst.getCodePosition() );
+        StackValue stackValue = StackInspector.findInstructionThatPushValue( instructions, idx, fieldNameParam, callInst.getCodePosition() );
         FunctionName fieldNameWithOffset = ((WasmGlobalInstruction)stackValue.instr).getFieldName();
         WatCodeSyntheticFunctionName func =
                         new WatCodeSyntheticFunctionName( fieldNameWithOffset.className, '.' + name.methodName, name.signature, "", (AnyType[])null ) {
@@ -892,7 +888,7 @@ protected String getCode() {
                                                         + "   i32.const 1" //
                                                         + "   return" //
                                                         + " end" //
-                                                        + " i32.const 1" //
+                                                        + " i32.const 0" // the current value is not the expected value
                                                         + " return";
 
                                     case "getAndSet":
@@ -0,0 +1,115 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.annotation.Nonnull;
+
+import de.inetsoftware.jwebassembly.module.TypeManager.StructType;
+import de.inetsoftware.jwebassembly.wasm.AnyType;
+import de.inetsoftware.jwebassembly.wasm.StructOperator;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+import de.inetsoftware.jwebassembly.watparser.WatParser;
+
+/**
+ * Synthetic function in a slot of a GC vtable struct if the method is overridden in a sub class. The slot is typed with
+ * the signature of the root declaration of the method. The adapter has this signature, casts the receiver to the class
+ * of the implementation and forwards the call.
+ * 
+ * @author Volker Berlin
+ */
+class VTableAdapterFunctionName extends ArraySyntheticFunctionName {
+
+    private final FunctionName method;
+
+    private final StructType   rootType;
+
+    /**
+     * Create a new instance.
+     * 
+     * @param method
+     *            the implementation of the method
+     * @param rootType
+     *            the type of the class with the root declaration of the method
+     * @param types
+     *            the type manager
+     */
+    VTableAdapterFunctionName( @Nonnull FunctionName method, @Nonnull StructType rootType, @Nonnull TypeManager types ) {
+        super( method.className, method.methodName + "$vtable", method.signature, signature( method, rootType, types ) );
+        this.method = method;
+        this.rootType = rootType;
+    }
+
+    /**
+     * Create the signature of the root declaration.
+     * 
+     * @param method
+     *            the implementation of the method
+     * @param rootType
+     *            the type of the receiver
+     * @param types
+     *            the type manager
+     * @return the signature, first the parameters, then null and the the return types
+     */
+    private static AnyType[] signature( FunctionName method, StructType rootType, TypeManager types ) {
+        ArrayList<AnyType> sig = new ArrayList<>();
+        sig.add( rootType );
+        for( Iterator<AnyType> it = method.getSignature( types ); it.hasNext(); ) {
+            sig.add( it.next() );
+        }
+        return sig.toArray( new AnyType[sig.size()] );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean hasWasmCode() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected WasmCodeBuilder getCodeBuilder( WatParser watParser ) {
+        WasmCodeBuilder codebuilder = watParser;
+        TypeManager types = watParser.getTypeManager();
+        watParser.reset( null, null, getSignature( types ) );
+
+        // the receiver is a sub type of the root declaration, a down cast without further check is possible
+        codebuilder.addLoadStoreInstruction( rootType, true, 0, 0, -1 );
+        codebuilder.getInstructions().add( new WasmStructInstruction( StructOperator.CAST, method.className, null, 0, -1, types ) );
+
+        int slot = 1;
+        for( Iterator<AnyType> it = method.getSignature( types ); it.hasNext(); ) {
+            AnyType type = it.next();
+            if( type == null ) {
+                break;
+            }
+            codebuilder.addLoadStoreInstruction( type, true, slot++, 0, -1 );
+            if( type == ValueType.i64 || type == ValueType.f64 ) {
+                // 64bit values use two slots in Java
+                slot++;
+            }
+        }
+        codebuilder.addCallInstruction( method, true, 0, -1 );
+        return watParser;
+    }
+}
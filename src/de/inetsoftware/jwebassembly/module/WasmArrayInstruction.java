@@ -83,7 +83,9 @@ SyntheticFunctionName createNonGcFunction( boolean useGC ) {
                         @Override
                         protected String getCode() {
                             String nativeArrayTypeName = ((ArrayType)arrayType.getNativeArrayType()).getName();
+                            String vtableRef = types.options.useCallRef() ? " global.get $" + arrayType.getVTableType().getGlobalName().fullName : "";
                             return "i32.const " + arrayType.getVTable() + " i32.const 0" // hashcode
+                                            + vtableRef // reference to the vtable struct
                                             + " local.get 0" // array size
                                             + " rtt.canon " + nativeArrayTypeName //
                                             + " array.new_default_with_rtt " + nativeArrayTypeName //
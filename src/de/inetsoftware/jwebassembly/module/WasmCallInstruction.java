@@ -44,6 +44,8 @@ class WasmCallInstruction extends WasmInstruction {
 
     private final String      comment;
 
+    private boolean           tailCall;
+
     /**
      * Create an instance of a function call instruction
      * 
@@ -104,6 +106,22 @@ FunctionName getFunctionName() {
         return name;
     }
 
+    /**
+     * Mark this call as call in a tail position. The following return is not needed anymore.
+     */
+    void setTailCall() {
+        tailCall = true;
+    }
+
+    /**
+     * If this call is in a tail position and should be written as return_call.
+     * 
+     * @return true, if tail call
+     */
+    boolean isTailCall() {
+        return tailCall;
+    }
+
     /**
      * Get the type manager.
      * @return the manager
@@ -116,7 +134,7 @@ TypeManager getTypeManager() {
      * {@inheritDoc}
      */
     public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
-        writer.writeFunctionCall( name, comment );
+        writer.writeFunctionCall( name, comment, tailCall );
     }
 
     /**
@@ -183,6 +201,6 @@ private void countParams() {
      */
     @Override
     public String toString() {
-        return getClass().getSimpleName() + ": call $" + name.signatureName + (comment == null ? "" : "  ;; \"" + comment + "\"");
+        return getClass().getSimpleName() + (tailCall ? ": return_call $" : ": call $") + name.signatureName + (comment == null ? "" : "  ;; \"" + comment + "\"");
     }
 }
@@ -84,6 +84,6 @@ public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
         writer.writeConst( interfaceFunctionIdx * 4, ValueType.i32 );
         writer.writeFunctionCall( options.getCallInterface(), null ); // parameters: this, classIndex, functionIndex
 
-        writer.writeVirtualFunctionCall( name, type );
+        writer.writeVirtualFunctionCall( name, type, isTailCall() );
     }
 }
@@ -17,10 +17,14 @@
 package de.inetsoftware.jwebassembly.module;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
 import de.inetsoftware.jwebassembly.module.TypeManager.StructType;
+import de.inetsoftware.jwebassembly.module.TypeManager.VTableType;
+import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
+import de.inetsoftware.jwebassembly.wasm.StructOperator;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 import de.inetsoftware.jwebassembly.wasm.VariableOperator;
 
@@ -82,10 +86,44 @@ public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
             // duplicate this on the stack
             writer.writeLocal( VariableOperator.get, getVariableIndexOfThis() );
 
+            if( options.useCallRef() ) {
+                writeCallRef( writer, virtualFunctionIdx );
+                return;
+            }
             writer.writeConst( virtualFunctionIdx * 4, ValueType.i32 );
             writer.writeFunctionCall( options.getCallVirtual(), null );
             StructType type = getThisType();
-            writer.writeVirtualFunctionCall( getFunctionName(), type );
+            writer.writeVirtualFunctionCall( getFunctionName(), type, isTailCall() );
         }
     }
+
+    /**
+     * Write the virtual call over the GC vtable struct with call_ref. On the stack there is the object.
+     * 
+     * @param writer
+     *            the target
+     * @param virtualFunctionIdx
+     *            the index of the function in the vtable
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeCallRef( @Nonnull ModuleWriter writer, int virtualFunctionIdx ) throws IOException {
+        StructType type = getThisType();
+        List<NamedStorageType> fields = type.getFields();
+        int idx = fields.size() - 1;
+        while( TypeManager.FIELD_VTABLE_REF != fields.get( idx ).getName() ) {
+            idx--;
+        }
+        NamedStorageType field = fields.get( idx );
+        writer.writeStructOperator( StructOperator.GET, type, field, idx );
+
+        // the field is declared with the vtable type of java/lang/Object
+        VTableType vtableType = type.getVTableType();
+        if( field.getType() != vtableType ) {
+            writer.writeStructOperator( StructOperator.RTT_CANON, vtableType, null, -1 );
+            writer.writeStructOperator( StructOperator.CAST, vtableType, null, -1 );
+        }
+        writer.writeStructOperator( StructOperator.GET, vtableType, null, virtualFunctionIdx - TypeManager.VTABLE_FIRST_FUNCTION_INDEX );
+        writer.writeFunctionRefCall( getFunctionName(), isTailCall() );
+    }
 }
@@ -36,6 +36,7 @@
 import de.inetsoftware.jwebassembly.javascript.NonGC;
 import de.inetsoftware.jwebassembly.module.StackInspector.StackValue;
 import de.inetsoftware.jwebassembly.module.TypeManager.LambdaType;
+import de.inetsoftware.jwebassembly.module.TypeManager.VTableType;
 import de.inetsoftware.jwebassembly.module.WasmInstruction.Type;
 import de.inetsoftware.jwebassembly.wasm.AnyType;
 import de.inetsoftware.jwebassembly.wasm.ArrayOperator;
@@ -43,6 +44,7 @@
 import de.inetsoftware.jwebassembly.wasm.MemoryOperator;
 import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
 import de.inetsoftware.jwebassembly.wasm.NumericOperator;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
 import de.inetsoftware.jwebassembly.wasm.StructOperator;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 import de.inetsoftware.jwebassembly.wasm.ValueTypeParser;
@@ -81,7 +83,7 @@ public abstract class WasmCodeBuilder {
      */
     protected WasmCodeBuilder() {
         localVariables = new LocaleVariableManager();
-        instructions = new ArrayList<>();
+        instructions = new InstructionList();
     }
 
     /**
@@ -523,6 +525,13 @@ protected void addGlobalInstruction( boolean load, String fieldName, int javaCod
             if( fieldName.startsWith( "$" ) ) {
                 fieldName = fieldName.substring( 1 );
             }
+            if( fieldName.endsWith( TypeManager.FIELD_VTABLE ) ) {
+                // the immutable global with the vtable struct of a type, used with call_ref
+                String className = fieldName.substring( 0, fieldName.length() - TypeManager.FIELD_VTABLE.length() - 1 );
+                VTableType vtableType = types.valueOf( className ).getVTableType();
+                instructions.add( new WasmGlobalInstruction( true, vtableType.getGlobalName(), vtableType, null, javaCodePos, lineNumber ) );
+                return;
+            }
             FunctionName name = new FunctionName( fieldName + "()V" );
             ClassFile classFile = classFileLoader.get( name.className );
             FieldInfo field = classFile.getField( name.methodName );
@@ -930,6 +939,12 @@ protected void addStructInstruction( StructOperator op, @Nonnull String typeName
                     addDupInstruction( false, javaCodePos, lineNumber );
                     addConstInstruction( structInst.getStructType().getVTable(), javaCodePos, lineNumber );
                     instructions.add( new WasmStructInstruction( StructOperator.SET, typeName, new NamedStorageType( ValueType.i32, "", TypeManager.FIELD_VTABLE ), javaCodePos, lineNumber, types ) );
+                    if( options.useCallRef() ) {
+                        VTableType vtableType = structInst.getStructType().getVTableType();
+                        addDupInstruction( false, javaCodePos, lineNumber );
+                        instructions.add( new WasmGlobalInstruction( true, vtableType.getGlobalName(), vtableType, null, javaCodePos, lineNumber ) );
+                        instructions.add( new WasmStructInstruction( StructOperator.SET, typeName, new NamedStorageType( vtableType, "", TypeManager.FIELD_VTABLE_REF ), javaCodePos, lineNumber, types ) );
+                    }
                     break;
                 }
                 //$FALL-THROUGH$
@@ -1021,4 +1036,26 @@ protected void addInvokeDynamic( BootstrapMethod method, String factorySignature
     protected void addMemoryInstruction( MemoryOperator op, ValueType type, int offset, int alignment, int javaCodePos, int lineNumber ) {
         instructions.add( new WasmMemoryInstruction( op, type, offset, alignment, javaCodePos, lineNumber ) );
     }
+
+    /**
+     * Add a fixed-width SIMD operation.
+     * 
+     * @param op
+     *            the operation
+     * @param offset
+     *            the memory offset for memory operations
+     * @param alignment
+     *            the alignment for memory operations
+     * @param lane
+     *            the lane index for lane operations
+     * @param immediate
+     *            the 16 bytes of v128.const or the 16 lane indices of i8x16.shuffle
+     * @param javaCodePos
+     *            the code position/offset in the Java method
+     * @param lineNumber
+     *            the line number in the Java source code
+     */
+    protected void addSimdInstruction( SimdOperator op, int offset, int alignment, int lane, byte[] immediate, int javaCodePos, int lineNumber ) {
+        instructions.add( new WasmSimdInstruction( op, offset, alignment, lane, immediate, javaCodePos, lineNumber ) );
+    }
 }
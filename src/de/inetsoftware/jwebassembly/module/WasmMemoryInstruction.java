@@ -48,7 +48,7 @@ class WasmMemoryInstruction extends WasmInstruction {
      * @param type
      *            the type of the static field
      * @param offset
-     *            the base offset which will be added to the offset value on the stack
+     *            the base offset which will be added to the offset value on the stack or the index of the data segment for init and data_drop
      * @param alignment
      *            the alignment of the value on the linear memory (0: 8 Bit; 1: 16 Bit; 2: 32 Bit)
      * @param javaCodePos
@@ -85,7 +85,17 @@ public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
      */
     @Override
     AnyType getPushValueType() {
-        return op.name().startsWith( "load" ) ? type : null;
+        switch( op ) {
+            case atomic_store:
+                return null;
+            case atomic_wait:
+            case atomic_notify:
+            case size:
+            case grow:
+                return ValueType.i32;
+            default:
+                return op.name().startsWith( "load" ) || op.name().startsWith( "atomic" ) ? type : null;
+        }
     }
 
     /**
@@ -93,7 +103,25 @@ AnyType getPushValueType() {
      */
     @Override
     int getPopCount() {
-        return op.name().startsWith( "load" ) ? 0 : 1;
+        switch( op ) {
+            case atomic_load:
+            case grow:
+                return 1;
+            case atomic_store:
+            case atomic_rmw_add:
+            case atomic_rmw_xchg:
+            case atomic_notify:
+                return 2;
+            case atomic_rmw_cmpxchg:
+            case atomic_wait:
+            case init:
+                return 3;
+            case size:
+            case data_drop:
+                return 0;
+            default:
+                return op.name().startsWith( "load" ) ? 0 : 1;
+        }
     }
 
     /**
@@ -101,6 +129,27 @@ int getPopCount() {
      */
     @Override
     AnyType[] getPopValueTypes() {
-        return op.name().startsWith( "load" ) ? null : new AnyType[] { type };
+        switch( op ) {
+            case atomic_load:
+            case grow:
+                return new AnyType[] { ValueType.i32 };
+            case atomic_store:
+            case atomic_rmw_add:
+            case atomic_rmw_xchg:
+                return new AnyType[] { ValueType.i32, type };
+            case atomic_notify:
+                return new AnyType[] { ValueType.i32, ValueType.i32 };
+            case atomic_rmw_cmpxchg:
+                return new AnyType[] { ValueType.i32, type, type };
+            case atomic_wait:
+                return new AnyType[] { ValueType.i32, type, ValueType.i64 };
+            case init:
+                return new AnyType[] { ValueType.i32, ValueType.i32, ValueType.i32 };
+            case size:
+            case data_drop:
+                return null;
+            default:
+                return op.name().startsWith( "load" ) ? null : new AnyType[] { type };
+        }
     }
 }
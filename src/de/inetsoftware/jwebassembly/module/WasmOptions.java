@@ -15,12 +15,15 @@
  */
 package de.inetsoftware.jwebassembly.module;
 
+import java.io.File;
 import java.util.HashMap;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import de.inetsoftware.jwebassembly.JWebAssembly;
 import de.inetsoftware.jwebassembly.javascript.JavaScriptSyntheticFunctionName;
+import de.inetsoftware.jwebassembly.wasm.AnyType;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 
 /**
@@ -40,7 +43,10 @@ public class WasmOptions {
     public final StringManager    strings   = new StringManager( this );
 
     @Nonnull
-    final CodeOptimizer           optimizer = new CodeOptimizer();
+    final MonitorManager          monitors  = new MonitorManager( this );
+
+    @Nonnull
+    final CodeOptimizer           optimizer = new CodeOptimizer( this );
 
     private final boolean         debugNames;
 
@@ -48,11 +54,51 @@ public class WasmOptions {
 
     private final boolean         useEH;
 
+    private final boolean         useThreads;
+
+    private final boolean         useTailCalls;
+
+    private final boolean         useCallRef;
+
+    private final boolean         ssaOptimizer;
+
+    private final boolean         useStackifier;
+
     private final boolean         ignoreNative;
 
+    @Nullable
+    private final File            classFileCache;
+
+    private final boolean         textStreaming;
+
     @Nonnull
     private final String          sourceMapBase;
 
+    private final boolean         sourceMapIndex;
+
+    private final boolean         dwarf;
+
+    private final boolean         dwarfSidecar;
+
+    @Nullable
+    private final File            splitProfile;
+
+    private final boolean         passiveStrings;
+
+    private final int             memoryInitialPages;
+
+    private final int             memoryMaximumPages;
+
+    private final int             memoryHeapBase;
+
+    private final boolean         exportHeapBase;
+
+    private final boolean         validate;
+
+    private final boolean         moduleOptimizer;
+
+    private final boolean         compressedOutput;
+
     /**
      * NonGC function for ref_eq polyfill.
      */
@@ -60,6 +106,8 @@ public class WasmOptions {
 
     private FunctionName          get_i32;
 
+    private FunctionName          splitLoader;
+
     private FunctionName          callVirtual;
 
     private FunctionName          callInterface;
@@ -78,13 +126,34 @@ public WasmOptions( HashMap<String, String> properties ) {
         debugNames = Boolean.parseBoolean( properties.get( JWebAssembly.DEBUG_NAMES ) );
         useGC = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.WASM_USE_GC, "false" ) );
         useEH = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.WASM_USE_EH, "false" ) );
+        useThreads = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.WASM_USE_THREADS, "false" ) );
+        useTailCalls = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.WASM_USE_TAIL_CALLS, "false" ) );
+        useCallRef = useGC && Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.WASM_USE_CALL_REF, "false" ) );
+        ssaOptimizer = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.SSA_OPTIMIZER, "false" ) );
+        useStackifier = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.STACKIFIER, "false" ) );
         ignoreNative = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.IGNORE_NATIVE, "false" ) );
+        String cacheDir = properties.get( JWebAssembly.CLASS_FILE_CACHE );
+        classFileCache = cacheDir == null || cacheDir.isEmpty() ? null : new File( cacheDir );
+        textStreaming = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.TEXT_STREAMING, "false" ) );
 
         String base = properties.getOrDefault( JWebAssembly.SOURCE_MAP_BASE, "" );
         if( !base.isEmpty() && !base.endsWith( "/" ) ) {
             base += "/";
         }
         sourceMapBase = base;
+        sourceMapIndex = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.SOURCE_MAP_INDEX, "false" ) );
+        dwarf = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.DWARF, "false" ) );
+        dwarfSidecar = dwarf && Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.DWARF_SIDECAR, "false" ) );
+        String profile = properties.get( JWebAssembly.SPLIT_PROFILE );
+        splitProfile = profile == null || profile.isEmpty() ? null : new File( profile );
+        passiveStrings = !useThreads && Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.PASSIVE_STRINGS, "false" ) );
+        memoryInitialPages = Integer.parseInt( properties.getOrDefault( JWebAssembly.MEMORY_INITIAL_PAGES, "0" ) );
+        memoryMaximumPages = Integer.parseInt( properties.getOrDefault( JWebAssembly.MEMORY_MAXIMUM_PAGES, "-1" ) );
+        memoryHeapBase = Integer.parseInt( properties.getOrDefault( JWebAssembly.MEMORY_HEAP_BASE, "0" ) );
+        exportHeapBase = properties.containsKey( JWebAssembly.MEMORY_INITIAL_PAGES ) || properties.containsKey( JWebAssembly.MEMORY_MAXIMUM_PAGES ) || properties.containsKey( JWebAssembly.MEMORY_HEAP_BASE );
+        validate = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.VALIDATE, "false" ) );
+        compressedOutput = Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.COMPRESSED_OUTPUT, "false" ) );
+        moduleOptimizer = !debugNames && !dwarf && (compressedOutput || Boolean.parseBoolean( properties.getOrDefault( JWebAssembly.MODULE_OPTIMIZER, "false" ) ));
     }
 
     /**
@@ -114,6 +183,52 @@ public boolean useEH() {
         return useEH;
     }
 
+    /**
+     * If the threads feature of WASM should be use. Then the memory is shared and synchronized blocks use atomic instructions.
+     * 
+     * @return true, use shared memory and the atomic instructions of WASM; false, synchronized blocks are ignored
+     */
+    public boolean useThreads() {
+        return useThreads;
+    }
+
+    /**
+     * If the tail call feature of WASM should be use for calls in a tail position.
+     * 
+     * @return true, use return_call and return_call_indirect; false, use call and return
+     */
+    public boolean useTailCalls() {
+        return useTailCalls;
+    }
+
+    /**
+     * If virtual calls should use typed function references from a GC vtable struct (call_ref). Only possible with GC.
+     * 
+     * @return true, use call_ref
+     */
+    public boolean useCallRef() {
+        return useCallRef;
+    }
+
+    /**
+     * If the optimizations on a control flow graph in SSA form should be run.
+     * 
+     * @return true, optimize with SSA
+     */
+    public boolean ssaOptimizer() {
+        return ssaOptimizer;
+    }
+
+    /**
+     * If the structured control flow should be calculated with the stackifier on the dominator tree instead of the
+     * classic tree calculation of the BranchManager.
+     * 
+     * @return true, use the stackifier if possible
+     */
+    public boolean useStackifier() {
+        return useStackifier;
+    }
+
     /**
      * Compiler property to add a stub for all referenced native methods that has no replacement.
      * 
@@ -123,6 +238,25 @@ public boolean ignoreNative() {
         return ignoreNative;
     }
 
+    /**
+     * Get the directory for a persistent cache of class files between JVM instances.
+     * 
+     * @return the directory or null
+     */
+    @Nullable
+    public File getClassFileCache() {
+        return classFileCache;
+    }
+
+    /**
+     * If the text writer should write the finished functions to a temporary file instead of holding it in memory.
+     * 
+     * @return true, if streaming
+     */
+    public boolean textStreaming() {
+        return textStreaming;
+    }
+
     /**
      * Get the relative path between the final wasm file location and the source files location.
      * If not empty it should end with a slash like "../../src/main/java/". 
@@ -133,6 +267,150 @@ public String getSourceMapBase() {
         return sourceMapBase;
     }
 
+    /**
+     * If the source map should be written as index map with a section for every function.
+     * 
+     * @return true, write an index map
+     */
+    public boolean sourceMapIndex() {
+        return sourceMapIndex;
+    }
+
+    /**
+     * If the DWARF debug sections should be written.
+     * 
+     * @return true, write DWARF
+     */
+    public boolean dwarf() {
+        return dwarf;
+    }
+
+    /**
+     * If the DWARF debug sections should be written to a separate file.
+     * 
+     * @return true, write a separate debug file
+     */
+    public boolean dwarfSidecar() {
+        return dwarfSidecar;
+    }
+
+    /**
+     * Get the file with the names of the functions that are used at startup.
+     * 
+     * @return the file or null if the module should not be split
+     */
+    @Nullable
+    public File getSplitProfile() {
+        return splitProfile;
+    }
+
+    /**
+     * If the constant strings should be written into a passive data segment that is copied into the memory on first use.
+     * With threads the option is ignored because all instances share the memory.
+     * 
+     * @return true, use a passive data segment for the strings
+     */
+    public boolean passiveStrings() {
+        return passiveStrings;
+    }
+
+    /**
+     * Get the minimum initial count of pages of the linear memory.
+     * 
+     * @return the count of 64 KiB pages, 0 if not set
+     */
+    public int getMemoryInitialPages() {
+        return memoryInitialPages;
+    }
+
+    /**
+     * Get the maximum count of pages of the linear memory.
+     * 
+     * @return the count of 64 KiB pages, -1 if not set
+     */
+    public int getMemoryMaximumPages() {
+        return memoryMaximumPages;
+    }
+
+    /**
+     * Get the offset in the linear memory on which a heap can start.
+     * 
+     * @return the offset in bytes, 0 if not set
+     */
+    public int getMemoryHeapBase() {
+        return memoryHeapBase;
+    }
+
+    /**
+     * If the heap base should be exported. This is only the case if any of the memory properties is set.
+     * 
+     * @return true, export the global "__heap_base"
+     */
+    public boolean exportHeapBase() {
+        return exportHeapBase;
+    }
+
+    /**
+     * If the binary output should be read again and validated after writing.
+     * 
+     * @return true, validate the binary module
+     */
+    public boolean validate() {
+        return validate;
+    }
+
+    /**
+     * If the optimizations over the complete binary module should be run. Not used with debug names and DWARF because
+     * the source map and the debug sections refer to the code offsets.
+     * 
+     * @return true, optimize the binary module
+     */
+    public boolean moduleOptimizer() {
+        return moduleOptimizer;
+    }
+
+    /**
+     * If pre-compressed copies of the binary module should be written. The module optimizer orders then the functions
+     * by the similarity of its code.
+     * 
+     * @return true, write the compressed files
+     */
+    public boolean compressedOutput() {
+        return compressedOutput;
+    }
+
+    /**
+     * Get the imported function that load the secondary module of a split module.
+     * 
+     * @return the function or null if the module should not be split
+     */
+    @Nullable
+    public FunctionName getSplitLoader() {
+        return splitLoader;
+    }
+
+    /**
+     * Register FunctionName "Split.load" if the module should be split. It instantiate the secondary module with the
+     * exports of the primary module. The file of the secondary module can only be read synchronously under Node. In a
+     * browser the host must set the compiled module (wasmImports.Split.module) or the instance
+     * (wasmImports.Split.instance) before the first call, because a fetch is asynchronous.
+     */
+    void registerSplitLoader() {
+        if( splitProfile == null || splitLoader != null ) {
+            return;
+        }
+        SyntheticFunctionName name;
+        splitLoader = name = new JavaScriptSyntheticFunctionName( "Split", "load", () -> "() => {" //
+                        + "var s=wasmImports.Split;" //
+                        + "if(s.instance)return;" //
+                        + "if(!s.module){" //
+                        + "if(typeof require!='function')throw new Error('wasmImports.Split.module is not set');" //
+                        + "s.module=new WebAssembly.Module(require('fs').readFileSync(__filename.replace(/\\.wasm\\.js$/,'.split.wasm')))}" //
+                        + "s.instance=new WebAssembly.Instance(s.module,Object.assign({primary:s.exports||wasmImports.exports},wasmImports))}", (AnyType)null );
+        functions.markAsNeeded( name, false );
+        functions.markAsImport( name, name.getAnnotation() );
+    }
+
     /**
      * Register FunctionName "NonGC.get_i32" for frequently access to vtable with non GC mode.
      */
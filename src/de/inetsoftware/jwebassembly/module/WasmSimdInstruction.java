@@ -0,0 +1,158 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import de.inetsoftware.jwebassembly.wasm.AnyType;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * WasmInstruction for a fixed-width SIMD operation on the type v128.
+ * 
+ * @author Volker Berlin
+ *
+ */
+class WasmSimdInstruction extends WasmInstruction {
+
+    private final SimdOperator op;
+
+    private final int          offset;
+
+    private final int          alignment;
+
+    private final int          lane;
+
+    private final byte[]       immediate;
+
+    /**
+     * Create an instance of a SIMD operation.
+     * 
+     * @param op
+     *            the operation
+     * @param offset
+     *            the memory offset for memory operations
+     * @param alignment
+     *            the alignment for memory operations
+     * @param lane
+     *            the lane index for lane operations
+     * @param immediate
+     *            the 16 bytes of v128.const or the 16 lane indices of i8x16.shuffle
+     * @param javaCodePos
+     *            the code position/offset in the Java method
+     * @param lineNumber
+     *            the line number in the Java source code
+     */
+    WasmSimdInstruction( @Nonnull SimdOperator op, int offset, int alignment, int lane, @Nullable byte[] immediate, int javaCodePos, int lineNumber ) {
+        super( javaCodePos, lineNumber );
+        this.op = op;
+        this.offset = offset;
+        this.alignment = alignment;
+        this.lane = lane;
+        this.immediate = immediate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Type getType() {
+        return Type.Simd;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
+        writer.writeSimdOperator( op, offset, alignment, lane, immediate );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    AnyType getPushValueType() {
+        switch( op.getKind() ) {
+            case STORE:
+            case STORE_LANE:
+                return null;
+            case EXTRACT_LANE:
+                return op.getLaneType();
+            case TEST:
+                return ValueType.i32;
+            default:
+                return ValueType.v128;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int getPopCount() {
+        switch( op.getKind() ) {
+            case CONST:
+                return 0;
+            case LOAD:
+            case SPLAT:
+            case EXTRACT_LANE:
+            case UNARY:
+            case TEST:
+                return 1;
+            case TERNARY:
+                return 3;
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    AnyType[] getPopValueTypes() {
+        switch( op.getKind() ) {
+            case CONST:
+                return null;
+            case LOAD:
+                return new AnyType[] { ValueType.i32 };
+            case STORE:
+            case LOAD_LANE:
+            case STORE_LANE:
+                return new AnyType[] { ValueType.i32, ValueType.v128 };
+            case SPLAT:
+                return new AnyType[] { op.getLaneType() };
+            case REPLACE_LANE:
+                return new AnyType[] { ValueType.v128, op.getLaneType() };
+            case SHIFT:
+                return new AnyType[] { ValueType.v128, ValueType.i32 };
+            case EXTRACT_LANE:
+            case UNARY:
+            case TEST:
+                return new AnyType[] { ValueType.v128 };
+            case TERNARY:
+                return new AnyType[] { ValueType.v128, ValueType.v128, ValueType.v128 };
+            default:
+                return new AnyType[] { ValueType.v128, ValueType.v128 };
+        }
+    }
+}
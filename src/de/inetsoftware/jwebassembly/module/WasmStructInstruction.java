@@ -88,6 +88,15 @@ class WasmStructInstruction extends WasmInstruction {
      */
     WasmStructInstruction( @Nonnull StructOperator op, @Nonnull StructType type, @Nullable NamedStorageType fieldName, int javaCodePos, int lineNumber, TypeManager types ) {
         super( javaCodePos, lineNumber );
+        if( op == StructOperator.GET && fieldName != null ) {
+            // a packed field must be read with sign or zero extension
+            AnyType fieldType = fieldName.getType();
+            if( fieldType == ValueType.i8 || fieldType == ValueType.i16 ) {
+                op = StructOperator.GET_S;
+            } else if( fieldType == ValueType.bool || fieldType == ValueType.u16 ) {
+                op = StructOperator.GET_U;
+            }
+        }
         this.op = op;
         this.type = type;
         this.fieldName = fieldName;
@@ -204,6 +213,8 @@ public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
         int idx = -1;
         switch( op ) {
             case GET:
+            case GET_S:
+            case GET_U:
             case SET:
                 // The fieldName of the struct operation does not contain the class name in which the field was declared. It contains the class name of the variable. This can be the class or a subclass.
                 List<NamedStorageType> fields = type.getFields();
@@ -246,6 +257,10 @@ public void writeTo( @Nonnull ModuleWriter writer ) throws IOException {
                 writer.writeStructOperator( StructOperator.RTT_CANON, type, null, -1 );
                 writer.writeStructOperator( op, type, null, -1 );
             }
+        } else if( op == StructOperator.CAST ) {
+            // a down cast of a GC reference which is known to be of the type
+            writer.writeStructOperator( StructOperator.RTT_CANON, type, null, -1 );
+            writer.writeStructOperator( op, type, null, -1 );
         } else {
             writer.writeStructOperator( op, type, fieldName, idx );
         }
@@ -266,6 +281,9 @@ AnyType getPushValueType() {
                 return type;
             case GET:
                 return fieldName.getType();
+            case GET_S:
+            case GET_U:
+                return ValueType.i32; // packed storage type
             case SET:
                 return null;
             case INSTANCEOF:
@@ -284,6 +302,8 @@ AnyType getPushValueType() {
     int getPopCount() {
         switch( op ) {
             case GET:
+            case GET_S:
+            case GET_U:
             case INSTANCEOF:
             case CAST:
             case NEW_WITH_RTT:
@@ -307,6 +327,8 @@ int getPopCount() {
     AnyType[] getPopValueTypes() {
         switch( op ) {
             case GET:
+            case GET_S:
+            case GET_U:
                 return new AnyType[] { type };
             case INSTANCEOF:
             case CAST:
@@ -314,7 +336,11 @@ AnyType[] getPopValueTypes() {
             case NEW_WITH_RTT:
                 return new AnyType[] { ValueType.i32 };// rtt type
             case SET:
-                return new AnyType[] { type, fieldName.getType() };
+                AnyType fieldType = fieldName.getType();
+                if( fieldType == ValueType.bool || fieldType == ValueType.i8 || fieldType == ValueType.u16 || fieldType == ValueType.i16 ) {
+                    fieldType = ValueType.i32; // packed storage type
+                }
+                return new AnyType[] { type, fieldType };
             case NEW:
             case NEW_DEFAULT:
             case NULL:
@@ -333,6 +359,10 @@ public String toString() {
         switch( op ) {
             case GET:
                 return "struct.get " + fieldName.getName();
+            case GET_S:
+                return "struct.get_s " + fieldName.getName();
+            case GET_U:
+                return "struct.get_u " + fieldName.getName();
             case SET:
                 return "struct.set " + fieldName.getName();
         }
@@ -24,6 +24,7 @@
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 
 import javax.annotation.Nonnull;
 
@@ -42,6 +43,12 @@ public class WasmTarget implements Closeable {
 
     private Writer       javaScript;
 
+    private OutputStream debug;
+
+    private OutputStream split;
+
+    private final ArrayList<OutputStream> compressed = new ArrayList<>();
+
 
     /**
      * Create a target with a file.
@@ -130,6 +137,68 @@ public Writer getSourceMapOutput() throws IOException {
         return sourceMap;
     }
 
+    /**
+     * Get the URL of the separate file with the DWARF debug sections that should be write into the assembly.
+     * 
+     * @return the URL string or null.
+     */
+    public String getDebugURL() {
+        if( file != null ) {
+            String name = file.getName();
+            int idx = name.lastIndexOf( '.' );
+            return (idx > 0 ? name.substring( 0, idx ) : name) + ".debug.wasm";
+        }
+        return null;
+    }
+
+    /**
+     * Get the OutputStream for the separate file with the DWARF debug sections.
+     * 
+     * @return the stream or null if the target is not a file
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    public OutputStream getDebugOutput() throws IOException {
+        if( debug == null && file != null ) {
+            debug = new BufferedOutputStream( new FileOutputStream( getBaseWasmFile() + ".debug.wasm" ) );
+        }
+        return debug;
+    }
+
+    /**
+     * Get the OutputStream for the secondary module of a split module.
+     * 
+     * @return the stream or null if the target is not a file
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    public OutputStream getSplitOutput() throws IOException {
+        if( split == null && file != null ) {
+            split = new BufferedOutputStream( new FileOutputStream( getBaseWasmFile() + ".split.wasm" ) );
+        }
+        return split;
+    }
+
+    /**
+     * Get the OutputStream for a pre-compressed copy of the wasm file or of the secondary module.
+     * 
+     * @param split
+     *            true, for the secondary module of a split module
+     * @param extension
+     *            the file extension of the compression format like "gz" or "br"
+     * @return the stream or null if the target is not a file
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    public OutputStream getCompressedOutput( boolean split, String extension ) throws IOException {
+        if( file == null ) {
+            return null;
+        }
+        OutputStream output = new BufferedOutputStream( new FileOutputStream( getBaseWasmFile() + (split ? ".split.wasm." : ".wasm.") + extension ) );
+        compressed.add( output );
+        return output;
+    }
+
     /**
      * Get the output for the JavaScript glue code.
      * 
@@ -180,5 +249,14 @@ public void close() throws IOException {
         if( javaScript != null ) {
             javaScript.close();
         }
+        if( debug != null ) {
+            debug.close();
+        }
+        if( split != null ) {
+            split.close();
+        }
+        for( OutputStream output : compressed ) {
+            output.close();
+        }
     }
 }
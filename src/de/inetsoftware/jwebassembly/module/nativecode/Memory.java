@@ -0,0 +1,77 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module.nativecode;
+
+import de.inetsoftware.jwebassembly.api.annotation.WasmTextCode;
+
+/**
+ * Helper for the size of the linear memory. A heap above the heap base can call it from WebAssembly text code with
+ * <code>call $de/inetsoftware/jwebassembly/module/nativecode/Memory.grow(I)I</code>.
+ *
+ * @author Volker Berlin
+ */
+class Memory {
+
+    /**
+     * WASM code<p>
+     * Grow the linear memory that it has at least the given size. The memory grows at least to the double of the
+     * current size that many small allocations does not produce many growth pauses. If the double size is not possible
+     * because of the maximum then it grows only to the needed size.
+     *
+     * @param size
+     *            the needed size in bytes, unsigned
+     * @return the previous count of 64 KiB pages or -1 if the memory can not grow
+     */
+    static int grow( int size ) {
+        int pages = memorySize();
+        int needed = (size >>> 16) + ((size & 0xFFFF) != 0 ? 1 : 0);
+        if( needed <= pages ) {
+            return pages;
+        }
+        int delta = needed - pages;
+        if( delta < pages ) {
+            int previous = memoryGrow( pages );
+            if( previous >= 0 ) {
+                return previous;
+            }
+        }
+        return memoryGrow( delta );
+    }
+
+    /**
+     * WASM code<p>
+     * The current size of the memory. Should be inlined from the optimizer.
+     *
+     * @return the count of 64 KiB pages
+     */
+    @WasmTextCode( "memory.size " + //
+                    "return" )
+    private static native int memorySize();
+
+    /**
+     * WASM code<p>
+     * Grow the memory. Should be inlined from the optimizer.
+     *
+     * @param delta
+     *            the count of 64 KiB pages to add
+     * @return the previous count of pages or -1 on failure
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "memory.grow " + //
+                    "return" )
+    private static native int memoryGrow( int delta );
+}
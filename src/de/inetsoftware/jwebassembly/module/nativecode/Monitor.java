@@ -0,0 +1,215 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.module.nativecode;
+
+import de.inetsoftware.jwebassembly.api.annotation.WasmTextCode;
+
+/**
+ * The replacement of MONITOR_ENTER and MONITOR_EXIT if the threads feature is enabled. It is a reentrant futex lock in
+ * the shared linear memory. The lock has 3 states: 0 - unlocked, 1 - locked, 2 - locked with possible waiters.
+ *
+ * <pre>
+ * ├────────────────────────────────┤ lockMemoryOffset()
+ * | lock state       (4 bytes)     |
+ * ├────────────────────────────────┤
+ * | owner thread id  (4 bytes)     |
+ * ├────────────────────────────────┤
+ * | thread id counter (4 bytes)    |
+ * ├────────────────────────────────┤
+ * </pre>
+ *
+ * @author Volker Berlin
+ */
+class Monitor {
+
+    /**
+     * The id of the current thread. Globals are not shared, every thread has its own value. 0 means not assigned.
+     */
+    private static int threadId;
+
+    /**
+     * The reentrant count of the current thread. Only valid if the thread is the owner of the lock.
+     */
+    private static int lockCount;
+
+    /**
+     * WASM code<p>
+     * Enter a synchronized block.
+     *
+     * @param obj
+     *            the object of the synchronized block, currently not used
+     */
+    static void monitorEnter( Object obj ) {
+        int offset = lockMemoryOffset();
+        int id = threadId;
+        if( id == 0 ) {
+            threadId = id = atomicAdd( offset + 8, 1 ) + 1;
+        }
+        if( atomicLoad( offset + 4 ) == id ) {
+            lockCount++;
+            return;
+        }
+        int state = compareExchange( offset, 0, 1 );
+        if( state != 0 ) {
+            if( state != 2 ) {
+                state = exchange( offset, 2 );
+            }
+            while( state != 0 ) {
+                futexWait( offset, 2 );
+                state = exchange( offset, 2 );
+            }
+        }
+        atomicStore( offset + 4, id );
+        lockCount = 1;
+    }
+
+    /**
+     * WASM code<p>
+     * Exit a synchronized block.
+     *
+     * @param obj
+     *            the object of the synchronized block, currently not used
+     */
+    static void monitorExit( Object obj ) {
+        if( --lockCount > 0 ) {
+            return;
+        }
+        int offset = lockMemoryOffset();
+        atomicStore( offset + 4, 0 );
+        if( exchange( offset, 0 ) == 2 ) {
+            futexNotify( offset, 1 );
+        }
+    }
+
+    /**
+     * WASM code<p>
+     * Placeholder for a synthetic function. Should be inlined from the optimizer.
+     * @return the memory offset of the lock
+     */
+    private static native int lockMemoryOffset();
+
+    /**
+     * WASM code<p>
+     * Load an i32 atomically from memory.
+     *
+     * @param pos
+     *            the memory position
+     * @return the value from the memory
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "i32.atomic.load offset=0 align=4 " + //
+                    "return" )
+    private static native int atomicLoad( int pos );
+
+    /**
+     * WASM code<p>
+     * Store an i32 atomically to memory.
+     *
+     * @param pos
+     *            the memory position
+     * @param value
+     *            the new value
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "local.get 1 " + //
+                    "i32.atomic.store offset=0 align=4" )
+    private static native void atomicStore( int pos, int value );
+
+    /**
+     * WASM code<p>
+     * Add a value atomically.
+     *
+     * @param pos
+     *            the memory position
+     * @param delta
+     *            the value to add
+     * @return the old value
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "local.get 1 " + //
+                    "i32.atomic.rmw.add offset=0 align=4 " + //
+                    "return" )
+    private static native int atomicAdd( int pos, int delta );
+
+    /**
+     * WASM code<p>
+     * Set a value atomically.
+     *
+     * @param pos
+     *            the memory position
+     * @param value
+     *            the new value
+     * @return the old value
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "local.get 1 " + //
+                    "i32.atomic.rmw.xchg offset=0 align=4 " + //
+                    "return" )
+    private static native int exchange( int pos, int value );
+
+    /**
+     * WASM code<p>
+     * Set a value atomically if the current value is equals the expected value.
+     *
+     * @param pos
+     *            the memory position
+     * @param expected
+     *            the expected value
+     * @param value
+     *            the new value
+     * @return the old value
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "local.get 1 " + //
+                    "local.get 2 " + //
+                    "i32.atomic.rmw.cmpxchg offset=0 align=4 " + //
+                    "return" )
+    private static native int compareExchange( int pos, int expected, int value );
+
+    /**
+     * WASM code<p>
+     * Suspend the current thread until a notify if the memory has the expected value.
+     *
+     * @param pos
+     *            the memory position
+     * @param expected
+     *            the expected value
+     * @return 0: "ok", 1: "not-equal", 2: "timed-out"
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "local.get 1 " + //
+                    "i64.const -1 " + // infinite timeout
+                    "memory.atomic.wait32 offset=0 align=4 " + //
+                    "return" )
+    private static native int futexWait( int pos, int expected );
+
+    /**
+     * WASM code<p>
+     * Wake up waiting threads.
+     *
+     * @param pos
+     *            the memory position
+     * @param count
+     *            the maximum count of threads to wake up
+     * @return the count of woken threads
+     */
+    @WasmTextCode( "local.get 0 " + //
+                    "local.get 1 " + //
+                    "memory.atomic.notify offset=0 align=4 " + //
+                    "return" )
+    private static native int futexNotify( int pos, int count );
+}
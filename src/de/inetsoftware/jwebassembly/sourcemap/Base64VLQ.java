@@ -15,8 +15,6 @@
  */
 package de.inetsoftware.jwebassembly.sourcemap;
 
-import java.io.IOException;
-
 /**
  * Encode an integer value as Base64VLQ
  */
@@ -29,7 +27,7 @@ class Base64VLQ {
 
     private static final int    VLQ_CONTINUATION_BIT = VLQ_BASE;
 
-    private static final String BASE64_MAP           = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    private static final char[] BASE64_MAP           = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
 
     /**
      * no instance
@@ -52,16 +50,17 @@ private static int toVLQSigned( int value ) {
     }
 
     /**
-     * Writes a VLQ encoded value to the provide target.
+     * Writes a VLQ encoded value into the buffer. The buffer must have space for 7 characters.
      * 
-     * @param out
-     *            the target
+     * @param buf
+     *            the target buffer
+     * @param pos
+     *            the write position in the buffer
      * @param value
      *            the value
-     * @throws IOException
-     *             if any I/O error occur
+     * @return the new write position
      */
-    static void appendBase64VLQ( Appendable out, int value ) throws IOException {
+    static int encode( char[] buf, int pos, int value ) {
         value = toVLQSigned( value );
         do {
             int digit = value & VLQ_BASE_MASK;
@@ -69,7 +68,8 @@ static void appendBase64VLQ( Appendable out, int value ) throws IOException {
             if( value > 0 ) {
                 digit |= VLQ_CONTINUATION_BIT;
             }
-            out.append( BASE64_MAP.charAt( digit ) );
+            buf[pos++] = BASE64_MAP[digit];
         } while( value > 0 );
+        return pos;
     }
 }
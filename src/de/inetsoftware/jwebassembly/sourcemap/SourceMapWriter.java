@@ -16,15 +16,21 @@
 package de.inetsoftware.jwebassembly.sourcemap;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map.Entry;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
- * Generates Source Map version 3.
+ * Generates Source Map version 3. The mappings are hold in compact buffers per function. The output can be a single
+ * map or an index map with a section per buffer. The sections of an index map does not depend on the position of the
+ * function and can be cached and concatenated.
  *
  * https://sourcemaps.info/spec.html
  */
@@ -32,12 +38,14 @@ public class SourceMapWriter {
 
     private final String                         sourceRoot;
 
-    private final List<SourceMapping>            mappings        = new ArrayList<>();
+    private final List<SourceMappingBuffer>      buffers         = new ArrayList<>();
 
     private final LinkedHashMap<String, Integer> sourceFileNames = new LinkedHashMap<String, Integer>();
 
     private int                                  nextSourceFileNameIndex;
 
+    private SourceMappingBuffer                  singleMappings;
+
     /**
      * Create a new instance of the writer for a single map file.
      * 
@@ -55,12 +63,38 @@ public SourceMapWriter( @Nullable String sourceRoot ) {
      *            the mapping
      */
     public void addMapping( SourceMapping mapping ) {
-        if( !sourceFileNames.containsKey( mapping.getSourceFileName() ) ) {
-            sourceFileNames.put( mapping.getSourceFileName(), nextSourceFileNameIndex );
-            nextSourceFileNameIndex++;
+        addSourceFileName( mapping.getSourceFileName() );
+        if( singleMappings == null || buffers.get( buffers.size() - 1 ) != singleMappings ) {
+            singleMappings = new SourceMappingBuffer();
+            buffers.add( singleMappings );
+        }
+        singleMappings.addZeroBased( mapping.getGeneratedColumn(), mapping.getSourceLine(), mapping.getSourceFileName() );
+    }
+
+    /**
+     * Adds the complete mappings of a function. Mappings must be added in order.
+     * 
+     * @param buffer
+     *            the mappings
+     */
+    public void addMappings( @Nonnull SourceMappingBuffer buffer ) {
+        for( String fileName : buffer.getFileNames() ) {
+            addSourceFileName( fileName );
         }
+        buffers.add( buffer );
+    }
 
-        mappings.add( mapping );
+    /**
+     * Register a source file name.
+     * 
+     * @param fileName
+     *            the name
+     */
+    private void addSourceFileName( String fileName ) {
+        if( !sourceFileNames.containsKey( fileName ) ) {
+            sourceFileNames.put( fileName, nextSourceFileNameIndex );
+            nextSourceFileNameIndex++;
+        }
     }
 
     /**
@@ -72,6 +106,57 @@ public void addMapping( SourceMapping mapping ) {
      *             if any I/O error occur
      */
     public void generate( Appendable out ) throws IOException {
+        appendMap( out, sourceFileNames.keySet(), buffers, true );
+    }
+
+    /**
+     * Generate an index map with a section for every added buffer. The offset of a section is the offset of the buffer.
+     * 
+     * https://sourcemaps.info/spec.html#h.535es3xeprgt
+     * 
+     * @param out
+     *            the target
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    public void generateIndexMap( Appendable out ) throws IOException {
+        out.append( "{\n" );
+        appendJsonField( out, "version", "3" );
+        out.append( ",\n" );
+        appendJsonField( out, "sections", "[" );
+        boolean isFirst = true;
+        for( SourceMappingBuffer buffer : buffers ) {
+            if( buffer.size() == 0 ) {
+                continue;
+            }
+            if( isFirst ) {
+                isFirst = false;
+            } else {
+                out.append( ',' );
+            }
+            out.append( "\n{\"offset\":{\"line\":0,\"column\":" ).append( Integer.toString( buffer.getOffset() ) ).append( "},\"map\":" );
+            appendMap( out, buffer.getFileNames(), Collections.singletonList( buffer ), false );
+            out.append( '}' );
+        }
+        out.append( "\n]\n}" );
+    }
+
+    /**
+     * Write a single map.
+     * 
+     * @param out
+     *            the target
+     * @param sources
+     *            the source file names
+     * @param list
+     *            the mappings
+     * @param absolute
+     *            true, if the offset of the buffers should be added and the source file ids are global; false, for a
+     *            section of an index map
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void appendMap( Appendable out, Collection<String> sources, List<SourceMappingBuffer> list, boolean absolute ) throws IOException {
         out.append( "{\n" );
         appendJsonField( out, "version", "3" );
 
@@ -85,7 +170,7 @@ public void generate( Appendable out ) throws IOException {
         // the source file names
         out.append( ",\n" );
         appendJsonField( out, "sources", "[" );
-        appendSourceFileNames( out );
+        appendSourceFileNames( out, sources );
         out.append( "]" );
 
         // WebAssembly does not have symbol names
@@ -95,7 +180,7 @@ public void generate( Appendable out ) throws IOException {
         // generate the mappings
         out.append( ",\n" );
         appendJsonField( out, "mappings", "" );
-        (new Generator( out )).appendLineMappings();
+        (new Generator( out )).appendLineMappings( list, absolute );
         out.append( "\n}" );
     }
 
@@ -104,13 +189,14 @@ public void generate( Appendable out ) throws IOException {
      * 
      * @param out
      *            the target
+     * @param sources
+     *            the source file names
      * @throws IOException
      *             if any I/O error occur
      */
-    private void appendSourceFileNames( Appendable out ) throws IOException {
+    private static void appendSourceFileNames( Appendable out, Collection<String> sources ) throws IOException {
         boolean isFirst = true;
-        for( Entry<String, Integer> entry : sourceFileNames.entrySet() ) {
-            String key = entry.getKey();
+        for( String key : sources ) {
             if( isFirst ) {
                 isFirst = false;
             } else {
@@ -174,13 +260,17 @@ private static void appendQuoteString( Appendable out, String str ) throws IOExc
     }
 
     /**
-     * The generator of the source map
+     * The generator of the source map. The Base64 VLQ values are encoded into a reusable buffer.
      */
     private class Generator {
 
         private final Appendable out;
 
-        private int              previousLine = -1;
+        private final char[]     buffer = new char[8192];
+
+        private int              pos;
+
+        private boolean          isFirst = true;
 
         private int              previousColumn;
 
@@ -203,59 +293,82 @@ private class Generator {
         /**
          * Append the mappings to the source map.
          * 
+         * @param list
+         *            the mappings
+         * @param absolute
+         *            true, if the offset of the buffers should be added and the source file ids are global
          * @throws IOException
          *             if any I/O error occur
          */
-        void appendLineMappings() throws IOException {
-            out.append( '\"' );
-            for( SourceMapping mapping : mappings ) {
-                int generatedLine = 0; // ever 1 for WebAssembly but line one is coded as zero
-                int generatedColumn = mapping.getGeneratedColumn();
-
-                if( generatedLine > 0 && previousLine != generatedLine ) {
-                    int start = previousLine == -1 ? 0 : previousLine;
-                    for( int i = start; i < generatedLine; i++ ) {
-                        out.append( ';' );
-                    }
+        void appendLineMappings( List<SourceMappingBuffer> list, boolean absolute ) throws IOException {
+            // all mappings are in line 0 for WebAssembly, the generated column is the binary offset
+            buffer[pos++] = '\"';
+            for( SourceMappingBuffer mappings : list ) {
+                int offset = absolute ? mappings.getOffset() : 0;
+                List<String> fileNames = mappings.getFileNames();
+                int[] fileIds = new int[fileNames.size()];
+                for( int i = 0; i < fileIds.length; i++ ) {
+                    fileIds[i] = absolute ? sourceFileNames.get( fileNames.get( i ) ) : i;
                 }
-
-                if( previousLine != generatedLine ) {
-                    previousColumn = 0;
-                } else {
-                    out.append( ',' );
+                for( int i = 0; i < mappings.size(); i++ ) {
+                    writeEntry( offset + mappings.getRelativeColumn( i ), fileIds[mappings.getFileIndex( i )], mappings.getSourceLine( i ) );
                 }
-
-                writeEntry( mapping );
-                previousLine = generatedLine;
-                previousColumn = generatedColumn;
             }
-            out.append( ";\"" );
+            buffer[pos++] = ';';
+            buffer[pos++] = '\"';
+            flush();
         }
 
         /**
-         * Write a single single mapping to the source map.
+         * Write a single mapping to the source map.
          * 
-         * @param mapping
-         *            the mapping
+         * @param column
+         *            the generated column
+         * @param sourceId
+         *            the id of the source file
+         * @param srcline
+         *            the zero based source line
          * @throws IOException
          *             if any I/O error occur
          */
-        void writeEntry( SourceMapping mapping ) throws IOException {
-            int column = mapping.getGeneratedColumn();
-            Base64VLQ.appendBase64VLQ( out, column - previousColumn );
+        private void writeEntry( int column, int sourceId, int srcline ) throws IOException {
+            if( pos + 32 > buffer.length ) {
+                flush();
+            }
+            if( isFirst ) {
+                isFirst = false;
+            } else {
+                buffer[pos++] = ',';
+            }
+            pos = Base64VLQ.encode( buffer, pos, column - previousColumn );
             previousColumn = column;
 
-            int sourceId = sourceFileNames.get( mapping.getSourceFileName() );
-            Base64VLQ.appendBase64VLQ( out, sourceId - previousSourceFileNameId );
+            pos = Base64VLQ.encode( buffer, pos, sourceId - previousSourceFileNameId );
             previousSourceFileNameId = sourceId;
 
-            int srcline = mapping.getSourceLine();
             int srcColumn = 0; // ever 0 for Java byte code because the line table does not support columns
-            Base64VLQ.appendBase64VLQ( out, srcline - previousSourceLine );
+            pos = Base64VLQ.encode( buffer, pos, srcline - previousSourceLine );
             previousSourceLine = srcline;
 
-            Base64VLQ.appendBase64VLQ( out, srcColumn - previousSourceColumn );
+            pos = Base64VLQ.encode( buffer, pos, srcColumn - previousSourceColumn );
             previousSourceColumn = srcColumn;
         }
+
+        /**
+         * Write the buffer to the target.
+         * 
+         * @throws IOException
+         *             if any I/O error occur
+         */
+        private void flush() throws IOException {
+            if( out instanceof Writer ) {
+                ((Writer)out).write( buffer, 0, pos );
+            } else if( out instanceof StringBuilder ) {
+                ((StringBuilder)out).append( buffer, 0, pos );
+            } else {
+                out.append( CharBuffer.wrap( buffer, 0, pos ) );
+            }
+            pos = 0;
+        }
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.sourcemap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The mappings of a single function or section in primitive arrays. The generated columns are relative to the start
+ * of the buffer. The offset of the buffer can be moved without touching every mapping.
+ */
+public class SourceMappingBuffer {
+
+    private int[]                   columns   = new int[16];
+
+    private int[]                   lines     = new int[16];
+
+    private int[]                   files     = new int[16];
+
+    private final ArrayList<String> fileNames = new ArrayList<>();
+
+    private int                     size;
+
+    private int                     offset;
+
+    /**
+     * Add a mapping between a Java code line and a WebAssembly code position. Mappings must be added in order.
+     * 
+     * @param generatedColumn
+     *            position in WebAssembly relative to the start of the buffer
+     * @param javaSourceLine
+     *            Java source line
+     * @param sourceFileName
+     *            Java source file
+     */
+    public void add( int generatedColumn, int javaSourceLine, @Nonnull String sourceFileName ) {
+        addZeroBased( generatedColumn, javaSourceLine - 1, sourceFileName ); // The first line is coded as zero
+    }
+
+    /**
+     * Add a mapping with a zero based source line.
+     * 
+     * @param generatedColumn
+     *            position in WebAssembly relative to the start of the buffer
+     * @param sourceLine
+     *            zero based source line
+     * @param sourceFileName
+     *            Java source file
+     */
+    void addZeroBased( int generatedColumn, int sourceLine, @Nonnull String sourceFileName ) {
+        if( size == columns.length ) {
+            int newLength = 2 * size;
+            columns = Arrays.copyOf( columns, newLength );
+            lines = Arrays.copyOf( lines, newLength );
+            files = Arrays.copyOf( files, newLength );
+        }
+        int fileIdx = size > 0 && fileNames.get( files[size - 1] ).equals( sourceFileName ) ? files[size - 1] : fileNames.indexOf( sourceFileName );
+        if( fileIdx < 0 ) {
+            fileIdx = fileNames.size();
+            fileNames.add( sourceFileName );
+        }
+        columns[size] = generatedColumn;
+        lines[size] = sourceLine;
+        files[size] = fileIdx;
+        size++;
+    }
+
+    /**
+     * Add an offset to all generated columns.
+     * 
+     * @param offset
+     *            the offset
+     */
+    public void addOffset( int offset ) {
+        this.offset += offset;
+    }
+
+    /**
+     * The offset of the buffer in the generated code.
+     * 
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * The count of mappings.
+     * 
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The generated column of a mapping relative to the start of the buffer.
+     * 
+     * @param idx
+     *            the index of the mapping
+     * @return the column
+     */
+    public int getRelativeColumn( int idx ) {
+        return columns[idx];
+    }
+
+    /**
+     * The zero based source line of a mapping.
+     * 
+     * @param idx
+     *            the index of the mapping
+     * @return the line
+     */
+    public int getSourceLine( int idx ) {
+        return lines[idx];
+    }
+
+    /**
+     * The index of the source file of a mapping in the list of file names.
+     * 
+     * @param idx
+     *            the index of the mapping
+     * @return the index in {@link #getFileNames()}
+     */
+    int getFileIndex( int idx ) {
+        return files[idx];
+    }
+
+    /**
+     * The used source file names in order of the first usage.
+     * 
+     * @return the names
+     */
+    @Nonnull
+    List<String> getFileNames() {
+        return fileNames;
+    }
+}
@@ -29,4 +29,6 @@ class Function {
     final StringBuilder output = new StringBuilder();
 
     String              name;
+
+    boolean             finished; // the output is complete and can be written
 }
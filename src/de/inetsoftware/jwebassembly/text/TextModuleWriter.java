@@ -16,10 +16,17 @@
 package de.inetsoftware.jwebassembly.text;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -34,6 +41,7 @@
 import de.inetsoftware.jwebassembly.module.TypeManager.BlockType;
 import de.inetsoftware.jwebassembly.module.TypeManager.StructType;
 import de.inetsoftware.jwebassembly.module.TypeManager.StructTypeKind;
+import de.inetsoftware.jwebassembly.module.TypeManager.VTableType;
 import de.inetsoftware.jwebassembly.module.ValueTypeConvertion;
 import de.inetsoftware.jwebassembly.module.WasmOptions;
 import de.inetsoftware.jwebassembly.module.WasmTarget;
@@ -44,6 +52,7 @@
 import de.inetsoftware.jwebassembly.wasm.MemoryOperator;
 import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
 import de.inetsoftware.jwebassembly.wasm.NumericOperator;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
 import de.inetsoftware.jwebassembly.wasm.StructOperator;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 import de.inetsoftware.jwebassembly.wasm.VariableOperator;
@@ -73,6 +82,16 @@ public class TextModuleWriter extends ModuleWriter {
 
     private final Map<String, Function>    functions        = new LinkedHashMap<>();
 
+    private final ArrayList<Function>      functionList     = new ArrayList<>();
+
+    private Function                       currentFunction;
+
+    private int                            flushedFunctions;
+
+    private Path                           spillFile;
+
+    private Writer                         spillOutput;
+
     private final Map<String, Function>    abstracts        = new HashMap<>();
 
     private final Set<String>              functionNames    = new HashSet<>();
@@ -83,6 +102,8 @@ public class TextModuleWriter extends ModuleWriter {
 
     private final HashMap<String, AnyType> globals          = new HashMap<>();
 
+    private final ArrayList<VTableType>    vtableTypes      = new ArrayList<>();
+
     private boolean                        useExceptions;
 
     private boolean                        callIndirect;
@@ -112,6 +133,26 @@ public TextModuleWriter( WasmTarget target, WasmOptions options ) throws IOExcep
      */
     @Override
     public void close() throws IOException {
+        try {
+            writeModule();
+        } finally {
+            // also on a failed compile, else the temporary file of the streaming is left
+            if( spillFile != null ) {
+                spillOutput.close();
+                Files.deleteIfExists( spillFile );
+                spillFile = null;
+                spillOutput = null;
+            }
+        }
+    }
+
+    /**
+     * Write the module to the target.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeModule() throws IOException {
         Appendable textOutput = target.getTextOutput();
         textOutput.append( "(module" );
 
@@ -120,19 +161,57 @@ public void close() throws IOException {
             textOutput.append( "(type $t" ).append( Integer.toString( i ) ).append( " (func" ).append( types.get( i ) ).append( "))" );
         }
 
+        for( VTableType vtableType : vtableTypes ) {
+            newline( textOutput );
+            textOutput.append( "(type " ).append( normalizeName( vtableType.toString() ) ).append( " (struct" );
+            for( FunctionName func : vtableType.getStructType().getVTableRefFunctions() ) {
+                textOutput.append( " (field (ref $t" ).append( Integer.toString( getFunction( func ).typeId ) ).append( "))" );
+            }
+            textOutput.append( "))" );
+        }
+
         textOutput.append( imports );
 
+        if( options.useThreads() ) {
+            // the shared memory is imported that multiple instances in different threads (web worker) can use the same memory
+            int pages = getInitialMemoryPages();
+            newline( textOutput );
+            textOutput.append( "(import \"env\" \"memory\" (memory " ).append( Integer.toString( pages ) ).append( ' ' ).append( Integer.toString( getMaximumMemoryPages() ) ).append( " shared))" );
+        }
+
         for( Entry<String, AnyType> entry : globals.entrySet() ) {
             textOutput.append( "\n  " );
+            if( entry.getValue() instanceof VTableType ) {
+                writeVTableGlobal( textOutput, entry.getKey(), (VTableType)entry.getValue() );
+                continue;
+            }
             textOutput.append( "(global $" ).append( entry.getKey() ).append( " (mut " );
             writeTypeName( textOutput, entry.getValue() );
             textOutput.append( ')' );
             writeDefaultValue( textOutput, entry.getValue() );
             textOutput.append( ')' );
         }
+        if( exportHeapBase() ) {
+            newline( textOutput );
+            textOutput.append( "(global $" ).append( HEAP_BASE ).append( " i32 (i32.const " ).append( Integer.toString( getHeapBase() ) ).append( "))" );
+            newline( textOutput );
+            textOutput.append( "(export \"" ).append( HEAP_BASE ).append( "\" (global $" ).append( HEAP_BASE ).append( "))" );
+        }
 
         textOutput.append( output );
 
+        if( spillOutput != null ) {
+            spillOutput.close();
+            try (Reader reader = Files.newBufferedReader( spillFile, StandardCharsets.UTF_8 )) {
+                char[] buffer = new char[8192];
+                int count;
+                while( (count = reader.read( buffer )) > 0 ) {
+                    textOutput.append( CharBuffer.wrap( buffer, 0, count ) );
+                }
+            }
+        }
+
+        // the flushed functions are empty
         for( Function func : functions.values() ) {
             textOutput.append( func.output );
         }
@@ -171,23 +250,32 @@ public void close() throws IOException {
             textOutput.append( "(table $classes " ).append( Integer.toString( typeCount ) ).append( ' ' ).append( tableTypeName ).append( ')' );
         }
 
-        int dataSize = dataStream.size();
-        if( dataSize > 0 ) {
-            int pages = (dataSize + 0xFFFF) / 0x10000;
+        int pages = getInitialMemoryPages();
+        if( pages > 0 && !options.useThreads() ) { // with threads the memory is imported
             newline( textOutput );
             String pagesStr = Integer.toString( pages );
-            textOutput.append( "(memory " ).append( pagesStr ).append( ')' );
-            newline( textOutput );
-            textOutput.append( "(data (i32.const 0) \"" );
-            byte[] data = dataStream.toByteArray();
-            for( byte b : data ) {
-                if( b >= ' ' && b < 0x7F && b != '\"' && b != '\\' ) {
-                    textOutput.append( (char)b );
-                } else {
-                    textOutput.append( '\\' ).append( Character.forDigit( (b >> 4) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
-                }
+            textOutput.append( "(memory " ).append( pagesStr );
+            int maximum = getMaximumMemoryPages();
+            if( maximum >= 0 ) {
+                textOutput.append( ' ' ).append( Integer.toString( maximum ) );
             }
-            textOutput.append( "\")" );
+            textOutput.append( ')' );
+        }
+        byte[] data = dataStream.toByteArray();
+        int passiveSize = getPassiveSegmentSize();
+        if( passiveSize > 0 ) {
+            // the passive segment must be the first, the code of the strings use the index 0
+            newline( textOutput );
+            textOutput.append( "(data " );
+            writeDataString( textOutput, data, getPassiveSegmentOffset(), passiveSize );
+            textOutput.append( ')' );
+        }
+        int segmentSize = getDataSegmentSize();
+        if( segmentSize > 0 ) {
+            newline( textOutput );
+            textOutput.append( "(data (i32.const 0) " );
+            writeDataString( textOutput, data, 0, segmentSize );
+            textOutput.append( ')' );
         }
 
         inset--;
@@ -195,6 +283,33 @@ public void close() throws IOException {
         textOutput.append( ')' );
     }
 
+    /**
+     * Write the bytes of a data segment as string with escaped non printable characters.
+     * 
+     * @param textOutput
+     *            the target
+     * @param data
+     *            the bytes of the data
+     * @param offset
+     *            the start of the segment in the data
+     * @param size
+     *            the size of the segment
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static void writeDataString( Appendable textOutput, byte[] data, int offset, int size ) throws IOException {
+        textOutput.append( '"' );
+        for( int i = offset; i < offset + size; i++ ) {
+            byte b = data[i];
+            if( b >= ' ' && b < 0x7F && b != '\"' && b != '\\' ) {
+                textOutput.append( (char)b );
+            } else {
+                textOutput.append( '\\' ).append( Character.forDigit( (b >> 4) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+            }
+        }
+        textOutput.append( '"' );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -248,6 +363,41 @@ protected int writeStructType( StructType type ) throws IOException {
         return 0;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int writeVTableType( StructType type ) throws IOException {
+        VTableType vtableType = type.getVTableType();
+        vtableTypes.add( vtableType );
+        globals.put( normalizeName( vtableType.getGlobalName().fullName ), vtableType );
+        return 0;
+    }
+
+    /**
+     * Write the immutable global with the vtable instance of a type.
+     * 
+     * @param textOutput
+     *            the target
+     * @param globalName
+     *            the name of the global
+     * @param vtableType
+     *            the type of the vtable
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeVTableGlobal( Appendable textOutput, String globalName, VTableType vtableType ) throws IOException {
+        String typeName = normalizeName( vtableType.toString() );
+        textOutput.append( "(global $" ).append( globalName ).append( " (ref " ).append( typeName ).append( ')' );
+        List<FunctionName> vtable = vtableType.getStructType().getVTableRefFunctions();
+        for( FunctionName func : vtable ) {
+            textOutput.append( " ref.func $" ).append( normalizeName( func ) );
+        }
+        textOutput.append( ' ' );
+        writeRtt( textOutput, vtableType );
+        textOutput.append( " struct.new_with_rtt " ).append( typeName ).append( ')' );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -468,6 +618,7 @@ protected void writeMethodParamFinish( @Nonnull FunctionName name ) throws IOExc
 
         if( isImport ) {
             isImport = false;
+            getFunction( name ).finished = true;
             methodOutput.append( "))" );
             methodOutput = null;
         }
@@ -482,6 +633,7 @@ private Function getFunction( FunctionName name ) {
                 func = new Function();
                 func.id = functions.size();
                 functions.put( name.signatureName, func );
+                functionList.add( func );
             }
         }
         return func;
@@ -492,7 +644,8 @@ private Function getFunction( FunctionName name ) {
      */
     @Override
     protected void writeMethodStart( FunctionName name, String sourceFile ) throws IOException {
-        methodOutput = getFunction( name ).output;
+        currentFunction = getFunction( name );
+        methodOutput = currentFunction.output;
 
         newline( methodOutput );
         methodOutput.append( "(func $" );
@@ -517,6 +670,41 @@ protected void writeMethodFinish() throws IOException {
         newline( methodOutput );
         methodOutput.append( ')' );
         methodOutput = null;
+        currentFunction.finished = true;
+        currentFunction = null;
+        if( options.textStreaming() ) {
+            flushFunctions();
+        }
+    }
+
+    /**
+     * Write the finished functions to the temporary file and release the memory. The order of the functions is the
+     * order of the function index. A function can only be written if all functions before it are finished.
+     * 
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void flushFunctions() throws IOException {
+        while( flushedFunctions < functionList.size() ) {
+            Function func = functionList.get( flushedFunctions );
+            if( !func.finished ) {
+                return;
+            }
+            if( spillOutput == null ) {
+                Path file = Files.createTempFile( "jwebassembly", ".wat" );
+                try {
+                    spillOutput = Files.newBufferedWriter( file, StandardCharsets.UTF_8 );
+                } catch( IOException ex ) {
+                    Files.deleteIfExists( file );
+                    throw ex;
+                }
+                spillFile = file;
+            }
+            spillOutput.append( func.output );
+            func.output.setLength( 0 );
+            func.output.trimToSize();
+            flushedFunctions++;
+        }
     }
 
     /**
@@ -772,9 +960,9 @@ private void newline( Appendable output ) throws IOException {
      * {@inheritDoc}
      */
     @Override
-    protected void writeFunctionCall( FunctionName name, String comment ) throws IOException {
+    protected void writeFunctionCall( FunctionName name, String comment, boolean tailCall ) throws IOException {
         newline( methodOutput );
-        methodOutput.append( "call $" ).append( normalizeName( name ) );
+        methodOutput.append( tailCall ? "return_call $" : "call $" ).append( normalizeName( name ) );
         if( comment != null ) {
             methodOutput.append( "  ;; \"" ).append( comment.replace( "\n", "\\n" ).replace( "\r", "\\r" ) ).append( '"' );
         }
@@ -784,11 +972,20 @@ protected void writeFunctionCall( FunctionName name, String comment ) throws IOE
      * {@inheritDoc}
      */
     @Override
-    protected void writeVirtualFunctionCall( FunctionName name, AnyType type ) throws IOException {
+    protected void writeVirtualFunctionCall( FunctionName name, AnyType type, boolean tailCall ) throws IOException {
         callIndirect = true;
 
         newline( methodOutput );
-        methodOutput.append( "call_indirect (type $t" ).append( getFunction( name ).typeId ).append( ")  ;; " ).append( name.signatureName );
+        methodOutput.append( tailCall ? "return_call_indirect (type $t" : "call_indirect (type $t" ).append( getFunction( name ).typeId ).append( ")  ;; " ).append( name.signatureName );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeFunctionRefCall( FunctionName name, boolean tailCall ) throws IOException {
+        newline( methodOutput );
+        methodOutput.append( tailCall ? "return_call_ref" : "call_ref" ).append( "  ;; " ).append( name.signatureName );
     }
 
     /**
@@ -940,6 +1137,26 @@ protected void writeArrayOperator( @Nonnull ArrayOperator op, ArrayType type ) t
         methodOutput.append( "array." ).append( operation ).append( ' ' ).append( normalizeName( type.getNativeArrayType().toString() ) );
     }
 
+    /**
+     * Write the runtime type of a struct. The root type is written with rtt.canon, all following with rtt.sub.
+     * 
+     * @param output
+     *            the target
+     * @param type
+     *            the struct type or vtable type
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private void writeRtt( Appendable output, AnyType type ) throws IOException {
+        List<AnyType> rttChain = getRttChain( type );
+        for( int i = 0; i < rttChain.size(); i++ ) {
+            if( i > 0 ) {
+                output.append( ' ' );
+            }
+            output.append( i == 0 ? "rtt.canon " : "rtt.sub " ).append( normalizeName( rttChain.get( i ).toString() ) );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -950,12 +1167,18 @@ protected void writeStructOperator( StructOperator op, AnyType type, NamedStorag
             case NEW:
             case NEW_DEFAULT:
                 newline( methodOutput );
-                methodOutput.append( "rtt.canon" ).append( ' ' ).append( normalizeName( type.toString() ) );
+                writeRtt( methodOutput, type );
                 operation = "struct.new_default_with_rtt";
                 break;
             case GET:
                 operation = "struct.get";
                 break;
+            case GET_S:
+                operation = "struct.get_s";
+                break;
+            case GET_U:
+                operation = "struct.get_u";
+                break;
             case SET:
                 operation = "struct.set";
                 break;
@@ -968,8 +1191,9 @@ protected void writeStructOperator( StructOperator op, AnyType type, NamedStorag
                 }
                 break;
             case RTT_CANON:
-                operation = "rtt.canon";
-                break;
+                newline( methodOutput );
+                writeRtt( methodOutput, type );
+                return;
             case NEW_WITH_RTT:
                 operation = "struct.new_with_rtt";
                 break;
@@ -999,8 +1223,68 @@ protected void writeStructOperator( StructOperator op, AnyType type, NamedStorag
     @Override
     protected void writeMemoryOperator( MemoryOperator memOp, ValueType valueType, int offset, int alignment ) throws IOException {
         newline( methodOutput );
-        methodOutput.append( valueType ).append( '.' ).append( memOp )
-        .append( " offset=" ).append( offset )
+        switch( memOp ) {
+            case atomic_wait:
+                methodOutput.append( "memory.atomic.wait" ).append( valueType == ValueType.i64 ? "64" : "32" );
+                break;
+            case atomic_notify:
+                methodOutput.append( "memory.atomic.notify" );
+                break;
+            case size:
+                methodOutput.append( "memory.size" );
+                return;
+            case grow:
+                methodOutput.append( "memory.grow" );
+                return;
+            case init:
+                methodOutput.append( "memory.init " ).append( offset );
+                return;
+            case data_drop:
+                methodOutput.append( "data.drop " ).append( offset );
+                return;
+            case atomic_load:
+            case atomic_store:
+            case atomic_rmw_add:
+            case atomic_rmw_xchg:
+            case atomic_rmw_cmpxchg:
+                methodOutput.append( valueType ).append( '.' ).append( memOp.name().replace( '_', '.' ) );
+                break;
+            default:
+                methodOutput.append( valueType ).append( '.' ).append( memOp );
+        }
+        methodOutput.append( " offset=" ).append( offset )
         .append( " align=" ).append( 1 << alignment );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeSimdOperator( SimdOperator op, int offset, int alignment, int lane, byte[] immediate ) throws IOException {
+        newline( methodOutput );
+        methodOutput.append( op );
+        switch( op.getKind() ) {
+            case LOAD:
+            case STORE:
+                methodOutput.append( " offset=" ).append( offset ).append( " align=" ).append( 1 << alignment );
+                break;
+            case LOAD_LANE:
+            case STORE_LANE:
+                methodOutput.append( " offset=" ).append( offset ).append( " align=" ).append( 1 << alignment ).append( ' ' ).append( lane );
+                break;
+            case EXTRACT_LANE:
+            case REPLACE_LANE:
+                methodOutput.append( ' ' ).append( lane );
+                break;
+            case CONST:
+                methodOutput.append( " i8x16" );
+                //$FALL-THROUGH$
+            case SHUFFLE:
+                for( int i = 0; i < 16; i++ ) {
+                    methodOutput.append( ' ' ).append( immediate[i] & 0xFF );
+                }
+                break;
+            default:
+        }
+    }
 }
@@ -92,6 +92,15 @@ public void writeTo( OutputStream output ) throws IOException {
         baos.writeTo( output );
     }
 
+    /**
+     * Get a copy of the bytes. Work only for in memory stream.
+     * 
+     * @return the bytes
+     */
+    public byte[] toByteArray() {
+        return ((ByteArrayOutputStream)out).toByteArray();
+    }
+
     /**
      * The count of bytes in the stream.
      * 
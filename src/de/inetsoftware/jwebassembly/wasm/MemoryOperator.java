@@ -25,4 +25,15 @@ public enum MemoryOperator {
     load16_s,
     load16_u,
     load,
+    atomic_load,
+    atomic_store,
+    atomic_rmw_add,
+    atomic_rmw_xchg,
+    atomic_rmw_cmpxchg,
+    atomic_wait,
+    atomic_notify,
+    size,
+    grow,
+    init,
+    data_drop,
 }
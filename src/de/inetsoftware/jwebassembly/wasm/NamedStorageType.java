@@ -71,7 +71,7 @@ public NamedStorageType( ConstantRef ref, TypeManager types ) {
      *            the type manager
      */
     private NamedStorageType( String type, String className, String name, TypeManager types ) {
-        this( new ValueTypeParser( type, types ).next(), className, name );
+        this( new ValueTypeParser( type, types ).nextFieldType(), className, name );
     }
 
     /**
@@ -0,0 +1,413 @@
+/*
+   Copyright 2026 Volker Berlin (i-net software)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package de.inetsoftware.jwebassembly.wasm;
+
+import java.util.HashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The fixed-width SIMD operations on the type v128. The name of the constant is the text format name where the first
+ * dot is replaced with an underscore.
+ * 
+ * https://github.com/WebAssembly/simd/blob/main/proposals/simd/BinarySIMD.md
+ * 
+ * @author Volker Berlin
+ */
+public enum SimdOperator {
+    v128_load( 0x00, Kind.LOAD, 4 ),
+    v128_load8x8_s( 0x01, Kind.LOAD, 3 ),
+    v128_load8x8_u( 0x02, Kind.LOAD, 3 ),
+    v128_load16x4_s( 0x03, Kind.LOAD, 3 ),
+    v128_load16x4_u( 0x04, Kind.LOAD, 3 ),
+    v128_load32x2_s( 0x05, Kind.LOAD, 3 ),
+    v128_load32x2_u( 0x06, Kind.LOAD, 3 ),
+    v128_load8_splat( 0x07, Kind.LOAD, 0 ),
+    v128_load16_splat( 0x08, Kind.LOAD, 1 ),
+    v128_load32_splat( 0x09, Kind.LOAD, 2 ),
+    v128_load64_splat( 0x0A, Kind.LOAD, 3 ),
+    v128_store( 0x0B, Kind.STORE, 4 ),
+    v128_const( 0x0C, Kind.CONST ),
+    i8x16_shuffle( 0x0D, Kind.SHUFFLE ),
+    i8x16_swizzle( 0x0E, Kind.BINARY ),
+    i8x16_splat( 0x0F, Kind.SPLAT ),
+    i16x8_splat( 0x10, Kind.SPLAT ),
+    i32x4_splat( 0x11, Kind.SPLAT ),
+    i64x2_splat( 0x12, Kind.SPLAT ),
+    f32x4_splat( 0x13, Kind.SPLAT ),
+    f64x2_splat( 0x14, Kind.SPLAT ),
+    i8x16_extract_lane_s( 0x15, Kind.EXTRACT_LANE ),
+    i8x16_extract_lane_u( 0x16, Kind.EXTRACT_LANE ),
+    i8x16_replace_lane( 0x17, Kind.REPLACE_LANE ),
+    i16x8_extract_lane_s( 0x18, Kind.EXTRACT_LANE ),
+    i16x8_extract_lane_u( 0x19, Kind.EXTRACT_LANE ),
+    i16x8_replace_lane( 0x1A, Kind.REPLACE_LANE ),
+    i32x4_extract_lane( 0x1B, Kind.EXTRACT_LANE ),
+    i32x4_replace_lane( 0x1C, Kind.REPLACE_LANE ),
+    i64x2_extract_lane( 0x1D, Kind.EXTRACT_LANE ),
+    i64x2_replace_lane( 0x1E, Kind.REPLACE_LANE ),
+    f32x4_extract_lane( 0x1F, Kind.EXTRACT_LANE ),
+    f32x4_replace_lane( 0x20, Kind.REPLACE_LANE ),
+    f64x2_extract_lane( 0x21, Kind.EXTRACT_LANE ),
+    f64x2_replace_lane( 0x22, Kind.REPLACE_LANE ),
+    i8x16_eq( 0x23, Kind.BINARY ),
+    i8x16_ne( 0x24, Kind.BINARY ),
+    i8x16_lt_s( 0x25, Kind.BINARY ),
+    i8x16_lt_u( 0x26, Kind.BINARY ),
+    i8x16_gt_s( 0x27, Kind.BINARY ),
+    i8x16_gt_u( 0x28, Kind.BINARY ),
+    i8x16_le_s( 0x29, Kind.BINARY ),
+    i8x16_le_u( 0x2A, Kind.BINARY ),
+    i8x16_ge_s( 0x2B, Kind.BINARY ),
+    i8x16_ge_u( 0x2C, Kind.BINARY ),
+    i16x8_eq( 0x2D, Kind.BINARY ),
+    i16x8_ne( 0x2E, Kind.BINARY ),
+    i16x8_lt_s( 0x2F, Kind.BINARY ),
+    i16x8_lt_u( 0x30, Kind.BINARY ),
+    i16x8_gt_s( 0x31, Kind.BINARY ),
+    i16x8_gt_u( 0x32, Kind.BINARY ),
+    i16x8_le_s( 0x33, Kind.BINARY ),
+    i16x8_le_u( 0x34, Kind.BINARY ),
+    i16x8_ge_s( 0x35, Kind.BINARY ),
+    i16x8_ge_u( 0x36, Kind.BINARY ),
+    i32x4_eq( 0x37, Kind.BINARY ),
+    i32x4_ne( 0x38, Kind.BINARY ),
+    i32x4_lt_s( 0x39, Kind.BINARY ),
+    i32x4_lt_u( 0x3A, Kind.BINARY ),
+    i32x4_gt_s( 0x3B, Kind.BINARY ),
+    i32x4_gt_u( 0x3C, Kind.BINARY ),
+    i32x4_le_s( 0x3D, Kind.BINARY ),
+    i32x4_le_u( 0x3E, Kind.BINARY ),
+    i32x4_ge_s( 0x3F, Kind.BINARY ),
+    i32x4_ge_u( 0x40, Kind.BINARY ),
+    f32x4_eq( 0x41, Kind.BINARY ),
+    f32x4_ne( 0x42, Kind.BINARY ),
+    f32x4_lt( 0x43, Kind.BINARY ),
+    f32x4_gt( 0x44, Kind.BINARY ),
+    f32x4_le( 0x45, Kind.BINARY ),
+    f32x4_ge( 0x46, Kind.BINARY ),
+    f64x2_eq( 0x47, Kind.BINARY ),
+    f64x2_ne( 0x48, Kind.BINARY ),
+    f64x2_lt( 0x49, Kind.BINARY ),
+    f64x2_gt( 0x4A, Kind.BINARY ),
+    f64x2_le( 0x4B, Kind.BINARY ),
+    f64x2_ge( 0x4C, Kind.BINARY ),
+    v128_not( 0x4D, Kind.UNARY ),
+    v128_and( 0x4E, Kind.BINARY ),
+    v128_andnot( 0x4F, Kind.BINARY ),
+    v128_or( 0x50, Kind.BINARY ),
+    v128_xor( 0x51, Kind.BINARY ),
+    v128_bitselect( 0x52, Kind.TERNARY ),
+    v128_any_true( 0x53, Kind.TEST ),
+    v128_load8_lane( 0x54, Kind.LOAD_LANE, 0 ),
+    v128_load16_lane( 0x55, Kind.LOAD_LANE, 1 ),
+    v128_load32_lane( 0x56, Kind.LOAD_LANE, 2 ),
+    v128_load64_lane( 0x57, Kind.LOAD_LANE, 3 ),
+    v128_store8_lane( 0x58, Kind.STORE_LANE, 0 ),
+    v128_store16_lane( 0x59, Kind.STORE_LANE, 1 ),
+    v128_store32_lane( 0x5A, Kind.STORE_LANE, 2 ),
+    v128_store64_lane( 0x5B, Kind.STORE_LANE, 3 ),
+    v128_load32_zero( 0x5C, Kind.LOAD, 2 ),
+    v128_load64_zero( 0x5D, Kind.LOAD, 3 ),
+    f32x4_demote_f64x2_zero( 0x5E, Kind.UNARY ),
+    f64x2_promote_low_f32x4( 0x5F, Kind.UNARY ),
+    i8x16_abs( 0x60, Kind.UNARY ),
+    i8x16_neg( 0x61, Kind.UNARY ),
+    i8x16_popcnt( 0x62, Kind.UNARY ),
+    i8x16_all_true( 0x63, Kind.TEST ),
+    i8x16_bitmask( 0x64, Kind.TEST ),
+    i8x16_narrow_i16x8_s( 0x65, Kind.BINARY ),
+    i8x16_narrow_i16x8_u( 0x66, Kind.BINARY ),
+    f32x4_ceil( 0x67, Kind.UNARY ),
+    f32x4_floor( 0x68, Kind.UNARY ),
+    f32x4_trunc( 0x69, Kind.UNARY ),
+    f32x4_nearest( 0x6A, Kind.UNARY ),
+    i8x16_shl( 0x6B, Kind.SHIFT ),
+    i8x16_shr_s( 0x6C, Kind.SHIFT ),
+    i8x16_shr_u( 0x6D, Kind.SHIFT ),
+    i8x16_add( 0x6E, Kind.BINARY ),
+    i8x16_add_sat_s( 0x6F, Kind.BINARY ),
+    i8x16_add_sat_u( 0x70, Kind.BINARY ),
+    i8x16_sub( 0x71, Kind.BINARY ),
+    i8x16_sub_sat_s( 0x72, Kind.BINARY ),
+    i8x16_sub_sat_u( 0x73, Kind.BINARY ),
+    f64x2_ceil( 0x74, Kind.UNARY ),
+    f64x2_floor( 0x75, Kind.UNARY ),
+    i8x16_min_s( 0x76, Kind.BINARY ),
+    i8x16_min_u( 0x77, Kind.BINARY ),
+    i8x16_max_s( 0x78, Kind.BINARY ),
+    i8x16_max_u( 0x79, Kind.BINARY ),
+    f64x2_trunc( 0x7A, Kind.UNARY ),
+    i8x16_avgr_u( 0x7B, Kind.BINARY ),
+    i16x8_extadd_pairwise_i8x16_s( 0x7C, Kind.UNARY ),
+    i16x8_extadd_pairwise_i8x16_u( 0x7D, Kind.UNARY ),
+    i32x4_extadd_pairwise_i16x8_s( 0x7E, Kind.UNARY ),
+    i32x4_extadd_pairwise_i16x8_u( 0x7F, Kind.UNARY ),
+    i16x8_abs( 0x80, Kind.UNARY ),
+    i16x8_neg( 0x81, Kind.UNARY ),
+    i16x8_q15mulr_sat_s( 0x82, Kind.BINARY ),
+    i16x8_all_true( 0x83, Kind.TEST ),
+    i16x8_bitmask( 0x84, Kind.TEST ),
+    i16x8_narrow_i32x4_s( 0x85, Kind.BINARY ),
+    i16x8_narrow_i32x4_u( 0x86, Kind.BINARY ),
+    i16x8_extend_low_i8x16_s( 0x87, Kind.UNARY ),
+    i16x8_extend_high_i8x16_s( 0x88, Kind.UNARY ),
+    i16x8_extend_low_i8x16_u( 0x89, Kind.UNARY ),
+    i16x8_extend_high_i8x16_u( 0x8A, Kind.UNARY ),
+    i16x8_shl( 0x8B, Kind.SHIFT ),
+    i16x8_shr_s( 0x8C, Kind.SHIFT ),
+    i16x8_shr_u( 0x8D, Kind.SHIFT ),
+    i16x8_add( 0x8E, Kind.BINARY ),
+    i16x8_add_sat_s( 0x8F, Kind.BINARY ),
+    i16x8_add_sat_u( 0x90, Kind.BINARY ),
+    i16x8_sub( 0x91, Kind.BINARY ),
+    i16x8_sub_sat_s( 0x92, Kind.BINARY ),
+    i16x8_sub_sat_u( 0x93, Kind.BINARY ),
+    f64x2_nearest( 0x94, Kind.UNARY ),
+    i16x8_mul( 0x95, Kind.BINARY ),
+    i16x8_min_s( 0x96, Kind.BINARY ),
+    i16x8_min_u( 0x97, Kind.BINARY ),
+    i16x8_max_s( 0x98, Kind.BINARY ),
+    i16x8_max_u( 0x99, Kind.BINARY ),
+    i16x8_avgr_u( 0x9B, Kind.BINARY ),
+    i16x8_extmul_low_i8x16_s( 0x9C, Kind.BINARY ),
+    i16x8_extmul_high_i8x16_s( 0x9D, Kind.BINARY ),
+    i16x8_extmul_low_i8x16_u( 0x9E, Kind.BINARY ),
+    i16x8_extmul_high_i8x16_u( 0x9F, Kind.BINARY ),
+    i32x4_abs( 0xA0, Kind.UNARY ),
+    i32x4_neg( 0xA1, Kind.UNARY ),
+    i32x4_all_true( 0xA3, Kind.TEST ),
+    i32x4_bitmask( 0xA4, Kind.TEST ),
+    i32x4_extend_low_i16x8_s( 0xA7, Kind.UNARY ),
+    i32x4_extend_high_i16x8_s( 0xA8, Kind.UNARY ),
+    i32x4_extend_low_i16x8_u( 0xA9, Kind.UNARY ),
+    i32x4_extend_high_i16x8_u( 0xAA, Kind.UNARY ),
+    i32x4_shl( 0xAB, Kind.SHIFT ),
+    i32x4_shr_s( 0xAC, Kind.SHIFT ),
+    i32x4_shr_u( 0xAD, Kind.SHIFT ),
+    i32x4_add( 0xAE, Kind.BINARY ),
+    i32x4_sub( 0xB1, Kind.BINARY ),
+    i32x4_mul( 0xB5, Kind.BINARY ),
+    i32x4_min_s( 0xB6, Kind.BINARY ),
+    i32x4_min_u( 0xB7, Kind.BINARY ),
+    i32x4_max_s( 0xB8, Kind.BINARY ),
+    i32x4_max_u( 0xB9, Kind.BINARY ),
+    i32x4_dot_i16x8_s( 0xBA, Kind.BINARY ),
+    i32x4_extmul_low_i16x8_s( 0xBC, Kind.BINARY ),
+    i32x4_extmul_high_i16x8_s( 0xBD, Kind.BINARY ),
+    i32x4_extmul_low_i16x8_u( 0xBE, Kind.BINARY ),
+    i32x4_extmul_high_i16x8_u( 0xBF, Kind.BINARY ),
+    i64x2_abs( 0xC0, Kind.UNARY ),
+    i64x2_neg( 0xC1, Kind.UNARY ),
+    i64x2_all_true( 0xC3, Kind.TEST ),
+    i64x2_bitmask( 0xC4, Kind.TEST ),
+    i64x2_extend_low_i32x4_s( 0xC7, Kind.UNARY ),
+    i64x2_extend_high_i32x4_s( 0xC8, Kind.UNARY ),
+    i64x2_extend_low_i32x4_u( 0xC9, Kind.UNARY ),
+    i64x2_extend_high_i32x4_u( 0xCA, Kind.UNARY ),
+    i64x2_shl( 0xCB, Kind.SHIFT ),
+    i64x2_shr_s( 0xCC, Kind.SHIFT ),
+    i64x2_shr_u( 0xCD, Kind.SHIFT ),
+    i64x2_add( 0xCE, Kind.BINARY ),
+    i64x2_sub( 0xD1, Kind.BINARY ),
+    i64x2_mul( 0xD5, Kind.BINARY ),
+    i64x2_eq( 0xD6, Kind.BINARY ),
+    i64x2_ne( 0xD7, Kind.BINARY ),
+    i64x2_lt_s( 0xD8, Kind.BINARY ),
+    i64x2_gt_s( 0xD9, Kind.BINARY ),
+    i64x2_le_s( 0xDA, Kind.BINARY ),
+    i64x2_ge_s( 0xDB, Kind.BINARY ),
+    i64x2_extmul_low_i32x4_s( 0xDC, Kind.BINARY ),
+    i64x2_extmul_high_i32x4_s( 0xDD, Kind.BINARY ),
+    i64x2_extmul_low_i32x4_u( 0xDE, Kind.BINARY ),
+    i64x2_extmul_high_i32x4_u( 0xDF, Kind.BINARY ),
+    f32x4_abs( 0xE0, Kind.UNARY ),
+    f32x4_neg( 0xE1, Kind.UNARY ),
+    f32x4_sqrt( 0xE3, Kind.UNARY ),
+    f32x4_add( 0xE4, Kind.BINARY ),
+    f32x4_sub( 0xE5, Kind.BINARY ),
+    f32x4_mul( 0xE6, Kind.BINARY ),
+    f32x4_div( 0xE7, Kind.BINARY ),
+    f32x4_min( 0xE8, Kind.BINARY ),
+    f32x4_max( 0xE9, Kind.BINARY ),
+    f32x4_pmin( 0xEA, Kind.BINARY ),
+    f32x4_pmax( 0xEB, Kind.BINARY ),
+    f64x2_abs( 0xEC, Kind.UNARY ),
+    f64x2_neg( 0xED, Kind.UNARY ),
+    f64x2_sqrt( 0xEF, Kind.UNARY ),
+    f64x2_add( 0xF0, Kind.BINARY ),
+    f64x2_sub( 0xF1, Kind.BINARY ),
+    f64x2_mul( 0xF2, Kind.BINARY ),
+    f64x2_div( 0xF3, Kind.BINARY ),
+    f64x2_min( 0xF4, Kind.BINARY ),
+    f64x2_max( 0xF5, Kind.BINARY ),
+    f64x2_pmin( 0xF6, Kind.BINARY ),
+    f64x2_pmax( 0xF7, Kind.BINARY ),
+    i32x4_trunc_sat_f32x4_s( 0xF8, Kind.UNARY ),
+    i32x4_trunc_sat_f32x4_u( 0xF9, Kind.UNARY ),
+    f32x4_convert_i32x4_s( 0xFA, Kind.UNARY ),
+    f32x4_convert_i32x4_u( 0xFB, Kind.UNARY ),
+    i32x4_trunc_sat_f64x2_s_zero( 0xFC, Kind.UNARY ),
+    i32x4_trunc_sat_f64x2_u_zero( 0xFD, Kind.UNARY ),
+    f64x2_convert_low_i32x4_s( 0xFE, Kind.UNARY ),
+    f64x2_convert_low_i32x4_u( 0xFF, Kind.UNARY );
+
+    /**
+     * The stack signature and the immediate operands of an operation.
+     */
+    public static enum Kind {
+        /** [i32] -> [v128], memarg */
+        LOAD,
+        /** [i32 v128] -> [], memarg */
+        STORE,
+        /** [i32 v128] -> [v128], memarg and lane index */
+        LOAD_LANE,
+        /** [i32 v128] -> [], memarg and lane index */
+        STORE_LANE,
+        /** [] -> [v128], 16 bytes */
+        CONST,
+        /** [v128 v128] -> [v128], 16 lane indices */
+        SHUFFLE,
+        /** [scalar] -> [v128] */
+        SPLAT,
+        /** [v128] -> [scalar], lane index */
+        EXTRACT_LANE,
+        /** [v128 scalar] -> [v128], lane index */
+        REPLACE_LANE,
+        /** [v128] -> [v128] */
+        UNARY,
+        /** [v128 v128] -> [v128] */
+        BINARY,
+        /** [v128 v128 v128] -> [v128] */
+        TERNARY,
+        /** [v128] -> [i32] */
+        TEST,
+        /** [v128 i32] -> [v128] */
+        SHIFT,
+    }
+
+    private static final HashMap<String, SimdOperator> NAMES = new HashMap<>();
+    static {
+        for( SimdOperator op : values() ) {
+            NAMES.put( op.toString(), op );
+        }
+    }
+
+    private final int  code;
+
+    private final Kind kind;
+
+    private final int  alignment;
+
+    /**
+     * Create instance of the enum
+     * 
+     * @param code
+     *            the operation code in WebAssembly after the SIMD prefix
+     * @param kind
+     *            the kind of operation
+     */
+    private SimdOperator( int code, Kind kind ) {
+        this( code, kind, 0 );
+    }
+
+    /**
+     * Create instance of the enum for a memory operation
+     * 
+     * @param code
+     *            the operation code in WebAssembly after the SIMD prefix
+     * @param kind
+     *            the kind of operation
+     * @param alignment
+     *            the natural alignment of the memory access (0: 8 Bit; 1: 16 Bit; 2: 32 Bit; 3: 64 Bit; 4: 128 Bit)
+     */
+    private SimdOperator( int code, Kind kind, int alignment ) {
+        this.code = code;
+        this.kind = kind;
+        this.alignment = alignment;
+    }
+
+    /**
+     * Get the operator for the name in the text format.
+     * 
+     * @param name
+     *            the name like "i32x4.add"
+     * @return the operator or null if it is not a SIMD operation
+     */
+    @Nullable
+    public static SimdOperator get( @Nonnull String name ) {
+        return NAMES.get( name );
+    }
+
+    /**
+     * The operation code in WebAssembly after the SIMD prefix. It is written as varuint32.
+     * 
+     * @return the code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * The stack signature and the immediate operands of this operation.
+     * 
+     * @return the kind
+     */
+    @Nonnull
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The natural alignment of a memory operation.
+     * 
+     * @return the alignment (0: 8 Bit; 1: 16 Bit; 2: 32 Bit; 3: 64 Bit; 4: 128 Bit)
+     */
+    public int getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * The scalar type of the lanes for splat, extract_lane and replace_lane.
+     * 
+     * @return the type
+     */
+    @Nonnull
+    public ValueType getLaneType() {
+        switch( name().substring( 0, 5 ) ) {
+            case "i64x2":
+                return ValueType.i64;
+            case "f32x4":
+                return ValueType.f32;
+            case "f64x2":
+                return ValueType.f64;
+            default:
+                return ValueType.i32;
+        }
+    }
+
+    /**
+     * The name in the text format.
+     * 
+     * @return the name like "i32x4.add"
+     */
+    @Override
+    public String toString() {
+        return name().replaceFirst( "_", "." );
+    }
+}
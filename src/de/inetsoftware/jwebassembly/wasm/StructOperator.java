@@ -25,6 +25,8 @@ public enum StructOperator {
     NEW,
     NEW_DEFAULT,
     GET,
+    GET_S,
+    GET_U,
     SET,
     NULL,
     CAST,
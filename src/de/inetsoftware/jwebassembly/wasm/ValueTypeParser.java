@@ -65,6 +65,16 @@ public AnyType next() {
         return next( false );
     }
 
+    /**
+     * Get the next value of a field signature. If the type manager use packed storage then boolean, byte, char and
+     * short are returned as i8 or i16 storage type.
+     * 
+     * @return next type or null
+     */
+    public AnyType nextFieldType() {
+        return next( types != null && types.usePackedFields() );
+    }
+
     /**
      * Get the next value in the signature or null if the parameter are end or the signature is end.
      * 
@@ -16,6 +16,8 @@
 */
 package de.inetsoftware.jwebassembly.watparser;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -35,6 +37,7 @@
 import de.inetsoftware.jwebassembly.wasm.MemoryOperator;
 import de.inetsoftware.jwebassembly.wasm.NamedStorageType;
 import de.inetsoftware.jwebassembly.wasm.NumericOperator;
+import de.inetsoftware.jwebassembly.wasm.SimdOperator;
 import de.inetsoftware.jwebassembly.wasm.StructOperator;
 import de.inetsoftware.jwebassembly.wasm.ValueType;
 import de.inetsoftware.jwebassembly.wasm.VariableOperator;
@@ -303,9 +306,75 @@ public void parse( String wat, MethodInfo method, Iterator<AnyType> signature, i
                     case "i32.load8_u":
                         i = addMemoryInstruction( MemoryOperator.load8_u, ValueType.i32, tokens, i, lineNumber );
                         break;
+                    case "i32.atomic.load":
+                        i = addMemoryInstruction( MemoryOperator.atomic_load, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "i64.atomic.load":
+                        i = addMemoryInstruction( MemoryOperator.atomic_load, ValueType.i64, tokens, i, lineNumber );
+                        break;
+                    case "i32.atomic.store":
+                        i = addMemoryInstruction( MemoryOperator.atomic_store, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "i64.atomic.store":
+                        i = addMemoryInstruction( MemoryOperator.atomic_store, ValueType.i64, tokens, i, lineNumber );
+                        break;
+                    case "i32.atomic.rmw.add":
+                        i = addMemoryInstruction( MemoryOperator.atomic_rmw_add, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "i64.atomic.rmw.add":
+                        i = addMemoryInstruction( MemoryOperator.atomic_rmw_add, ValueType.i64, tokens, i, lineNumber );
+                        break;
+                    case "i32.atomic.rmw.xchg":
+                        i = addMemoryInstruction( MemoryOperator.atomic_rmw_xchg, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "i64.atomic.rmw.xchg":
+                        i = addMemoryInstruction( MemoryOperator.atomic_rmw_xchg, ValueType.i64, tokens, i, lineNumber );
+                        break;
+                    case "i32.atomic.rmw.cmpxchg":
+                        i = addMemoryInstruction( MemoryOperator.atomic_rmw_cmpxchg, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "i64.atomic.rmw.cmpxchg":
+                        i = addMemoryInstruction( MemoryOperator.atomic_rmw_cmpxchg, ValueType.i64, tokens, i, lineNumber );
+                        break;
+                    case "memory.atomic.wait32":
+                        i = addMemoryInstruction( MemoryOperator.atomic_wait, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "memory.atomic.wait64":
+                        i = addMemoryInstruction( MemoryOperator.atomic_wait, ValueType.i64, tokens, i, lineNumber );
+                        break;
+                    case "memory.atomic.notify":
+                        i = addMemoryInstruction( MemoryOperator.atomic_notify, ValueType.i32, tokens, i, lineNumber );
+                        break;
+                    case "memory.size":
+                        addMemoryInstruction( MemoryOperator.size, ValueType.i32, 0, 0, javaCodePos, lineNumber );
+                        break;
+                    case "memory.grow":
+                        addMemoryInstruction( MemoryOperator.grow, ValueType.i32, 0, 0, javaCodePos, lineNumber );
+                        break;
+                    case "memory.init":
+                        addMemoryInstruction( MemoryOperator.init, ValueType.i32, getInt( tokens, ++i ), 0, javaCodePos, lineNumber );
+                        break;
+                    case "data.drop":
+                        addMemoryInstruction( MemoryOperator.data_drop, ValueType.i32, getInt( tokens, ++i ), 0, javaCodePos, lineNumber );
+                        break;
                     case "struct.get":
+                    case "struct.get_s":
+                    case "struct.get_u":
                     case "struct.set":
-                        StructOperator op = "struct.get".equals( tok ) ? StructOperator.GET : StructOperator.SET;
+                        StructOperator op;
+                        switch( tok ) {
+                            case "struct.get_s":
+                                op = StructOperator.GET_S;
+                                break;
+                            case "struct.get_u":
+                                op = StructOperator.GET_U;
+                                break;
+                            case "struct.set":
+                                op = StructOperator.SET;
+                                break;
+                            default:
+                                op = StructOperator.GET;
+                        }
                         String typeName = get( tokens, ++i );
                         String fieldName = get( tokens, ++i );
                         NamedStorageType fieldNameType = null;
@@ -352,6 +421,11 @@ public void parse( String wat, MethodInfo method, Iterator<AnyType> signature, i
                         addArrayInstruction( "array.get".equals( tok ) ? ArrayOperator.GET : ArrayOperator.SET, type, javaCodePos, lineNumber );
                         break;
                     default:
+                        SimdOperator simd = SimdOperator.get( tok );
+                        if( simd != null ) {
+                            i = addSimdInstruction( simd, tokens, i, lineNumber );
+                            break;
+                        }
                         throw new WasmException( "Unknown WASM token: " + tok, lineNumber );
                 }
             }
@@ -434,7 +508,7 @@ private List<String> splitTokens( @Nullable String wat ) {
     }
 
     /**
-     * Parse the optional tokens of a load memory instruction and add it.
+     * Parse the optional tokens of a memory instruction and add it.
      * 
      * @param op
      *            the operation
@@ -451,32 +525,129 @@ private List<String> splitTokens( @Nullable String wat ) {
     private int addMemoryInstruction( MemoryOperator op, ValueType type, List<String> tokens, int i, int lineNumber ) {
         int offset = 0;
         int alignment = 0;
-        if( i < tokens.size() ) {
+        if( op.name().startsWith( "atomic" ) ) {
+            alignment = type == ValueType.i64 ? 3 : 2; // atomic access requires the natural alignment
+        }
+        if( i + 1 < tokens.size() ) {
             String str = tokens.get( i + 1 );
             if( str.startsWith( "offset=" ) ) {
                 offset = Integer.parseInt( str.substring( 7 ) );
                 i++;
             }
-            str = tokens.get( i + 1 );
+            str = i + 1 < tokens.size() ? tokens.get( i + 1 ) : "";
             if( str.startsWith( "align=" ) ) {
-                int align = Integer.parseInt( str.substring( 6 ) );
-                switch( align ) {
-                    case 1:
-                        alignment = 0;
-                        break;
-                    case 2:
-                        alignment = 1;
-                        break;
-                    case 4:
-                        alignment = 2;
-                        break;
-                    default:
-                        throw new WasmException( "alignment must be power-of-two", lineNumber );
-                }
+                alignment = getAlignment( str, lineNumber );
                 i++;
             }
         }
         addMemoryInstruction( op, type, offset, alignment, i, lineNumber );
         return i;
     }
+
+    /**
+     * Parse the alignment token of a memory instruction.
+     * 
+     * @param str
+     *            the token like "align=4"
+     * @param lineNumber
+     *            the line number in the Java source code
+     * @return the alignment as power of two (0: 8 Bit; 1: 16 Bit; 2: 32 Bit; 3: 64 Bit; 4: 128 Bit)
+     */
+    private static int getAlignment( String str, int lineNumber ) {
+        int align = Integer.parseInt( str.substring( 6 ) );
+        switch( align ) {
+            case 1:
+                return 0;
+            case 2:
+                return 1;
+            case 4:
+                return 2;
+            case 8:
+                return 3;
+            case 16:
+                return 4;
+            default:
+                throw new WasmException( "alignment must be power-of-two", lineNumber );
+        }
+    }
+
+    /**
+     * Parse the immediate tokens of a SIMD instruction and add it.
+     * 
+     * @param op
+     *            the operation
+     * @param tokens
+     *            the token list
+     * @param i
+     *            the position in the tokens
+     * @param lineNumber
+     *            the line number in the Java source code
+     * @return the current index to the tokens
+     */
+    private int addSimdInstruction( SimdOperator op, List<String> tokens, int i, int lineNumber ) {
+        int javaCodePos = i;
+        int offset = 0;
+        int alignment = op.getAlignment();
+        int lane = 0;
+        byte[] immediate = null;
+        switch( op.getKind() ) {
+            case LOAD:
+            case STORE:
+            case LOAD_LANE:
+            case STORE_LANE:
+                if( i + 1 < tokens.size() && tokens.get( i + 1 ).startsWith( "offset=" ) ) {
+                    offset = Integer.parseInt( tokens.get( ++i ).substring( 7 ) );
+                }
+                if( i + 1 < tokens.size() && tokens.get( i + 1 ).startsWith( "align=" ) ) {
+                    alignment = getAlignment( tokens.get( ++i ), lineNumber );
+                }
+                if( op.getKind() == SimdOperator.Kind.LOAD_LANE || op.getKind() == SimdOperator.Kind.STORE_LANE ) {
+                    lane = getInt( tokens, ++i );
+                }
+                break;
+            case EXTRACT_LANE:
+            case REPLACE_LANE:
+                lane = getInt( tokens, ++i );
+                break;
+            case SHUFFLE:
+                immediate = new byte[16];
+                for( int l = 0; l < 16; l++ ) {
+                    immediate[l] = (byte)getInt( tokens, ++i );
+                }
+                break;
+            case CONST:
+                String shape = get( tokens, ++i );
+                ByteBuffer buffer = ByteBuffer.allocate( 16 ).order( ByteOrder.LITTLE_ENDIAN );
+                while( buffer.hasRemaining() ) {
+                    String value = get( tokens, ++i );
+                    switch( shape ) {
+                        case "i8x16":
+                            buffer.put( Long.decode( value ).byteValue() );
+                            break;
+                        case "i16x8":
+                            buffer.putShort( Long.decode( value ).shortValue() );
+                            break;
+                        case "i32x4":
+                            buffer.putInt( Long.decode( value ).intValue() );
+                            break;
+                        case "i64x2":
+                            buffer.putLong( Long.decode( value ) );
+                            break;
+                        case "f32x4":
+                            buffer.putFloat( Float.parseFloat( value ) );
+                            break;
+                        case "f64x2":
+                            buffer.putDouble( Double.parseDouble( value ) );
+                            break;
+                        default:
+                            throw new WasmException( "Unknown shape of v128.const: " + shape, lineNumber );
+                    }
+                }
+                immediate = buffer.array();
+                break;
+            default:
+        }
+        addSimdInstruction( op, offset, alignment, lane, immediate, javaCodePos, lineNumber );
+        return i;
+    }
 }
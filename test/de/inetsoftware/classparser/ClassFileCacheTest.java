@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.classparser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The cache can not see the content of a changed file with the same modification time and size. This is used to detect
+ * if a class file comes from the cache or from its source.
+ * 
+ * @author Volker Berlin
+ */
+public class ClassFileCacheTest {
+
+    private static final long  TIME = 1600000000000L;
+
+    @Rule
+    public TemporaryFolder     temp = new TemporaryFolder();
+
+    private static byte[]      bytesA;
+
+    private static byte[]      bytesB;
+
+    private static final String NAME_A = ClassA.class.getName().replace( '.', '/' );
+
+    private static final String NAME_B = ClassB.class.getName().replace( '.', '/' );
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        bytesA = readBytes( ClassA.class );
+        bytesB = readBytes( ClassB.class );
+        assertEquals( "the test classes must have the same size", bytesA.length, bytesB.length );
+    }
+
+    private static byte[] readBytes( Class<?> clazz ) throws IOException {
+        InputStream stream = clazz.getResourceAsStream( '/' + clazz.getName().replace( '.', '/' ) + ".class" );
+        return ClassInputStream.readAll( stream );
+    }
+
+    private static void write( File file, byte[] bytes, long time ) throws IOException {
+        Files.write( file.toPath(), bytes );
+        file.setLastModified( time );
+    }
+
+    private static String name( ClassFile classFile ) throws IOException {
+        return classFile.getThisClass().getName();
+    }
+
+    @Test
+    public void cacheHit() throws IOException {
+        File file = temp.newFile( "Test.class" );
+        URL url = file.toURI().toURL();
+        write( file, bytesA, TIME );
+        ClassFileCache cache = new ClassFileCache( 1024 * 1024 );
+        assertEquals( NAME_A, name( cache.get( url, null ) ) );
+
+        // same modification time and size, the entry is not reloaded
+        write( file, bytesB, TIME );
+        assertEquals( NAME_A, name( cache.get( url, null ) ) );
+
+        // the modification time has changed
+        write( file, bytesB, TIME + 2000 );
+        assertEquals( NAME_B, name( cache.get( url, null ) ) );
+    }
+
+    @Test
+    public void evictionAtSizeLimit() throws IOException {
+        File file1 = temp.newFile( "Test1.class" );
+        File file2 = temp.newFile( "Test2.class" );
+        URL url1 = file1.toURI().toURL();
+        URL url2 = file2.toURI().toURL();
+        write( file1, bytesA, TIME );
+        write( file2, bytesB, TIME );
+        ClassFileCache cache = new ClassFileCache( bytesA.length + bytesB.length - 1 );
+        assertEquals( NAME_A, name( cache.get( url1, null ) ) );
+        assertEquals( NAME_B, name( cache.get( url2, null ) ) );
+
+        // the first entry was evicted and is loaded again
+        write( file1, bytesB, TIME );
+        assertEquals( NAME_B, name( cache.get( url1, null ) ) );
+
+        // equal content is counted once, the second entry is still in the cache
+        write( file2, bytesA, TIME );
+        assertEquals( NAME_B, name( cache.get( url2, null ) ) );
+    }
+
+    @Test
+    public void diskCacheAfterRestart() throws IOException {
+        File directory = temp.newFolder( "cache" );
+        File file = temp.newFile( "Test.class" );
+        URL url = file.toURI().toURL();
+        write( file, bytesA, TIME );
+        assertEquals( NAME_A, name( new ClassFileCache( 1024 * 1024 ).get( url, directory ) ) );
+        assertEquals( 1, directory.list().length );
+
+        // a new cache like in a new JVM reads the class file from the directory
+        write( file, bytesB, TIME );
+        assertEquals( NAME_A, name( new ClassFileCache( 1024 * 1024 ).get( url, directory ) ) );
+
+        // without the directory the source is read
+        assertEquals( NAME_B, name( new ClassFileCache( 1024 * 1024 ).get( url, null ) ) );
+
+        // a changed source does not use the stored class file
+        write( file, bytesB, TIME + 2000 );
+        assertEquals( NAME_B, name( new ClassFileCache( 1024 * 1024 ).get( url, directory ) ) );
+        assertEquals( 2, directory.list().length );
+    }
+
+    static class ClassA {
+    }
+
+    static class ClassB {
+    }
+}
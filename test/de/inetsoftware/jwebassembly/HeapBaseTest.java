@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+
+import org.junit.Test;
+
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Test that the global "__heap_base" is only exported if a memory property is set.
+ *
+ * @author Volker Berlin
+ */
+public class HeapBaseTest {
+
+    private static String compileToText( String key, String value ) {
+        JWebAssembly webAsm = new JWebAssembly();
+        URL url = TestClass.class.getResource( '/' + TestClass.class.getName().replace( '.', '/' ) + ".class" );
+        webAsm.addFile( url );
+        if( key != null ) {
+            webAsm.setProperty( key, value );
+        }
+        return webAsm.compileToText();
+    }
+
+    @Test
+    public void defaultOutput() {
+        String text = compileToText( null, null );
+        assertTrue( text, text.contains( "(memory " ) );
+        assertFalse( text, text.contains( "__heap_base" ) );
+    }
+
+    @Test
+    public void initialPages() {
+        String text = compileToText( JWebAssembly.MEMORY_INITIAL_PAGES, "2" );
+        assertTrue( text, text.contains( "(export \"__heap_base\" (global $__heap_base))" ) );
+    }
+
+    @Test
+    public void maximumPages() {
+        String text = compileToText( JWebAssembly.MEMORY_MAXIMUM_PAGES, "10" );
+        assertTrue( text, text.contains( "(export \"__heap_base\" (global $__heap_base))" ) );
+    }
+
+    @Test
+    public void heapBase() {
+        String text = compileToText( JWebAssembly.MEMORY_HEAP_BASE, "1024" );
+        assertTrue( text, text.contains( "(global $__heap_base i32 (i32.const 1024))" ) );
+        assertTrue( text, text.contains( "(export \"__heap_base\" (global $__heap_base))" ) );
+    }
+
+    static class TestClass {
+
+        private int value = 3;
+
+        @Export
+        static int value() {
+            return new TestClass().get();
+        }
+
+        int get() {
+            return value;
+        }
+    }
+}
@@ -93,6 +93,8 @@ public WasmRule( Class<?>... classes ) {
         }
         this.classes = classes;
         compiler = new JWebAssembly();
+        // validate every binary output so that the validator can not drift from the writer
+        compiler.setProperty( JWebAssembly.VALIDATE, "true" );
         for( Class<?> clazz : classes ) {
             URL url = clazz.getResource( '/' + clazz.getName().replace( '.', '/' ) + ".class" );
             compiler.addFile( url );
@@ -736,6 +738,7 @@ private static ProcessBuilder nodeJsCommand( File nodeScript ) throws IOExceptio
                         "--experimental-wasm-eh", // exception handling
                         "--experimental-wasm-typed-funcref", //
                         "--experimental-wasm-gc", //
+                        "--experimental-wasm-return-call", // tail calls
                         nodeScript.getName() );
         if( IS_WINDOWS ) {
             processBuilder.command().add( 0, "cmd" );
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.brotli.dec.BrotliInputStream;
+import org.junit.Test;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Compress data with the BrotliOutputStream and decompress it with the reference decoder.
+ * 
+ * @author Volker Berlin
+ */
+public class BrotliOutputStreamTest {
+
+    private static byte[] compress( byte[] data ) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try( BrotliOutputStream brotli = new BrotliOutputStream( output ) ) {
+            brotli.write( data );
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress( byte[] compressed ) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try( InputStream input = new BrotliInputStream( new ByteArrayInputStream( compressed ) ) ) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while( (count = input.read( buffer )) >= 0 ) {
+                output.write( buffer, 0, count );
+            }
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Compress and decompress the data.
+     * 
+     * @param data
+     *            the data
+     * @return the compressed data
+     */
+    private static byte[] roundTrip( byte[] data ) throws IOException {
+        byte[] compressed = compress( data );
+        assertArrayEquals( data, decompress( compressed ) );
+        return compressed;
+    }
+
+    private static byte[] text( int length ) {
+        StringBuilder builder = new StringBuilder();
+        for( int i = 0; builder.length() < length; i++ ) {
+            builder.append( "line " ).append( i % 97 ).append( " of a text with repeated words\n" );
+        }
+        return builder.substring( 0, length ).getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private static byte[] random( int length ) {
+        byte[] data = new byte[length];
+        new Random( length ).nextBytes( data );
+        return data;
+    }
+
+    /**
+     * Search the bytes of an uncompressed meta-block.
+     */
+    private static int indexOf( byte[] array, byte[] part ) {
+        for( int i = 0; i <= array.length - part.length; i++ ) {
+            int k = 0;
+            while( k < part.length && array[i + k] == part[k] ) {
+                k++;
+            }
+            if( k == part.length ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void empty() throws IOException {
+        // WBITS 22, ISLAST, ISLASTEMPTY
+        assertArrayEquals( new byte[] { 0x3B }, roundTrip( new byte[0] ) );
+    }
+
+    @Test
+    public void streamHeader() throws IOException {
+        byte[] compressed = roundTrip( text( 1000 ) );
+        // the first bit marks a window size larger as 16, the next 3 bits are the window bits 22 - 17
+        assertEquals( 0x0B, compressed[0] & 0x0F );
+        // ISLAST of the first meta-block
+        assertEquals( 0x10, compressed[0] & 0x10 );
+    }
+
+    @Test
+    public void text() throws IOException {
+        byte[] data = text( 100000 );
+        byte[] compressed = roundTrip( data );
+        assertTrue( "" + compressed.length, compressed.length < data.length / 10 );
+    }
+
+    @Test
+    public void singleByte() throws IOException {
+        roundTrip( new byte[] { 42 } );
+    }
+
+    /**
+     * Random data is larger with compression and is written as uncompressed meta-block.
+     */
+    @Test
+    public void incompressible() throws IOException {
+        byte[] data = random( 10000 );
+        byte[] compressed = roundTrip( data );
+        assertTrue( "" + compressed.length, compressed.length <= data.length + 5 );
+        assertEquals( 3, indexOf( compressed, data ) );
+        // the uncompressed meta-block is not the last, an empty last meta-block follows
+        assertEquals( 0x03, compressed[compressed.length - 1] );
+    }
+
+    /**
+     * The data are larger as a meta-block. The first meta-block is compressed and the second uncompressed.
+     */
+    @Test
+    public void multipleMetaBlocks() throws IOException {
+        byte[] data = text( (1 << 24) + 100000 );
+        byte[] tail = random( 100000 );
+        System.arraycopy( tail, 0, data, 1 << 24, tail.length );
+        byte[] compressed = roundTrip( data );
+        assertTrue( "" + compressed.length, compressed.length < 2 * tail.length );
+        assertTrue( indexOf( compressed, tail ) > 0 );
+    }
+
+    @Test
+    public void wasmModule() throws IOException {
+        JWebAssembly webAsm = new JWebAssembly();
+        URL url = TestClass.class.getResource( '/' + TestClass.class.getName().replace( '.', '/' ) + ".class" );
+        webAsm.addFile( url );
+        byte[] wasm = webAsm.compileToBinary();
+        roundTrip( wasm );
+    }
+
+    static class TestClass {
+
+        @Export
+        static int sum( int count ) {
+            int sum = 0;
+            for( int i = 0; i < count; i++ ) {
+                sum += i * i;
+            }
+            return sum;
+        }
+    }
+}
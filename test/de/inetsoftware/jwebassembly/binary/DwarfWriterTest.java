@@ -0,0 +1,459 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.inetsoftware.classparser.ClassFile;
+import de.inetsoftware.classparser.LineNumberTable;
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Compile a class with DWARF debug information and decode the custom sections.
+ *
+ * @author Volker Berlin
+ */
+public class DwarfWriterTest {
+
+    private static final int   DW_TAG_compile_unit = 0x11;
+
+    private static final int   DW_TAG_subprogram   = 0x2e;
+
+    private static final int   DW_AT_name          = 0x03;
+
+    private static final int   DW_AT_stmt_list     = 0x10;
+
+    private static final int   DW_AT_low_pc        = 0x11;
+
+    private static final int   DW_AT_high_pc       = 0x12;
+
+    private static final int   DW_AT_language      = 0x13;
+
+    private static final int   DW_AT_producer      = 0x25;
+
+    private static final int   DW_AT_linkage_name  = 0x6e;
+
+    private static final int   DW_LANG_Java        = 0x0b;
+
+    private static WasmReader  reader;
+
+    private static List<Die>   dies;
+
+    private static List<int[]> lineRows;
+
+    private static String      sourceFile;
+
+    @BeforeClass
+    public static void compile() throws IOException {
+        JWebAssembly webAsm = new JWebAssembly();
+        webAsm.addFile( classUrl() );
+        webAsm.setProperty( JWebAssembly.DWARF, "true" );
+        reader = new WasmReader( webAsm.compileToBinary() );
+        dies = readInfo( section( ".debug_abbrev" ), section( ".debug_info" ), section( ".debug_str" ) );
+        lineRows = readLineProgram( section( ".debug_line" ) );
+    }
+
+    private static URL classUrl() {
+        return TestClass.class.getResource( '/' + TestClass.class.getName().replace( '.', '/' ) + ".class" );
+    }
+
+    /**
+     * Get the content of a custom section.
+     *
+     * @param name
+     *            the name of the section
+     * @return a reader at the start of the content
+     */
+    private static Reader section( String name ) {
+        for( WasmReader.Custom custom : reader.customs ) {
+            if( name.equals( custom.name ) ) {
+                return new Reader( reader.bytes, custom.start, custom.end );
+            }
+        }
+        throw new AssertionError( "Missing custom section " + name );
+    }
+
+    @Test
+    public void sectionNames() {
+        List<String> names = new ArrayList<>();
+        for( WasmReader.Custom custom : reader.customs ) {
+            if( custom.name.startsWith( ".debug_" ) ) {
+                names.add( custom.name );
+            }
+        }
+        assertEquals( "[.debug_abbrev, .debug_info, .debug_line, .debug_str]", names.toString() );
+    }
+
+    @Test
+    public void infoHeader() {
+        Reader info = section( ".debug_info" );
+        assertEquals( info.end - info.pos - 4, info.readInt() ); // unit_length
+        assertEquals( 4, info.readShort() ); // version
+        assertEquals( 0, info.readInt() ); // debug_abbrev_offset
+        assertEquals( 4, info.readByte() ); // address_size
+    }
+
+    @Test
+    public void compileUnit() {
+        Die unit = dies.get( 0 );
+        assertEquals( DW_TAG_compile_unit, unit.tag );
+        assertEquals( "JWebAssembly", unit.attributes.get( DW_AT_producer ) );
+        assertEquals( DW_LANG_Java, unit.attributes.get( DW_AT_language ) );
+        assertEquals( 0, unit.attributes.get( DW_AT_stmt_list ) );
+        assertEquals( 0, unit.attributes.get( DW_AT_low_pc ) );
+        int codeEnd = 0;
+        for( int[] range : codeRanges() ) {
+            codeEnd = Math.max( codeEnd, range[1] );
+        }
+        assertEquals( codeEnd, unit.attributes.get( DW_AT_high_pc ) );
+    }
+
+    @Test
+    public void subprograms() {
+        List<int[]> ranges = codeRanges();
+        int count = 0;
+        for( Die die : dies ) {
+            if( die.tag != DW_TAG_subprogram ) {
+                continue;
+            }
+            int[] range = ranges.get( count++ );
+            assertEquals( (String)die.attributes.get( DW_AT_linkage_name ), range[0], die.attributes.get( DW_AT_low_pc ) );
+            assertEquals( (String)die.attributes.get( DW_AT_linkage_name ), range[1] - range[0], die.attributes.get( DW_AT_high_pc ) );
+        }
+        assertEquals( ranges.size(), count );
+
+        Die add = subprogram( "add" );
+        assertEquals( TestClass.class.getName().replace( '.', '/' ) + ".add(II)I", add.attributes.get( DW_AT_linkage_name ) );
+    }
+
+    @Test
+    public void lineHeader() {
+        Reader line = section( ".debug_line" );
+        assertEquals( line.end - line.pos - 4, line.readInt() ); // unit_length
+        assertEquals( 4, line.readShort() ); // version
+        assertEquals( "de/inetsoftware/jwebassembly/binary/DwarfWriterTest.java", sourceFile );
+    }
+
+    @Test
+    public void lineRows() throws IOException {
+        for( String name : new String[] { "add", "max" } ) {
+            Die die = subprogram( name );
+            int lowPc = (Integer)die.attributes.get( DW_AT_low_pc );
+            int highPc = lowPc + (Integer)die.attributes.get( DW_AT_high_pc );
+            TreeSet<Integer> lines = new TreeSet<>();
+            for( int[] row : lineRows ) {
+                if( row[0] >= lowPc && row[0] < highPc ) {
+                    lines.add( row[1] );
+                }
+            }
+
+            TreeSet<Integer> expected = new TreeSet<>();
+            try( InputStream input = classUrl().openStream() ) {
+                LineNumberTable table = new ClassFile( input ).getMethod( name, "(II)I" ).getCode().getLineNumberTable();
+                for( int i = 0; i < table.size(); i++ ) {
+                    expected.add( table.getLineNumber( i ) );
+                }
+            }
+            assertTrue( name, expected.size() > 1 );
+            assertEquals( name, expected, lines );
+        }
+    }
+
+    private static Die subprogram( String name ) {
+        for( Die die : dies ) {
+            if( die.tag == DW_TAG_subprogram && ((String)die.attributes.get( DW_AT_name )).endsWith( "$TestClass." + name ) ) {
+                return die;
+            }
+        }
+        throw new AssertionError( "Missing subprogram " + name );
+    }
+
+    /**
+     * The start and end offset of every function body in the payload of the code section.
+     *
+     * @return the list of ranges
+     */
+    private static List<int[]> codeRanges() {
+        List<int[]> ranges = new ArrayList<>();
+        int payloadStart = -1;
+        for( WasmReader.Code code : reader.codes ) {
+            int start = code.bodyStart - ulebSize( code.end - code.bodyStart );
+            if( payloadStart < 0 ) {
+                payloadStart = start - ulebSize( reader.codes.size() );
+            }
+            ranges.add( new int[] { start - payloadStart, code.end - payloadStart } );
+        }
+        return ranges;
+    }
+
+    private static int ulebSize( int value ) {
+        int size = 1;
+        while( (value >>>= 7) != 0 ) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Decode the debugging information entries with the abbreviation table. Only the forms that are used by the
+     * DwarfWriter are supported.
+     */
+    private static List<Die> readInfo( Reader abbrev, Reader info, Reader str ) {
+        HashMap<Integer, int[]> abbreviations = new HashMap<>();
+        while( true ) {
+            int code = abbrev.readUleb();
+            if( code == 0 ) {
+                break;
+            }
+            List<Integer> decl = new ArrayList<>();
+            decl.add( abbrev.readUleb() ); // tag
+            decl.add( abbrev.readByte() ); // has children
+            while( true ) {
+                int attribute = abbrev.readUleb();
+                int form = abbrev.readUleb();
+                if( attribute == 0 && form == 0 ) {
+                    break;
+                }
+                decl.add( attribute );
+                decl.add( form );
+            }
+            abbreviations.put( code, decl.stream().mapToInt( Integer::intValue ).toArray() );
+        }
+
+        info.pos += 11; // the unit header
+        List<Die> dies = new ArrayList<>();
+        while( info.pos < info.end ) {
+            int code = info.readUleb();
+            if( code == 0 ) {
+                continue; // end of children
+            }
+            int[] decl = abbreviations.get( code );
+            assertNotNull( "abbreviation " + code, decl );
+            Die die = new Die();
+            die.tag = decl[0];
+            for( int i = 2; i < decl.length; i += 2 ) {
+                Object value;
+                switch( decl[i + 1] ) {
+                    case 0x01: // DW_FORM_addr
+                    case 0x06: // DW_FORM_data4
+                    case 0x13: // DW_FORM_ref4
+                    case 0x17: // DW_FORM_sec_offset
+                        value = info.readInt();
+                        break;
+                    case 0x05: // DW_FORM_data2
+                        value = info.readShort();
+                        break;
+                    case 0x0b: // DW_FORM_data1
+                        value = info.readByte();
+                        break;
+                    case 0x0e: // DW_FORM_strp
+                        value = new Reader( str.bytes, str.pos + info.readInt(), str.end ).readString();
+                        break;
+                    case 0x0f: // DW_FORM_udata
+                        value = info.readUleb();
+                        break;
+                    case 0x18: // DW_FORM_exprloc
+                        info.pos += info.readUleb();
+                        value = null;
+                        break;
+                    default:
+                        throw new AssertionError( "Unknown form " + decl[i + 1] );
+                }
+                die.attributes.put( decl[i], value );
+            }
+            dies.add( die );
+        }
+        return dies;
+    }
+
+    /**
+     * Run the line number program and collect the rows as pairs of address and line.
+     */
+    private static List<int[]> readLineProgram( Reader line ) {
+        line.readInt(); // unit_length
+        line.readShort(); // version
+        int headerLength = line.readInt();
+        int programStart = line.pos + headerLength;
+        line.readByte(); // minimum_instruction_length
+        line.readByte(); // maximum_operations_per_instruction
+        line.readByte(); // default_is_stmt
+        int lineBase = (byte)line.readByte();
+        int lineRange = line.readByte();
+        int opcodeBase = line.readByte();
+        line.pos += opcodeBase - 1; // standard_opcode_lengths
+        while( !line.readString().isEmpty() ) {
+            // include_directories
+        }
+        String file;
+        while( !(file = line.readString()).isEmpty() ) {
+            sourceFile = file;
+            line.readUleb(); // directory index
+            line.readUleb(); // modification time
+            line.readUleb(); // file length
+        }
+        assertEquals( programStart, line.pos );
+
+        List<int[]> rows = new ArrayList<>();
+        int address = 0;
+        int lineNumber = 1;
+        while( line.pos < line.end ) {
+            int opcode = line.readByte();
+            if( opcode >= opcodeBase ) {
+                int adjusted = opcode - opcodeBase;
+                address += adjusted / lineRange;
+                lineNumber += lineBase + adjusted % lineRange;
+                rows.add( new int[] { address, lineNumber } );
+                continue;
+            }
+            switch( opcode ) {
+                case 0: // extended opcode
+                    int length = line.readUleb();
+                    int extended = line.readByte();
+                    if( extended == 0x01 ) { // DW_LNE_end_sequence
+                        address = 0;
+                        lineNumber = 1;
+                    } else if( extended == 0x02 ) { // DW_LNE_set_address
+                        address = line.readInt();
+                    } else {
+                        line.pos += length - 1;
+                    }
+                    break;
+                case 0x02: // DW_LNS_advance_pc
+                    address += line.readUleb();
+                    break;
+                case 0x03: // DW_LNS_advance_line
+                    lineNumber += line.readSleb();
+                    break;
+                case 0x04: // DW_LNS_set_file
+                    line.readUleb();
+                    break;
+                default:
+                    throw new AssertionError( "Unexpected opcode " + opcode );
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * A debugging information entry.
+     */
+    private static class Die {
+
+        private int                      tag;
+
+        private HashMap<Integer, Object> attributes = new HashMap<>();
+    }
+
+    /**
+     * Read the little endian encoding of DWARF.
+     */
+    private static class Reader {
+
+        private final byte[] bytes;
+
+        private int          pos;
+
+        private final int    end;
+
+        private Reader( byte[] bytes, int pos, int end ) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        private int readByte() {
+            return bytes[pos++] & 0xFF;
+        }
+
+        private int readShort() {
+            return readByte() | readByte() << 8;
+        }
+
+        private int readInt() {
+            return readShort() | readShort() << 16;
+        }
+
+        private int readUleb() {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while( (b & 0x80) != 0 );
+            return result;
+        }
+
+        private int readSleb() {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while( (b & 0x80) != 0 );
+            if( shift < 32 && (b & 0x40) != 0 ) {
+                result |= -1 << shift;
+            }
+            return result;
+        }
+
+        private String readString() {
+            int start = pos;
+            while( bytes[pos] != 0 ) {
+                pos++;
+            }
+            return new String( bytes, start, pos++ - start, StandardCharsets.UTF_8 );
+        }
+    }
+
+    static class TestClass {
+
+        @Export
+        static int add( int a, int b ) {
+            int sum = a + b;
+            if( sum > 10 ) {
+                sum -= 10;
+            }
+            return sum;
+        }
+
+        @Export
+        static int max( int a, int b ) {
+            if( a > b ) {
+                return a;
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.module.WasmOptions;
+import de.inetsoftware.jwebassembly.wasm.ValueType;
+
+/**
+ * Test the whole-module optimizer on the binary output.
+ *
+ * @author Volker Berlin
+ */
+public class ModuleOptimizerTest {
+
+    private static final int I32 = 0x7F;
+
+    private static final int I64 = 0x7E;
+
+    private static final int F64 = 0x7C;
+
+    private static void writeSection( ByteArrayOutputStream module, int id, int... bytes ) {
+        module.write( id );
+        module.write( bytes.length );
+        for( int b : bytes ) {
+            module.write( b );
+        }
+    }
+
+    private static WasmReader optimize( ByteArrayOutputStream module ) throws IOException {
+        return optimize( module, new HashMap<>() );
+    }
+
+    private static WasmReader optimize( ByteArrayOutputStream module, HashMap<String, String> properties ) throws IOException {
+        byte[] bytes = ModuleOptimizer.optimize( new WasmOptions( properties ), module.toByteArray() );
+        assertEquals( 0, new WasmValidator( new WasmReader( bytes ) ).validate().size() );
+        return new WasmReader( bytes );
+    }
+
+    private static ByteArrayOutputStream header() {
+        ByteArrayOutputStream module = new ByteArrayOutputStream();
+        module.write( 0x00 );
+        module.write( 0x61 );
+        module.write( 0x73 );
+        module.write( 0x6D );
+        module.write( 0x01 );
+        module.write( 0x00 );
+        module.write( 0x00 );
+        module.write( 0x00 );
+        return module;
+    }
+
+    @Test
+    public void foldAndRemove() throws IOException {
+        ByteArrayOutputStream module = header();
+        writeSection( module, 1, 2, 0x60, 0, 1, I32, 0x60, 0, 1, I32 );
+        writeSection( module, 3, 4, 0, 1, 0, 0 );
+        writeSection( module, 7, 1, 4, 'm', 'a', 'i', 'n', 0, 3 );
+        writeSection( module, 10, 4, //
+                        4, 0, 0x41, 1, 0x0B, // identical to the next
+                        4, 0, 0x41, 1, 0x0B, //
+                        4, 0, 0x41, 2, 0x0B, // unused
+                        7, 0, 0x10, 0, 0x10, 1, 0x6A, 0x0B );
+
+        WasmReader reader = optimize( module );
+        assertEquals( 1, reader.types.size() );
+        assertEquals( 2, reader.functions.size() );
+        assertEquals( 1, reader.exports.get( 0 ).index );
+        WasmReader.Code main = reader.codes.get( 1 );
+        byte[] body = new byte[main.end - main.start];
+        System.arraycopy( reader.bytes, main.start, body, 0, body.length );
+        assertArrayEquals( new byte[] { 0x10, 0, 0x10, 0, 0x6A, 0x0B }, body );
+    }
+
+    @Test
+    public void locals() throws IOException {
+        ByteArrayOutputStream module = header();
+        writeSection( module, 1, 1, 0x60, 0, 1, I32 );
+        writeSection( module, 3, 1, 0 );
+        writeSection( module, 7, 1, 4, 'm', 'a', 'i', 'n', 0, 0 );
+        writeSection( module, 10, 1, //
+                        13, 3, 1, I32, 1, I64, 1, I32, 0x20, 2, 0x20, 0, 0x6A, 0x0B );
+
+        WasmReader reader = optimize( module );
+        WasmReader.Code code = reader.codes.get( 0 );
+        assertArrayEquals( new int[] { ValueType.i32.getCode(), ValueType.i32.getCode() }, code.locals );
+        byte[] body = new byte[code.end - code.start];
+        System.arraycopy( reader.bytes, code.start, body, 0, body.length );
+        assertArrayEquals( new byte[] { 0x20, 1, 0x20, 0, 0x6A, 0x0B }, body );
+    }
+
+    @Test
+    public void orderBySimilarity() throws IOException {
+        ByteArrayOutputStream module = header();
+        writeSection( module, 1, 2, 0x60, 0, 1, I32, 0x60, 0, 1, F64 );
+        writeSection( module, 3, 5, 0, 1, 0, 1, 0 );
+        writeSection( module, 7, 1, 4, 'm', 'a', 'i', 'n', 0, 4 );
+        writeSection( module, 10, 5, //
+                        7, 0, 0x41, 1, 0x41, 2, 0x6A, 0x0B, //
+                        21, 0, 0x44, 0, 0, 0, 0, 0, 0, 0xF0, 0x3F, 0x44, 0, 0, 0, 0, 0, 0, 0, 0x40, 0xA0, 0x0B, //
+                        7, 0, 0x41, 3, 0x41, 4, 0x6A, 0x0B, //
+                        21, 0, 0x44, 0, 0, 0, 0, 0, 0, 0x08, 0x40, 0x44, 0, 0, 0, 0, 0, 0, 0x10, 0x40, 0xA0, 0x0B, //
+                        16, 0, 0x10, 0, 0x1A, 0x10, 1, 0x1A, 0x10, 2, 0x1A, 0x10, 3, 0x1A, 0x41, 0, 0x0B );
+
+        HashMap<String, String> properties = new HashMap<>();
+        properties.put( JWebAssembly.COMPRESSED_OUTPUT, "true" );
+        WasmReader reader = optimize( module, properties );
+        assertEquals( 5, reader.functions.size() );
+        assertEquals( 4, reader.exports.get( 0 ).index );
+        WasmReader.Code code = reader.codes.get( 1 );
+        byte[] body = new byte[code.end - code.start];
+        System.arraycopy( reader.bytes, code.start, body, 0, body.length );
+        assertArrayEquals( new byte[] { 0x41, 3, 0x41, 4, 0x6A, 0x0B }, body );
+        code = reader.codes.get( 4 );
+        body = new byte[code.end - code.start];
+        System.arraycopy( reader.bytes, code.start, body, 0, body.length );
+        assertArrayEquals( new byte[] { 0x10, 0, 0x1A, 0x10, 2, 0x1A, 0x10, 1, 0x1A, 0x10, 3, 0x1A, 0x41, 0, 0x0B }, body );
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.inetsoftware.jwebassembly.WasmException;
+
+/**
+ * Validate hand-made modules with valid and invalid code.
+ *
+ * @author Volker Berlin
+ */
+public class WasmValidatorTest {
+
+    private static final int I32 = 0x7F;
+
+    private static final int I64 = 0x7E;
+
+    /**
+     * Create a module with a single function.
+     * 
+     * @param params
+     *            the parameter types of the function
+     * @param results
+     *            the result types of the function
+     * @param code
+     *            the operations of the function body without the final END
+     * @return the bytes of the module
+     */
+    private static byte[] module( int[] params, int[] results, int... code ) {
+        ByteArrayOutputStream module = new ByteArrayOutputStream();
+        write( module, 0x00, 0x61, 0x73, 0x6D, 0x01, 0x00, 0x00, 0x00 );
+
+        ByteArrayOutputStream section = new ByteArrayOutputStream();
+        write( section, 1, 0x60, params.length );
+        write( section, params );
+        write( section, results.length );
+        write( section, results );
+        writeSection( module, 1, section );
+
+        section = new ByteArrayOutputStream();
+        write( section, 1, 0 );
+        writeSection( module, 3, section );
+
+        section = new ByteArrayOutputStream();
+        write( section, 1, code.length + 2, 0 );
+        write( section, code );
+        write( section, 0x0B );
+        writeSection( module, 10, section );
+        return module.toByteArray();
+    }
+
+    private static void writeSection( ByteArrayOutputStream module, int id, ByteArrayOutputStream section ) {
+        write( module, id, section.size() );
+        module.write( section.toByteArray(), 0, section.size() );
+    }
+
+    private static void write( ByteArrayOutputStream output, int... bytes ) {
+        for( int b : bytes ) {
+            output.write( b );
+        }
+    }
+
+    private static List<String> validate( byte[] bytes ) throws IOException {
+        return new WasmValidator( new WasmReader( bytes ) ).validate();
+    }
+
+    @Test
+    public void valid() throws IOException {
+        byte[] bytes = module( new int[] { I32, I32 }, new int[] { I32 }, 0x20, 0, 0x20, 1, 0x6A );
+        assertEquals( 0, validate( bytes ).size() );
+        WasmValidator.validate( bytes, "module" );
+    }
+
+    @Test
+    public void typeMismatch() throws IOException {
+        List<String> errors = validate( module( new int[0], new int[] { I32 }, 0x42, 1 ) );
+        assertEquals( 1, errors.size() );
+        assertTrue( errors.get( 0 ), errors.get( 0 ).contains( "Expected i32 but found i64" ) );
+    }
+
+    @Test
+    public void missingValue() throws IOException {
+        List<String> errors = validate( module( new int[] { I64 }, new int[] { I64 }, 0x20, 0, 0x7C ) );
+        assertEquals( 1, errors.size() );
+        assertTrue( errors.get( 0 ), errors.get( 0 ).contains( "Missing value" ) );
+    }
+
+    @Test
+    public void invalidBranchDepth() throws IOException {
+        List<String> errors = validate( module( new int[0], new int[0], 0x02, 0x40, 0x0C, 2, 0x0B ) );
+        assertEquals( 1, errors.size() );
+        assertTrue( errors.get( 0 ), errors.get( 0 ).contains( "Invalid branch depth 2" ) );
+    }
+
+    @Test
+    public void unreachable() throws IOException {
+        assertEquals( 0, validate( module( new int[0], new int[] { I32 }, 0x00, 0x6A ) ).size() );
+    }
+
+    @Test
+    public void malformed() {
+        byte[] bytes = module( new int[0], new int[0] );
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy( bytes, 0, truncated, 0, truncated.length );
+        try {
+            WasmValidator.validate( truncated, "module" );
+            fail( "WasmException expected" );
+        } catch( WasmException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains( "Invalid binary format" ) );
+        }
+    }
+}
@@ -82,4 +82,33 @@ public void rootModule() throws IOException {
                         "};\n" + 
                         "if (typeof module !== 'undefined') module.exports = wasmImports;", builder.toString() );
     }
+
+    @Test
+    public void sharedMemory() throws IOException {
+        JavaScriptWriter writer = new JavaScriptWriter( new WasmTarget( temp.newFile() ) );
+        writer.addSharedMemory( 2, 100 );
+        StringBuilder builder = new StringBuilder();
+        writer.finish( builder );
+        assertEquals( "'use strict';var wasmImports = {\n" + 
+                        "env:{\n" + 
+                        "memory:new WebAssembly.Memory({initial:2,maximum:100,shared:true})\n" + 
+                        "}\n" + 
+                        "};\n" + 
+                        "if (typeof module !== 'undefined') module.exports = wasmImports;", builder.toString() );
+    }
+
+    @Test
+    public void sharedMemoryFromApplication() throws IOException {
+        JavaScriptWriter writer = new JavaScriptWriter( new WasmTarget( temp.newFile() ) );
+        writer.addImport( "env", "memory", f( Collections.singletonMap( JavaScriptWriter.JAVA_SCRIPT_CONTENT, "self.memory" ) ) );
+        writer.addSharedMemory( 2, 100 );
+        StringBuilder builder = new StringBuilder();
+        writer.finish( builder );
+        assertEquals( "'use strict';var wasmImports = {\n" + 
+                        "env:{\n" + 
+                        "memory:self.memory\n" + 
+                        "}\n" + 
+                        "};\n" + 
+                        "if (typeof module !== 'undefined') module.exports = wasmImports;", builder.toString() );
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.inetsoftware.classparser.ClassFile;
+
+/**
+ * @author Volker Berlin
+ */
+public class ClassFileLoaderTest {
+
+    private static final String CLASS_NAME = TestClass.class.getName().replace( '.', '/' );
+
+    @Rule
+    public TemporaryFolder      temp       = new TemporaryFolder();
+
+    /**
+     * Create an archive with the TestClass.
+     * 
+     * @return the archive
+     */
+    private File createJar() throws IOException {
+        File jar = temp.newFile( "classes.jar" );
+        try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar ) );
+                        InputStream input = TestClass.class.getResourceAsStream( '/' + CLASS_NAME + ".class" ) ) {
+            output.putNextEntry( new JarEntry( CLASS_NAME + ".class" ) );
+            byte[] buffer = new byte[4096];
+            int count;
+            while( (count = input.read( buffer )) > 0 ) {
+                output.write( buffer, 0, count );
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Count the open file handles of this process to the file. Requires the proc file system of Linux.
+     * 
+     * @param file
+     *            the file
+     * @return the count
+     */
+    private static int openHandles( File file ) throws IOException {
+        Path path = file.toPath().toRealPath();
+        int count = 0;
+        for( File fd : new File( "/proc/self/fd" ).listFiles() ) {
+            try {
+                if( path.equals( Files.readSymbolicLink( fd.toPath() ) ) ) {
+                    count++;
+                }
+            } catch( IOException ex ) {
+                // the handle was closed in the meantime
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void archiveClosedWithLoader() throws IOException {
+        assumeTrue( new File( "/proc/self/fd" ).isDirectory() );
+        File jar = createJar();
+        URLClassLoader loader = new URLClassLoader( new URL[] { jar.toURI().toURL() }, null );
+        ClassFile classFile = new ClassFileLoader( loader ).get( CLASS_NAME );
+        assertEquals( CLASS_NAME, classFile.getThisClass().getName() );
+        loader.close();
+        assertEquals( 0, openHandles( jar ) );
+    }
+
+    @Test
+    public void archiveClosedForLibraryClass() throws IOException {
+        assumeTrue( new File( "/proc/self/fd" ).isDirectory() );
+        File jar = createJar();
+        ClassFileLoader classFileLoader = new ClassFileLoader( new URLClassLoader( new URL[0], null ) );
+        classFileLoader.addLibraryClass( CLASS_NAME, new URL( "jar:" + jar.toURI().toURL() + "!/" + CLASS_NAME + ".class" ) );
+        ClassFile classFile = classFileLoader.get( CLASS_NAME );
+        assertEquals( CLASS_NAME, classFile.getThisClass().getName() );
+        assertEquals( 0, openHandles( jar ) );
+    }
+
+    static class TestClass {
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.module.ControlFlowGraph.BasicBlock;
+import de.inetsoftware.jwebassembly.module.ControlFlowGraph.Phi;
+import de.inetsoftware.jwebassembly.module.ControlFlowGraph.SsaValue;
+import de.inetsoftware.jwebassembly.text.TextModuleWriter;
+import de.inetsoftware.jwebassembly.wasm.WasmBlockOperator;
+import de.inetsoftware.jwebassembly.watparser.WatParser;
+
+/**
+ * @author Volker Berlin
+ */
+public class ControlFlowGraphTest {
+
+    private static List<WasmInstruction> parse( String wat, HashMap<String, String> properties ) {
+        WatParser parser = new WatParser();
+        WasmCodeBuilder codeBuilder = parser;
+        codeBuilder.init( new WasmOptions( properties ), null );
+        parser.parse( wat, null, null, 100 );
+        return codeBuilder.getInstructions();
+    }
+
+    private static ControlFlowGraph build( String wat ) {
+        ControlFlowGraph graph = ControlFlowGraph.build( parse( wat, new HashMap<>() ) );
+        assertNotNull( graph );
+        return graph;
+    }
+
+    private static String optimize( String wat ) throws IOException {
+        HashMap<String, String> properties = new HashMap<>();
+        properties.put( JWebAssembly.SSA_OPTIMIZER, "true" );
+        WasmOptions options = new WasmOptions( properties );
+        List<WasmInstruction> instructions = parse( wat, properties );
+        new CodeOptimizer( options ).optimize( instructions );
+
+        StringBuilder builder = new StringBuilder();
+        ModuleWriter writer = new TextModuleWriter( new WasmTarget( builder ), options );
+        writer.writeMethodStart( new FunctionName( "A.a()V" ), null );
+        for( WasmInstruction instruction : instructions ) {
+            instruction.writeTo( writer );
+        }
+        writer.writeMethodFinish();
+        writer.close();
+        return builder.toString().replaceAll( "\\s+", " " ).trim();
+    }
+
+    @Test
+    public void straightLine() {
+        ControlFlowGraph graph = build( "i32.const 1 local.set 0 i32.const 2 local.set 0 local.get 0 drop" );
+        assertEquals( 1, graph.getBlocks().size() );
+        List<SsaValue> live = graph.getLiveValues();
+        SsaValue first = graph.getValue( 1 );
+        SsaValue second = graph.getValue( 3 );
+        assertSame( second, graph.getValue( 4 ) );
+        assertFalse( first.isLive() );
+        assertTrue( second.isLive() );
+        assertEquals( 1, live.size() );
+        assertEquals( 4, (int)second.uses.get( 0 ) );
+    }
+
+    @Test
+    public void ifElse() {
+        ControlFlowGraph graph = build( "i32.const 0 if i32.const 1 local.set 1 else i32.const 2 local.set 1 end local.get 1 drop" );
+        List<BasicBlock> blocks = graph.getBlocks();
+        assertEquals( 4, blocks.size() );
+        BasicBlock entry = graph.getEntry();
+        BasicBlock join = blocks.get( 3 );
+        assertEquals( 2, entry.successors.size() );
+        assertEquals( 2, join.predecessors.size() );
+        assertSame( entry, join.idom );
+        assertTrue( entry.dominates( join ) );
+        assertFalse( blocks.get( 1 ).dominates( join ) );
+
+        SsaValue value = graph.getValue( 8 );
+        assertTrue( value instanceof Phi );
+        Phi phi = (Phi)value;
+        assertSame( join, phi.block );
+        assertSame( graph.getValue( 3 ), phi.operands[0] );
+        assertSame( graph.getValue( 6 ), phi.operands[1] );
+        
+        graph.getLiveValues();
+        assertTrue( phi.operands[0].isLive() );
+        assertTrue( phi.operands[1].isLive() );
+    }
+
+    @Test
+    public void ifWithoutElse() {
+        ControlFlowGraph graph = build( "i32.const 0 if i32.const 1 local.set 1 end local.get 1 drop" );
+        Phi phi = (Phi)graph.getValue( 5 );
+        assertSame( graph.getValue( 3 ), phi.operands[0] );
+        assertSame( graph.getEntryValue( 1 ), phi.operands[1] );
+    }
+
+    @Test
+    public void loop() {
+        ControlFlowGraph graph = build( "i32.const 5 local.set 0 loop local.get 0 i32.const 1 i32.add local.tee 0 br_if 0 end" );
+        BasicBlock header = graph.getBlocks().get( 1 );
+        assertEquals( 2, header.predecessors.size() );
+        assertEquals( 1, header.phis.size() );
+        Phi phi = header.phis.get( 0 );
+        assertSame( phi, graph.getValue( 3 ) );
+        assertSame( graph.getValue( 1 ), phi.operands[0] );
+        assertSame( graph.getValue( 6 ), phi.operands[1] );
+
+        graph.getLiveValues();
+        assertTrue( graph.getValue( 1 ).isLive() );
+        assertTrue( graph.getValue( 6 ).isLive() );
+    }
+
+    @Test
+    public void unreachable() {
+        ControlFlowGraph graph = build( "i32.const 1 local.set 0 return local.get 0 drop" );
+        assertEquals( 2, graph.getBlocks().size() );
+        assertNull( graph.getValue( 3 ) );
+        graph.getLiveValues();
+        assertFalse( graph.getValue( 1 ).isLive() );
+    }
+
+    @Test
+    public void exceptionHandling() {
+        List<WasmInstruction> instructions = new ArrayList<>();
+        instructions.add( new WasmBlockInstruction( WasmBlockOperator.TRY, null, 0, 1 ) );
+        instructions.add( new WasmBlockInstruction( WasmBlockOperator.END, null, 0, 1 ) );
+        assertNull( ControlFlowGraph.build( instructions ) );
+    }
+
+    @Test
+    public void lower() {
+        String wat = "i32.const 0 if i32.const 1 local.set 1 else i32.const 2 local.set 1 end local.get 1 return local.get 1 drop";
+        List<WasmInstruction> instructions = parse( wat, new HashMap<>() );
+        ControlFlowGraph graph = ControlFlowGraph.build( instructions );
+        assertEquals( instructions, graph.lower() );
+    }
+
+    @Test
+    public void removeDeadStores() throws IOException {
+        assertEquals( "(module (func $A.a i32.const 1 drop i32.const 2 local.tee 0 drop ) )", //
+                        optimize( "i32.const 1 local.set 0 i32.const 2 local.set 0 local.get 0 drop" ) );
+        assertEquals( "(module (func $A.a i32.const 1 drop ) )", //
+                        optimize( "i32.const 1 local.tee 0 drop" ) );
+        assertEquals( "(module (func $A.a i32.const 5 local.set 0 loop local.get 0 i32.const 1 i32.add local.tee 0 br_if 0 end ) )", //
+                        optimize( "i32.const 5 local.set 0 loop local.get 0 i32.const 1 i32.add local.tee 0 br_if 0 end" ) );
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.inetsoftware.classparser.ClassFileCache;
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * @author Volker Berlin
+ */
+public class LibraryIndexTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static String entryName( Class<?> clazz ) {
+        return clazz.getName().replace( '.', '/' ) + ".class";
+    }
+
+    /**
+     * Create a library archive with the classes Used, Unused and Annotated.
+     * 
+     * @return the archive
+     */
+    private File createLibrary() throws IOException {
+        File jar = temp.newFile( "library.jar" );
+        try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar ) ) ) {
+            for( Class<?> clazz : new Class<?>[] { Used.class, Unused.class, Annotated.class } ) {
+                output.putNextEntry( new JarEntry( entryName( clazz ) ) );
+                try( InputStream input = clazz.getResourceAsStream( '/' + entryName( clazz ) ) ) {
+                    byte[] buffer = new byte[4096];
+                    int count;
+                    while( (count = input.read( buffer )) > 0 ) {
+                        output.write( buffer, 0, count );
+                    }
+                }
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * The file of a library class in the cache directory. It is written if the class is loaded.
+     */
+    private static File cacheFile( File directory, File jar, Class<?> clazz ) throws IOException {
+        String source = "jar:" + jar.toURI().toURL() + "!/" + entryName( clazz );
+        String stamp = jar.lastModified() + "-" + jar.length();
+        return new File( directory, ClassFileCache.hash( source + '\n' + stamp ) + ".class" );
+    }
+
+    private static String compile( File jar, File directory ) throws IOException {
+        JWebAssembly webAsm = new JWebAssembly();
+        webAsm.addFile( Main.class.getResource( '/' + entryName( Main.class ) ) );
+        webAsm.addLibrary( jar.toURI().toURL() );
+        webAsm.setProperty( JWebAssembly.CLASS_FILE_CACHE, directory.getAbsolutePath() );
+        return webAsm.compileToText();
+    }
+
+    @Test
+    public void index() throws IOException {
+        File jar = createLibrary();
+        LibraryIndex index = LibraryIndex.get( jar.toURI().toURL(), null );
+        assertEquals( 3, index.size() );
+        for( int i = 0; i < index.size(); i++ ) {
+            String className = index.getClassName( i );
+            assertEquals( className + ".class", index.getEntryName( i ) );
+            assertEquals( className, className.endsWith( "$Annotated" ), index.isAnnotated( i ) );
+        }
+    }
+
+    @Test
+    public void onlyReferencedClassesLoaded() throws IOException {
+        File jar = createLibrary();
+        File directory = temp.newFolder( "cache" );
+
+        // the first compile creates the index and parses all classes of the library
+        String expected = compile( jar, directory );
+        assertTrue( cacheFile( directory, jar, Unused.class ).isFile() );
+
+        // remove the loaded classes, the index is still in the directory
+        for( File file : directory.listFiles() ) {
+            if( file.getName().endsWith( ".class" ) ) {
+                assertTrue( file.delete() );
+            }
+        }
+        ClassFileCache.getShared().clear();
+
+        assertEquals( expected, compile( jar, directory ) );
+        assertTrue( expected, expected.contains( "(export \"annotated\"" ) );
+        assertTrue( expected, expected.contains( "$Used.value" ) );
+        assertTrue( cacheFile( directory, jar, Annotated.class ).isFile() );
+        assertTrue( cacheFile( directory, jar, Used.class ).isFile() );
+        assertFalse( cacheFile( directory, jar, Unused.class ).isFile() );
+    }
+
+    static class Main {
+
+        @Export
+        static int main() {
+            return Used.value();
+        }
+    }
+
+    static class Used {
+
+        static int value() {
+            return 42;
+        }
+    }
+
+    static class Unused {
+
+        static int value() {
+            return 13;
+        }
+    }
+
+    static class Annotated {
+
+        @Export
+        static int annotated() {
+            return 7;
+        }
+    }
+}
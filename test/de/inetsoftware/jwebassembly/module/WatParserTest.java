@@ -364,6 +364,101 @@ public void i32_load8_u() throws IOException {
         test( "i32.load8_u offset=2 align=1" );
     }
 
+    @Test
+    public void i32_atomic_load() throws IOException {
+        test( "i32.atomic.load offset=0 align=4" );
+    }
+
+    @Test
+    public void i64_atomic_store() throws IOException {
+        test( "i64.atomic.store offset=8 align=8" );
+    }
+
+    @Test
+    public void i32_atomic_rmw_add() throws IOException {
+        test( "i32.atomic.rmw.add offset=4 align=4" );
+    }
+
+    @Test
+    public void i64_atomic_rmw_xchg() throws IOException {
+        test( "i64.atomic.rmw.xchg offset=0 align=8" );
+    }
+
+    @Test
+    public void i32_atomic_rmw_cmpxchg() throws IOException {
+        test( "i32.atomic.rmw.cmpxchg offset=0 align=4" );
+    }
+
+    @Test
+    public void memory_atomic_wait32() throws IOException {
+        test( "memory.atomic.wait32 offset=0 align=4" );
+    }
+
+    @Test
+    public void memory_atomic_notify() throws IOException {
+        test( "memory.atomic.notify offset=0 align=4" );
+    }
+
+    @Test
+    public void v128_load() throws IOException {
+        test( "v128.load offset=16 align=16" );
+    }
+
+    @Test
+    public void v128_store() throws IOException {
+        test( "v128.store offset=0 align=16" );
+    }
+
+    @Test
+    public void v128_load32_lane() throws IOException {
+        test( "v128.load32_lane offset=0 align=4 3" );
+    }
+
+    @Test
+    public void v128_const() throws IOException {
+        test( "v128.const i8x16 0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 255" );
+    }
+
+    @Test
+    public void i8x16_shuffle() throws IOException {
+        test( "i8x16.shuffle 0 16 1 17 2 18 3 19 4 20 5 21 6 22 7 23" );
+    }
+
+    @Test
+    public void i32x4_splat() throws IOException {
+        test( "i32x4.splat" );
+    }
+
+    @Test
+    public void i32x4_extract_lane() throws IOException {
+        test( "i32x4.extract_lane 2" );
+    }
+
+    @Test
+    public void f32x4_replace_lane() throws IOException {
+        test( "f32x4.replace_lane 1" );
+    }
+
+    @Test
+    public void i32x4_add() throws IOException {
+        test( "i32x4.add" );
+    }
+
+    @Test
+    public void f64x2_mul() throws IOException {
+        test( "f64x2.mul" );
+    }
+
+    @Test
+    public void i16x8_extmul_high_i8x16_u() throws IOException {
+        test( "i16x8.extmul_high_i8x16_u" );
+    }
+
+    @Test
+    public void v128_any_true() throws IOException {
+        test( "v128.any_true" );
+    }
+
     @Test
     public void errorMissingToken() throws IOException {
         testError( "i32.const", "Missing Token in wasm text format after token: i32.const" );
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Assume;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Virtual calls with call_ref over the GC vtable structs.
+ *
+ * @author Volker Berlin
+ */
+public class CallRefGC extends AbstractBaseTest {
+
+    @ClassRule
+    public static WasmRule rule = new WasmRule( TestClass.class );
+
+    public CallRefGC( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        ScriptEngine[] engines = { ScriptEngine.SpiderMonkeyGC, ScriptEngine.SpiderMonkeyWatGC, ScriptEngine.NodeJsGC };
+        for( ScriptEngine script : engines ) {
+            addParam( list, script, "callBaseMethod" );
+            addParam( list, script, "callOverriddenMethod" );
+            addParam( list, script, "callOverriddenTwice" );
+            addParam( list, script, "callInheritedOverride" );
+        }
+        rule.setTestParameters( list );
+        rule.setProperty( JWebAssembly.WASM_USE_CALL_REF, "true" );
+        return list;
+    }
+
+    @Test
+    public void test() {
+        // The GC output uses the prototype encoding of the GC proposal with rtt.canon, rtt.sub and struct.new with an RTT
+        // operand. The nightly SpiderMonkey implements the final GC proposal without RTT values and with other opcodes.
+        // The fixed Node.js version still supports the prototype. Remove this if the writers use the final encoding.
+        Assume.assumeFalse( getScriptEngine().name().startsWith( "SpiderMonkey" ) );
+        super.test();
+    }
+
+    static class TestClass {
+
+        @Export
+        static int callBaseMethod() {
+            Base val = create( 0 );
+            return val.value( 3 ) * 100 + val.other();
+        }
+
+        /**
+         * Call a method that is overridden in the class of the instance via a reference of the base class.
+         */
+        @Export
+        static int callOverriddenMethod() {
+            Base val = create( 1 );
+            return val.value( 3 ) * 100 + val.other();
+        }
+
+        /**
+         * The method is overridden in two levels of the hierarchy.
+         */
+        @Export
+        static int callOverriddenTwice() {
+            Base val = create( 2 );
+            return val.value( 3 ) * 100 + val.other();
+        }
+
+        /**
+         * The instance inherits the override of its super class.
+         */
+        @Export
+        static int callInheritedOverride() {
+            Middle val = (Middle)create( 2 );
+            return val.value( -4 ) * 100 + val.middle();
+        }
+
+        private static Base create( int level ) {
+            if( level > 1 ) {
+                return new Leaf();
+            }
+            if( level > 0 ) {
+                return new Middle();
+            }
+            return new Base();
+        }
+    }
+
+    static class Base {
+        int a = 1;
+
+        int value( long x ) {
+            return a + (int)x;
+        }
+
+        int other() {
+            return 10;
+        }
+    }
+
+    static class Middle extends Base {
+        int b = 5;
+
+        @Override
+        int value( long x ) {
+            return b * 2 + (int)x;
+        }
+
+        int middle() {
+            return b + a;
+        }
+    }
+
+    static class Leaf extends Middle {
+        @Override
+        int other() {
+            return b + 20;
+        }
+
+        @Override
+        int middle() {
+            return 7;
+        }
+    }
+}
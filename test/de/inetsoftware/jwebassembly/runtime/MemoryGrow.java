@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.ClassRule;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+import de.inetsoftware.jwebassembly.api.annotation.Import;
+import de.inetsoftware.jwebassembly.api.annotation.WasmTextCode;
+
+/**
+ * The limits of the linear memory, the heap base and the grow helper.
+ *
+ * @author Volker Berlin
+ */
+public class MemoryGrow extends AbstractBaseTest {
+
+    private static final int HEAP_BASE = 0x20000 + 16;
+
+    @ClassRule
+    public static WasmRule   rule      = new WasmRule( TestClass.class );
+
+    public MemoryGrow( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        for( ScriptEngine script : ScriptEngine.testEngines() ) {
+            addParam( list, script, "heapBase" );
+            addParam( list, script, "growSequence" );
+        }
+        rule.setTestParameters( list );
+        rule.setProperty( JWebAssembly.MEMORY_INITIAL_PAGES, "2" );
+        rule.setProperty( JWebAssembly.MEMORY_MAXIMUM_PAGES, "10" );
+        rule.setProperty( JWebAssembly.MEMORY_HEAP_BASE, Integer.toString( HEAP_BASE ) );
+        return list;
+    }
+
+    static class TestClass {
+
+        /**
+         * The exported global "__heap_base" of the module.
+         */
+        @Export
+        static int heapBase() {
+            return exportedHeapBase();
+        }
+
+        @Import( module = "Memory", name = "heapBase", js = "() => wasmImports.exports.__heap_base.value" )
+        private static int exportedHeapBase() {
+            return HEAP_BASE;
+        }
+
+        /**
+         * The heap base needs 3 pages, more as the initial size of 2 pages. Every step adds a digit with the result of
+         * Memory.grow:
+         * <ul>
+         * <li>4 pages are needed, doubles to 6 pages and returns the previous size 3
+         * <li>9 pages are needed, the double size is above the maximum, grows exact to 9 pages and returns 6
+         * <li>11 pages are above the maximum of 10 pages and returns -1, the digit is 0
+         * <li>5 pages are already available, returns the current size 9
+         * <li>the final size of 9 pages
+         * </ul>
+         */
+        @Export
+        @WasmTextCode( "memory.size " //
+                        + "i32.const 10 i32.mul " //
+                        + "i32.const 262144 call $de/inetsoftware/jwebassembly/module/nativecode/Memory.grow(I)I i32.add " //
+                        + "i32.const 10 i32.mul " //
+                        + "i32.const 589824 call $de/inetsoftware/jwebassembly/module/nativecode/Memory.grow(I)I i32.add " //
+                        + "i32.const 10 i32.mul " //
+                        + "i32.const 720896 call $de/inetsoftware/jwebassembly/module/nativecode/Memory.grow(I)I i32.const 1 i32.add i32.add " //
+                        + "i32.const 10 i32.mul " //
+                        + "i32.const 327680 call $de/inetsoftware/jwebassembly/module/nativecode/Memory.grow(I)I i32.add " //
+                        + "i32.const 10 i32.mul " //
+                        + "memory.size i32.add " //
+                        + "return" )
+        static int growSequence() {
+            return 336099;
+        }
+    }
+}
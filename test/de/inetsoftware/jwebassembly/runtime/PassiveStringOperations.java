@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.ClassRule;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+import de.inetsoftware.jwebassembly.web.DOMString;
+import de.inetsoftware.jwebassembly.web.JSObject;
+
+/**
+ * The string operations with the constant strings in a passive data segment that is copied on the first use.
+ *
+ * @author Volker Berlin
+ */
+public class PassiveStringOperations extends AbstractBaseTest {
+
+    @ClassRule
+    public static WasmRule rule = new WasmRule( StringOperations.TestClass.class, TestClass.class );
+
+    public PassiveStringOperations( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        for( ScriptEngine script : ScriptEngine.testEngines() ) {
+            addParam( list, script, "newFromChars" );
+            addParam( list, script, "newFromBytes" );
+            addParam( list, script, "constant" );
+            addParam( list, script, "objToString" );
+            addParam( list, script, "repeatedAccess" );
+            addParam( list, script, "sameInstance" );
+            addParam( list, script, "afterNeverAccessed" );
+            addParam( list, script, "constantAfterNeverAccessed" );
+        }
+        rule.setTestParameters( list );
+        rule.setProperty( JWebAssembly.PASSIVE_STRINGS, "true" );
+        return list;
+    }
+
+    static class TestClass {
+
+        /** never set, the strings in its branches are never accessed */
+        static boolean neverTrue;
+
+        /**
+         * The same constant is accessed in every loop iteration, only the first access copies it from the segment.
+         */
+        @Export
+        static int repeatedAccess() {
+            int result = 0;
+            for( int i = 0; i < 5; i++ ) {
+                String str = "äöü repeated";
+                result = result * 31 + str.length() * 1000 + str.charAt( i );
+                result = result * 31 + second().charAt( 4 - i );
+            }
+            return result;
+        }
+
+        private static String second() {
+            return "𝟘𝟙 second";
+        }
+
+        @Export
+        static boolean sameInstance() {
+            String first = second();
+            for( int i = 0; i < 3; i++ ) {
+                if( first != second() ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Export
+        static int afterNeverAccessed() {
+            if( neverTrue ) {
+                return "never accessed".length() + "also never accessed äöü".charAt( 3 );
+            }
+            String str = "accessed after";
+            return str.length() * 1000 + str.charAt( 0 ) + str.charAt( 13 );
+        }
+
+        @Export
+        static DOMString constantAfterNeverAccessed() {
+            String str = neverTrue ? "never accessed 𝒥𝒶𝓋𝒶" : "accessed äöü 𝟘𝟙𝟚";
+            return JSObject.domString( str );
+        }
+    }
+}
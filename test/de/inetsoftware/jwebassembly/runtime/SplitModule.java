@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * A module that is split into a primary module with the startup functions and a lazily loaded secondary module.
+ *
+ * @author Volker Berlin
+ */
+public class SplitModule extends AbstractBaseTest {
+
+    @ClassRule
+    public static WasmRule rule = new WasmRule( TestClass.class );
+
+    public SplitModule( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        for( ScriptEngine script : ScriptEngine.testEngines() ) {
+            addParam( list, script, "startup", 3 );
+            addParam( list, script, "lazy", 7 );
+            addParam( list, script, "virtual", 1 );
+            addParam( list, script, "staticValue" );
+        }
+        rule.setTestParameters( list );
+        try {
+            File profile = File.createTempFile( "SplitModule", ".txt" );
+            profile.deleteOnExit();
+            String className = TestClass.class.getName().replace( '.', '/' );
+            Files.write( profile.toPath(), ("# functions used at startup\n" + className + ".startup(I)I\n").getBytes( StandardCharsets.UTF_8 ) );
+            rule.setProperty( JWebAssembly.SPLIT_PROFILE, profile.getAbsolutePath() );
+        } catch( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        return list;
+    }
+
+    @Test
+    public void test() {
+        // the test script of SpiderMonkey has no synchronous file access to load the secondary module
+        assumeFalse( getScriptEngine().name().startsWith( "SpiderMonkey" ) );
+        super.test();
+    }
+
+    static class TestClass {
+
+        static final int[] TABLE;
+
+        static {
+            // the static initializer runs while the primary module is instantiated, the called functions can not be moved
+            TABLE = new int[10];
+            for( int i = 0; i < TABLE.length; i++ ) {
+                TABLE[i] = square( i ) + Base.create( i ).value();
+            }
+        }
+
+        @Export
+        static int startup( int x ) {
+            return x + 1;
+        }
+
+        @Export
+        static int lazy( int x ) {
+            int sum = startup( x );
+            for( int i = 0; i < x; i++ ) {
+                sum += fibonacci( i );
+            }
+            return sum;
+        }
+
+        @Export
+        static int virtual( int x ) {
+            return Base.create( x ).value() * 10 + Base.create( x + 1 ).value();
+        }
+
+        @Export
+        static int staticValue() {
+            return TABLE[3] * 100 + TABLE[4];
+        }
+
+        private static int square( int x ) {
+            return x * x;
+        }
+
+        private static int fibonacci( int n ) {
+            if( n < 2 ) {
+                return n;
+            }
+            return fibonacci( n - 1 ) + fibonacci( n - 2 );
+        }
+    }
+
+    static class Base {
+
+        static Base create( int x ) {
+            if( (x & 1) == 0 ) {
+                return new Base();
+            }
+            return new Sub();
+        }
+
+        int value() {
+            return 1;
+        }
+    }
+
+    static class Sub extends Base {
+
+        @Override
+        int value() {
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.ClassRule;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Control flow structured with the Stackifier instead of the BranchManager. The methods use no ternary operator and no
+ * exception handler, else the compiler falls back to the BranchManager.
+ *
+ * @author Volker Berlin
+ */
+public class StackifierControlFlow extends AbstractBaseTest {
+
+    @ClassRule
+    public static WasmRule rule = new WasmRule( TestClass.class );
+
+    public StackifierControlFlow( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        for( ScriptEngine script : ScriptEngine.testEngines() ) {
+            addParam( list, script, "ifElseChain" );
+            addParam( list, script, "shortCircuit" );
+            addParam( list, script, "whileLoop", 10 );
+            addParam( list, script, "doWhileWithContinue", 20 );
+            addParam( list, script, "nestedLoopsWithLabels", 6 );
+            addParam( list, script, "loopWithEarlyReturn" );
+            addParam( list, script, "tableSwitch" );
+            addParam( list, script, "lookupSwitch" );
+            addParam( list, script, "switchInLoop", 12 );
+            addParam( list, script, "longCompareInLoop", 9 );
+            addParam( list, script, "manyEarlyReturns" );
+        }
+        rule.setTestParameters( list );
+        rule.setProperty( JWebAssembly.STACKIFIER, "true" );
+        return list;
+    }
+
+    static class TestClass {
+
+        @Export
+        static int ifElseChain() {
+            int result = 0;
+            result = result * 31 + ifElseChainImpl( -5 );
+            result = result * 31 + ifElseChainImpl( 0 );
+            result = result * 31 + ifElseChainImpl( 7 );
+            result = result * 31 + ifElseChainImpl( 3 );
+            result = result * 31 + ifElseChainImpl( 100 );
+            return result;
+        }
+
+        private static int ifElseChainImpl( int a ) {
+            int result;
+            if( a < 0 ) {
+                result = 1;
+            } else if( a == 0 ) {
+                result = 2;
+            } else if( a < 10 ) {
+                result = 3;
+                if( a == 7 ) {
+                    result += 10;
+                }
+            } else {
+                result = 4;
+            }
+            return result * 100 + a;
+        }
+
+        @Export
+        static int shortCircuit() {
+            int result = 0;
+            result = result * 31 + shortCircuitImpl( 3, 4 );
+            result = result * 31 + shortCircuitImpl( -3, 4 );
+            result = result * 31 + shortCircuitImpl( 3, -4 );
+            result = result * 31 + shortCircuitImpl( -3, -3 );
+            result = result * 31 + shortCircuitImpl( 0, 0 );
+            return result;
+        }
+
+        private static int shortCircuitImpl( int a, int b ) {
+            int result = 0;
+            if( a > 0 && b > 0 || a == -3 ) {
+                result += 1;
+            }
+            if( a < 0 || b < 0 && a != b ) {
+                result += 2;
+            }
+            return result;
+        }
+
+        @Export
+        static int whileLoop( int count ) {
+            int sum = 0;
+            int i = 0;
+            while( i < count ) {
+                sum += i * i;
+                i++;
+            }
+            return sum;
+        }
+
+        @Export
+        static int doWhileWithContinue( int count ) {
+            int sum = 0;
+            int i = 0;
+            do {
+                i++;
+                if( (i & 1) == 0 ) {
+                    continue;
+                }
+                sum += i;
+            } while( i < count );
+            return sum;
+        }
+
+        @Export
+        static int nestedLoopsWithLabels( int count ) {
+            int sum = 0;
+            outer: for( int i = 0; i < count; i++ ) {
+                for( int j = 0; j < count; j++ ) {
+                    if( j > i ) {
+                        continue outer;
+                    }
+                    if( i * j > 12 ) {
+                        break outer;
+                    }
+                    sum += i * 10 + j;
+                }
+            }
+            return sum;
+        }
+
+        @Export
+        static int loopWithEarlyReturn() {
+            int result = 0;
+            result = result * 31 + loopWithEarlyReturnImpl( 15 );
+            result = result * 31 + loopWithEarlyReturnImpl( 500 );
+            result = result * 31 + loopWithEarlyReturnImpl( 2000 );
+            return result;
+        }
+
+        private static int loopWithEarlyReturnImpl( int limit ) {
+            int value = 1;
+            for( int i = 0; i < 20; i++ ) {
+                value = value * 3 % 1000;
+                if( value > limit ) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Export
+        static int tableSwitch() {
+            int result = 0;
+            result = result * 31 + tableSwitchImpl( 0 );
+            result = result * 31 + tableSwitchImpl( 1 );
+            result = result * 31 + tableSwitchImpl( 2 );
+            result = result * 31 + tableSwitchImpl( 3 );
+            result = result * 31 + tableSwitchImpl( 9 );
+            result = result * 31 + tableSwitchImpl( -1 );
+            return result;
+        }
+
+        private static int tableSwitchImpl( int a ) {
+            int result = 0;
+            switch( a ) {
+                case 0:
+                    result = 10;
+                    break;
+                case 1:
+                    result = 20;
+                    // fall through
+                case 2:
+                    result += 30;
+                    break;
+                case 3:
+                    return 99;
+                default:
+                    result = -1;
+            }
+            return result;
+        }
+
+        @Export
+        static int lookupSwitch() {
+            int result = 0;
+            result = result * 31 + lookupSwitchImpl( -7 );
+            result = result * 31 + lookupSwitchImpl( 1 );
+            result = result * 31 + lookupSwitchImpl( 1000 );
+            result = result * 31 + lookupSwitchImpl( 5 );
+            return result;
+        }
+
+        private static int lookupSwitchImpl( int a ) {
+            switch( a ) {
+                case -7:
+                    return 1;
+                case 1:
+                    return 2;
+                case 1000:
+                    return 3;
+                default:
+                    return 4;
+            }
+        }
+
+        @Export
+        static int switchInLoop( int count ) {
+            int sum = 0;
+            for( int i = 0; i < count; i++ ) {
+                switch( i % 4 ) {
+                    case 0:
+                        sum += 1;
+                        break;
+                    case 1:
+                        continue;
+                    case 2:
+                        sum *= 2;
+                        break;
+                    default:
+                        sum -= 1;
+                }
+                sum++;
+            }
+            return sum;
+        }
+
+        @Export
+        static int longCompareInLoop( int count ) {
+            long value = 1;
+            int steps = 0;
+            while( value < 1L << 40 ) {
+                value *= count;
+                steps++;
+            }
+            return steps;
+        }
+
+        /**
+         * Many conditions and early returns, more jumps without a target as the count of the other jumps.
+         */
+        @Export
+        static int manyEarlyReturns() {
+            int result = 0;
+            result = result * 31 + checkName( new char[] { 'U', 'T', 'F', '-', '8' } );
+            result = result * 31 + checkName( new char[] { 'I', 'S', 'O', '_', '8', '8', '5', '9', '-', '1' } );
+            result = result * 31 + checkName( new char[] { 'x', ':', 'y' } );
+            result = result * 31 + checkName( new char[0] );
+            result = result * 31 + checkName( new char[] { '-', 'a', 'b', 'c' } );
+            result = result * 31 + checkName( new char[] { 'a', '.', 'b', '?', 'c' } );
+            result = result * 31 + checkName( new char[] { 'Z' } );
+            result = result * 31 + checkName( new char[] { '9', ' ', 'z' } );
+            return result;
+        }
+
+        private static int checkName( char[] name ) {
+            int n = name.length;
+            if( n == 0 ) {
+                return -1;
+            }
+            for( int i = 0; i < n; i++ ) {
+                char c = name[i];
+                if( c >= 'A' && c <= 'Z' ) {
+                    continue;
+                }
+                if( c >= 'a' && c <= 'z' ) {
+                    continue;
+                }
+                if( c >= '0' && c <= '9' ) {
+                    continue;
+                }
+                if( c == '-' && i != 0 ) {
+                    continue;
+                }
+                if( c == '+' && i != 0 ) {
+                    continue;
+                }
+                if( c == ':' && i != 0 ) {
+                    continue;
+                }
+                if( c == '_' && i != 0 ) {
+                    continue;
+                }
+                if( c == '.' && i != 0 ) {
+                    continue;
+                }
+                if( c == '-' ) {
+                    return -2;
+                }
+                if( c == ' ' ) {
+                    return -3;
+                }
+                if( c == '\t' ) {
+                    return -4;
+                }
+                if( c == '/' ) {
+                    return -5;
+                }
+                if( c == '\\' ) {
+                    return -6;
+                }
+                if( c == '*' ) {
+                    return -7;
+                }
+                if( c == '?' ) {
+                    return -8;
+                }
+                if( c == '"' ) {
+                    return -9;
+                }
+                if( c == '<' ) {
+                    return -10;
+                }
+                if( c == '>' ) {
+                    return -11;
+                }
+                if( c == '|' ) {
+                    return -12;
+                }
+                if( c == '#' ) {
+                    return -13;
+                }
+                if( c == '%' ) {
+                    return -14;
+                }
+                return -15;
+            }
+            if( n > 8 ) {
+                return 2;
+            }
+            if( n > 4 ) {
+                return 3;
+            }
+            if( n > 1 ) {
+                return 4;
+            }
+            return 1;
+        }
+    }
+}
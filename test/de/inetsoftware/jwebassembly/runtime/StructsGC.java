@@ -50,6 +50,7 @@ public static Collection<Object[]> data() {
             //TODO addParam( list, script, "callVirtualMethod" );
             addParam( list, script, "useGlobalObject" );
             addParam( list, script, "multipleAssign" );
+            addParam( list, script, "packedFields" );
         }
         rule.setTestParameters( list );
         return list;
@@ -139,6 +140,43 @@ static int multipleAssign() {
             }
             return val.a;
         }
+
+        /**
+         * Read and write the packed fields with negative and high bit values. The sign extension depends on the Java type.
+         */
+        @Export
+        static int packedFields() {
+            Packed val = new Packed();
+            val.z = true;
+            val.b = -100;
+            val.c = '\uFFFE';
+            val.s = -30000;
+            int result = (val.z ? 1 : 0) + val.b + val.c + val.s;
+
+            val.b = (byte)0x80;
+            val.c = (char)0x8001;
+            val.s = (short)0x8000;
+            result = result * 31 + val.b;
+            result = result * 31 + val.c;
+            result = result * 31 + val.s;
+
+            val.b++;
+            val.c--;
+            val.s = (short)(val.s - 1); // wraps to 0x7FFF
+            val.z = !val.z;
+            result = result * 31 + val.b + val.c + val.s + (val.z ? 1 : 0);
+            return result;
+        }
+    }
+
+    static class Packed {
+        boolean z;
+
+        byte    b;
+
+        char    c;
+
+        short   s;
     }
 
     static class Abc {
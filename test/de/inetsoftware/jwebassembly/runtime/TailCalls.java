@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import static org.junit.Assume.assumeFalse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+import de.inetsoftware.jwebassembly.api.annotation.WasmTextCode;
+
+/**
+ * @author Volker Berlin
+ */
+public class TailCalls extends AbstractBaseTest {
+
+    @ClassRule
+    public static WasmRule rule = new WasmRule( TestClass.class );
+
+    public TailCalls( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        for( ScriptEngine script : ScriptEngine.testEngines() ) {
+            addParam( list, script, "deepRecursion" );
+            addParam( list, script, "callInTry" );
+            addParam( list, script, "subTypeResult" );
+            addParam( list, script, "widenResult" );
+        }
+        rule.setTestParameters( list );
+        rule.setProperty( JWebAssembly.WASM_USE_TAIL_CALLS, "true" );
+        rule.setProperty( JWebAssembly.WASM_USE_EH, "true" );
+        return list;
+    }
+
+    @Test
+    public void test() {
+        assumeFalse( getScriptEngine().name().startsWith( "SpiderMonkey" ) ); //TODO https://bugzilla.mozilla.org/show_bug.cgi?id=1335652
+        super.test();
+    }
+
+    static class TestClass {
+
+        @Export
+        static int deepRecursion() {
+            int depth = 1000000;
+            if( isJava() ) {
+                // the JVM has no tail calls and would throw a StackOverflowError
+                int acc = 0;
+                for( int i = 1; i <= depth; i++ ) {
+                    acc += i;
+                }
+                return acc;
+            }
+            return sum( depth, 0 );
+        }
+
+        private static int sum( int n, int acc ) {
+            if( n == 0 ) {
+                return acc;
+            }
+            return sum( n - 1, acc + n );
+        }
+
+        @WasmTextCode( "i32.const 0 " //
+                        + "return" )
+        private static boolean isJava() {
+            return true;
+        }
+
+        @Export
+        static int callInTry() {
+            try {
+                // must not be a return_call, else the exception handler is left
+                return throwing( 5 );
+            } catch( IllegalStateException ex ) {
+                return 42;
+            }
+        }
+
+        private static int throwing( int a ) {
+            if( a > 0 ) {
+                throw new IllegalStateException();
+            }
+            return a;
+        }
+
+        @Export
+        static int subTypeResult() {
+            return ((Value)asObject( 7 )).value;
+        }
+
+        private static Object asObject( int value ) {
+            // the result type of newValue() is different as the result type of this method
+            return newValue( value );
+        }
+
+        private static Value newValue( int value ) {
+            Value val = new Value();
+            val.value = value;
+            return val;
+        }
+
+        @Export
+        static long widenResult() {
+            // an i64 result from an i32 call
+            return intResult( 3 );
+        }
+
+        private static int intResult( int a ) {
+            return -a;
+        }
+
+        static class Value {
+            int value;
+        }
+    }
+}
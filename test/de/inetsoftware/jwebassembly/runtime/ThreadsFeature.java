@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.ScriptEngine;
+import de.inetsoftware.jwebassembly.WasmRule;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Compare and set and the monitor of synchronized with the threads feature and a shared memory.
+ *
+ * @author Volker Berlin
+ */
+public class ThreadsFeature extends AbstractBaseTest {
+
+    @ClassRule
+    public static WasmRule rule = new WasmRule( TestClass.class );
+
+    public ThreadsFeature( ScriptEngine script, String method, Object[] params ) {
+        super( rule, script, method, params );
+    }
+
+    @Parameters( name = "{0}-{1}" )
+    public static Collection<Object[]> data() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        for( ScriptEngine script : ScriptEngine.testEngines() ) {
+            addParam( list, script, "compareAndSwapInt" );
+            addParam( list, script, "compareAndSwapIntFailed" );
+            addParam( list, script, "compareAndSwapLongFailed" );
+            addParam( list, script, "compareAndSwapReferenceFailed" );
+            addParam( list, script, "synchronizedMethod", 3, 4 );
+            addParam( list, script, "synchronizedBlock", 10 );
+            addParam( list, script, "reentrantSynchronized", 5 );
+            addParam( list, script, "returnInSynchronized", 7 );
+        }
+        rule.setTestParameters( list );
+        rule.setProperty( JWebAssembly.WASM_USE_THREADS, "true" );
+        return list;
+    }
+
+    static class TestClass {
+
+        private static final Object LOCK = new Object();
+
+        private static int          counter;
+
+        @Export
+        static int compareAndSwapInt() {
+            AtomicInteger obj = new AtomicInteger();
+            if( obj.compareAndSet( 0, 25 ) ) {
+                return obj.get();
+            } else {
+                return 42;
+            }
+        }
+
+        @Export
+        static int compareAndSwapIntFailed() {
+            AtomicInteger obj = new AtomicInteger( 5 );
+            if( obj.compareAndSet( 0, 25 ) ) {
+                return 42;
+            } else {
+                return obj.get();
+            }
+        }
+
+        @Export
+        static long compareAndSwapLongFailed() {
+            AtomicLong obj = new AtomicLong( 5 );
+            if( obj.compareAndSet( 0, 25 ) ) {
+                return 42;
+            } else {
+                return obj.get();
+            }
+        }
+
+        @Export
+        static int compareAndSwapReferenceFailed() {
+            AtomicReference<Integer> obj = new AtomicReference<>( 5 );
+            if( obj.compareAndSet( null, 25 ) ) {
+                return 42;
+            } else {
+                return obj.get();
+            }
+        }
+
+        @Export
+        static synchronized int synchronizedMethod( int a, int b ) {
+            return a * 10 + b;
+        }
+
+        @Export
+        static int synchronizedBlock( int count ) {
+            counter = 0;
+            for( int i = 0; i < count; i++ ) {
+                synchronized( LOCK ) {
+                    counter += i;
+                }
+            }
+            return counter;
+        }
+
+        /**
+         * The lock of the outer block is held while the inner blocks are entered. After the loop the lock must be free
+         * again.
+         */
+        @Export
+        static int reentrantSynchronized( int count ) {
+            int result = 0;
+            for( int i = 0; i < count; i++ ) {
+                synchronized( LOCK ) {
+                    result += synchronizedMethod( i, 1 );
+                    synchronized( TestClass.class ) {
+                        result++;
+                    }
+                }
+            }
+            return result + synchronizedMethod( 0, 2 );
+        }
+
+        @Export
+        static int returnInSynchronized( int count ) {
+            int result = 0;
+            for( int i = 0; i < count; i++ ) {
+                result += firstEven( i );
+            }
+            return result;
+        }
+
+        private static int firstEven( int value ) {
+            synchronized( LOCK ) {
+                if( (value & 1) == 0 ) {
+                    return value;
+                }
+                counter = value;
+            }
+            return -1;
+        }
+    }
+}
@@ -21,6 +21,7 @@
 import java.util.Collection;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -48,14 +49,18 @@ public static Collection<Object[]> data() {
         ArrayList<Object[]> list = new ArrayList<>();
         for( ScriptEngine script : ScriptEngine.testEngines() ) {
             addParam( list, script, "compareAndSwapInt" );
+            addParam( list, script, "compareAndSwapIntFailed" );
             addParam( list, script, "getAndAddInt" );
             addParam( list, script, "getAndSetInt" );
             addParam( list, script, "lazySetInt" );
             addParam( list, script, "compareAndSwapLong" );
+            addParam( list, script, "compareAndSwapLongFailed" );
             addParam( list, script, "getAndAddLong" );
             addParam( list, script, "getAndSetLong" );
             addParam( list, script, "lazySetLong" );
             addParam( list, script, "compareAndSwapReference" );
+            addParam( list, script, "compareAndSwapReferenceFailed" );
+            addParam( list, script, "compareAndSwapIntArray" );
             addParam( list, script, "getAndSetReference" );
             addParam( list, script, "lazySetReference" );
             addParam( list, script, "atomicReferenceFieldUpdater" );
@@ -78,6 +83,16 @@ static int compareAndSwapInt() {
             }
         }
 
+        @Export
+        static int compareAndSwapIntFailed() {
+            AtomicInteger obj = new AtomicInteger( 5 );
+            if( obj.compareAndSet( 0, 25 ) ) {
+                return 42;
+            } else {
+                return obj.get();
+            }
+        }
+
         @Export
         static int getAndAddInt() {
             AtomicInteger obj = new AtomicInteger();
@@ -117,6 +132,16 @@ static long compareAndSwapLong() {
             }
         }
 
+        @Export
+        static long compareAndSwapLongFailed() {
+            AtomicLong obj = new AtomicLong( 5 );
+            if( obj.compareAndSet( 0, 25 ) ) {
+                return 42;
+            } else {
+                return obj.get();
+            }
+        }
+
         @Export
         static long getAndAddLong() {
             AtomicLong obj = new AtomicLong();
@@ -156,6 +181,26 @@ static int compareAndSwapReference() {
             }
         }
 
+        @Export
+        static int compareAndSwapReferenceFailed() {
+            AtomicReference<Integer> obj = new AtomicReference<>( 5 );
+            if( obj.compareAndSet( null, 25 ) ) {
+                return 42;
+            } else {
+                return obj.get();
+            }
+        }
+
+        @Export
+        static int compareAndSwapIntArray() {
+            AtomicIntegerArray array = new AtomicIntegerArray( 3 );
+            int result = 0;
+            result = result * 10 + (array.compareAndSet( 1, 0, 7 ) ? 1 : 2);
+            result = result * 10 + (array.compareAndSet( 1, 0, 9 ) ? 1 : 2);
+            result = result * 10 + array.get( 1 );
+            return result;
+        }
+
         @Export
         static int getAndSetReference() {
             AtomicReference<Integer> obj = new AtomicReference<>();
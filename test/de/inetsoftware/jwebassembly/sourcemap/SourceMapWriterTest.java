@@ -48,4 +48,66 @@ public void sourceRootNotNull() throws IOException {
                 "}";
         assertEquals( expected, generate.toString() );
     }
+
+    @Test
+    public void buffers() throws IOException {
+        SourceMapWriter map = new SourceMapWriter( null );
+
+        SourceMappingBuffer buffer1 = new SourceMappingBuffer();
+        buffer1.add( 0, 1, "Test1.java" );
+        buffer1.add( 5, 2, "Test1.java" );
+        map.addMappings( buffer1 );
+        SourceMappingBuffer buffer2 = new SourceMappingBuffer();
+        buffer2.add( 0, 4, "Test2.java" );
+        buffer2.add( 5, 9, "Test2.java" );
+        buffer2.addOffset( 3 );
+        map.addMappings( buffer2 );
+
+        StringBuilder generate = new StringBuilder();
+        map.generate( generate );
+        String expected = "{\n" +
+                        "\"version\":3,\n" +
+                        "\"sources\":[\"Test1.java\",\"Test2.java\"],\n" +
+                        "\"names\":[],\n" +
+                        "\"mappings\":\"AAAA,KACA,FCEA,KAKA;\"\n" +
+                        "}";
+        assertEquals( expected, generate.toString() );
+    }
+
+    @Test
+    public void indexMap() throws IOException {
+        SourceMapWriter map = new SourceMapWriter( null );
+
+        SourceMappingBuffer buffer1 = new SourceMappingBuffer();
+        buffer1.add( 0, 1, "Test1.java" );
+        buffer1.add( 5, 2, "Test1.java" );
+        buffer1.addOffset( 10 );
+        map.addMappings( buffer1 );
+        SourceMappingBuffer buffer2 = new SourceMappingBuffer();
+        buffer2.add( 0, 4, "Test2.java" );
+        buffer2.add( 5, 9, "Test2.java" );
+        buffer2.addOffset( 20 );
+        map.addMappings( buffer2 );
+
+        StringBuilder generate = new StringBuilder();
+        map.generateIndexMap( generate );
+        String expected = "{\n" +
+                        "\"version\":3,\n" +
+                        "\"sections\":[\n" +
+                        "{\"offset\":{\"line\":0,\"column\":10},\"map\":{\n" +
+                        "\"version\":3,\n" +
+                        "\"sources\":[\"Test1.java\"],\n" +
+                        "\"names\":[],\n" +
+                        "\"mappings\":\"AAAA,KACA;\"\n" +
+                        "}},\n" +
+                        "{\"offset\":{\"line\":0,\"column\":20},\"map\":{\n" +
+                        "\"version\":3,\n" +
+                        "\"sources\":[\"Test2.java\"],\n" +
+                        "\"names\":[],\n" +
+                        "\"mappings\":\"AAGA,KAKA;\"\n" +
+                        "}}\n" +
+                        "]\n" +
+                        "}";
+        assertEquals( expected, generate.toString() );
+    }
 }
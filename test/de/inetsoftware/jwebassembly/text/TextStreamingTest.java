@@ -0,0 +1,246 @@
+/*
+ * Copyright 2026 Volker Berlin (i-net software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.inetsoftware.jwebassembly.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.inetsoftware.jwebassembly.JWebAssembly;
+import de.inetsoftware.jwebassembly.WasmException;
+import de.inetsoftware.jwebassembly.api.annotation.Export;
+
+/**
+ * Compare the output of the text writer with and without the streaming of the functions to a temporary file.
+ * 
+ * @author Volker Berlin
+ */
+public class TextStreamingTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static JWebAssembly createCompiler( boolean streaming, Class<?>... classes ) {
+        JWebAssembly webAsm = new JWebAssembly();
+        for( Class<?> clazz : classes ) {
+            URL url = clazz.getResource( '/' + clazz.getName().replace( '.', '/' ) + ".class" );
+            webAsm.addFile( url );
+        }
+        webAsm.setProperty( JWebAssembly.TEXT_STREAMING, Boolean.toString( streaming ) );
+        return webAsm;
+    }
+
+    /**
+     * Get the current temporary files of the streaming.
+     * 
+     * @return the file names
+     */
+    private static Set<String> spillFiles() {
+        Set<String> names = new HashSet<>();
+        String[] list = new File( System.getProperty( "java.io.tmpdir" ) ).list();
+        if( list != null ) {
+            for( String name : list ) {
+                if( name.startsWith( "jwebassembly" ) && name.endsWith( ".wat" ) ) {
+                    names.add( name );
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void assertIdentical( Class<?>... classes ) {
+        String inMemory = createCompiler( false, classes ).compileToText();
+        String streamed = createCompiler( true, classes ).compileToText();
+        assertTrue( inMemory, inMemory.contains( "(func " ) );
+        assertEquals( inMemory, streamed );
+    }
+
+    @Test
+    public void identicalOutput() {
+        assertIdentical( TestClass.class );
+    }
+
+    @Test
+    public void identicalOutputMultipleClasses() {
+        assertIdentical( TestClass.class, Base.class, Sub.class, OtherClass.class );
+    }
+
+    /**
+     * The functions are written to the temporary file while the compile is running and copied back on close.
+     */
+    @Test
+    public void spillFile() {
+        Set<String> before = spillFiles();
+        StringBuilder output = new StringBuilder();
+        Set<String> duringWrite = new HashSet<>();
+        createCompiler( true, TestClass.class, Base.class, Sub.class, OtherClass.class ).compileToText( new Appendable() {
+            @Override
+            public Appendable append( CharSequence csq ) {
+                if( output.length() == 0 ) {
+                    duringWrite.addAll( spillFiles() );
+                    duringWrite.removeAll( before );
+                }
+                output.append( csq );
+                return this;
+            }
+
+            @Override
+            public Appendable append( CharSequence csq, int start, int end ) {
+                return append( csq.subSequence( start, end ) );
+            }
+
+            @Override
+            public Appendable append( char c ) {
+                return append( String.valueOf( c ) );
+            }
+        } );
+        assertFalse( "no temporary file", duringWrite.isEmpty() );
+        assertEquals( createCompiler( false, TestClass.class, Base.class, Sub.class, OtherClass.class ).compileToText(), output.toString() );
+        Set<String> after = spillFiles();
+        after.retainAll( duringWrite );
+        assertEquals( "temporary file not deleted", new HashSet<>(), after );
+    }
+
+    /**
+     * The target throws an exception after the functions are written to the temporary file.
+     */
+    @Test
+    public void cleanupAfterFailedOutput() {
+        Set<String> before = spillFiles();
+        Set<String> duringWrite = new HashSet<>();
+        try {
+            createCompiler( true, TestClass.class ).compileToText( new Appendable() {
+                @Override
+                public Appendable append( CharSequence csq ) throws IOException {
+                    duringWrite.addAll( spillFiles() );
+                    duringWrite.removeAll( before );
+                    throw new IOException( "disk full" );
+                }
+
+                @Override
+                public Appendable append( CharSequence csq, int start, int end ) throws IOException {
+                    return append( csq.subSequence( start, end ) );
+                }
+
+                @Override
+                public Appendable append( char c ) throws IOException {
+                    return append( String.valueOf( c ) );
+                }
+            } );
+            fail( "exception expected" );
+        } catch( WasmException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains( "disk full" ) );
+        }
+        assertFalse( "no temporary file", duringWrite.isEmpty() );
+        Set<String> after = spillFiles();
+        after.removeAll( before );
+        assertEquals( "temporary file not deleted", new HashSet<>(), after );
+    }
+
+    /**
+     * The target file can not be opened because it is a directory. This fails after the functions are written to the
+     * temporary file.
+     */
+    @Test
+    public void cleanupAfterFailedCompile() throws IOException {
+        Set<String> before = spillFiles();
+        File file = temp.newFolder( "test.wat" );
+        try {
+            createCompiler( true, TestClass.class ).compileToText( file );
+            fail( "exception expected" );
+        } catch( WasmException ex ) {
+            // expected
+        }
+        Set<String> after = spillFiles();
+        after.removeAll( before );
+        assertEquals( "temporary file not deleted", new HashSet<>(), after );
+    }
+
+    static class TestClass {
+
+        static int counter;
+
+        @Export
+        static int sum( int count ) {
+            int sum = 0;
+            for( int i = 0; i < count; i++ ) {
+                sum += square( i );
+            }
+            return sum;
+        }
+
+        @Export
+        static long mixed( int a, long b, float c, double d ) {
+            counter++;
+            return a + b + (long)c + (long)d + counter;
+        }
+
+        @Export
+        static int select( int a ) {
+            switch( a ) {
+                case 1:
+                    return square( a );
+                case 2:
+                    return cube( a );
+                default:
+                    return -1;
+            }
+        }
+
+        private static int square( int a ) {
+            return a * a;
+        }
+
+        private static int cube( int a ) {
+            return a * square( a );
+        }
+    }
+
+    static class Base {
+
+        int value() {
+            return 1;
+        }
+    }
+
+    static class Sub extends Base {
+
+        @Override
+        int value() {
+            return 2;
+        }
+    }
+
+    static class OtherClass {
+
+        @Export
+        static int virtual( int a ) {
+            Base obj = a > 0 ? new Sub() : new Base();
+            return obj.value() + TestClass.sum( a );
+        }
+    }
+}